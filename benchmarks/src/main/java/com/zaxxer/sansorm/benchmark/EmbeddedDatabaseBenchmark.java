@@ -0,0 +1,131 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.sansorm.OrmElf;
+
+/**
+ * Measures reads and writes against embedded H2 and SQLite databases, for comparison with the
+ * in-memory {@link ResultSetMappingBenchmark} and {@link StatementBindingBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedDatabaseBenchmark
+{
+   @Param({ "h2", "sqlite" })
+   public String database;
+
+   @Param({ "1", "100", "1000" })
+   public int rows;
+
+   // SQLite has no native timestamp type, so dates are benchmarked as converted epoch milliseconds
+   @Param({ "INT", "STRING", "CONVERTED_DATE" })
+   public FieldType fieldType;
+
+   private Connection connection;
+   private Class<?> entityClass;
+   private Object entity;
+   private int nextId;
+
+   @Setup
+   public void setup() throws SQLException
+   {
+      // every thread gets a private in-memory database
+      final String url = "h2".equals(database)
+         ? "jdbc:h2:mem:bench" + Thread.currentThread().getId()
+         : "jdbc:sqlite::memory:";
+      connection = DriverManager.getConnection(url);
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute(fieldType.getCreateTable());
+      }
+
+      entityClass = fieldType.getEntityClass();
+      final List<Object> entities = new ArrayList<>(rows);
+      for (int row = 0; row < rows; row++) {
+         entities.add(fieldType.newEntity(row));
+      }
+      OrmElf.insertListBatched(connection, entities);
+      entity = entities.get(0);
+      nextId = rows;
+   }
+
+   @TearDown
+   public void tearDown() throws SQLException
+   {
+      connection.close();
+   }
+
+   @TearDown(Level.Iteration)
+   public void trim() throws SQLException
+   {
+      // remove the rows inserted by insertObject() so that every iteration reads the same data
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("DELETE FROM " + fieldType.getTableName() + " WHERE id >= " + rows);
+      }
+      nextId = rows;
+   }
+
+   @Benchmark
+   public List<?> listFromClause() throws SQLException
+   {
+      return OrmElf.listFromClause(connection, entityClass, "id >= ?", 0);
+   }
+
+   @Benchmark
+   public Object objectById() throws SQLException
+   {
+      return OrmElf.objectById(connection, entityClass, rows / 2);
+   }
+
+   @Benchmark
+   public Object updateObject() throws SQLException
+   {
+      return OrmElf.updateObject(connection, entity);
+   }
+
+   @Benchmark
+   public Object insertObject() throws SQLException
+   {
+      return OrmElf.insertObject(connection, fieldType.newEntity(nextId++));
+   }
+}
@@ -0,0 +1,255 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.sansorm.DateConverter;
+
+/**
+ * The field types the benchmarks are parameterized by.  Each type maps to an entity class with an
+ * {@code int} id and {@value #VALUE_COLUMNS} value columns of that type, so that the mapped column
+ * count can be varied from 1 to {@value #MAX_COLUMNS} by projecting a prefix of the columns.
+ */
+public enum FieldType
+{
+   INT(IntRow.class, Types.INTEGER, "INTEGER"),
+   STRING(StringRow.class, Types.VARCHAR, "VARCHAR(64)"),
+   TIMESTAMP(TimestampRow.class, Types.TIMESTAMP, "TIMESTAMP"),
+   /** {@code java.util.Date} fields stored as epoch milliseconds through an {@code AttributeConverter} */
+   CONVERTED_DATE(ConvertedDateRow.class, Types.BIGINT, "BIGINT");
+
+   public static final int VALUE_COLUMNS = 15;
+   public static final int MAX_COLUMNS = VALUE_COLUMNS + 1;
+
+   private final Class<?> entityClass;
+   private final int sqlType;
+   private final String ddlType;
+
+   FieldType(final Class<?> entityClass, final int sqlType, final String ddlType)
+   {
+      this.entityClass = entityClass;
+      this.sqlType = sqlType;
+      this.ddlType = ddlType;
+   }
+
+   public Class<?> getEntityClass()
+   {
+      return entityClass;
+   }
+
+   public int getSqlType()
+   {
+      return sqlType;
+   }
+
+   public String getTableName()
+   {
+      return entityClass.getAnnotation(Table.class).name();
+   }
+
+   /**
+    * @param columns the number of columns, including the id column
+    * @return the column names, starting with the id column
+    */
+   public String[] getColumnNames(final int columns)
+   {
+      final String[] names = new String[columns];
+      names[0] = "id";
+      for (int i = 1; i < columns; i++) {
+         names[i] = "c" + i;
+      }
+      return names;
+   }
+
+   public String getCreateTable()
+   {
+      final StringBuilder sql = new StringBuilder("CREATE TABLE ").append(getTableName()).append(" (id INTEGER PRIMARY KEY");
+      for (int i = 1; i <= VALUE_COLUMNS; i++) {
+         sql.append(", c").append(i).append(' ').append(ddlType);
+      }
+      return sql.append(')').toString();
+   }
+
+   /**
+    * The database representation of a value, as returned by {@code ResultSet.getObject()}.
+    *
+    * @param row the row number
+    * @param column the 1-based column number, column 1 being the id
+    * @return the value
+    */
+   public Object value(final int row, final int column)
+   {
+      if (column == 1) {
+         return row;
+      }
+
+      switch (this) {
+         case INT:
+            return row * 31 + column;
+         case STRING:
+            return "value-" + row + "-" + column;
+         case TIMESTAMP:
+            return new Timestamp(epochMillis(row, column));
+         default:
+            return epochMillis(row, column);
+      }
+   }
+
+   /**
+    * The entity representation of a value.
+    *
+    * @param row the row number
+    * @param column the 1-based column number, column 1 being the id
+    * @return the value
+    */
+   public Object entityValue(final int row, final int column)
+   {
+      return (this == CONVERTED_DATE && column > 1) ? new Date(epochMillis(row, column)) : value(row, column);
+   }
+
+   /**
+    * @param rows the number of rows
+    * @param columns the number of columns, including the id column
+    * @return the rows in database representation
+    */
+   public Object[][] rows(final int rows, final int columns)
+   {
+      final Object[][] data = new Object[rows][columns];
+      for (int row = 0; row < rows; row++) {
+         for (int column = 1; column <= columns; column++) {
+            data[row][column - 1] = value(row, column);
+         }
+      }
+      return data;
+   }
+
+   /**
+    * @param row the row number
+    * @return a new entity with every column populated
+    */
+   public Object newEntity(final int row)
+   {
+      try {
+         final Object entity = entityClass.newInstance();
+         for (int column = 1; column <= MAX_COLUMNS; column++) {
+            final String field = (column == 1 ? "id" : "c" + (column - 1));
+            entityClass.getField(field).set(entity, entityValue(row, column));
+         }
+         return entity;
+      }
+      catch (ReflectiveOperationException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static long epochMillis(final int row, final int column)
+   {
+      return 1_500_000_000_000L + row * 1000L + column;
+   }
+
+   @Table(name = "int_row")
+   public static class IntRow
+   {
+      @Id @Column(name = "id") public int id;
+      @Column(name = "c1") public int c1;
+      @Column(name = "c2") public int c2;
+      @Column(name = "c3") public int c3;
+      @Column(name = "c4") public int c4;
+      @Column(name = "c5") public int c5;
+      @Column(name = "c6") public int c6;
+      @Column(name = "c7") public int c7;
+      @Column(name = "c8") public int c8;
+      @Column(name = "c9") public int c9;
+      @Column(name = "c10") public int c10;
+      @Column(name = "c11") public int c11;
+      @Column(name = "c12") public int c12;
+      @Column(name = "c13") public int c13;
+      @Column(name = "c14") public int c14;
+      @Column(name = "c15") public int c15;
+   }
+
+   @Table(name = "string_row")
+   public static class StringRow
+   {
+      @Id @Column(name = "id") public int id;
+      @Column(name = "c1") public String c1;
+      @Column(name = "c2") public String c2;
+      @Column(name = "c3") public String c3;
+      @Column(name = "c4") public String c4;
+      @Column(name = "c5") public String c5;
+      @Column(name = "c6") public String c6;
+      @Column(name = "c7") public String c7;
+      @Column(name = "c8") public String c8;
+      @Column(name = "c9") public String c9;
+      @Column(name = "c10") public String c10;
+      @Column(name = "c11") public String c11;
+      @Column(name = "c12") public String c12;
+      @Column(name = "c13") public String c13;
+      @Column(name = "c14") public String c14;
+      @Column(name = "c15") public String c15;
+   }
+
+   @Table(name = "timestamp_row")
+   public static class TimestampRow
+   {
+      @Id @Column(name = "id") public int id;
+      @Column(name = "c1") public Timestamp c1;
+      @Column(name = "c2") public Timestamp c2;
+      @Column(name = "c3") public Timestamp c3;
+      @Column(name = "c4") public Timestamp c4;
+      @Column(name = "c5") public Timestamp c5;
+      @Column(name = "c6") public Timestamp c6;
+      @Column(name = "c7") public Timestamp c7;
+      @Column(name = "c8") public Timestamp c8;
+      @Column(name = "c9") public Timestamp c9;
+      @Column(name = "c10") public Timestamp c10;
+      @Column(name = "c11") public Timestamp c11;
+      @Column(name = "c12") public Timestamp c12;
+      @Column(name = "c13") public Timestamp c13;
+      @Column(name = "c14") public Timestamp c14;
+      @Column(name = "c15") public Timestamp c15;
+   }
+
+   @Table(name = "converted_date_row")
+   public static class ConvertedDateRow
+   {
+      @Id @Column(name = "id") public int id;
+      @Column(name = "c1") @Convert(converter = DateConverter.class) public Date c1;
+      @Column(name = "c2") @Convert(converter = DateConverter.class) public Date c2;
+      @Column(name = "c3") @Convert(converter = DateConverter.class) public Date c3;
+      @Column(name = "c4") @Convert(converter = DateConverter.class) public Date c4;
+      @Column(name = "c5") @Convert(converter = DateConverter.class) public Date c5;
+      @Column(name = "c6") @Convert(converter = DateConverter.class) public Date c6;
+      @Column(name = "c7") @Convert(converter = DateConverter.class) public Date c7;
+      @Column(name = "c8") @Convert(converter = DateConverter.class) public Date c8;
+      @Column(name = "c9") @Convert(converter = DateConverter.class) public Date c9;
+      @Column(name = "c10") @Convert(converter = DateConverter.class) public Date c10;
+      @Column(name = "c11") @Convert(converter = DateConverter.class) public Date c11;
+      @Column(name = "c12") @Convert(converter = DateConverter.class) public Date c12;
+      @Column(name = "c13") @Convert(converter = DateConverter.class) public Date c13;
+      @Column(name = "c14") @Convert(converter = DateConverter.class) public Date c14;
+      @Column(name = "c15") @Convert(converter = DateConverter.class) public Date c15;
+   }
+}
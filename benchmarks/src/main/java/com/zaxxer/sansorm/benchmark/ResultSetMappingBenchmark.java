@@ -0,0 +1,74 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.sansorm.OrmElf;
+import com.zaxxer.sansorm.benchmark.Stubs.StubResultSet;
+
+/**
+ * Measures {@code resultSetToList()} against an in-memory result set, i.e. the cost of instantiating
+ * entities and setting their fields, without any driver or database cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetMappingBenchmark
+{
+   @Param({ "1", "100", "10000" })
+   public int rows;
+
+   @Param({ "4", "16" })
+   public int columns;
+
+   @Param({ "INT", "STRING", "TIMESTAMP", "CONVERTED_DATE" })
+   public FieldType fieldType;
+
+   private StubResultSet resultSet;
+   private Class<?> entityClass;
+
+   @Setup
+   public void setup()
+   {
+      entityClass = fieldType.getEntityClass();
+      resultSet = new StubResultSet(fieldType.getColumnNames(columns), fieldType.rows(rows, columns));
+   }
+
+   @Benchmark
+   public List<?> resultSetToList() throws SQLException
+   {
+      return OrmElf.resultSetToList(resultSet.rewind(), entityClass);
+   }
+}
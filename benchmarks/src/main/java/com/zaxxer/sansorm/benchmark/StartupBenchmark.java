@@ -0,0 +1,188 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.sansorm.internal.Introspector;
+
+/**
+ * Measures the time to introspect a large set of entity classes and build their SQL, as an application
+ * does on startup.  The entity classes are generated and compiled once per trial; every invocation loads
+ * them through a fresh class loader, so that none of them has been introspected yet.
+ * <p>
+ * {@code sequential} is the work done when each class is first used, {@code parallel} is
+ * {@link Introspector#preload(java.util.Collection)} on the common pool, and {@code scanAndPreload}
+ * additionally finds and loads the classes by scanning their package.  Requires a JDK to compile the
+ * generated classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark
+{
+   private static final String PACKAGE = "generated.entities";
+   private static final String[] FIELD_TYPES = { "int", "String", "java.sql.Timestamp", "java.math.BigDecimal", "Long" };
+
+   @Param({ "100", "1000" })
+   public int entities;
+
+   @Param({ "10", "50" })
+   public int fields;
+
+   private Path classesDirectory;
+   private URLClassLoader classLoader;
+   private List<Class<?>> classes;
+
+   @Setup(Level.Trial)
+   public void generate() throws IOException
+   {
+      final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      if (compiler == null) {
+         throw new IllegalStateException("StartupBenchmark requires a JDK to compile the generated entities");
+      }
+
+      final Path sourceDirectory = Files.createTempDirectory("sansorm-startup-src");
+      classesDirectory = Files.createTempDirectory("sansorm-startup-classes");
+      final Path packageDirectory = Files.createDirectories(sourceDirectory.resolve(PACKAGE.replace('.', '/')));
+
+      final List<String> arguments = new ArrayList<>(Arrays.asList("-nowarn", "-proc:none",
+         "-classpath", System.getProperty("java.class.path"), "-d", classesDirectory.toString()));
+      for (int i = 0; i < entities; i++) {
+         final Path source = packageDirectory.resolve("Entity" + i + ".java");
+         Files.write(source, entitySource(i).getBytes(StandardCharsets.UTF_8));
+         arguments.add(source.toString());
+      }
+
+      if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+         throw new IllegalStateException("Failed to compile the generated entities");
+      }
+      delete(sourceDirectory);
+   }
+
+   @Setup(Level.Invocation)
+   public void load() throws ClassNotFoundException, IOException
+   {
+      classLoader = newClassLoader();
+      classes = new ArrayList<>(entities);
+      for (int i = 0; i < entities; i++) {
+         classes.add(Class.forName(PACKAGE + ".Entity" + i, false, classLoader));
+      }
+   }
+
+   @TearDown(Level.Invocation)
+   public void unload() throws IOException
+   {
+      classLoader.close();
+   }
+
+   @TearDown(Level.Trial)
+   public void cleanup() throws IOException
+   {
+      delete(classesDirectory);
+   }
+
+   @Benchmark
+   public void sequential()
+   {
+      final ForkJoinPool pool = new ForkJoinPool(1);
+      try {
+         Introspector.preload(classes, pool);
+      }
+      finally {
+         pool.shutdown();
+      }
+   }
+
+   @Benchmark
+   public void parallel()
+   {
+      Introspector.preload(classes);
+   }
+
+   @Benchmark
+   public List<Class<?>> scanAndPreload() throws IOException
+   {
+      // scans and loads through its own class loader rather than the pre-loaded classes
+      try (URLClassLoader scanLoader = newClassLoader()) {
+         final List<Class<?>> scanned = Introspector.findEntityClasses(scanLoader, PACKAGE);
+         Introspector.preload(scanned);
+         return scanned;
+      }
+   }
+
+   private URLClassLoader newClassLoader() throws IOException
+   {
+      return new URLClassLoader(new URL[] { classesDirectory.toUri().toURL() }, getClass().getClassLoader());
+   }
+
+   private String entitySource(final int index)
+   {
+      final StringBuilder source = new StringBuilder()
+         .append("package ").append(PACKAGE).append(";\n\n")
+         .append("@javax.persistence.Table(name = \"entity_").append(index).append("\")\n")
+         .append("public class Entity").append(index).append("\n{\n")
+         .append("   @javax.persistence.Id\n")
+         .append("   @javax.persistence.GeneratedValue(strategy = javax.persistence.GenerationType.IDENTITY)\n")
+         .append("   @javax.persistence.Column(name = \"id\")\n")
+         .append("   Integer id;\n");
+      for (int i = 1; i <= fields; i++) {
+         source.append("\n   @javax.persistence.Column(name = \"field_").append(i).append("\")\n")
+               .append("   ").append(FIELD_TYPES[(index + i) % FIELD_TYPES.length]).append(" field").append(i).append(";\n");
+      }
+      return source.append("}\n").toString();
+   }
+
+   private static void delete(final Path directory) throws IOException
+   {
+      try (Stream<Path> files = Files.walk(directory)) {
+         files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+      }
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.sansorm.OrmElf;
+import com.zaxxer.sansorm.benchmark.Stubs.StubConnection;
+import com.zaxxer.sansorm.benchmark.Stubs.StubResultSet;
+import com.zaxxer.sansorm.benchmark.Stubs.StubStatement;
+
+/**
+ * Measures binding statement parameters against in-memory statements: query arguments
+ * ({@code populateStatementParameters()}) and entity fields ({@code OrmWriter.setStatementParameters()},
+ * through batched inserts and updates).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBindingBenchmark
+{
+   @Param({ "1", "100" })
+   public int rows;
+
+   @Param({ "4", "16" })
+   public int columns;
+
+   @Param({ "INT", "STRING", "TIMESTAMP", "CONVERTED_DATE" })
+   public FieldType fieldType;
+
+   private StubConnection connection;
+   private StubStatement queryStatement;
+   private Object[] queryArgs;
+   private List<Object> entities;
+   private Class<?> entityClass;
+
+   @Setup
+   public void setup()
+   {
+      entityClass = fieldType.getEntityClass();
+      connection = new StubConnection(fieldType.getSqlType());
+
+      // an empty result, so that only the parameter binding of the query is measured
+      final StubResultSet empty = new StubResultSet(fieldType.getColumnNames(columns), new Object[0][]);
+      queryStatement = new StubStatement(columns, fieldType.getSqlType(), empty);
+      queryArgs = fieldType.rows(1, columns)[0];
+
+      entities = new ArrayList<>(rows);
+      for (int row = 0; row < rows; row++) {
+         entities.add(fieldType.newEntity(row));
+      }
+   }
+
+   @Benchmark
+   public List<?> bindQueryArguments() throws SQLException
+   {
+      return OrmElf.statementToList(queryStatement, entityClass, queryArgs);
+   }
+
+   @Benchmark
+   public List<Object> bindInsertBatch() throws SQLException
+   {
+      OrmElf.insertListBatched(connection, entities);
+      return entities;
+   }
+
+   @Benchmark
+   public Object bindUpdate() throws SQLException
+   {
+      return OrmElf.updateObject(connection, entities.get(0));
+   }
+}
@@ -0,0 +1,164 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.benchmark;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.sansorm.testutils.DummyConnection;
+import org.sansorm.testutils.DummyParameterMetaData;
+import org.sansorm.testutils.DummyResultSet;
+import org.sansorm.testutils.DummyResultSetMetaData;
+import org.sansorm.testutils.DummyStatement;
+
+/**
+ * In-memory JDBC objects built on the stubs of {@code org.sansorm.testutils}, so that the benchmarks
+ * measure the mapping and binding done by SansOrm and nothing else.
+ */
+public final class Stubs
+{
+   private Stubs()
+   {
+   }
+
+   /**
+    * A result set over fixed rows that can be rewound and iterated again.
+    */
+   public static final class StubResultSet extends DummyResultSet
+   {
+      private final Object[][] rows;
+      private final ResultSetMetaData metaData;
+      private int cursor;
+
+      public StubResultSet(final String[] columnNames, final Object[][] rows)
+      {
+         this.rows = rows;
+         this.metaData = new DummyResultSetMetaData() {
+            @Override
+            public int getColumnCount()
+            {
+               return columnNames.length;
+            }
+
+            @Override
+            public String getColumnName(final int column)
+            {
+               return columnNames[column - 1];
+            }
+         };
+         this.cursor = -1;
+      }
+
+      public StubResultSet rewind()
+      {
+         cursor = -1;
+         return this;
+      }
+
+      @Override
+      public boolean next()
+      {
+         return ++cursor < rows.length;
+      }
+
+      @Override
+      public Object getObject(final int columnIndex)
+      {
+         return rows[cursor][columnIndex - 1];
+      }
+
+      @Override
+      public ResultSetMetaData getMetaData()
+      {
+         return metaData;
+      }
+   }
+
+   /**
+    * A prepared statement whose parameters are all of the same SQL type (apart from an {@code INTEGER}
+    * first parameter, the id) and whose query returns a {@link StubResultSet}.
+    */
+   public static final class StubStatement extends DummyStatement
+   {
+      private final ParameterMetaData parameterMetaData;
+      private final StubResultSet resultSet;
+
+      public StubStatement(final int parameterCount, final int sqlType, final StubResultSet resultSet)
+      {
+         this.resultSet = resultSet;
+         this.parameterMetaData = new DummyParameterMetaData() {
+            @Override
+            public int getParameterCount()
+            {
+               return parameterCount;
+            }
+
+            @Override
+            public int getParameterType(final int param)
+            {
+               return (param == 1 ? java.sql.Types.INTEGER : sqlType);
+            }
+         };
+      }
+
+      @Override
+      public ParameterMetaData getParameterMetaData()
+      {
+         return parameterMetaData;
+      }
+
+      @Override
+      public ResultSet executeQuery()
+      {
+         return resultSet.rewind();
+      }
+
+      @Override
+      public int executeUpdate()
+      {
+         return 1;
+      }
+   }
+
+   /**
+    * A connection preparing {@link StubStatement}s with one parameter per {@code ?} of the SQL.
+    */
+   public static final class StubConnection extends DummyConnection
+   {
+      private final int sqlType;
+
+      public StubConnection(final int sqlType)
+      {
+         this.sqlType = sqlType;
+      }
+
+      @Override
+      public PreparedStatement prepareStatement(final String sql) throws SQLException
+      {
+         int parameters = 0;
+         for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+               parameters++;
+            }
+         }
+         return new StubStatement(parameters, sqlType, null);
+      }
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.zaxxer.sansorm.benchmark.FieldType;
+
+/**
+ * Measures the per-field accessors of {@link Introspected}, which are package-private and therefore
+ * benchmarked from within the package.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntrospectedBenchmark
+{
+   @Param({ "INT", "STRING", "TIMESTAMP", "CONVERTED_DATE" })
+   public FieldType fieldType;
+
+   private Introspected introspected;
+   private FieldColumnInfo[] fcInfos;
+   private Object[] values;
+   private Object entity;
+
+   @Setup
+   public void setup()
+   {
+      introspected = Introspector.getIntrospected(fieldType.getEntityClass());
+      entity = fieldType.newEntity(1);
+      final String[] columnNames = fieldType.getColumnNames(FieldType.MAX_COLUMNS);
+      fcInfos = new FieldColumnInfo[columnNames.length];
+      values = new Object[columnNames.length];
+      for (int i = 0; i < columnNames.length; i++) {
+         fcInfos[i] = introspected.getFieldColumnInfo(columnNames[i]);
+         values[i] = fieldType.value(2, i + 1);
+      }
+   }
+
+   @Benchmark
+   public void getAllFields(final Blackhole blackhole)
+   {
+      for (FieldColumnInfo fcInfo : fcInfos) {
+         blackhole.consume(introspected.get(entity, fcInfo));
+      }
+   }
+
+   @Benchmark
+   public Object setAllFields()
+   {
+      for (int i = 0; i < fcInfos.length; i++) {
+         introspected.set(entity, fcInfos[i], values[i]);
+      }
+      return entity;
+   }
+}
@@ -0,0 +1,53 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.workload;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The entity of the OLTP workload.
+ */
+@Table(name = "account")
+public class Account
+{
+   static final String CREATE_TABLE_H2 =
+      "CREATE TABLE account (id INTEGER NOT NULL IDENTITY PRIMARY KEY, owner VARCHAR(64), region INTEGER, balance BIGINT, updated BIGINT)";
+   static final String CREATE_TABLE_SQLITE =
+      "CREATE TABLE account (id INTEGER PRIMARY KEY AUTOINCREMENT, owner VARCHAR(64), region INTEGER, balance BIGINT, updated BIGINT)";
+
+   @Id
+   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   @Column(name = "id")
+   public Integer id;
+
+   @Column(name = "owner")
+   public String owner;
+
+   @Column(name = "region")
+   public int region;
+
+   @Column(name = "balance")
+   public long balance;
+
+   /** epoch milliseconds, SQLite has no native timestamp type */
+   @Column(name = "updated")
+   public long updated;
+}
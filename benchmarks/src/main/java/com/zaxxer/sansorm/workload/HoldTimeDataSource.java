@@ -0,0 +1,157 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.workload;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * A DataSource recording how long it takes to acquire a connection from the pool, and how long each
+ * connection is held until it is closed (returned to the pool).
+ */
+final class HoldTimeDataSource implements DataSource
+{
+   private final DataSource delegate;
+   private final Histogram acquireNanos;
+   private final Histogram holdNanos;
+   private volatile boolean recording;
+
+   HoldTimeDataSource(final DataSource delegate)
+   {
+      this.delegate = delegate;
+      this.acquireNanos = new ConcurrentHistogram(3);
+      this.holdNanos = new ConcurrentHistogram(3);
+   }
+
+   void setRecording(final boolean recording)
+   {
+      this.recording = recording;
+   }
+
+   Histogram getAcquireNanos()
+   {
+      return acquireNanos;
+   }
+
+   Histogram getHoldNanos()
+   {
+      return holdNanos;
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException
+   {
+      final long start = System.nanoTime();
+      final Connection connection = delegate.getConnection();
+      final long acquired = System.nanoTime();
+      if (recording) {
+         acquireNanos.recordValue(acquired - start);
+      }
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, new HoldTimeHandler(connection, acquired));
+   }
+
+   @Override
+   public Connection getConnection(final String username, final String password) throws SQLException
+   {
+      throw new SQLFeatureNotSupportedException();
+   }
+
+   @Override
+   public PrintWriter getLogWriter() throws SQLException
+   {
+      return delegate.getLogWriter();
+   }
+
+   @Override
+   public void setLogWriter(final PrintWriter out) throws SQLException
+   {
+      delegate.setLogWriter(out);
+   }
+
+   @Override
+   public void setLoginTimeout(final int seconds) throws SQLException
+   {
+      delegate.setLoginTimeout(seconds);
+   }
+
+   @Override
+   public int getLoginTimeout() throws SQLException
+   {
+      return delegate.getLoginTimeout();
+   }
+
+   @Override
+   public Logger getParentLogger() throws SQLFeatureNotSupportedException
+   {
+      return delegate.getParentLogger();
+   }
+
+   @Override
+   public <T> T unwrap(final Class<T> iface) throws SQLException
+   {
+      return delegate.unwrap(iface);
+   }
+
+   @Override
+   public boolean isWrapperFor(final Class<?> iface) throws SQLException
+   {
+      return delegate.isWrapperFor(iface);
+   }
+
+   private final class HoldTimeHandler implements InvocationHandler
+   {
+      private final Connection connection;
+      private final long acquired;
+      private boolean closed;
+
+      HoldTimeHandler(final Connection connection, final long acquired)
+      {
+         this.connection = connection;
+         this.acquired = acquired;
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+      {
+         if ("close".equals(method.getName()) && !closed) {
+            closed = true;
+            if (recording) {
+               holdNanos.recordValue(System.nanoTime() - acquired);
+            }
+         }
+
+         try {
+            return method.invoke(connection, args);
+         }
+         catch (InvocationTargetException e) {
+            throw e.getCause();
+         }
+      }
+   }
+}
@@ -0,0 +1,375 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.workload;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.h2.jdbcx.JdbcDataSource;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.sansorm.Dialect;
+import com.zaxxer.sansorm.OrmElf;
+import com.zaxxer.sansorm.RetryPolicy;
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosure;
+import com.zaxxer.sansorm.SqlClosureElf;
+
+/**
+ * A closed-loop OLTP workload against embedded H2 or SQLite behind HikariCP, reporting throughput,
+ * latency percentiles and connection acquire/hold times for every combination of database,
+ * transaction mode and thread count.  For example:
+ * <pre>
+ * java -cp target/benchmarks.jar com.zaxxer.sansorm.workload.WorkloadDriver \
+ *      --db=h2,sqlite --tx=none,simple --threads=1,8,64 --duration=30
+ * </pre>
+ * Options (defaults in parentheses):
+ * <ul>
+ *    <li>{@code --db} h2 and/or sqlite (h2)</li>
+ *    <li>{@code --tx} none ({@code SansOrm.initializeTxNone}) and/or simple ({@code initializeTxSimple}) (none,simple)</li>
+ *    <li>{@code --threads} worker thread counts (1,8,32)</li>
+ *    <li>{@code --virtual} run the workers on virtual threads, requires Java 21</li>
+ *    <li>{@code --pool} maximum pool size (10)</li>
+ *    <li>{@code --rows} rows loaded before the run (10000)</li>
+ *    <li>{@code --warmup} warmup seconds, not measured (5)</li>
+ *    <li>{@code --duration} measured seconds (20)</li>
+ *    <li>{@code --mix} operation weights (get:50,list:30,insert:10,update:10)</li>
+ * </ul>
+ */
+public final class WorkloadDriver
+{
+   private static final int REGIONS = 100;
+   private static final AtomicLong RUN_SEQUENCE = new AtomicLong();
+
+   enum Operation
+   {
+      GET, LIST, INSERT, UPDATE
+   }
+
+   private final List<String> databases = new ArrayList<>(Arrays.asList("h2"));
+   private final List<String> txModes = new ArrayList<>(Arrays.asList("none", "simple"));
+   private final List<Integer> threadCounts = new ArrayList<>(Arrays.asList(1, 8, 32));
+   private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+   private boolean virtual;
+   private int poolSize = 10;
+   private int rows = 10_000;
+   private int warmupSeconds = 5;
+   private int durationSeconds = 20;
+
+   private WorkloadDriver()
+   {
+      mix.put(Operation.GET, 50);
+      mix.put(Operation.LIST, 30);
+      mix.put(Operation.INSERT, 10);
+      mix.put(Operation.UPDATE, 10);
+   }
+
+   public static void main(final String[] args) throws Exception
+   {
+      final WorkloadDriver driver = new WorkloadDriver();
+      driver.parse(args);
+      driver.runAll();
+   }
+
+   private void parse(final String[] args)
+   {
+      for (String arg : args) {
+         final String[] option = arg.split("=", 2);
+         final String value = (option.length > 1 ? option[1] : "");
+         switch (option[0]) {
+            case "--db":
+               databases.clear();
+               databases.addAll(Arrays.asList(value.split(",")));
+               break;
+            case "--tx":
+               txModes.clear();
+               txModes.addAll(Arrays.asList(value.split(",")));
+               break;
+            case "--threads":
+               threadCounts.clear();
+               for (String count : value.split(",")) {
+                  threadCounts.add(Integer.parseInt(count));
+               }
+               break;
+            case "--virtual":
+               virtual = true;
+               break;
+            case "--pool":
+               poolSize = Integer.parseInt(value);
+               break;
+            case "--rows":
+               rows = Integer.parseInt(value);
+               break;
+            case "--warmup":
+               warmupSeconds = Integer.parseInt(value);
+               break;
+            case "--duration":
+               durationSeconds = Integer.parseInt(value);
+               break;
+            case "--mix":
+               mix.clear();
+               for (String weight : value.split(",")) {
+                  final String[] pair = weight.split(":");
+                  mix.put(Operation.valueOf(pair[0].toUpperCase(Locale.ENGLISH)), Integer.parseInt(pair[1]));
+               }
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown option " + arg + ", see the javadoc of " + WorkloadDriver.class.getName());
+         }
+      }
+   }
+
+   private void runAll() throws Exception
+   {
+      System.out.printf("%d rows, pool of %d, %ds warmup, %ds measured, %s threads, mix %s%n%n",
+                        rows, poolSize, warmupSeconds, durationSeconds, virtual ? "virtual" : "platform", mix);
+      System.out.printf("%-7s %-7s %7s %-7s %11s %9s %9s %9s   %9s %9s %9s   %9s%n",
+                        "db", "tx", "threads", "op", "ops/s", "p50 us", "p99 us", "p999 us", "hold p50", "hold p99", "hold p999", "acq p99");
+      for (String database : databases) {
+         for (String txMode : txModes) {
+            for (int threads : threadCounts) {
+               run(database, txMode, threads);
+            }
+         }
+      }
+   }
+
+   private void run(final String database, final String txMode, final int threads) throws Exception
+   {
+      final File sqliteFile = ("sqlite".equals(database) ? File.createTempFile("sansorm-workload", ".db") : null);
+      try (HikariDataSource pool = createPool(database, sqliteFile)) {
+         final HoldTimeDataSource dataSource = new HoldTimeDataSource(pool);
+         SansOrm.deinitialize();
+         if ("simple".equals(txMode)) {
+            SansOrm.initializeTxSimple(dataSource);
+         }
+         else if ("none".equals(txMode)) {
+            SansOrm.initializeTxNone(dataSource);
+         }
+         else {
+            throw new IllegalArgumentException("Unknown transaction mode " + txMode);
+         }
+         // retry transient failures (deadlocks, lock timeouts) like an application would
+         SansOrm.setRetryPolicy(new RetryPolicy(10).withDialect("sqlite".equals(database) ? Dialect.SQLITE : Dialect.H2));
+         load(database);
+
+         final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+         for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+         }
+         final Operation[] schedule = schedule();
+
+         final ExecutorService executor = newExecutor(threads);
+         final long start = System.nanoTime();
+         final long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+         final long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+         try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+               workers.add(executor.submit(() -> work(schedule, latencies, measureFrom, end)));
+            }
+
+            TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+            dataSource.setRecording(true);
+            for (Future<?> worker : workers) {
+               worker.get();
+            }
+            dataSource.setRecording(false);
+         }
+         finally {
+            executor.shutdownNow();
+         }
+
+         final Histogram total = new Histogram(3);
+         for (Operation operation : Operation.values()) {
+            final Histogram latency = latencies.get(operation);
+            if (latency.getTotalCount() > 0) {
+               total.add(latency);
+               report(database, txMode, threads, operation.name().toLowerCase(Locale.ENGLISH), latency, null);
+            }
+         }
+         report(database, txMode, threads, "all", total, dataSource);
+         System.out.println();
+      }
+      finally {
+         SansOrm.deinitialize();
+         if (sqliteFile != null && !sqliteFile.delete()) {
+            sqliteFile.deleteOnExit();
+         }
+      }
+   }
+
+   private void work(final Operation[] schedule, final Map<Operation, Histogram> latencies, final long measureFrom, final long end)
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      long now = System.nanoTime();
+      while (now < end) {
+         final Operation operation = schedule[random.nextInt(schedule.length)];
+         execute(operation, random);
+         final long finished = System.nanoTime();
+         if (now >= measureFrom) {
+            latencies.get(operation).recordValue(finished - now);
+         }
+         now = finished;
+      }
+   }
+
+   private void execute(final Operation operation, final ThreadLocalRandom random)
+   {
+      switch (operation) {
+         case GET:
+            SqlClosureElf.getObjectById(Account.class, 1 + random.nextInt(rows));
+            break;
+         case LIST:
+            SqlClosureElf.listFromClause(Account.class, "region = ? ORDER BY id LIMIT 20", random.nextInt(REGIONS));
+            break;
+         case INSERT:
+            SqlClosureElf.insertObject(newAccount(random.nextInt()));
+            break;
+         case UPDATE:
+            // read-modify-write in a single closure, i.e. a single transaction
+            final int id = 1 + random.nextInt(rows);
+            SqlClosure.sqlExecute(c -> {
+               final Account account = OrmElf.objectById(c, Account.class, id);
+               account.balance += 10;
+               account.updated = System.currentTimeMillis();
+               return OrmElf.updateObject(c, account);
+            });
+            break;
+         default:
+            throw new IllegalStateException();
+      }
+   }
+
+   private void report(final String database, final String txMode, final int threads, final String operation,
+                       final Histogram latency, final HoldTimeDataSource dataSource)
+   {
+      final double opsPerSecond = latency.getTotalCount() / (double) durationSeconds;
+      final StringBuilder line = new StringBuilder(String.format("%-7s %-7s %7d %-7s %11.0f %9.0f %9.0f %9.0f",
+         database, txMode, threads, operation, opsPerSecond, micros(latency, 50), micros(latency, 99), micros(latency, 99.9)));
+      if (dataSource != null) {
+         final Histogram hold = dataSource.getHoldNanos();
+         line.append(String.format("   %9.0f %9.0f %9.0f   %9.0f",
+            micros(hold, 50), micros(hold, 99), micros(hold, 99.9), micros(dataSource.getAcquireNanos(), 99)));
+      }
+      System.out.println(line);
+   }
+
+   private void load(final String database)
+   {
+      SqlClosure.sqlExecute(c -> {
+         SqlClosureElf.executeUpdate(c, "sqlite".equals(database) ? Account.CREATE_TABLE_SQLITE : Account.CREATE_TABLE_H2);
+         final List<Account> accounts = new ArrayList<>(rows);
+         for (int i = 0; i < rows; i++) {
+            accounts.add(newAccount(i));
+         }
+         OrmElf.insertListBatched(c, accounts);
+         return null;
+      });
+   }
+
+   private Operation[] schedule()
+   {
+      final List<Operation> schedule = new ArrayList<>();
+      for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+         for (int i = 0; i < weight.getValue(); i++) {
+            schedule.add(weight.getKey());
+         }
+      }
+      if (schedule.isEmpty()) {
+         throw new IllegalArgumentException("The operation mix is empty");
+      }
+      return schedule.toArray(new Operation[0]);
+   }
+
+   private HikariDataSource createPool(final String database, final File sqliteFile)
+   {
+      final DataSource dataSource;
+      if ("h2".equals(database)) {
+         final JdbcDataSource h2 = new JdbcDataSource();
+         h2.setUrl("jdbc:h2:mem:workload" + RUN_SEQUENCE.incrementAndGet() + ";DB_CLOSE_DELAY=-1;MVCC=TRUE");
+         dataSource = h2;
+      }
+      else if ("sqlite".equals(database)) {
+         final SQLiteConfig config = new SQLiteConfig();
+         config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+         config.setBusyTimeout("30000");
+         // take the write lock at BEGIN, otherwise read-modify-write transactions starve on stale WAL snapshots
+         config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+         final SQLiteDataSource sqlite = new SQLiteDataSource(config);
+         sqlite.setUrl("jdbc:sqlite:" + sqliteFile.getAbsolutePath());
+         dataSource = sqlite;
+      }
+      else {
+         throw new IllegalArgumentException("Unknown database " + database);
+      }
+
+      final HikariConfig config = new HikariConfig();
+      config.setDataSource(dataSource);
+      config.setMaximumPoolSize(poolSize);
+      config.setMinimumIdle(poolSize);
+      config.setPoolName("workload-" + database);
+      return new HikariDataSource(config);
+   }
+
+   private ExecutorService newExecutor(final int threads)
+   {
+      if (!virtual) {
+         return Executors.newFixedThreadPool(threads);
+      }
+
+      try {
+         return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      }
+      catch (ReflectiveOperationException e) {
+         throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+      }
+   }
+
+   private static Account newAccount(final int seed)
+   {
+      final Account account = new Account();
+      account.owner = "owner-" + seed;
+      account.region = Math.floorMod(seed, REGIONS);
+      account.balance = 1000;
+      account.updated = System.currentTimeMillis();
+      return account;
+   }
+
+   private static double micros(final Histogram histogram, final double percentile)
+   {
+      return histogram.getValueAtPercentile(percentile) / 1000.0;
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+/**
+ * A point-in-time snapshot of the counters of one of the SQL caches of SansOrm, as returned by
+ * {@link SansOrm#getCacheStats()}.  The caches are:
+ * <ul>
+ *    <li>{@code select} - SELECT statements by entity class and clause</li>
+ *    <li>{@code insert} - INSERT statements by entity class</li>
+ *    <li>{@code update} - UPDATE statements by entity class</li>
+ *    <li>{@code columns} - selected column lists by entity class and table alias</li>
+ *    <li>{@code fingerprint} - SQL fingerprints by SQL, used by the N+1 query detection</li>
+ * </ul>
+ */
+public final class CacheStats
+{
+   private final String name;
+   private final int size;
+   private final int maximumSize;
+   private final long hitCount;
+   private final long missCount;
+   private final long evictionCount;
+
+   CacheStats(final String name, final int size, final int maximumSize, final long hitCount, final long missCount, final long evictionCount)
+   {
+      this.name = name;
+      this.size = size;
+      this.maximumSize = maximumSize;
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+   }
+
+   public String getName()
+   {
+      return name;
+   }
+
+   public int getSize()
+   {
+      return size;
+   }
+
+   public int getMaximumSize()
+   {
+      return maximumSize;
+   }
+
+   public long getHitCount()
+   {
+      return hitCount;
+   }
+
+   public long getMissCount()
+   {
+      return missCount;
+   }
+
+   public long getEvictionCount()
+   {
+      return evictionCount;
+   }
+
+   /**
+    * Get the ratio of lookups that were hits.
+    *
+    * @return the hit rate, {@code 1.0} if there were no lookups
+    */
+   public double getHitRate()
+   {
+      final long lookups = hitCount + missCount;
+      return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "CacheStats[" + name + ": size=" + size + "/" + maximumSize + ", hits=" + hitCount + ", misses=" + missCount
+         + ", evictions=" + evictionCount + "]";
+   }
+}
@@ -0,0 +1,224 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The database dialects SansOrm has specific knowledge about.  {@link #GENERIC} only relies on
+ * ANSI SQLSTATE values and is a reasonable choice for any database not listed here.
+ */
+public enum Dialect
+{
+   GENERIC,
+   H2,
+   POSTGRESQL,
+   MYSQL,
+   ORACLE,
+   SQLSERVER,
+   SQLITE;
+
+   // Guards against pathological (cyclic) cause chains
+   private static final int MAX_CAUSE_DEPTH = 16;
+
+   /**
+    * Determine whether the specified exception, or any exception in its cause or "next exception"
+    * chain, represents a transient failure such as a deadlock, a serialization failure or a lock
+    * timeout.  A unit of work that failed with a transient failure can be safely retried from the
+    * start of its transaction.
+    *
+    * @param throwable the exception to classify
+    * @return true if the failure is transient, false otherwise
+    */
+   public boolean isTransient(final Throwable throwable)
+   {
+      Throwable cause = throwable;
+      for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++) {
+         if (cause instanceof SQLException) {
+            SQLException sqlException = (SQLException) cause;
+            for (int next = 0; sqlException != null && next < MAX_CAUSE_DEPTH; next++) {
+               if (isTransient(sqlException)) {
+                  return true;
+               }
+               sqlException = sqlException.getNextException();
+            }
+         }
+         cause = cause.getCause();
+      }
+      return false;
+   }
+
+   private boolean isTransient(final SQLException e)
+   {
+      final String sqlState = e.getSQLState();
+      // 40001 serialization failure, 40P01 deadlock; the other states of class 40 are not safe to retry,
+      // e.g. 40002 integrity constraint violation, or 40003 statement completion unknown, which may have committed
+      if ("40001".equals(sqlState) || "40P01".equals(sqlState)) {
+         return true;
+      }
+
+      final int errorCode = e.getErrorCode();
+      switch (this) {
+      case H2:
+         // LOCK_TIMEOUT_1, CONCURRENT_UPDATE_1
+         return errorCode == 50200 || errorCode == 90131;
+      case POSTGRESQL:
+         // lock_not_available
+         return "55P03".equals(sqlState);
+      case MYSQL:
+         // ER_LOCK_DEADLOCK, ER_LOCK_WAIT_TIMEOUT
+         return errorCode == 1213 || errorCode == 1205;
+      case ORACLE:
+         // ORA-00060 deadlock, ORA-08177 can't serialize, ORA-00054/ORA-30006 resource busy
+         return errorCode == 60 || errorCode == 8177 || errorCode == 54 || errorCode == 30006;
+      case SQLSERVER:
+         // deadlock victim, lock request time out
+         return errorCode == 1205 || errorCode == 1222;
+      case SQLITE:
+         // SQLITE_BUSY, SQLITE_LOCKED (and their extended result codes)
+         return (errorCode & 0xff) == 5 || (errorCode & 0xff) == 6;
+      default:
+         return false;
+      }
+   }
+
+   /**
+    * Get the statement that explains the execution plan of the specified statement without executing
+    * it, taking the same bind arguments.
+    *
+    * @param sql the statement to explain
+    * @return the EXPLAIN statement, or {@code null} if the dialect cannot explain a statement with a
+    *         single query (e.g. Oracle and SQL Server, which need session state)
+    */
+   public String explain(final String sql)
+   {
+      switch (this) {
+      case H2:
+      case POSTGRESQL:
+      case MYSQL:
+         return "EXPLAIN " + sql;
+      case SQLITE:
+         return "EXPLAIN QUERY PLAN " + sql;
+      default:
+         return null;
+      }
+   }
+
+   /**
+    * Append the clause limiting the number of rows returned by the specified query, which must end with an
+    * ORDER BY for SQL Server and Oracle.  The row count is bound as the last argument of the query.
+    *
+    * @param sql the query
+    * @return the query with its row limit
+    */
+   public String limit(final String sql)
+   {
+      switch (this) {
+      case H2:
+      case POSTGRESQL:
+      case MYSQL:
+      case SQLITE:
+         return sql + " LIMIT ?";
+      case ORACLE:
+      case SQLSERVER:
+         return sql + " OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+      default:
+         return sql + " FETCH FIRST ? ROWS ONLY";
+      }
+   }
+
+   /**
+    * Determine whether the database compares row values with inequality operators, e.g.
+    * {@code (a, b) > (?, ?)}, which can use a composite index.  Oracle and SQL Server do not.
+    *
+    * @return true if row values can be compared
+    */
+   public boolean supportsRowValueComparison()
+   {
+      switch (this) {
+      case H2:
+      case POSTGRESQL:
+      case MYSQL:
+      case SQLITE:
+         return true;
+      default:
+         return false;
+      }
+   }
+
+   /**
+    * Determine whether the database sorts nulls as if they were greater than any non-null value, i.e. last
+    * in ascending and first in descending order, when an ORDER BY does not specify {@code NULLS FIRST/LAST}.
+    * PostgreSQL and Oracle do; H2, MySQL, SQLite and SQL Server sort nulls as the lowest values.
+    *
+    * @return true if nulls sort high
+    */
+   public boolean sortsNullsHigh()
+   {
+      switch (this) {
+      case POSTGRESQL:
+      case ORACLE:
+         return true;
+      default:
+         return false;
+      }
+   }
+
+   /**
+    * Get the dialect matching the specified database product name, as returned by
+    * {@link java.sql.DatabaseMetaData#getDatabaseProductName()}.
+    *
+    * @param productName the database product name
+    * @return the matching dialect, or {@link #GENERIC} if the product is unknown
+    */
+   public static Dialect fromProductName(final String productName)
+   {
+      final String name = (productName == null ? "" : productName.toLowerCase());
+      if (name.contains("postgres")) {
+         return POSTGRESQL;
+      }
+      else if (name.contains("mysql") || name.contains("mariadb")) {
+         return MYSQL;
+      }
+      else if (name.contains("oracle")) {
+         return ORACLE;
+      }
+      else if (name.contains("microsoft") || name.contains("sql server")) {
+         return SQLSERVER;
+      }
+      else if (name.contains("sqlite")) {
+         return SQLITE;
+      }
+      else if (name.startsWith("h2")) {
+         return H2;
+      }
+      return GENERIC;
+   }
+
+   /**
+    * Get the dialect of the database the specified connection is connected to.
+    *
+    * @param connection a SQL connection
+    * @return the matching dialect, or {@link #GENERIC} if the product is unknown
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static Dialect of(final Connection connection) throws SQLException
+   {
+      return fromProductName(connection.getMetaData().getDatabaseProductName());
+   }
+}
@@ -0,0 +1,47 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies the code stored for an enum constant by fields annotated with
+ * {@code @Enumerated(EnumType.STRING)}, instead of the name of the constant, e.g. to store an enum in a
+ * compact {@code CHAR(1)} column:
+ * <pre>
+ * public enum Status {
+ *    &#64;EnumCode("A") ACTIVE,
+ *    &#64;EnumCode("S") SUSPENDED,
+ *    CLOSED
+ * }
+ * </pre>
+ * Constants without the annotation are stored by name.  The codes of an enum must be unique.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface EnumCode
+{
+   /**
+    * @return the code of the constant
+    */
+   String value();
+}
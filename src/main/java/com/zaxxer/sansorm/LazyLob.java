@@ -0,0 +1,155 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * A handle of a {@link Clob} or {@link Blob} column value for a {@code @Lob} field, whose content is read
+ * only when it is accessed.  Like the underlying JDBC object, a {@code LazyLob} is only valid while the
+ * connection that read it is open, at most until the end of the transaction.
+ * <p>
+ * Writing a {@code LazyLob} field streams its content into the statement, e.g. to copy a document from one
+ * row to another without reading it into memory.
+ */
+public final class LazyLob
+{
+   private final Clob clob;
+   private final Blob blob;
+
+   private LazyLob(final Clob clob, final Blob blob)
+   {
+      this.clob = clob;
+      this.blob = blob;
+   }
+
+   /**
+    * @param clob the character large object
+    * @return a handle of the specified {@link Clob}
+    */
+   public static LazyLob of(final Clob clob)
+   {
+      return new LazyLob(clob, null);
+   }
+
+   /**
+    * @param blob the binary large object
+    * @return a handle of the specified {@link Blob}
+    */
+   public static LazyLob of(final Blob blob)
+   {
+      return new LazyLob(null, blob);
+   }
+
+   /**
+    * @return true if the handle is of a {@link Blob}, false if it is of a {@link Clob}
+    */
+   public boolean isBinary()
+   {
+      return blob != null;
+   }
+
+   /**
+    * @return the length in characters of a {@link Clob}, or in bytes of a {@link Blob}
+    * @throws SQLException if the length cannot be obtained
+    */
+   public long length() throws SQLException
+   {
+      return blob != null ? blob.length() : clob.length();
+   }
+
+   /**
+    * @return a stream of the characters of a {@link Clob}
+    * @throws SQLException if the stream cannot be opened
+    * @throws IllegalStateException if the handle is of a {@link Blob}
+    */
+   public Reader getCharacterStream() throws SQLException
+   {
+      if (clob == null) {
+         throw new IllegalStateException("The LOB is binary");
+      }
+      return clob.getCharacterStream();
+   }
+
+   /**
+    * @return a stream of the bytes of a {@link Blob}
+    * @throws SQLException if the stream cannot be opened
+    * @throws IllegalStateException if the handle is of a {@link Clob}
+    */
+   public InputStream getBinaryStream() throws SQLException
+   {
+      if (blob == null) {
+         throw new IllegalStateException("The LOB is not binary");
+      }
+      return blob.getBinaryStream();
+   }
+
+   /**
+    * Read the whole content of a {@link Clob}.
+    *
+    * @return the content
+    * @throws SQLException if the content cannot be read
+    * @throws IllegalStateException if the handle is of a {@link Blob}
+    */
+   public String getString() throws SQLException
+   {
+      if (clob == null) {
+         throw new IllegalStateException("The LOB is binary");
+      }
+      return clob.getSubString(1, (int) clob.length());
+   }
+
+   /**
+    * Read the whole content of a {@link Blob}.
+    *
+    * @return the content
+    * @throws SQLException if the content cannot be read
+    * @throws IllegalStateException if the handle is of a {@link Clob}
+    */
+   public byte[] getBytes() throws SQLException
+   {
+      if (blob == null) {
+         throw new IllegalStateException("The LOB is not binary");
+      }
+      return blob.getBytes(1, (int) blob.length());
+   }
+
+   /**
+    * Release the resources of the underlying JDBC object.
+    *
+    * @throws SQLException if the object cannot be released
+    */
+   public void free() throws SQLException
+   {
+      if (blob != null) {
+         blob.free();
+      }
+      else {
+         clob.free();
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "LazyLob[" + (blob != null ? blob : clob) + "]";
+   }
+}
@@ -105,6 +105,45 @@ public final class OrmElf
       return OrmReader.listFromClause(connection, clazz, clause, args);
    }
 
+   /**
+    * Gets a page of objects by keyset pagination: the page is selected after the sort key of the last
+    * object of the previous page rather than with an OFFSET, so every page costs the same whatever its
+    * depth.  The id columns are appended to the sort key if it does not contain them.  NULLs of nullable
+    * sort columns are paged where the database sorts them by default, see {@link Dialect#sortsNullsHigh()}.
+    *
+    * @param connection a SQL Connection object
+    * @param clazz the class of the objects to load
+    * @param clause the conditional part of a SQL where clause, without WHERE and ORDER BY, or {@code null}
+    * @param orderBy mapped columns with an optional ASC or DESC, e.g. {@code "created DESC"}, or {@code null} to sort by id
+    * @param continuationToken the {@link Page#getNextToken() token} of the previous page, or {@code null} for the first page
+    * @param pageSize the maximum number of objects of the page
+    * @param args the query parameters of the clause
+    * @param <T> the type of the objects to load
+    * @return the page
+    * @throws SQLException if a {@link SQLException} occurs
+    * @throws IllegalArgumentException if the continuation token was not issued for the class and sort key
+    */
+   public static <T> Page<T> listPage(Connection connection, Class<T> clazz, String clause, String orderBy, String continuationToken, int pageSize, Object... args) throws SQLException
+   {
+      return OrmReader.listPage(connection, clazz, clause, orderBy, continuationToken, pageSize, args);
+   }
+
+   /**
+    * Populate a {@code @OneToMany} collection of the specified entities, typically a {@code FetchType.LAZY}
+    * collection, which queries do not populate.  The elements are selected in batches by the ids of the
+    * owners, and the collection of every owner is replaced.
+    *
+    * @param connection a SQL connection object.
+    * @param owners the entities owning the collection.
+    * @param fieldName the name of the {@code @OneToMany} field.
+    * @param <T> the type of the owners.
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> void fetchCollection(Connection connection, List<T> owners, String fieldName) throws SQLException
+   {
+      OrmReader.fetchCollection(connection, owners, fieldName);
+   }
+
    /**
     * Counts the number of rows for the given query.
     *
@@ -205,6 +244,27 @@ public final class OrmElf
       return OrmReader.resultSetToList(resultSet, targetClass);
    }
 
+   /**
+    * This method will iterate over a ResultSet of a {@code JOIN} of the tables of several entity classes,
+    * for example selected with {@link #getColumnsCsv(Class, String...)} for each class, and return the
+    * distinct instances of the root class, with their {@code @ManyToOne} references and {@code @OneToMany}
+    * collections wired to the joined instances.  The id columns of every class must be selected.
+    * <b>Note, this assumes that ResultSet.next() has <i>NOT</i> been called before calling this method.</b>
+    * <p>
+    * <b>The entire ResultSet will be consumed and closed.</b>
+    *
+    * @param resultSet a {@link ResultSet}
+    * @param rootClass the class of the returned instances
+    * @param joinedClasses the other classes whose columns are in the result set
+    * @param <T> the class template
+    * @return a list of distinct instances of the root class, in the order of their first row, or an empty list
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> List<T> resultSetToJoinedList(ResultSet resultSet, Class<T> rootClass, Class<?>... joinedClasses) throws SQLException
+   {
+      return OrmReader.resultSetToJoinedList(resultSet, rootClass, joinedClasses);
+   }
+
    // ------------------------------------------------------------------------
    //                               Write Methods
    // ------------------------------------------------------------------------
@@ -222,6 +282,22 @@ public final class OrmElf
       OrmWriter.insertListNotBatched(connection, iterable);
    }
 
+   /**
+    * Insert a collection of objects in a non-batched manner (i.e. using iteration and individual INSERTs),
+    * returning the inserted objects.  Constructor-mapped objects cannot be modified and are replaced by a
+    * copy with the generated id in the returned list.
+    *
+    * @param connection a SQL connection
+    * @param iterable a list (or other {@link Iterable} collection) of annotated objects to insert
+    * @param <T> the class template
+    * @return the inserted objects, in iteration order
+    * @throws SQLException if a {@link SQLException} occurs
+    */
+   public static <T> List<T> insertListNotBatchedReturning(Connection connection, Iterable<T> iterable) throws SQLException
+   {
+      return OrmWriter.insertListNotBatchedReturning(connection, iterable);
+   }
+
    /**
     * Insert a collection of objects using JDBC batching.
     *
@@ -241,7 +317,8 @@ public final class OrmElf
     * @param connection a SQL connection
     * @param target the annotated object to insert
     * @param <T> the class template
-    * @return the same object that was passed in, but with possibly updated @Id field due to auto-generated keys
+    * @return the same object that was passed in, but with possibly updated @Id field due to auto-generated keys;
+    *         for an immutable object (e.g. a record) with an auto-generated key, a copy with the generated key
     * @throws SQLException if a {@link SQLException} occurs
     */
    public static <T> T insertObject(Connection connection, T target) throws SQLException
@@ -342,7 +419,8 @@ public final class OrmElf
     *
     * @param connection a SQL connection
     * @param target an annotated object with at least all @Id fields set.
-    * @return the target object with all values updated or null if the object was not found anymore.
+    * @return the target object with all values updated or null if the object was not found anymore;
+    *         for an immutable object (e.g. a record), a new object with the current values
     * @throws SQLException if a {@link SQLException} occurs
     * @param <T> the type of the target object
     */
@@ -0,0 +1,63 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.util.List;
+
+/**
+ * A page of entities returned by keyset pagination, see
+ * {@link OrmElf#listPage(java.sql.Connection, Class, String, String, String, int, Object...)}.
+ *
+ * @param <T> the entity type
+ */
+public final class Page<T>
+{
+   private final List<T> items;
+   private final String nextToken;
+
+   public Page(final List<T> items, final String nextToken)
+   {
+      this.items = items;
+      this.nextToken = nextToken;
+   }
+
+   /**
+    * @return the entities of the page, in the order of the page
+    */
+   public List<T> getItems()
+   {
+      return items;
+   }
+
+   /**
+    * Get the opaque continuation token to pass to the query of the next page.
+    *
+    * @return the token, or {@code null} if this is the last page
+    */
+   public String getNextToken()
+   {
+      return nextToken;
+   }
+
+   /**
+    * @return true if there is a next page
+    */
+   public boolean hasNext()
+   {
+      return nextToken != null;
+   }
+}
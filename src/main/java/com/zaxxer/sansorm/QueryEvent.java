@@ -0,0 +1,98 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+/**
+ * The execution of one statement, as passed to a {@link QueryListener}.  The same instance is passed to
+ * {@link QueryListener#beforeQuery(QueryEvent)} and {@link QueryListener#afterQuery(QueryEvent)}, and can
+ * carry state from one to the other with {@link #setAttachment(Object)}.
+ */
+public interface QueryEvent
+{
+   /**
+    * The kind of statement.
+    */
+   enum Operation
+   {
+      /** Select entities. */
+      SELECT,
+      /** Count entities. */
+      COUNT,
+      /** Insert an entity. */
+      INSERT,
+      /** Insert a list of entities in a JDBC batch. */
+      BATCH_INSERT,
+      /** Update an entity. */
+      UPDATE,
+      /** Delete an entity. */
+      DELETE,
+      /** Any other query, e.g. {@link SqlClosureElf#numberFromSql(String, Object...)}. */
+      QUERY,
+      /** Any other update, e.g. {@link SqlClosureElf#executeUpdate(String, Object...)}. */
+      EXECUTE
+   }
+
+   Operation getOperation();
+
+   /**
+    * @return the SQL, or {@code null} if the statement was prepared by the caller, e.g. for
+    *         {@link OrmElf#statementToList}
+    */
+   String getSql();
+
+   /**
+    * @return the entity class, or {@code null} if the statement does not map an entity
+    */
+   Class<?> getEntityClass();
+
+   /**
+    * @return the number of bind arguments of one execution
+    */
+   int getParameterCount();
+
+   /**
+    * @return the bind arguments of the execution, or {@code null} if they are not known, e.g. for a batch;
+    *         the array belongs to the caller of the query and must not be modified or retained
+    */
+   Object[] getArguments();
+
+   /**
+    * @return the nanoseconds from before the execution until the results were mapped, or until the
+    *         failure; {@code 0} before the execution
+    */
+   long getElapsedNanos();
+
+   /**
+    * @return the number of rows mapped by a query or affected by an update, {@code -1} if unknown
+    */
+   int getRowCount();
+
+   /**
+    * @return the exception the statement failed with, or {@code null}
+    */
+   Throwable getException();
+
+   Object getAttachment();
+
+   /**
+    * Attach a listener specific object to the event, e.g. a tracing span started in
+    * {@link QueryListener#beforeQuery(QueryEvent)}.  With several listeners, they share the attachment.
+    *
+    * @param attachment the attachment
+    */
+   void setAttachment(Object attachment);
+}
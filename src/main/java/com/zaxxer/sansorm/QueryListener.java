@@ -0,0 +1,45 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+/**
+ * Receives a callback before and after every statement that SansOrm executes through {@link OrmElf} and
+ * {@link SqlClosureElf}.  Register listeners with {@link SansOrm#addQueryListener(QueryListener)}.
+ * <p>
+ * Callbacks run synchronously on the thread executing the statement, so they should be fast, and must
+ * not throw: an exception thrown by a listener propagates to the caller of the query.  When no listener
+ * is registered, executing a statement does not create any {@link QueryEvent}.
+ */
+public interface QueryListener
+{
+   /**
+    * Called before the statement is executed.  Only the SQL, entity class, operation and parameter
+    * count of the event are set.
+    *
+    * @param event the event, which is also passed to {@link #afterQuery(QueryEvent)}
+    */
+   default void beforeQuery(final QueryEvent event)
+   {
+   }
+
+   /**
+    * Called after the statement was executed and its results were mapped, or it failed.
+    *
+    * @param event the event
+    */
+   void afterQuery(QueryEvent event);
+}
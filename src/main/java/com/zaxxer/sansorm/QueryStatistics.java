@@ -0,0 +1,262 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.zaxxer.sansorm.internal.SqlFingerprint;
+
+/**
+ * A {@link QueryListener} that accumulates the call count, total and maximum latency, rows and errors of
+ * every statement, grouped by the fingerprint of its SQL, i.e. the SQL with its literal values replaced by
+ * {@code ?}.  Recording a statement never locks: the counters are {@link LongAdder}s, and the fingerprint of
+ * a SQL string is only computed the first time the string is seen.
+ * <p>
+ * The number of fingerprints is bounded by the {@code com.zaxxer.sansorm.queryStatisticsSize} system
+ * property, default 1000.  Statements whose fingerprint does not fit are accumulated under
+ * {@value #OTHER}.
+ * <p>
+ * Enable the statistics with {@link SansOrm#enableQueryStatistics()}, which also registers them as the
+ * MBean {@value #OBJECT_NAME}, or register an instance with {@link SansOrm#addQueryListener(QueryListener)}.
+ */
+public final class QueryStatistics implements QueryListener, QueryStatisticsMXBean
+{
+   public static final String OBJECT_NAME = "com.zaxxer.sansorm:type=QueryStatistics";
+   public static final String OTHER = "(other)";
+
+   private static final int DEFAULT_SIZE = Integer.getInteger("com.zaxxer.sansorm.queryStatisticsSize", 1000);
+   private static final int TOP_QUERIES = 10;
+
+   private final int maximumSize;
+   private final ConcurrentHashMap<String, Counters> bySql;
+   private final ConcurrentHashMap<String, Counters> byFingerprint;
+   private final Counters other;
+
+   public QueryStatistics()
+   {
+      this(DEFAULT_SIZE);
+   }
+
+   /**
+    * Create statistics bounded to the specified number of fingerprints.
+    *
+    * @param maximumSize the maximum number of fingerprints, at least 1
+    */
+   public QueryStatistics(final int maximumSize)
+   {
+      if (maximumSize < 1) {
+         throw new IllegalArgumentException("Maximum size must be at least 1");
+      }
+      this.maximumSize = maximumSize;
+      this.bySql = new ConcurrentHashMap<>();
+      this.byFingerprint = new ConcurrentHashMap<>();
+      this.other = new Counters(OTHER, null, null);
+   }
+
+   @Override
+   public void afterQuery(final QueryEvent event)
+   {
+      final Counters counters = countersOf(event);
+      counters.count.increment();
+      counters.totalNanos.add(event.getElapsedNanos());
+      counters.maxNanos.accumulate(event.getElapsedNanos());
+      if (event.getRowCount() > 0) {
+         counters.rows.add(event.getRowCount());
+      }
+      if (event.getException() != null) {
+         counters.errors.increment();
+      }
+   }
+
+   @Override
+   public long getStatementCount()
+   {
+      long count = other.count.sum();
+      for (Counters counters : byFingerprint.values()) {
+         count += counters.count.sum();
+      }
+      return count;
+   }
+
+   @Override
+   public int getFingerprintCount()
+   {
+      return byFingerprint.size();
+   }
+
+   @Override
+   public List<QueryStats> getTopQueries()
+   {
+      return getTopQueries(TOP_QUERIES);
+   }
+
+   /**
+    * Get a snapshot of the fingerprints with the highest total time.  The counters of one fingerprint
+    * are read one after the other while statements may be recorded, so they are only approximately
+    * consistent with each other.
+    *
+    * @param limit the maximum number of fingerprints
+    * @return the fingerprints, by descending total time
+    */
+   @Override
+   public List<QueryStats> getTopQueries(final int limit)
+   {
+      final List<QueryStats> stats = new ArrayList<>(byFingerprint.size() + 1);
+      for (Counters counters : byFingerprint.values()) {
+         stats.add(counters.snapshot());
+      }
+      if (other.count.sum() > 0) {
+         stats.add(other.snapshot());
+      }
+      stats.sort(Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+      return new ArrayList<>(stats.subList(0, Math.min(Math.max(limit, 0), stats.size())));
+   }
+
+   /**
+    * Get a snapshot of every fingerprint.
+    *
+    * @return the fingerprints, by descending total time
+    */
+   public List<QueryStats> getQueries()
+   {
+      return getTopQueries(Integer.MAX_VALUE);
+   }
+
+   @Override
+   public void reset()
+   {
+      bySql.clear();
+      byFingerprint.clear();
+      other.reset();
+   }
+
+   /**
+    * Register these statistics with the platform MBean server as {@value #OBJECT_NAME}, replacing
+    * any statistics registered before.
+    */
+   public void registerMBean()
+   {
+      try {
+         final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         final ObjectName name = new ObjectName(OBJECT_NAME);
+         try {
+            server.registerMBean(this, name);
+         }
+         catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(this, name);
+         }
+      }
+      catch (JMException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Unregister the MBean {@value #OBJECT_NAME}, if it is registered.
+    */
+   public static void unregisterMBean()
+   {
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+      }
+      catch (InstanceNotFoundException e) {
+         // not registered
+      }
+      catch (JMException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private Counters countersOf(final QueryEvent event)
+   {
+      final String sql = event.getSql();
+      if (sql == null) {
+         // a statement prepared by the caller, e.g. OrmElf.statementToList()
+         final Class<?> entityClass = event.getEntityClass();
+         return countersOfFingerprint("[" + event.getOperation() + (entityClass != null ? " " + entityClass.getName() : "") + "]", event);
+      }
+
+      // the SQL generated by OrmReader and OrmWriter is cached, so this is usually a hit on an identical instance
+      Counters counters = bySql.get(sql);
+      if (counters == null) {
+         counters = countersOfFingerprint(SqlFingerprint.of(sql), event);
+         if (bySql.size() < maximumSize) {
+            bySql.putIfAbsent(sql, counters);
+         }
+      }
+      return counters;
+   }
+
+   private Counters countersOfFingerprint(final String fingerprint, final QueryEvent event)
+   {
+      final Counters counters = byFingerprint.get(fingerprint);
+      if (counters != null) {
+         return counters;
+      }
+      if (byFingerprint.size() >= maximumSize) {
+         return other;
+      }
+      return byFingerprint.computeIfAbsent(fingerprint, key -> new Counters(key, event.getOperation(), event.getEntityClass()));
+   }
+
+   private static final class Counters
+   {
+      final String fingerprint;
+      final QueryEvent.Operation operation;
+      final Class<?> entityClass;
+      final LongAdder count = new LongAdder();
+      final LongAdder errors = new LongAdder();
+      final LongAdder totalNanos = new LongAdder();
+      final LongAdder rows = new LongAdder();
+      final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+      Counters(final String fingerprint, final QueryEvent.Operation operation, final Class<?> entityClass)
+      {
+         this.fingerprint = fingerprint;
+         this.operation = operation;
+         this.entityClass = entityClass;
+      }
+
+      QueryStats snapshot()
+      {
+         return new QueryStats(fingerprint, operation != null ? operation.name() : null, entityClass != null ? entityClass.getName() : null,
+                               count.sum(), errors.sum(), totalNanos.sum(), maxNanos.get(), rows.sum());
+      }
+
+      void reset()
+      {
+         count.reset();
+         errors.reset();
+         totalNanos.reset();
+         rows.reset();
+         maxNanos.reset();
+      }
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.util.List;
+
+/**
+ * The JMX management interface of {@link QueryStatistics}, registered as
+ * {@value QueryStatistics#OBJECT_NAME}.
+ */
+public interface QueryStatisticsMXBean
+{
+   /**
+    * @return the number of statements recorded
+    */
+   long getStatementCount();
+
+   /**
+    * @return the number of distinct query fingerprints recorded
+    */
+   int getFingerprintCount();
+
+   /**
+    * @return the ten fingerprints with the highest total time
+    */
+   List<QueryStats> getTopQueries();
+
+   /**
+    * Get the fingerprints with the highest total time.
+    *
+    * @param limit the maximum number of fingerprints
+    * @return the fingerprints, by descending total time
+    */
+   List<QueryStats> getTopQueries(int limit);
+
+   /**
+    * Discard all statistics.
+    */
+   void reset();
+}
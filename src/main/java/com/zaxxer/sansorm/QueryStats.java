@@ -0,0 +1,114 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time snapshot of the statistics of one query fingerprint, as returned by
+ * {@link QueryStatistics#getTopQueries(int)}.
+ */
+public final class QueryStats
+{
+   private final String fingerprint;
+   private final String operation;
+   private final String entityClass;
+   private final long count;
+   private final long errorCount;
+   private final long totalNanos;
+   private final long maxNanos;
+   private final long rowCount;
+
+   @ConstructorProperties({ "fingerprint", "operation", "entityClass", "count", "errorCount", "totalNanos", "maxNanos", "rowCount" })
+   public QueryStats(final String fingerprint, final String operation, final String entityClass, final long count, final long errorCount,
+                     final long totalNanos, final long maxNanos, final long rowCount)
+   {
+      this.fingerprint = fingerprint;
+      this.operation = operation;
+      this.entityClass = entityClass;
+      this.count = count;
+      this.errorCount = errorCount;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.rowCount = rowCount;
+   }
+
+   /**
+    * @return the SQL with literal values replaced by {@code ?}
+    */
+   public String getFingerprint()
+   {
+      return fingerprint;
+   }
+
+   /**
+    * @return the name of the {@link QueryEvent.Operation}
+    */
+   public String getOperation()
+   {
+      return operation;
+   }
+
+   /**
+    * @return the name of the entity class, or {@code null}
+    */
+   public String getEntityClass()
+   {
+      return entityClass;
+   }
+
+   public long getCount()
+   {
+      return count;
+   }
+
+   public long getErrorCount()
+   {
+      return errorCount;
+   }
+
+   public long getTotalNanos()
+   {
+      return totalNanos;
+   }
+
+   public long getMaxNanos()
+   {
+      return maxNanos;
+   }
+
+   /**
+    * @return the total number of rows mapped or affected, excluding executions where it is unknown
+    */
+   public long getRowCount()
+   {
+      return rowCount;
+   }
+
+   public long getMeanNanos()
+   {
+      return count == 0 ? 0 : totalNanos / count;
+   }
+
+   @Override
+   public String toString()
+   {
+      return String.format("%,d ms total, %,d calls, %,d us mean, %,d us max, %,d rows: %s", TimeUnit.NANOSECONDS.toMillis(totalNanos), count,
+         TimeUnit.NANOSECONDS.toMicros(getMeanNanos()), TimeUnit.NANOSECONDS.toMicros(maxNanos), rowCount, fingerprint);
+   }
+}
@@ -0,0 +1,143 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@code RetryPolicy} describes how a {@link SqlClosure} that owns its transaction reacts to transient
+ * failures (deadlocks, serialization failures, lock timeouts).  The whole closure is re-executed up to
+ * {@code maxAttempts} times, sleeping between attempts with an exponentially growing, jittered backoff.
+ * Which failures are transient is decided by the configured {@link Dialect}.
+ * <p>
+ * Instances are immutable and can be shared freely between threads.
+ */
+public final class RetryPolicy
+{
+   /** A policy that never retries; this is the default. */
+   public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, Dialect.GENERIC);
+
+   private final int maxAttempts;
+   private final long initialBackoffMs;
+   private final long maxBackoffMs;
+   private final Dialect dialect;
+
+   /**
+    * Construct a policy with the specified number of attempts, a backoff of 10ms doubling up to 1s,
+    * and {@link Dialect#GENERIC} failure classification.
+    *
+    * @param maxAttempts the maximum number of times a closure is executed, including the first execution
+    */
+   public RetryPolicy(final int maxAttempts)
+   {
+      this(maxAttempts, 10, 1000, Dialect.GENERIC);
+   }
+
+   /**
+    * Construct a policy.
+    *
+    * @param maxAttempts the maximum number of times a closure is executed, including the first execution
+    * @param initialBackoffMs the backoff before the second attempt, doubled for every subsequent attempt
+    * @param maxBackoffMs the upper bound of the backoff between two attempts
+    * @param dialect the dialect used to classify failures as transient
+    */
+   public RetryPolicy(final int maxAttempts, final long initialBackoffMs, final long maxBackoffMs, final Dialect dialect)
+   {
+      if (maxAttempts < 1) {
+         throw new IllegalArgumentException("maxAttempts must be at least 1");
+      }
+      if (initialBackoffMs < 0 || maxBackoffMs < initialBackoffMs) {
+         throw new IllegalArgumentException("Backoff must satisfy 0 <= initialBackoffMs <= maxBackoffMs");
+      }
+      if (dialect == null) {
+         throw new IllegalArgumentException("dialect must not be null");
+      }
+
+      this.maxAttempts = maxAttempts;
+      this.initialBackoffMs = initialBackoffMs;
+      this.maxBackoffMs = maxBackoffMs;
+      this.dialect = dialect;
+   }
+
+   /**
+    * Get a copy of this policy that classifies failures using the specified dialect.
+    *
+    * @param dialect the dialect used to classify failures as transient
+    * @return a new policy
+    */
+   public RetryPolicy withDialect(final Dialect dialect)
+   {
+      return new RetryPolicy(maxAttempts, initialBackoffMs, maxBackoffMs, dialect);
+   }
+
+   public int getMaxAttempts()
+   {
+      return maxAttempts;
+   }
+
+   public long getInitialBackoffMs()
+   {
+      return initialBackoffMs;
+   }
+
+   public long getMaxBackoffMs()
+   {
+      return maxBackoffMs;
+   }
+
+   public Dialect getDialect()
+   {
+      return dialect;
+   }
+
+   /**
+    * Determine whether another attempt should be made after the specified attempt failed.
+    *
+    * @param failure the failure of the attempt
+    * @param attempt the 1-based number of the attempt that failed
+    * @return true if the closure should be executed again
+    */
+   boolean shouldRetry(final Throwable failure, final int attempt)
+   {
+      return attempt < maxAttempts && dialect.isTransient(failure);
+   }
+
+   /**
+    * Get the time to sleep after the specified attempt failed.  The exponential delay is "equal jittered",
+    * i.e. a random value between half of the delay and the full delay, so that competing transactions that
+    * failed together do not retry in lock-step.
+    *
+    * @param attempt the 1-based number of the attempt that failed
+    * @return the backoff in milliseconds
+    */
+   long getBackoffMillis(final int attempt)
+   {
+      if (initialBackoffMs == 0) {
+         return 0;
+      }
+
+      final long shifted = initialBackoffMs << Math.min(attempt - 1, 30);
+      final long delay = (shifted <= 0 || shifted > maxBackoffMs) ? maxBackoffMs : shifted;
+      return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "RetryPolicy[maxAttempts=" + maxAttempts + ", backoff=" + initialBackoffMs + ".." + maxBackoffMs + "ms, dialect=" + dialect + "]";
+   }
+}
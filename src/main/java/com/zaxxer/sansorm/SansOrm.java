@@ -1,14 +1,32 @@
 package com.zaxxer.sansorm;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 import javax.sql.DataSource;
 import javax.transaction.TransactionManager;
 import javax.transaction.UserTransaction;
 
+import com.zaxxer.sansorm.internal.BoundedCache;
+import com.zaxxer.sansorm.internal.ColumnConverters;
+import com.zaxxer.sansorm.internal.Introspector;
+import com.zaxxer.sansorm.internal.NPlusOneDetector;
+import com.zaxxer.sansorm.internal.QueryListeners;
+import com.zaxxer.sansorm.internal.SlowQueryLog;
+import com.zaxxer.sansorm.internal.SqlCaches;
+import com.zaxxer.sansorm.routing.ReplicaRoutingDataSource;
+import com.zaxxer.sansorm.routing.ShardedDataSources;
 import com.zaxxer.sansorm.transaction.TransactionElf;
 import com.zaxxer.sansorm.transaction.TxTransactionManager;
 
 /** Single point of SansOrm configuration */
 public final class SansOrm {
+   private static volatile QueryStatistics queryStatistics;
+   private static SlowQueryLog slowQueryLog;
+
    private SansOrm() {
    }
 
@@ -23,6 +41,19 @@ public final class SansOrm {
       return dataSource;
    }
 
+   /**
+    * Use this one if you don't need {@link TransactionManager} tx handling, but want read-only work
+    * (see {@link SqlClosure#readOnly()}) offloaded to replicas in round-robin fashion.  To use another
+    * balancing strategy, pass a {@link ReplicaRoutingDataSource} to {@link #initializeTxNone(DataSource)}.
+    *
+    * @param primary the primary {@link DataSource}, used for all writes
+    * @param replicas the replica {@link DataSource}s, used for read-only work outside of transactions
+    * @return dataSource that will be used for queries
+    */
+   public static DataSource initializeTxNone(DataSource primary, DataSource... replicas) {
+      return initializeTxNone(new ReplicaRoutingDataSource(primary, replicas));
+   }
+
    /**
     * Use this one to use simple embedded {@link TransactionManager} implementation for tx handling.
     *
@@ -34,6 +65,20 @@ public final class SansOrm {
       return initializeTxCustom(txManager.getTxDataSource(), txManager, txManager);
    }
 
+   /**
+    * Use this one to use simple embedded {@link TransactionManager} implementation for tx handling, with
+    * read-only work outside of transactions offloaded to replicas in round-robin fashion.  Transactions
+    * always run against the primary.
+    *
+    * @param primary the primary {@link DataSource}, used for all writes and transactions
+    * @param replicas the replica {@link DataSource}s, used for read-only work outside of transactions
+    * @return dataSource that will be used for queries
+    */
+   public static DataSource initializeTxSimple(DataSource primary, DataSource... replicas) {
+      TxTransactionManager txManager = new TxTransactionManager(primary);
+      return initializeTxCustom(new ReplicaRoutingDataSource(txManager.getTxDataSource(), replicas), txManager, txManager);
+   }
+
    /**
     * Use this one if you have custom/provided {@link TransactionManager}, e.g. to run within web app container.
     *
@@ -48,12 +93,243 @@ public final class SansOrm {
       return initializeTxNone(dataSource);
    }
 
+   /**
+    * Register a set of shards.  Afterwards the single object methods of {@link SqlClosureElf}
+    * ({@code getObjectById}, {@code insertObject}, {@code updateObject}, {@code deleteObject} and
+    * {@code deleteObjectById}) are routed to the shard resolved from the object's id, and the
+    * {@code *AllShards} methods become available.  All other methods keep using the DataSource passed
+    * to one of the {@code initializeXXX} methods, if any.
+    *
+    * @param shards the shards
+    */
+   public static void initializeShards(ShardedDataSources shards) {
+      SqlClosureElf.setShardedDataSources(shards);
+   }
+
+   /**
+    * Set the {@link RetryPolicy} used by every {@link SqlClosure} that does not specify its own
+    * policy via {@link SqlClosure#withRetryPolicy(RetryPolicy)}.  For example:
+    * <pre>
+    * SansOrm.setRetryPolicy(new RetryPolicy(5).withDialect(Dialect.POSTGRESQL));
+    * </pre>
+    *
+    * @param policy the default retry policy, {@code null} disables retries
+    */
+   public static void setRetryPolicy(RetryPolicy policy) {
+      SqlClosure.setDefaultRetryPolicy(policy);
+   }
+
+   /**
+    * Enable or disable connection affinity when no {@link TransactionManager} is configured.  With
+    * affinity enabled, nested {@link SqlClosure}s on the same DataSource and thread join the connection
+    * of the outermost closure instead of borrowing another connection from the pool.  The outermost
+    * closure alone commits (or rolls back) and closes the connection, so the nested closures become part
+    * of its unit of work.  This is disabled by default, in which case every nested closure commits
+    * independently on its own connection.
+    *
+    * @param enabled {@code true} to enable connection affinity
+    */
+   public static void setConnectionAffinity(boolean enabled) {
+      SqlClosure.setConnectionAffinity(enabled);
+   }
+
+   /**
+    * Make every {@link SqlClosure} acquire its connection lazily, i.e. only when the closure first uses
+    * it, rather than before the closure runs.  Individual closures can opt in with
+    * {@link SqlClosure#lazy()}.
+    *
+    * @param enabled {@code true} to acquire connections lazily by default
+    */
+   public static void setLazyConnections(boolean enabled) {
+      SqlClosure.setDefaultLazy(enabled);
+   }
+
+   /**
+    * Introspect the specified entity classes in parallel and pre-build their SQL, so that the first
+    * request using each of them does not pay for it.  Useful at startup of applications with many
+    * entities.
+    *
+    * @param classes the entity classes
+    */
+   public static void preload(Class<?>... classes) {
+      Introspector.preload(Arrays.asList(classes));
+   }
+
+   /**
+    * Find the classes annotated with {@code @Table}, {@code @Entity} or {@code @MappedSuperclass} in the
+    * specified packages (including sub-packages) and preload them as {@link #preload(Class[])} does.
+    * Classes are searched through the context class loader of the calling thread.
+    *
+    * @param packageNames the names of the packages to search
+    * @return the classes that were preloaded
+    */
+   public static List<Class<?>> preloadPackages(String... packageNames) {
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      if (classLoader == null) {
+         classLoader = SansOrm.class.getClassLoader();
+      }
+      final List<Class<?>> classes = Introspector.findEntityClasses(classLoader, packageNames);
+      Introspector.preload(classes);
+      return classes;
+   }
+
+   /**
+    * Get the current counters of the SQL caches.
+    *
+    * @return a snapshot of every cache, see {@link CacheStats} for the cache names
+    */
+   public static List<CacheStats> getCacheStats() {
+      final List<CacheStats> stats = new ArrayList<>();
+      for (BoundedCache<?, ?> cache : SqlCaches.getCaches()) {
+         stats.add(new CacheStats(cache.getName(), cache.size(), cache.getMaximumSize(), cache.getHitCount(), cache.getMissCount(), cache.getEvictionCount()));
+      }
+      return stats;
+   }
+
+   /**
+    * Set the maximum number of entries of a SQL cache.  The initial sizes are taken from the
+    * {@code com.zaxxer.sansorm.<cacheName>CacheSize} system properties, which default to the
+    * {@code com.zaxxer.sansorm.statementCacheSize} property, which defaults to 500.
+    *
+    * @param cacheName the name of the cache, see {@link CacheStats}
+    * @param maximumSize the maximum number of entries
+    */
+   public static void setCacheSize(String cacheName, int maximumSize) {
+      for (BoundedCache<?, ?> cache : SqlCaches.getCaches()) {
+         if (cache.getName().equals(cacheName)) {
+            cache.setMaximumSize(maximumSize);
+            return;
+         }
+      }
+      throw new IllegalArgumentException("Unknown cache " + cacheName);
+   }
+
+   /**
+    * Register a converter of column values to fields, applied to every field of the specified type that
+    * has no {@code @Convert} annotation, e.g. to map a vendor specific JDBC type.  The converter is
+    * resolved once per field and column type, not looked up per value.  Register converters before
+    * the entities are used; registering one discards the conversions resolved so far.
+    *
+    * @param columnType the class of the values returned by {@code ResultSet.getObject()}, or an
+    *        interface or superclass of it
+    * @param fieldType the declared type of the fields
+    * @param converter the converter, which is never passed {@code null}
+    * @param <C> the column value type
+    * @param <F> the field type
+    */
+   public static <C, F> void registerColumnConverter(Class<C> columnType, Class<F> fieldType, Function<? super C, ? extends F> converter) {
+      ColumnConverters.register(columnType, fieldType, converter);
+   }
+
+   /**
+    * Register a listener that is called around every statement executed by {@link OrmElf} and
+    * {@link SqlClosureElf}, e.g. to record latencies or trace queries.
+    *
+    * @param listener the listener
+    */
+   public static void addQueryListener(QueryListener listener) {
+      QueryListeners.add(listener);
+   }
+
+   /**
+    * Unregister a listener registered with {@link #addQueryListener(QueryListener)}.
+    *
+    * @param listener the listener
+    */
+   public static void removeQueryListener(QueryListener listener) {
+      QueryListeners.remove(listener);
+   }
+
+   /**
+    * Start accumulating per-fingerprint statistics of every statement, and register them as the MBean
+    * {@value QueryStatistics#OBJECT_NAME}.  Calling this again returns the same statistics.
+    *
+    * @return the statistics
+    */
+   public static synchronized QueryStatistics enableQueryStatistics() {
+      if (queryStatistics == null) {
+         final QueryStatistics statistics = new QueryStatistics();
+         statistics.registerMBean();
+         QueryListeners.add(statistics);
+         queryStatistics = statistics;
+      }
+      return queryStatistics;
+   }
+
+   /**
+    * Get the statistics enabled by {@link #enableQueryStatistics()}.
+    *
+    * @return the statistics, or {@code null} if they are not enabled
+    */
+   public static QueryStatistics getQueryStatistics() {
+      return queryStatistics;
+   }
+
+   /**
+    * Stop accumulating the statistics enabled by {@link #enableQueryStatistics()}, and unregister their MBean.
+    */
+   public static synchronized void disableQueryStatistics() {
+      if (queryStatistics != null) {
+         QueryListeners.remove(queryStatistics);
+         QueryStatistics.unregisterMBean();
+         queryStatistics = null;
+      }
+   }
+
+   /**
+    * Log every statement that takes longer than the specified threshold, with a summary of its bind
+    * arguments, at WARN level to the {@code com.zaxxer.sansorm.internal.SlowQueryLog} logger.  Replaces
+    * any slow query log set before.
+    *
+    * @param threshold the elapsed time from which a statement is logged
+    * @param unit the unit of the threshold
+    * @param explainDataSource if not {@code null}, slow statements are explained asynchronously on a
+    *        separate connection of this {@link DataSource}, at most one per
+    *        {@code com.zaxxer.sansorm.explainInterval} milliseconds (default 10000)
+    */
+   public static synchronized void setSlowQueryLog(long threshold, TimeUnit unit, DataSource explainDataSource) {
+      disableSlowQueryLog();
+      slowQueryLog = new SlowQueryLog(unit.toNanos(threshold), explainDataSource);
+      QueryListeners.add(slowQueryLog);
+   }
+
+   /**
+    * Stop the slow query log set with {@link #setSlowQueryLog(long, TimeUnit, DataSource)}.
+    */
+   public static synchronized void disableSlowQueryLog() {
+      if (slowQueryLog != null) {
+         QueryListeners.remove(slowQueryLog);
+         slowQueryLog.shutdown();
+         slowQueryLog = null;
+      }
+   }
+
+   /**
+    * Detect the N+1 queries pattern: log a warning, with the call site and a batched alternative, when the
+    * same statement is executed with different arguments {@code threshold} times within one unit of work,
+    * i.e. the outermost {@link SqlClosure} or {@link TxTransactionManager} transaction on a thread.
+    *
+    * @param threshold the number of executions from which a warning is logged, {@code 0} to disable the detection
+    */
+   public static void setNPlusOneDetection(int threshold) {
+      NPlusOneDetector.setThreshold(threshold);
+   }
+
    /**
     * You can reset SansOrm to a fresh state if desired.
     * E.g. if you want to call another initializeXXX method.
     */
    public static void deinitialize() {
       SqlClosure.setDefaultDataSource(null);
+      SqlClosure.setDefaultRetryPolicy(null);
+      SqlClosure.setConnectionAffinity(false);
+      SqlClosure.setDefaultLazy(false);
+      SqlClosureElf.setShardedDataSources(null);
+      disableQueryStatistics();
+      disableSlowQueryLog();
+      NPlusOneDetector.setThreshold(0);
+      QueryListeners.clear();
+      ColumnConverters.clear();
       TransactionElf.setUserTransaction(null);
       TransactionElf.setTransactionManager(null);
    }
@@ -20,10 +20,19 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.zaxxer.sansorm.internal.ConnectionProxy;
+import com.zaxxer.sansorm.internal.JfrEvents;
+import com.zaxxer.sansorm.internal.LazyConnectionProxy;
+import com.zaxxer.sansorm.internal.NPlusOneDetector;
+import com.zaxxer.sansorm.routing.ReplicaRoutingDataSource;
 import com.zaxxer.sansorm.transaction.TransactionElf;
 
 /**
@@ -34,9 +43,18 @@ import com.zaxxer.sansorm.transaction.TransactionElf;
  */
 public class SqlClosure<T>
 {
+   private static final Logger LOGGER = LoggerFactory.getLogger(SqlClosure.class);
+
    private static DataSource defaultDataSource;
+   private static volatile RetryPolicy defaultRetryPolicy = RetryPolicy.NONE;
+   private static volatile boolean connectionAffinity;
+   private static volatile boolean defaultLazy;
+   private static final ThreadLocal<Map<DataSource, BoundConnection>> boundConnections = new ThreadLocal<>();
    private Object[] args;
    private DataSource dataSource;
+   private RetryPolicy retryPolicy;
+   private boolean readOnly;
+   private boolean lazy;
 
    /**
     * Default constructor using the default DataSource.  The {@code execute(Connection connection)}
@@ -103,6 +121,102 @@ public class SqlClosure<T>
       defaultDataSource = ds;
    }
 
+   /**
+    * Set the {@link RetryPolicy} used by closures that do not specify their own policy.
+    *
+    * @param policy the default retry policy, {@code null} resets to {@link RetryPolicy#NONE}
+    */
+   static void setDefaultRetryPolicy(final RetryPolicy policy)
+   {
+      defaultRetryPolicy = (policy != null ? policy : RetryPolicy.NONE);
+   }
+
+   /**
+    * Enable or disable connection affinity for closures executed without a {@code TransactionManager}.
+    * When enabled, a closure executed while another closure on the same DataSource is running on the
+    * same thread joins the connection of the outer closure instead of obtaining its own.
+    *
+    * @param enabled {@code true} to enable connection affinity
+    */
+   static void setConnectionAffinity(final boolean enabled)
+   {
+      connectionAffinity = enabled;
+   }
+
+   /**
+    * Set whether closures acquire their connection lazily by default.  @see #lazy()
+    *
+    * @param enabled {@code true} to make closures lazy by default
+    */
+   static void setDefaultLazy(final boolean enabled)
+   {
+      defaultLazy = enabled;
+   }
+
+   /**
+    * Set the {@link RetryPolicy} of this closure, overriding the default policy configured
+    * through {@link SansOrm#setRetryPolicy(RetryPolicy)}.  Retries only happen when this closure
+    * owns the transaction; a closure that joined an enclosing transaction propagates the failure
+    * so that the owner of the transaction can retry the complete unit of work.
+    *
+    * @param policy the retry policy for this closure
+    * @return this closure
+    */
+   public final SqlClosure<T> withRetryPolicy(final RetryPolicy policy)
+   {
+      this.retryPolicy = policy;
+      return this;
+   }
+
+   /**
+    * Mark this closure as read-only.  When the closure's DataSource is a {@link ReplicaRoutingDataSource}
+    * with replicas, and the closure is not part of an active transaction, the closure obtains a
+    * read-only connection from one of the replicas.  Otherwise this mode has no effect, in particular
+    * a read-only closure executed inside a transaction always uses the primary.
+    *
+    * @return this closure
+    */
+   public final SqlClosure<T> readOnly()
+   {
+      this.readOnly = true;
+      return this;
+   }
+
+   /**
+    * Make this closure acquire its connection lazily.  The {@code Connection} passed to the closure
+    * obtains the physical connection from the DataSource only when it is first used, typically by
+    * {@code prepareStatement()} or {@code createStatement()}, so that work done before the first query
+    * does not hold a pooled connection.  Combined with {@link #release(Connection)} the connection can
+    * also be handed back before the closure returns.
+    *
+    * @return this closure
+    */
+   public final SqlClosure<T> lazy()
+   {
+      this.lazy = true;
+      return this;
+   }
+
+   /**
+    * Commit the work done so far on the specified connection and return the physical connection to the
+    * pool.  Call this from a {@link #lazy() lazy} closure once its results are fully materialized and
+    * only non-SQL work remains; should the closure use the connection again, a new physical connection
+    * (and transaction) is acquired.  This is only a hint: it has no effect on connections that are not
+    * lazy, on connections whose transaction is owned by an enclosing closure or transaction manager, or
+    * while a nested closure is using the connection.
+    *
+    * @param connection the connection passed to the closure
+    */
+   public static void release(final Connection connection)
+   {
+      try {
+         LazyConnectionProxy.release(connection);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
    /**
     * Execute a lambda {@code SqlFunction} closure.
     *
@@ -122,6 +236,24 @@ public class SqlClosure<T>
       }.execute();
    }
 
+   /**
+    * Execute a lambda {@code SqlFunction} closure in {@link #readOnly() read-only} mode.
+    *
+    * @param functional the lambda function
+    * @param <V> the result type
+    * @return the result specified by the lambda
+    */
+   public static <V> V sqlExecuteReadOnly(final SqlFunction<V> functional)
+   {
+      return new SqlClosure<V>() {
+         @Override
+         public V execute(Connection connection) throws SQLException
+         {
+            return functional.execute(connection);
+         }
+      }.readOnly().execute();
+   }
+
    /**
     * Execute a lambda {@code SqlVarArgsFunction} closure.
     *
@@ -188,44 +320,95 @@ public class SqlClosure<T>
     */
    public final T execute()
    {
-      boolean txOwner = !TransactionElf.hasTransactionManager() || TransactionElf.beginOrJoinTransaction();
-      Connection connection = null;
+      final NPlusOneDetector.Scope scope = NPlusOneDetector.open();
       try {
-         connection = ConnectionProxy.wrapConnection(dataSource.getConnection());
-         if (txOwner) {
-            // disable autoCommit mode as we are going to handle transaction by ourselves
-            connection.setAutoCommit(false);
-         }
-         return (args == null)
-            ? execute(connection)
-            : execute(connection, args);
+         return executeInScope();
       }
-      catch (SQLException e) {
-         if (e.getNextException() != null) {
-            e = e.getNextException();
-         }
-         if (txOwner) {
-            // set the txOwner to false as we no longer own the transaction and we shouldn't try to commit it later
-            txOwner = false;
-            rollback(connection);
-         }
-         throw new RuntimeException(e);
-      } catch (Throwable e) {
-         if (txOwner) {
-            txOwner = false;
-            rollback(connection);
+      finally {
+         NPlusOneDetector.close(scope);
+      }
+   }
+
+   private T executeInScope()
+   {
+      // with a TransactionManager the TxDataSource already hands out the transaction's connection
+      final boolean affinity = connectionAffinity && !TransactionElf.hasTransactionManager();
+      if (affinity) {
+         final BoundConnection bound = getBoundConnection(dataSource);
+         // a write must not join a read-only replica connection, it obtains its own primary connection
+         if (bound != null && (readOnly || !bound.replica)) {
+            return executeJoined(bound.connection);
          }
-         throw e;
       }
-      finally {
+
+      final RetryPolicy policy = (retryPolicy != null ? retryPolicy : defaultRetryPolicy);
+      for (int attempt = 1; ; attempt++) {
+         // replica connections are never enlisted in a managed transaction, the closure always owns them
+         final boolean routeToReplica = readOnly && isReplicaRoutable();
+         final boolean managed = !routeToReplica && TransactionElf.hasTransactionManager();
+         boolean txOwner = !managed || TransactionElf.beginOrJoinTransaction();
+         Connection connection = null;
+         BoundConnection previous = null;
+         Throwable retryCause = null;
          try {
+            final boolean lazyConnection = lazy || defaultLazy;
+            if (lazyConnection) {
+               connection = LazyConnectionProxy.wrapConnection(() -> acquireConnection(routeToReplica), txOwner && !managed);
+            }
+            else {
+               connection = acquireConnection(routeToReplica);
+            }
+            if (affinity) {
+               previous = bindConnection(dataSource, new BoundConnection(connection, routeToReplica));
+            }
+            // disable autoCommit mode as we are going to handle transaction by ourselves, a lazy connection
+            // records the mode and only applies it on acquisition if the physical connection is not already in it
+            if (txOwner && (lazyConnection || connection.getAutoCommit())) {
+               connection.setAutoCommit(false);
+            }
+            final T result = (args == null)
+               ? execute(connection)
+               : execute(connection, args);
             if (txOwner) {
-               commit(connection);
+               // commit within the attempt, as serialization failures are commonly raised at COMMIT
+               commit(connection, managed);
+            }
+            return result;
+         }
+         catch (SQLException e) {
+            if (txOwner) {
+               // set the txOwner to false as we no longer own the transaction and we shouldn't try to commit it later
+               txOwner = false;
+               rollback(connection, managed);
+               if (policy.shouldRetry(e, attempt)) {
+                  retryCause = e;
+               }
+            }
+            if (retryCause == null) {
+               throw new RuntimeException(e.getNextException() != null ? e.getNextException() : e);
+            }
+         }
+         catch (Throwable e) {
+            if (txOwner) {
+               txOwner = false;
+               rollback(connection, managed);
+               if (policy.shouldRetry(e, attempt)) {
+                  retryCause = e;
+               }
+            }
+            if (retryCause == null) {
+               throw e;
             }
          }
          finally {
+            if (affinity && connection != null) {
+               restoreConnection(dataSource, previous);
+            }
             quietClose(connection);
          }
+
+         // only reached when the attempt failed transiently, the connection has been returned at this point
+         backoff(policy, attempt, retryCause);
       }
    }
 
@@ -311,9 +494,91 @@ public class SqlClosure<T>
       }
    }
 
-   private static void rollback(final Connection connection)
+   private Connection acquireConnection(final boolean routeToReplica) throws SQLException
    {
-      if (TransactionElf.hasTransactionManager()) {
+      final Object jfrEvent = JfrEvents.beginConnectionAcquisition();
+      final Connection connection = routeToReplica
+         ? ((ReplicaRoutingDataSource) dataSource).getReadOnlyConnection()
+         : dataSource.getConnection();
+      JfrEvents.commitConnectionAcquisition(jfrEvent, dataSource, routeToReplica);
+      return ConnectionProxy.wrapConnection(connection);
+   }
+
+   private T executeJoined(final Connection connection)
+   {
+      // the outer closure owns the connection, it commits or rolls back and closes it
+      LazyConnectionProxy.hold(connection, true);
+      try {
+         return (args == null)
+            ? execute(connection)
+            : execute(connection, args);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e.getNextException() != null ? e.getNextException() : e);
+      }
+      finally {
+         LazyConnectionProxy.hold(connection, false);
+      }
+   }
+
+   private static BoundConnection getBoundConnection(final DataSource dataSource)
+   {
+      final Map<DataSource, BoundConnection> bound = boundConnections.get();
+      return (bound != null ? bound.get(dataSource) : null);
+   }
+
+   private static BoundConnection bindConnection(final DataSource dataSource, final BoundConnection connection)
+   {
+      Map<DataSource, BoundConnection> bound = boundConnections.get();
+      if (bound == null) {
+         bound = new IdentityHashMap<>(4);
+         boundConnections.set(bound);
+      }
+      return bound.put(dataSource, connection);
+   }
+
+   private static void restoreConnection(final DataSource dataSource, final BoundConnection previous)
+   {
+      final Map<DataSource, BoundConnection> bound = boundConnections.get();
+      if (previous != null) {
+         bound.put(dataSource, previous);
+      }
+      else {
+         bound.remove(dataSource);
+         if (bound.isEmpty()) {
+            // do not leave an empty map behind on pooled threads
+            boundConnections.remove();
+         }
+      }
+   }
+
+   private boolean isReplicaRoutable()
+   {
+      return dataSource instanceof ReplicaRoutingDataSource
+         && ((ReplicaRoutingDataSource) dataSource).hasReplicas()
+         && !TransactionElf.hasActiveTransaction();
+   }
+
+   private static void backoff(final RetryPolicy policy, final int attempt, final Throwable retryCause)
+   {
+      final long backoffMs = policy.getBackoffMillis(attempt);
+      LOGGER.debug("Transient failure on attempt {} of {}, retrying in {}ms: {}", attempt, policy.getMaxAttempts(), backoffMs, retryCause.toString());
+      try {
+         Thread.sleep(backoffMs);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         final RuntimeException failure = (retryCause instanceof RuntimeException)
+            ? (RuntimeException) retryCause
+            : new RuntimeException(retryCause);
+         failure.addSuppressed(e);
+         throw failure;
+      }
+   }
+
+   private static void rollback(final Connection connection, final boolean managed)
+   {
+      if (managed) {
          TransactionElf.rollback();
       }
       else if (connection != null) {
@@ -326,9 +591,9 @@ public class SqlClosure<T>
       }
    }
 
-   private static void commit(final Connection connection)
+   private static void commit(final Connection connection, final boolean managed)
    {
-      if (TransactionElf.hasTransactionManager()) {
+      if (managed) {
          TransactionElf.commit();
       }
       else if (connection != null) {
@@ -340,4 +605,19 @@ public class SqlClosure<T>
          }
       }
    }
+
+   /**
+    * The connection of the outermost closure executing on a DataSource in the current thread.
+    */
+   private static final class BoundConnection
+   {
+      final Connection connection;
+      final boolean replica;
+
+      BoundConnection(final Connection connection, final boolean replica)
+      {
+         this.connection = connection;
+         this.replica = replica;
+      }
+   }
 }
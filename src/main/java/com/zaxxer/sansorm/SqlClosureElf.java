@@ -19,20 +19,44 @@ package com.zaxxer.sansorm;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
+import javax.sql.DataSource;
+
+import com.zaxxer.sansorm.internal.Introspector;
+import com.zaxxer.sansorm.internal.OrderByComparator;
 import com.zaxxer.sansorm.internal.OrmReader;
 import com.zaxxer.sansorm.internal.OrmWriter;
+import com.zaxxer.sansorm.routing.ShardKey;
+import com.zaxxer.sansorm.routing.ShardedDataSources;
 
 /**
- * Provides SQL closures around common query types
+ * Provides SQL closures around common query types.  All methods use the primary DataSource, including
+ * the read methods.  When SansOrm was initialized with replica DataSources, only
+ * {@link #listFromClauseReadOnly(Class, String, Object...)} and
+ * {@link #countObjectsFromClauseReadOnly(Class, String, Object...)}, and closures marked
+ * {@link SqlClosure#readOnly() read-only}, are served by a replica.
+ * <p>
+ * When SansOrm was initialized with {@link ShardedDataSources}, the single object methods are routed
+ * to the shard resolved from the object's id (or an explicit {@link ShardKey}), and the
+ * {@code *AllShards} methods scatter a query over all shards.
  */
 public final class SqlClosureElf
 {
+    private static volatile ShardedDataSources shardedDataSources;
+
     private SqlClosureElf()
     {
     }
 
+    static void setShardedDataSources(final ShardedDataSources shards)
+    {
+        shardedDataSources = shards;
+    }
+
     /**
      * Gets an object by ID from the database.
      * @param type The type of the desired object.
@@ -42,9 +66,26 @@ public final class SqlClosureElf
      */
     public static <T> T getObjectById(Class<T> type, Object... ids)
     {
+        final ShardedDataSources shards = shardedDataSources;
+        if (shards != null) {
+            return executeOn(shards.resolve(type, ids), c -> OrmElf.objectById(c, type, ids));
+        }
         return SqlClosure.sqlExecute(c -> OrmElf.objectById(c, type, ids));
     }
 
+    /**
+     * Gets an object by ID from the shard resolved from an explicit shard key.
+     * @param shardKey The explicit shard key.
+     * @param type The type of the desired object.
+     * @param ids The ID or IDs of the object.
+     * @param <T> The type of the object.
+     * @return The object or {@code null}
+     */
+    public static <T> T getObjectById(ShardKey shardKey, Class<T> type, Object... ids)
+    {
+        return executeOn(requireShards().resolve(type, shardKey), c -> OrmElf.objectById(c, type, ids));
+    }
+
     /**
      * Gets an object using a from clause.
      * @param type The type of the desired object.
@@ -66,9 +107,26 @@ public final class SqlClosureElf
      */
     public static <T> T insertObject(T object)
     {
+        final ShardedDataSources shards = shardedDataSources;
+        if (shards != null) {
+            return executeOn(shards.resolve(object.getClass(), getIds(object)), c -> OrmElf.insertObject(c, object));
+        }
         return SqlClosure.sqlExecute(c -> OrmElf.insertObject(c, object));
     }
 
+    /**
+     * Inserts the given object into the shard resolved from an explicit shard key, e.g. because
+     * the id of the object is generated by the database.
+     * @param shardKey The explicit shard key.
+     * @param object The object to insert.
+     * @param <T> The type of the object.
+     * @return The inserted object populated with any generated IDs.
+     */
+    public static <T> T insertObject(ShardKey shardKey, T object)
+    {
+        return executeOn(requireShards().resolve(object.getClass(), shardKey), c -> OrmElf.insertObject(c, object));
+    }
+
     /**
      * Updates the given object in the database.
      * @param object The object to update.
@@ -77,9 +135,25 @@ public final class SqlClosureElf
      */
     public static <T> T updateObject(T object)
     {
+        final ShardedDataSources shards = shardedDataSources;
+        if (shards != null) {
+            return executeOn(shards.resolve(object.getClass(), getIds(object)), c -> OrmElf.updateObject(c, object));
+        }
         return SqlClosure.sqlExecute(c -> OrmElf.updateObject(c, object));
     }
 
+    /**
+     * Updates the given object in the shard resolved from an explicit shard key.
+     * @param shardKey The explicit shard key.
+     * @param object The object to update.
+     * @param <T> The type of the object.
+     * @return The updated object.
+     */
+    public static <T> T updateObject(ShardKey shardKey, T object)
+    {
+        return executeOn(requireShards().resolve(object.getClass(), shardKey), c -> OrmElf.updateObject(c, object));
+    }
+
     /**
      * Delete the given object in the database.
      * @param object the object to delete.
@@ -88,6 +162,10 @@ public final class SqlClosureElf
      */
     public static <T> int deleteObject(T object)
     {
+        final ShardedDataSources shards = shardedDataSources;
+        if (shards != null) {
+            return executeOn(shards.resolve(object.getClass(), getIds(object)), c -> OrmElf.deleteObject(c, object));
+        }
         return SqlClosure.sqlExecute(c ->  OrmElf.deleteObject(c, object));
     }
 
@@ -100,6 +178,10 @@ public final class SqlClosureElf
      */
     public static <T> int deleteObjectById(Class<T> clazz, Object... args)
     {
+       final ShardedDataSources shards = shardedDataSources;
+       if (shards != null) {
+          return executeOn(shards.resolve(clazz, args), c -> OrmElf.deleteObjectById(c, clazz, args));
+       }
        return SqlClosure.sqlExecute(c -> OrmElf.deleteObjectById(c, clazz, args));
     }
 
@@ -116,6 +198,105 @@ public final class SqlClosureElf
        return SqlClosure.sqlExecute(c -> OrmElf.listFromClause(c, clazz, clause, args));
     }
 
+    /**
+     * Gets a list of objects from a read replica, if replicas are configured and no transaction is active.
+     * The replica may not reflect the latest committed writes yet.
+     * @param clazz The type of the desired objects.
+     * @param clause The from or where clause.
+     * @param args The arguments needed for the clause.
+     * @param <T> The type of the objects.
+     * @return The list of objects.
+     * @see SqlClosure#readOnly()
+     */
+    public static <T> List<T> listFromClauseReadOnly(Class<T> clazz, String clause, Object... args)
+    {
+       return SqlClosure.sqlExecuteReadOnly(c -> OrmElf.listFromClause(c, clazz, clause, args));
+    }
+
+    /**
+     * Gets a page of objects by keyset pagination.
+     * @param clazz The type of the desired objects.
+     * @param clause The where clause, without WHERE and ORDER BY, or null.
+     * @param orderBy The sort key, or null to sort by id.
+     * @param continuationToken The token of the previous page, or null for the first page.
+     * @param pageSize The maximum number of objects of the page.
+     * @param args The arguments needed for the clause.
+     * @param <T> The type of the objects.
+     * @return The page.
+     * @see OrmElf#listPage(Connection, Class, String, String, String, int, Object...)
+     */
+    public static <T> Page<T> listPage(Class<T> clazz, String clause, String orderBy, String continuationToken, int pageSize, Object... args)
+    {
+       return SqlClosure.sqlExecute(c -> OrmElf.listPage(c, clazz, clause, orderBy, continuationToken, pageSize, args));
+    }
+
+    /**
+     * Gets a list of objects from all shards.  The query is executed on every shard in parallel.  If the
+     * clause contains an ORDER BY of mapped columns, the already sorted per-shard results are merged
+     * in a single k-way pass once every shard has returned its result, otherwise the results are
+     * concatenated in shard order.  Note that a LIMIT in the clause applies per shard.
+     * @param clazz The type of the desired objects.
+     * @param clause The from or where clause.
+     * @param args The arguments needed for the clause.
+     * @param <T> The type of the objects.
+     * @return The list of objects.
+     */
+    public static <T> List<T> listFromClauseAllShards(Class<T> clazz, String clause, Object... args)
+    {
+        return listFromClauseAllShards(clazz, OrderByComparator.fromClause(clazz, clause, requireShards().getDialect()), clause, args);
+    }
+
+    /**
+     * Gets a list of objects from all shards.  The query is executed on every shard in parallel, and the
+     * per-shard results, which must be sorted consistently with the specified comparator by the ORDER BY
+     * of the clause, are merged in a single k-way pass once every shard has returned its result.
+     * @param clazz The type of the desired objects.
+     * @param order The comparator matching the ORDER BY of the clause, or {@code null} to concatenate the results.
+     * @param clause The from or where clause.
+     * @param args The arguments needed for the clause.
+     * @param <T> The type of the objects.
+     * @return The list of objects.
+     */
+    public static <T> List<T> listFromClauseAllShards(Class<T> clazz, Comparator<? super T> order, String clause, Object... args)
+    {
+        final List<List<T>> shardResults = requireShards().scatter(ds -> executeOn(ds, c -> OrmElf.listFromClause(c, clazz, clause, args)));
+
+        int size = 0;
+        for (List<T> shardResult : shardResults) {
+            size += shardResult.size();
+        }
+
+        final List<T> list = new ArrayList<>(size);
+        if (order == null) {
+            shardResults.forEach(list::addAll);
+        }
+        else {
+            for (final Iterator<T> merged = OrderByComparator.merge(shardResults, order); merged.hasNext(); ) {
+                list.add(merged.next());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Counts the number of rows for the given query over all shards.  The query is executed on every
+     * shard in parallel.
+     *
+     * @param clazz the class of the object to query.
+     * @param clause The conditional part of a SQL where clause.
+     * @param args The query parameters used to find the list of objects.
+     * @param <T> the type of object to query.
+     * @return The sum of the counts of all shards.
+     */
+    public static <T> int countObjectsFromClauseAllShards(Class<T> clazz, String clause, Object... args)
+    {
+        int count = 0;
+        for (Integer shardCount : requireShards().scatter(ds -> executeOn(ds, c -> OrmElf.countObjectsFromClause(c, clazz, clause, args)))) {
+            count += shardCount;
+        }
+        return count;
+    }
+
     /**
      * Counts the number of rows for the given query.
      *
@@ -130,6 +311,22 @@ public final class SqlClosureElf
         return SqlClosure.sqlExecute(c -> OrmElf.countObjectsFromClause(c, clazz, clause, args));
     }
 
+    /**
+     * Counts the number of rows for the given query on a read replica, if replicas are configured and no
+     * transaction is active.  The replica may not reflect the latest committed writes yet.
+     *
+     * @param clazz the class of the object to query.
+     * @param clause The conditional part of a SQL where clause.
+     * @param args The query parameters used to find the list of objects.
+     * @param <T> the type of object to query.
+     * @return The result count.
+     * @see SqlClosure#readOnly()
+     */
+    public static <T> int countObjectsFromClauseReadOnly(Class<T> clazz, String clause, Object... args)
+    {
+        return SqlClosure.sqlExecuteReadOnly(c -> OrmElf.countObjectsFromClause(c, clazz, clause, args));
+    }
+
     /**
      * Get a single Number from a SQL query, useful for getting a COUNT(), SUM(), MIN/MAX(), etc.
      * from a SQL statement.  If the SQL query is parametrized, the parameter values can
@@ -155,6 +352,31 @@ public final class SqlClosureElf
        return SqlClosure.sqlExecute(c -> executeUpdate(c, sql, args));
     }
 
+   private static <V> V executeOn(final DataSource dataSource, final SqlFunction<V> functional)
+   {
+      return new SqlClosure<V>(dataSource) {
+         @Override
+         protected V execute(Connection connection) throws SQLException
+         {
+            return functional.execute(connection);
+         }
+      }.execute();
+   }
+
+   private static ShardedDataSources requireShards()
+   {
+      final ShardedDataSources shards = shardedDataSources;
+      if (shards == null) {
+         throw new IllegalStateException("SansOrm has not been initialized with ShardedDataSources");
+      }
+      return shards;
+   }
+
+   private static Object[] getIds(final Object object)
+   {
+      return Introspector.getIntrospected(object.getClass()).getActualIds(object);
+   }
+
    /**
     * Get a SQL "IN" clause for the number of items.
     * Provided as a conventient alternative to {@link #getInClausePlaceholdersForCount(int)}
@@ -225,7 +447,7 @@ public final class SqlClosureElf
     */
    public static ResultSet executeQuery(Connection connection, String sql, Object... args) throws SQLException
    {
-      return OrmReader.statementToResultSet(connection.prepareStatement(sql), args);
+      return OrmReader.executeQuery(connection, sql, args);
    }
 
    public static int executeUpdate(Connection connection, String sql, Object... args) throws SQLException
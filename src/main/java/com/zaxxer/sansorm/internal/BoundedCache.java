@@ -0,0 +1,223 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A concurrent cache bounded by a maximum number of entries, evicting by sampled LRU: when the cache is
+ * full, the least recently used of a small sample of entries is evicted.  The sample starts at a random
+ * position within a bounded window of the iteration order, so an eviction costs the same whatever the size
+ * of the cache.  The entries are counted separately from the map, so that every insertion into a full cache
+ * evicts exactly one entry, also when several threads insert at once.  Lookups never lock,
+ * and a value that is missing is computed outside of any lock, so it may occasionally be computed more
+ * than once; the cached values must therefore be pure functions of their keys.
+ * <p>
+ * Recency is tracked with a logical clock that advances on every insertion, so a hit only writes to
+ * its entry if an insertion happened since the entry was last used.  A cache with a stable working set
+ * is read-only.
+ * <p>
+ * The maximum size of a cache named {@code name} defaults to the {@code com.zaxxer.sansorm.<name>CacheSize}
+ * system property, falling back to {@code com.zaxxer.sansorm.statementCacheSize}, falling back to 500.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class BoundedCache<K, V>
+{
+   private static final int DEFAULT_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
+   private static final int SAMPLE_SIZE = 8;
+   private static final int MAX_SKIP = 4 * SAMPLE_SIZE;
+
+   private final String name;
+   private final ConcurrentHashMap<K, Entry<V>> map;
+   /** The number of entries, incremented before an insertion evicts and decremented by every removal */
+   private final AtomicInteger size;
+   private final AtomicLong clock;
+   private final LongAdder hits;
+   private final LongAdder misses;
+   private final LongAdder evictions;
+   private volatile int maximumSize;
+
+   /**
+    * Create a cache.
+    *
+    * @param name the name of the cache, which also selects the system property of its maximum size
+    */
+   BoundedCache(final String name)
+   {
+      this.name = name;
+      this.maximumSize = Integer.getInteger("com.zaxxer.sansorm." + name + "CacheSize", DEFAULT_SIZE);
+      this.map = new ConcurrentHashMap<>();
+      this.size = new AtomicInteger();
+      this.clock = new AtomicLong();
+      this.hits = new LongAdder();
+      this.misses = new LongAdder();
+      this.evictions = new LongAdder();
+   }
+
+   /**
+    * Get the cached value of the specified key, computing and caching it if it is not present.
+    *
+    * @param key the key
+    * @param loader computes the value of a key that is not cached
+    * @return the value
+    */
+   public V computeIfAbsent(final K key, final Function<? super K, ? extends V> loader)
+   {
+      Entry<V> entry = map.get(key);
+      if (entry != null) {
+         hits.increment();
+         final long now = clock.get();
+         if (entry.accessed != now) {
+            entry.accessed = now;
+         }
+         return entry.value;
+      }
+
+      misses.increment();
+      entry = new Entry<>(loader.apply(key), clock.incrementAndGet());
+      final Entry<V> existing = map.putIfAbsent(key, entry);
+      if (existing != null) {
+         return existing.value;
+      }
+
+      if (size.incrementAndGet() > maximumSize) {
+         while (!evictOne() && size.get() > maximumSize) {
+            // the sampled victim was removed concurrently, sample again unless that brought the cache back to its maximum
+         }
+      }
+      return entry.value;
+   }
+
+   public String getName()
+   {
+      return name;
+   }
+
+   public int size()
+   {
+      return map.size();
+   }
+
+   public int getMaximumSize()
+   {
+      return maximumSize;
+   }
+
+   /**
+    * Set the maximum number of entries.  A cache that is larger than the new maximum is trimmed immediately.
+    *
+    * @param maximumSize the maximum number of entries, at least 1
+    */
+   public void setMaximumSize(final int maximumSize)
+   {
+      if (maximumSize < 1) {
+         throw new IllegalArgumentException("Maximum size of cache " + name + " must be at least 1");
+      }
+      this.maximumSize = maximumSize;
+      while (size.get() > maximumSize && evictOne()) {
+         // trim
+      }
+   }
+
+   public long getHitCount()
+   {
+      return hits.sum();
+   }
+
+   public long getMissCount()
+   {
+      return misses.sum();
+   }
+
+   public long getEvictionCount()
+   {
+      return evictions.sum();
+   }
+
+   /**
+    * Remove all entries and reset the counters.
+    */
+   public void clear()
+   {
+      for (K key : map.keySet()) {
+         if (map.remove(key) != null) {
+            size.decrementAndGet();
+         }
+      }
+      hits.reset();
+      misses.reset();
+      evictions.reset();
+   }
+
+   /**
+    * Evict the least recently used entry of a sample.
+    *
+    * @return true if an entry was evicted, false if the cache is empty or the victim was removed concurrently
+    */
+   private boolean evictOne()
+   {
+      final int mapSize = map.size();
+      if (mapSize == 0) {
+         return false;
+      }
+
+      // ConcurrentHashMap has no random access, so the sample starts at a random position of the iteration,
+      // within a bounded window as skipping is linear
+      final Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+      int skip = mapSize > SAMPLE_SIZE ? ThreadLocalRandom.current().nextInt(Math.min(mapSize - SAMPLE_SIZE, MAX_SKIP) + 1) : 0;
+      while (skip-- > 0 && iterator.hasNext()) {
+         iterator.next();
+      }
+
+      Map.Entry<K, Entry<V>> victim = null;
+      for (int i = 0; i < SAMPLE_SIZE && iterator.hasNext(); i++) {
+         final Map.Entry<K, Entry<V>> candidate = iterator.next();
+         if (victim == null || candidate.getValue().accessed < victim.getValue().accessed) {
+            victim = candidate;
+         }
+      }
+
+      if (victim != null && map.remove(victim.getKey(), victim.getValue())) {
+         size.decrementAndGet();
+         evictions.increment();
+         return true;
+      }
+      return false;
+   }
+
+   private static final class Entry<V>
+   {
+      final V value;
+      // racy by design, a lost update only makes the entry look slightly older
+      long accessed;
+
+      Entry(final V value, final long accessed)
+      {
+         this.value = value;
+         this.accessed = accessed;
+      }
+   }
+}
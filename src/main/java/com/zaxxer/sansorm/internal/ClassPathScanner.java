@@ -0,0 +1,129 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+/**
+ * Finds the entity classes of packages by listing the class files of directories and jar files.
+ */
+final class ClassPathScanner
+{
+   private static final String CLASS_SUFFIX = ".class";
+
+   private ClassPathScanner()
+   {
+      // private constructor
+   }
+
+   static List<Class<?>> findEntityClasses(final ClassLoader classLoader, final String... packageNames)
+   {
+      final Set<String> classNames = new TreeSet<>();
+      for (String packageName : packageNames) {
+         final String path = packageName.replace('.', '/');
+         try {
+            final Enumeration<URL> urls = classLoader.getResources(path);
+            while (urls.hasMoreElements()) {
+               final URL url = urls.nextElement();
+               if ("file".equals(url.getProtocol())) {
+                  listDirectory(Paths.get(url.toURI()), packageName, classNames);
+               }
+               else if ("jar".equals(url.getProtocol())) {
+                  listJar(url, path, classNames);
+               }
+            }
+         }
+         catch (IOException | URISyntaxException e) {
+            throw new RuntimeException("Failed to scan package " + packageName, e);
+         }
+      }
+
+      final List<Class<?>> classes = new ArrayList<>();
+      for (String className : classNames) {
+         try {
+            final Class<?> clazz = Class.forName(className, false, classLoader);
+            if (!clazz.isAnonymousClass() && !clazz.isLocalClass() && isEntityClass(clazz)) {
+               classes.add(clazz);
+            }
+         }
+         catch (ClassNotFoundException | LinkageError e) {
+            // not loadable through this class loader, so it cannot be an entity used through it either
+         }
+      }
+      return classes;
+   }
+
+   private static boolean isEntityClass(final Class<?> clazz)
+   {
+      return clazz.getAnnotation(Table.class) != null
+         || clazz.getAnnotation(Entity.class) != null
+         || clazz.getAnnotation(MappedSuperclass.class) != null;
+   }
+
+   private static void listDirectory(final Path directory, final String packageName, final Set<String> classNames) throws IOException
+   {
+      final String prefix = packageName.isEmpty() ? "" : packageName + '.';
+      try (Stream<Path> files = Files.walk(directory)) {
+         files.filter(file -> file.getFileName().toString().endsWith(CLASS_SUFFIX)).forEach(file -> {
+            final String relative = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), ".");
+            addClassName(prefix + relative, classNames);
+         });
+      }
+   }
+
+   private static void listJar(final URL url, final String path, final Set<String> classNames) throws IOException
+   {
+      final JarURLConnection connection = (JarURLConnection) url.openConnection();
+      connection.setUseCaches(false);
+      final String prefix = path.isEmpty() ? "" : path + '/';
+      try (JarFile jar = connection.getJarFile()) {
+         final Enumeration<JarEntry> entries = jar.entries();
+         while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+            if (name.startsWith(prefix) && name.endsWith(CLASS_SUFFIX)) {
+               addClassName(name.replace('/', '.'), classNames);
+            }
+         }
+      }
+   }
+
+   private static void addClassName(final String fileName, final Set<String> classNames)
+   {
+      final String className = fileName.substring(0, fileName.length() - CLASS_SUFFIX.length());
+      if (!className.endsWith("package-info") && !className.endsWith("module-info")) {
+         classNames.add(className);
+      }
+   }
+}
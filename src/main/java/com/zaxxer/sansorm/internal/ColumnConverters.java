@@ -0,0 +1,215 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import org.postgresql.util.PGobject;
+
+import javax.persistence.AttributeConverter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves the conversion of column values of one Java type (the class returned by
+ * {@code ResultSet.getObject()}) to the type of a field.  A {@link FieldColumnInfo} caches the
+ * {@link Conversion} resolved for the first value it sees and resolves again only if a value of another
+ * class arrives, so the type tests run once per field instead of once per cell.
+ * <p>
+ * The conversion of a field is, in order of precedence: its {@link AttributeConverter}, none if the
+ * value already has the type of the field, a converter {@linkplain #register registered} for the column
+ * and field types, or one of the built-in conversions (integer to boolean, {@link BigDecimal} to the
+ * numeric types, {@link UUID} to string, enum constants, {@code java.sql} temporal types to
+ * {@code java.time} types, {@link Clob} and {@link Blob} to strings, streams and byte arrays, and PostgreSQL
+ * {@code citext} to string).
+ */
+public final class ColumnConverters
+{
+   private static final Conversion.Step NONE = null;
+
+   private static final Map<Class<?>, Map<Class<?>, Function<Object, Object>>> registered = new ConcurrentHashMap<>();
+
+   private ColumnConverters()
+   {
+      // private constructor
+   }
+
+   /**
+    * Register a converter of column values of the specified type to fields of the specified type.  A
+    * converter registered for an interface or superclass, such as {@link Clob}, also applies to the
+    * driver classes implementing it.  A converter already registered for the same types is replaced.
+    *
+    * @param columnType the class of the values returned by {@code ResultSet.getObject()}
+    * @param fieldType the declared type of the field, which may be a primitive type
+    * @param converter the converter, which is never passed {@code null}
+    * @param <C> the column value type
+    * @param <F> the field type
+    */
+   @SuppressWarnings("unchecked")
+   public static <C, F> void register(final Class<C> columnType, final Class<F> fieldType, final Function<? super C, ? extends F> converter)
+   {
+      registered.computeIfAbsent(fieldType, type -> new ConcurrentHashMap<>()).put(columnType, (Function<Object, Object>) converter);
+      Introspector.resetConversions();
+   }
+
+   /**
+    * Remove all registered converters.
+    */
+   public static void clear()
+   {
+      registered.clear();
+      Introspector.resetConversions();
+   }
+
+   /**
+    * @return true if a converter is registered for fields of the specified type
+    */
+   static boolean hasConverterTo(final Class<?> fieldType)
+   {
+      return registered.containsKey(fieldType);
+   }
+
+   /**
+    * Resolve the conversion of values of the specified class to the field.
+    *
+    * @param fcInfo the field
+    * @param columnType the class of the column value
+    * @return the conversion
+    */
+   @SuppressWarnings("unchecked")
+   static Conversion resolve(final FieldColumnInfo fcInfo, final Class<?> columnType)
+   {
+      final AttributeConverter<Object, Object> attributeConverter = fcInfo.getConverter();
+      if (attributeConverter != null) {
+         return new Conversion(columnType, attributeConverter::convertToEntityAttribute);
+      }
+
+      final Class<?> fieldType = fcInfo.fieldType;
+      if (fieldType == columnType) {
+         return new Conversion(columnType, NONE);
+      }
+
+      Function<Object, Object> custom = findRegistered(fcInfo.field.getType(), columnType);
+      if (custom == null && fieldType != fcInfo.field.getType()) {
+         custom = findRegistered(fieldType, columnType);
+      }
+      if (custom != null) {
+         return new Conversion(columnType, custom::apply);
+      }
+
+      return new Conversion(columnType, builtIn(fcInfo, fieldType, columnType));
+   }
+
+   private static Function<Object, Object> findRegistered(final Class<?> fieldType, final Class<?> columnType)
+   {
+      final Map<Class<?>, Function<Object, Object>> byColumnType = registered.get(fieldType);
+      if (byColumnType == null) {
+         return null;
+      }
+
+      final Function<Object, Object> exact = byColumnType.get(columnType);
+      if (exact != null) {
+         return exact;
+      }
+      for (Map.Entry<Class<?>, Function<Object, Object>> entry : byColumnType.entrySet()) {
+         if (entry.getKey().isAssignableFrom(columnType)) {
+            return entry.getValue();
+         }
+      }
+      return null;
+   }
+
+   // COMPLEXITY:OFF
+   private static Conversion.Step builtIn(final FieldColumnInfo fcInfo, final Class<?> fieldType, final Class<?> columnType)
+   {
+      if (fieldType == boolean.class && columnType == Integer.class) {
+         return value -> ((Integer) value) != 0;
+      }
+      else if (columnType == BigDecimal.class) {
+         if (fieldType == BigInteger.class) {
+            return value -> ((BigDecimal) value).toBigInteger();
+         }
+         else if (fieldType == Integer.class) {
+            return value -> (int) ((BigDecimal) value).longValue();
+         }
+         else if (fieldType == Long.class) {
+            return value -> ((BigDecimal) value).longValue();
+         }
+         else if (fieldType == Double.class) {
+            return value -> ((BigDecimal) value).doubleValue();
+         }
+         return NONE;
+      }
+      else if (columnType == UUID.class && fieldType == String.class) {
+         return Object::toString;
+      }
+      else if (fcInfo.enumCodec != null) {
+         return fcInfo.enumCodec::decode;
+      }
+      else if (JavaTimeSupport.isJavaTimeType(fieldType)) {
+         return value -> JavaTimeSupport.fromJdbc(value, fieldType);
+      }
+      else if (Clob.class.isAssignableFrom(columnType) || Blob.class.isAssignableFrom(columnType)) {
+         return Lobs.conversion(fieldType, columnType);
+      }
+      else if ("PGobject".equals(columnType.getSimpleName())) {
+         // PGobject is referenced only from here, so that the PostgreSQL driver remains optional
+         return ColumnConverters::citextValue;
+      }
+      return NONE;
+   }
+   // COMPLEXITY:ON
+
+   private static Object citextValue(final Object value)
+   {
+      final PGobject pgObject = (PGobject) value;
+      return "citext".equalsIgnoreCase(pgObject.getType()) ? pgObject.getValue() : pgObject;
+   }
+
+   /**
+    * The conversion of the values of one column type to a field.
+    */
+   static final class Conversion
+   {
+      @FunctionalInterface
+      interface Step
+      {
+         Object apply(Object value) throws IOException, SQLException;
+      }
+
+      /** The class of the column values this conversion applies to */
+      final Class<?> columnType;
+      private final Step step;
+
+      Conversion(final Class<?> columnType, final Step step)
+      {
+         this.columnType = columnType;
+         this.step = step;
+      }
+
+      Object apply(final Object value) throws IOException, SQLException
+      {
+         return step == null ? value : step.apply(value);
+      }
+   }
+}
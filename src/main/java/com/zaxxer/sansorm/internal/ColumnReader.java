@@ -0,0 +1,33 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads a column directly into a field with a typed {@code ResultSet} getter, bypassing
+ * {@code getObject()} and the conversion of the value.  A SQL {@code NULL} leaves the field untouched.
+ */
+interface ColumnReader
+{
+   /**
+    * Read the column of the current row into the field of the target.
+    */
+   void read(ResultSet resultSet, int column, Object target, Field field) throws SQLException, IllegalAccessException;
+}
@@ -0,0 +1,104 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+
+/**
+ * The path from an entity to an {@link Embedded} object, precomputed when the entity is introspected: the
+ * field holding the object, the path of its owner if the owner is itself embedded, and the constructor of
+ * the {@link Embeddable} class.  The columns of embedded objects are flattened into the columns of the
+ * entity, and their fields reached through the path, so that mapping a row remains a single pass over its
+ * columns.
+ * <p>
+ * An embedded object whose columns are all {@code NULL} is left {@code null}, and a {@code null} embedded
+ * object is written as {@code NULL} columns.
+ */
+final class Embedding
+{
+   private final Embedding parent;
+   private final Field field;
+   private final Constructor<?> constructor;
+   /** The property path of the embedded object, e.g. {@code address} or {@code address.zip} */
+   final String path;
+
+   Embedding(final Embedding parent, final Field field)
+   {
+      this.parent = parent;
+      this.field = field;
+      this.path = (parent != null ? parent.path + "." : "") + field.getName();
+      try {
+         this.constructor = field.getType().getDeclaredConstructor();
+      }
+      catch (NoSuchMethodException e) {
+         throw new RuntimeException("Embeddable " + field.getType().getName() + " of " + path + " must have a no-arg constructor");
+      }
+      field.setAccessible(true);
+      constructor.setAccessible(true);
+   }
+
+   /**
+    * @return the {@link Embeddable} class
+    */
+   Class<?> getType()
+   {
+      return field.getType();
+   }
+
+   /**
+    * Get the embedded object holding a field, for reading.
+    *
+    * @param target the entity
+    * @return the embedded object, or {@code null} if it or one of its owners is {@code null}
+    */
+   Object getHolder(final Object target) throws IllegalAccessException
+   {
+      final Object owner = (parent != null ? parent.getHolder(target) : target);
+      return owner != null ? field.get(owner) : null;
+   }
+
+   /**
+    * Get the embedded object holding a field, for writing, instantiating it and its owners if they are
+    * {@code null}.
+    *
+    * @param target the entity
+    * @return the embedded object
+    */
+   Object getOrCreateHolder(final Object target) throws ReflectiveOperationException
+   {
+      final Object owner = (parent != null ? parent.getOrCreateHolder(target) : target);
+      Object holder = field.get(owner);
+      if (holder == null) {
+         holder = constructor.newInstance();
+         field.set(owner, holder);
+      }
+      return holder;
+   }
+
+   /**
+    * @return true if the field is an embedded object, annotated with {@link Embedded} or of an
+    *         {@link Embeddable} class
+    */
+   static boolean isEmbedded(final Field field)
+   {
+      return field.getAnnotation(Embedded.class) != null || field.getType().getAnnotation(Embeddable.class) != null;
+   }
+}
@@ -0,0 +1,199 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EnumType;
+
+import com.zaxxer.sansorm.EnumCode;
+
+/**
+ * Maps the constants of an enum to and from their database representation without a map lookup or
+ * boxing: {@link EnumType#ORDINAL} indexes the array of constants with the primitive ordinal, and
+ * {@link EnumType#STRING} looks the name, or the {@link EnumCode} of the constant, up in a perfect hash
+ * table that resolves a code with one hash code and one comparison.  The values written are computed
+ * once per constant.
+ * <p>
+ * As before, a value that matches no constant maps to {@code null}.
+ */
+final class EnumCodec implements ColumnReader
+{
+   /** The largest table tried for a perfect hash, relative to the smallest power of two holding the codes */
+   private static final int MAX_TABLE_FACTOR = 16;
+
+   private final EnumType type;
+   private final Enum<?>[] constants;
+   /** The values written, indexed by ordinal: the boxed ordinals, or the codes */
+   private final Object[] values;
+
+   private final int mask;
+   private final String[] tableCodes;
+   private final Enum<?>[] tableConstants;
+   /** Used instead of the table in the unlikely case that the codes have no perfect hash of acceptable size */
+   private final Map<String, Enum<?>> fallback;
+
+   EnumCodec(final Class<?> enumClass, final EnumType type)
+   {
+      if (!enumClass.isEnum()) {
+         throw new RuntimeException("@Enumerated field must be of an enum type: " + enumClass.getCanonicalName());
+      }
+
+      this.type = type;
+      this.constants = (Enum<?>[]) enumClass.getEnumConstants();
+      this.values = new Object[constants.length];
+      for (Enum<?> constant : constants) {
+         values[constant.ordinal()] = (type == EnumType.ORDINAL ? Integer.valueOf(constant.ordinal()) : codeOf(enumClass, constant));
+      }
+
+      if (type == EnumType.ORDINAL) {
+         mask = 0;
+         tableCodes = null;
+         tableConstants = null;
+         fallback = null;
+         return;
+      }
+
+      // checked up front, as the fallback map would silently keep the last of duplicate codes
+      final Set<Object> distinct = new HashSet<>();
+      for (Enum<?> constant : constants) {
+         if (!distinct.add(values[constant.ordinal()])) {
+            throw new IllegalStateException("Duplicate code " + values[constant.ordinal()] + " in enum " + enumClass.getCanonicalName());
+         }
+      }
+
+      final int minimumSize = Integer.highestOneBit(Math.max(1, constants.length * 2 - 1));
+      for (int size = minimumSize; size <= minimumSize * MAX_TABLE_FACTOR; size <<= 1) {
+         final String[] codes = new String[size];
+         final Enum<?>[] byCode = new Enum<?>[size];
+         if (fill(codes, byCode, size - 1)) {
+            mask = size - 1;
+            tableCodes = codes;
+            tableConstants = byCode;
+            fallback = null;
+            return;
+         }
+      }
+
+      mask = 0;
+      tableCodes = null;
+      tableConstants = null;
+      fallback = new HashMap<>();
+      for (Enum<?> constant : constants) {
+         fallback.put((String) values[constant.ordinal()], constant);
+      }
+   }
+
+   /**
+    * Get the value to write for a constant.
+    *
+    * @param constant the constant, not {@code null}
+    * @return the ordinal or the code of the constant
+    */
+   Object encode(final Object constant)
+   {
+      return values[((Enum<?>) constant).ordinal()];
+   }
+
+   /**
+    * Get the constant of a value returned by {@code ResultSet.getObject()}.
+    *
+    * @param value the value, not {@code null}
+    * @return the constant, or {@code null} if the value matches no constant
+    */
+   Object decode(final Object value)
+   {
+      if (type == EnumType.ORDINAL) {
+         return (value instanceof Number) ? byOrdinal(((Number) value).intValue()) : null;
+      }
+      return byCode(value.toString());
+   }
+
+   @Override
+   public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+   {
+      if (type == EnumType.ORDINAL) {
+         final int ordinal = resultSet.getInt(column);
+         if (!resultSet.wasNull()) {
+            field.set(target, byOrdinal(ordinal));
+         }
+      }
+      else {
+         final String code = resultSet.getString(column);
+         if (code != null) {
+            field.set(target, byCode(code));
+         }
+      }
+   }
+
+   private Enum<?> byOrdinal(final int ordinal)
+   {
+      return (ordinal >= 0 && ordinal < constants.length) ? constants[ordinal] : null;
+   }
+
+   private Enum<?> byCode(final String code)
+   {
+      final Enum<?> constant = lookup(code);
+      // a CHAR(n) column pads shorter codes with blanks
+      return (constant == null && code.endsWith(" ")) ? lookup(code.trim()) : constant;
+   }
+
+   private Enum<?> lookup(final String code)
+   {
+      if (fallback != null) {
+         return fallback.get(code);
+      }
+      final int index = spread(code.hashCode()) & mask;
+      return code.equals(tableCodes[index]) ? tableConstants[index] : null;
+   }
+
+   private boolean fill(final String[] codes, final Enum<?>[] byCode, final int tableMask)
+   {
+      for (Enum<?> constant : constants) {
+         final String code = (String) values[constant.ordinal()];
+         final int index = spread(code.hashCode()) & tableMask;
+         if (codes[index] != null) {
+            return false;
+         }
+         codes[index] = code;
+         byCode[index] = constant;
+      }
+      return true;
+   }
+
+   private static int spread(final int hash)
+   {
+      return hash ^ (hash >>> 16);
+   }
+
+   private static String codeOf(final Class<?> enumClass, final Enum<?> constant)
+   {
+      try {
+         final EnumCode code = enumClass.getField(constant.name()).getAnnotation(EnumCode.class);
+         return code != null ? code.value() : constant.name();
+      }
+      catch (NoSuchFieldException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
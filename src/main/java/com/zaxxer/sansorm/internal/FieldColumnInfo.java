@@ -1,11 +1,12 @@
 package com.zaxxer.sansorm.internal;
 
 import javax.persistence.*;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Column information about a field
@@ -24,26 +25,56 @@ final class FieldColumnInfo
    private String columnName;
    /** name without delimiter: lower cased; delimited name: name as is with delimiters */
    String columnTableName = "";
-   EnumType enumType;
-   Map<Object, Object> enumConstants;
+   /** The codec of an {@code @Enumerated} field, or {@code null} */
+   EnumCodec enumCodec;
    private AttributeConverter converter;
    private String caseSensitiveColumnName;
    boolean isGeneratedId;
    boolean isIdField;
    private boolean isJoinColumn;
+   /** The field is a {@code @ManyToOne} reference to another entity, whose column holds the id of that entity */
+   boolean isManyToOne;
+   /** The {@code @ManyToOne} reference is {@code FetchType.LAZY}: it is set to an instance holding only the id */
+   boolean isLazy;
    boolean isTransient;
    private boolean isEnumerated;
+   /** The field is annotated with {@code @Lob}, so that its value is bound as a stream */
+   boolean isLob;
    private boolean isColumnAnnotated;
    private String delimitedFieldName;
    private final String fullyQualifiedDelimitedFieldName;
+   /** Index of the field in the constructor arguments of a constructor-mapped entity, -1 if it is not a constructor argument */
+   int constructorIndex = -1;
+   /** The accessor of a record component, of type {@code (Object)Object}, or {@code null} */
+   MethodHandle accessor;
+   /** The reader of a primitive, enum or {@code java.time} field without converter, which bypasses {@code getObject()}, or {@code null} */
+   ColumnReader columnReader;
+   /** The conversion resolved for the class of the last column value, racy by design as conversions are immutable */
+   private ColumnConverters.Conversion conversion;
+
+   /** The path to the embedded object holding the field, or {@code null} if the field is a field of the entity */
+   final Embedding embedding;
 
    public FieldColumnInfo(Field field, Class<?> clazz) {
+      this(field, clazz, null, null);
+   }
+
+   /**
+    * @param embedding the path to the embedded object holding the field, or {@code null}
+    * @param columnOverride the {@code @AttributeOverride} column of an embedded field, or {@code null}
+    */
+   FieldColumnInfo(final Field field, final Class<?> clazz, final Embedding embedding, final Column columnOverride) {
       this.field = field;
       this.clazz = clazz;
-      this.propertyName = field.getName();
+      this.embedding = embedding;
+      this.propertyName = (embedding != null ? embedding.path + "." : "") + field.getName();
       this.fieldType = getFieldType();
       extractAnnotations();
       processFieldAnnotations();
+      if (columnOverride != null) {
+         processColumnAnnotation(columnOverride);
+      }
+      resetConversion();
       this.fullyQualifiedDelimitedFieldName =
          columnTableName.isEmpty() ? delimitedFieldName : columnTableName + "." + delimitedFieldName;
    }
@@ -69,7 +100,7 @@ final class FieldColumnInfo
    private void processFieldAnnotations()
    {
       if (isColumnAnnotated) {
-         processColumnAnnotation();
+         processColumnAnnotation(field.getAnnotation(Column.class));
       }
       else  {
          if (isJoinColumn) {
@@ -100,12 +131,19 @@ final class FieldColumnInfo
       Enumerated enumAnnotation = field.getAnnotation(Enumerated.class);
       if (enumAnnotation != null) {
          isEnumerated = true;
-         this.setEnumConstants(enumAnnotation.value());
+         enumCodec = new EnumCodec(field.getType(), enumAnnotation.value());
       }
+      isLob = field.getAnnotation(Lob.class) != null;
       JoinColumn joinColumnAnnotation = field.getAnnotation(JoinColumn.class);
       if (joinColumnAnnotation != null) {
          isJoinColumn = true;
       }
+      final ManyToOne manyToOneAnnotation = field.getAnnotation(ManyToOne.class);
+      isManyToOne = manyToOneAnnotation != null && field.getType() != clazz;
+      isLazy = isManyToOne && manyToOneAnnotation.fetch() == FetchType.LAZY;
+      if (isManyToOne && !isJoinColumn) {
+         throw new RuntimeException("@ManyToOne field " + field.getName() + " of " + clazz.getName() + " requires a @JoinColumn");
+      }
       Transient transientAnnotation = field.getAnnotation(Transient.class);
       if (transientAnnotation != null) {
          isTransient = true;
@@ -136,8 +174,7 @@ final class FieldColumnInfo
    /**
     * Processes &#64;Column annotated fields.
     */
-   private void processColumnAnnotation() {
-      Column columnAnnotation = field.getAnnotation(Column.class);
+   private void processColumnAnnotation(final Column columnAnnotation) {
       String columnName = columnAnnotation.name();
       setColumnName(columnName);
 
@@ -148,12 +185,12 @@ final class FieldColumnInfo
 
    private void processJoinColumnAnnotation() {
       JoinColumn joinColumnAnnotation = field.getAnnotation(JoinColumn.class);
-      // Is the JoinColumn a self-join?
-      if (field.getType() == clazz) {
+      // Is the JoinColumn a self-join or a many-to-one reference?
+      if (field.getType() == clazz || isManyToOne) {
          setColumnName(joinColumnAnnotation.name());
       }
       else {
-         throw new RuntimeException("JoinColumn annotations can only be self-referencing: " + field.getType().getCanonicalName() + " != "
+         throw new RuntimeException("JoinColumn annotations can only be self-referencing or @ManyToOne: " + field.getType().getCanonicalName() + " != "
             + clazz.getCanonicalName());
       }
    }
@@ -179,15 +216,70 @@ final class FieldColumnInfo
       }
    }
 
-   <T extends Enum<?>> void setEnumConstants(final EnumType type)
+   /**
+    * Read the value of the field, through its accessor if the entity is a record.
+    *
+    * @param target the entity
+    * @return the value of the field, without conversion
+    */
+   Object getFieldValue(final Object target)
    {
-      enumType = type;
-      enumConstants = new HashMap<>();
-      @SuppressWarnings("unchecked")
-      final T[] enums = (T[]) field.getType().getEnumConstants();
-      for (T enumConst : enums) {
-         Object key = (type == EnumType.ORDINAL ? enumConst.ordinal() : enumConst.name());
-         enumConstants.put(key, enumConst);
+      try {
+         if (embedding != null) {
+            final Object holder = embedding.getHolder(target);
+            return holder != null ? field.get(holder) : null;
+         }
+         return (accessor != null) ? (Object) accessor.invokeExact(target) : field.get(target);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Set the value of the field, instantiating the embedded object holding it if necessary.
+    *
+    * @param target the entity
+    * @param value the value, already converted to the type of the field
+    */
+   void setFieldValue(final Object target, final Object value) throws ReflectiveOperationException
+   {
+      field.set(embedding != null ? embedding.getOrCreateHolder(target) : target, value);
+   }
+
+   /**
+    * Convert a column value to the type of the field, resolving the conversion only when the class of
+    * the value differs from that of the previous value.
+    *
+    * @param value the column value, not {@code null}
+    * @return the converted value
+    */
+   Object convertColumnValue(final Object value) throws IOException, SQLException
+   {
+      ColumnConverters.Conversion current = conversion;
+      if (current == null || current.columnType != value.getClass()) {
+         current = ColumnConverters.resolve(this, value.getClass());
+         conversion = current;
+      }
+      return current.apply(value);
+   }
+
+   /**
+    * Discard the resolved conversion, after the converters of the field changed.
+    */
+   void resetConversion()
+   {
+      conversion = null;
+      // a reader would instantiate the embedded object of a NULL column
+      if (converter != null || embedding != null || ColumnConverters.hasConverterTo(field.getType())) {
+         columnReader = null;
+      }
+      else {
+         final ColumnReader primitiveReader = PrimitiveColumnReader.of(field.getType());
+         columnReader = (enumCodec != null) ? enumCodec : (primitiveReader != null ? primitiveReader : JavaTimeSupport.reader(field.getType()));
       }
    }
 
@@ -199,6 +291,7 @@ final class FieldColumnInfo
 
    public void setConverter(final AttributeConverter converter) {
       this.converter = converter;
+      resetConversion();
    }
 
    public AttributeConverter getConverter() {
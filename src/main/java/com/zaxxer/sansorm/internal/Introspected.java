@@ -16,21 +16,26 @@
 
 package com.zaxxer.sansorm.internal;
 
-import org.postgresql.util.PGobject;
-
 import javax.persistence.*;
-import java.io.IOException;
-import java.io.Reader;
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.sql.Clob;
-import java.sql.SQLException;
 import java.util.*;
 
 /**
  * An introspected class.
+ * <p>
+ * Entities are normally instantiated with their no-arg constructor and populated field by field.  Records,
+ * classes with a {@link ConstructorProperties} constructor, and classes without a no-arg constructor whose
+ * constructor takes all persistent fields in declaration order are instead <i>constructor-mapped</i>: their
+ * column values are collected into an argument array and the constructor is invoked once, and their final
+ * fields are persistent.  Every argument of such a constructor must be a persistent field.
  */
 public final class Introspected
 {
@@ -45,6 +50,8 @@ public final class Introspected
    private List<FieldColumnInfo> insertableFcInfos;
    private List<FieldColumnInfo> updatableFcInfos;
    private FieldColumnInfo selfJoinFCInfo;
+   private final List<OneToManyRelationship> oneToManyRelationships;
+   private boolean hasManyToOne;
 
    private boolean isGeneratedId;
 
@@ -61,6 +68,14 @@ public final class Introspected
    private FieldColumnInfo[] updatableFcInfosArray;
    private FieldColumnInfo[] selectableFcInfosArray;
 
+   // Constructor-mapped entities
+   private MethodHandle constructorHandle;
+   private Object[] constructorDefaults;
+   private FieldColumnInfo[] nonConstructorFcInfos;
+
+   // Resolved on first use, getDeclaredConstructor() copies the constructor on every call
+   private volatile Constructor<?> noArgConstructor;
+
    /**
     * Constructor. Introspect the specified class and cache various annotation data about it.
     *
@@ -75,54 +90,47 @@ public final class Introspected
       this.updatableFcInfos = new ArrayList<>();
       this.allFcInfos = new ArrayList<>();
       this.idFcInfos = new ArrayList<>();
+      this.oneToManyRelationships = new ArrayList<>();
 
       extractClassTableName();
 
       try {
+         final Constructor<?> constructor = findMappedConstructor();
+         final String[] parameterNames = (constructor != null ? getParameterNames(constructor) : null);
+         final Map<String, Method> accessors = getRecordAccessors();
+
          for (Field field : getDeclaredFields()) {
             final int modifiers = field.getModifiers();
-            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)) {
+            if (Modifier.isStatic(modifiers) || (Modifier.isFinal(modifiers) && constructor == null) || Modifier.isTransient(modifiers)) {
                continue;
             }
 
             field.setAccessible(true);
-            final FieldColumnInfo fcInfo = new FieldColumnInfo(field, clazz);
-
-            if (!fcInfo.isTransient) {
-               columnToField.put(fcInfo.getCaseSensitiveColumnName(), fcInfo);
-               propertyToField.put(fcInfo.getPropertyName(), fcInfo);
-               allFcInfos.add(fcInfo);
-               if (fcInfo.isIdField) {
-                  // Is it a problem that Class.getDeclaredFields() claims the fields are returned unordered?  We count on order.
-                  idFcInfos.add(fcInfo);
-                  isGeneratedId = isGeneratedId || fcInfo.isGeneratedId;
-                  if (isGeneratedId && idFcInfos.size() > 1) {
-                     throw new IllegalStateException("Cannot have multiple @Id annotations and @GeneratedValue at the same time.");
-                  }
-                  if (!fcInfo.isGeneratedId) {
-                     if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
-                        insertableFcInfos.add(fcInfo);
-                     }
-                     if (fcInfo.isUpdatable() == null || fcInfo.isUpdatable()) {
-                        updatableFcInfos.add(fcInfo);
-                     }
-                  }
-               }
-               else if (fcInfo.isSelfJoinField()) {
-                  selfJoinFCInfo = fcInfo;
-               }
-               else {
-                  if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
-                     insertableFcInfos.add(fcInfo);
-                  }
-                  if (fcInfo.isUpdatable() == null || fcInfo.isUpdatable()) {
-                     updatableFcInfos.add(fcInfo);
-                  }
+            if (field.getAnnotation(OneToMany.class) != null && field.getAnnotation(Transient.class) == null) {
+               oneToManyRelationships.add(new OneToManyRelationship(field, clazz));
+               continue;
+            }
+            if (Embedding.isEmbedded(field) && field.getAnnotation(Transient.class) == null) {
+               if (constructor != null) {
+                  throw new RuntimeException("Embedded field " + field.getName() + " is not supported by constructor-mapped class " + clazz.getName());
                }
+               addEmbeddedFields(new Embedding(null, field), getAttributeOverrides(field, Collections.emptyMap(), ""));
+               continue;
+            }
+
+            final FieldColumnInfo fcInfo = new FieldColumnInfo(field, clazz);
+            final Method accessor = accessors.get(field.getName());
+            if (accessor != null) {
+               accessor.setAccessible(true);
+               fcInfo.accessor = MethodHandles.lookup().unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
             }
+            addFieldColumnInfo(fcInfo);
          }
 
          precalculateColumnInfos(idFcInfos);
+         if (constructor != null) {
+            precalculateConstructor(constructor, parameterNames);
+         }
 
       } catch (Exception e) {
          // To ease debugging
@@ -131,6 +139,101 @@ public final class Introspected
       }
    }
 
+   private void addFieldColumnInfo(final FieldColumnInfo fcInfo)
+   {
+      if (fcInfo.isTransient) {
+         return;
+      }
+
+      columnToField.put(fcInfo.getCaseSensitiveColumnName(), fcInfo);
+      propertyToField.put(fcInfo.getPropertyName(), fcInfo);
+      allFcInfos.add(fcInfo);
+      hasManyToOne |= fcInfo.isManyToOne;
+      if (fcInfo.isIdField) {
+         // Is it a problem that Class.getDeclaredFields() claims the fields are returned unordered?  We count on order.
+         idFcInfos.add(fcInfo);
+         isGeneratedId = isGeneratedId || fcInfo.isGeneratedId;
+         if (isGeneratedId && idFcInfos.size() > 1) {
+            throw new IllegalStateException("Cannot have multiple @Id annotations and @GeneratedValue at the same time.");
+         }
+         if (!fcInfo.isGeneratedId) {
+            if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
+               insertableFcInfos.add(fcInfo);
+            }
+            if (fcInfo.isUpdatable() == null || fcInfo.isUpdatable()) {
+               updatableFcInfos.add(fcInfo);
+            }
+         }
+      }
+      else if (fcInfo.isSelfJoinField()) {
+         selfJoinFCInfo = fcInfo;
+      }
+      else {
+         if (fcInfo.isInsertable() == null || fcInfo.isInsertable()) {
+            insertableFcInfos.add(fcInfo);
+         }
+         if (fcInfo.isUpdatable() == null || fcInfo.isUpdatable()) {
+            updatableFcInfos.add(fcInfo);
+         }
+      }
+   }
+
+   /**
+    * Flatten the fields of an embedded object, and recursively of the objects embedded in it, into the
+    * columns of the entity.
+    *
+    * @param embedding the path to the embedded object
+    * @param overrides the overridden columns of the embedded object by property path relative to it
+    */
+   private void addEmbeddedFields(final Embedding embedding, final Map<String, Column> overrides)
+   {
+      for (Field field : embedding.getType().getDeclaredFields()) {
+         if (isSkipped(field) || Modifier.isFinal(field.getModifiers())) {
+            continue;
+         }
+
+         field.setAccessible(true);
+         if (Embedding.isEmbedded(field)) {
+            addEmbeddedFields(new Embedding(embedding, field), getAttributeOverrides(field, overrides, field.getName() + "."));
+         }
+         else {
+            addFieldColumnInfo(new FieldColumnInfo(field, clazz, embedding, overrides.get(field.getName())));
+         }
+      }
+   }
+
+   /**
+    * Get the columns overridden for the fields of an embedded object by {@link AttributeOverride}s.  The
+    * overrides of an outer embedding, with property paths such as {@code zip.code}, take precedence over
+    * those of the field.
+    *
+    * @param field the embedded field
+    * @param outer the overrides of the embedding holding the field
+    * @param prefix the property path of the field relative to the outer embedding, followed by a dot
+    * @return the overridden columns by property path relative to the embedded object
+    */
+   private static Map<String, Column> getAttributeOverrides(final Field field, final Map<String, Column> outer, final String prefix)
+   {
+      final Map<String, Column> overrides = new HashMap<>();
+      final AttributeOverrides annotations = field.getAnnotation(AttributeOverrides.class);
+      if (annotations != null) {
+         for (AttributeOverride override : annotations.value()) {
+            overrides.put(override.name(), override.column());
+         }
+      }
+      final AttributeOverride annotation = field.getAnnotation(AttributeOverride.class);
+      if (annotation != null) {
+         overrides.put(annotation.name(), annotation.column());
+      }
+
+      for (Map.Entry<String, Column> entry : outer.entrySet()) {
+         if (entry.getKey().startsWith(prefix)) {
+            overrides.put(entry.getKey().substring(prefix.length()), entry.getValue());
+         }
+      }
+      return overrides;
+   }
+
    /**
     * Get the {@link FieldColumnInfo} for the specified column name.
     *
@@ -140,6 +243,153 @@ public final class Introspected
       return columnToField.get(columnName);
    }
 
+   /**
+    * Find the constructor of a constructor-mapped entity: the canonical constructor of a record or, if the
+    * class has no no-arg constructor, a constructor annotated with {@link ConstructorProperties} or the
+    * constructor taking the types of all persistent fields in declaration order.  A class with a no-arg
+    * constructor is populated through its fields, as it was before constructor mapping.
+    *
+    * @return the constructor, or {@code null} if the entity is instantiated with its no-arg constructor
+    */
+   private Constructor<?> findMappedConstructor() throws ReflectiveOperationException
+   {
+      if (isRecord(clazz)) {
+         final Object[] components = getRecordComponents();
+         final Class<?>[] types = new Class<?>[components.length];
+         for (int i = 0; i < components.length; i++) {
+            types[i] = (Class<?>) components[i].getClass().getMethod("getType").invoke(components[i]);
+         }
+         return clazz.getDeclaredConstructor(types);
+      }
+
+      Constructor<?> annotated = null;
+      for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+         if (constructor.getParameterCount() == 0) {
+            return null;
+         }
+         if (constructor.getAnnotation(ConstructorProperties.class) != null
+            && (annotated == null || constructor.getParameterCount() > annotated.getParameterCount())) {
+            annotated = constructor;
+         }
+      }
+      if (annotated != null) {
+         return annotated;
+      }
+
+      final List<Class<?>> types = new ArrayList<>();
+      for (Field field : getDeclaredFields()) {
+         if (!isSkipped(field)) {
+            types.add(field.getType());
+         }
+      }
+      try {
+         return clazz.getDeclaredConstructor(types.toArray(new Class<?>[0]));
+      }
+      catch (NoSuchMethodException noCanonical) {
+         // instantiation fails later, as it did without constructor mapping
+         return null;
+      }
+   }
+
+   private String[] getParameterNames(final Constructor<?> constructor) throws ReflectiveOperationException
+   {
+      final ConstructorProperties properties = constructor.getAnnotation(ConstructorProperties.class);
+      if (properties != null) {
+         return properties.value();
+      }
+
+      final List<String> names = new ArrayList<>();
+      if (isRecord(clazz)) {
+         for (Object component : getRecordComponents()) {
+            names.add((String) component.getClass().getMethod("getName").invoke(component));
+         }
+      }
+      else {
+         for (Field field : getDeclaredFields()) {
+            if (!isSkipped(field)) {
+               names.add(field.getName());
+            }
+         }
+      }
+      return names.toArray(new String[0]);
+   }
+
+   /**
+    * Get the accessors of the components of a record by component name.  Records are accessed
+    * reflectively, so that this class runs on JVMs without records.
+    */
+   private Map<String, Method> getRecordAccessors() throws ReflectiveOperationException
+   {
+      if (!isRecord(clazz)) {
+         return Collections.emptyMap();
+      }
+
+      final Map<String, Method> accessors = new HashMap<>();
+      for (Object component : getRecordComponents()) {
+         final Class<?> componentClass = component.getClass();
+         accessors.put((String) componentClass.getMethod("getName").invoke(component), (Method) componentClass.getMethod("getAccessor").invoke(component));
+      }
+      return accessors;
+   }
+
+   private Object[] getRecordComponents() throws ReflectiveOperationException
+   {
+      return (Object[]) Class.class.getMethod("getRecordComponents").invoke(clazz);
+   }
+
+   private static boolean isRecord(final Class<?> clazz)
+   {
+      final Class<?> superclass = clazz.getSuperclass();
+      return superclass != null && "java.lang.Record".equals(superclass.getName());
+   }
+
+   private static boolean isSkipped(final Field field)
+   {
+      final int modifiers = field.getModifiers();
+      return Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.getAnnotation(Transient.class) != null;
+   }
+
+   private void precalculateConstructor(final Constructor<?> constructor, final String[] parameterNames) throws IllegalAccessException
+   {
+      final Class<?>[] parameterTypes = constructor.getParameterTypes();
+      if (parameterNames.length != parameterTypes.length) {
+         throw new RuntimeException("@ConstructorProperties of " + constructor + " does not name every parameter");
+      }
+      if (selfJoinFCInfo != null) {
+         throw new RuntimeException("Self-join columns are not supported by constructor-mapped class " + clazz.getName());
+      }
+      if (hasRelationships()) {
+         throw new RuntimeException("@ManyToOne and @OneToMany fields are not supported by constructor-mapped class " + clazz.getName());
+      }
+
+      constructorDefaults = new Object[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+         final FieldColumnInfo fcInfo = propertyToField.get(parameterNames[i]);
+         if (fcInfo == null) {
+            throw new RuntimeException("Constructor parameter " + parameterNames[i] + " of " + clazz.getName() + " is not a persistent field");
+         }
+         fcInfo.constructorIndex = i;
+         // the defaults of absent (NULL) primitive columns, as for fields
+         constructorDefaults[i] = parameterTypes[i].isPrimitive() ? Array.get(Array.newInstance(parameterTypes[i], 1), 0) : null;
+      }
+
+      final List<FieldColumnInfo> nonConstructor = new ArrayList<>();
+      for (FieldColumnInfo fcInfo : allFcInfos) {
+         if (fcInfo.constructorIndex < 0) {
+            if (Modifier.isFinal(fcInfo.field.getModifiers())) {
+               throw new RuntimeException("Final field " + fcInfo.field.getName() + " of " + clazz.getName() + " is not a constructor parameter");
+            }
+            nonConstructor.add(fcInfo);
+         }
+      }
+      nonConstructorFcInfos = nonConstructor.toArray(new FieldColumnInfo[0]);
+
+      constructor.setAccessible(true);
+      constructorHandle = MethodHandles.lookup().unreflectConstructor(constructor)
+                                       .asSpreader(Object[].class, parameterTypes.length)
+                                       .asType(MethodType.methodType(Object.class, Object[].class));
+   }
+
    /**
     * Get the declared {@link Field}s for the class, including declared fields from mapped
     * superclasses.
@@ -190,12 +440,16 @@ public final class Introspected
       }
 
       try {
-         Object value = fcInfo.field.get(target);
+         Object value = fcInfo.getFieldValue(target);
          // Fix-up column value for enums, integer as boolean, etc.
-         if (fcInfo.getConverter() != null) {
+         if (fcInfo.isManyToOne) {
+            // the column of a @ManyToOne field holds the id of the referenced entity
+            value = (value != null ? Introspector.getIntrospected(value.getClass()).getActualIds(value)[0] : null);
+         }
+         else if (fcInfo.getConverter() != null) {
             value = fcInfo.getConverter().convertToDatabaseColumn(value);
-         } else if (fcInfo.enumConstants != null && value != null) {
-            value = (fcInfo.enumType == EnumType.ORDINAL ? ((Enum<?>) value).ordinal() : ((Enum<?>) value).name());
+         } else if (fcInfo.enumCodec != null && value != null) {
+            value = fcInfo.enumCodec.encode(value);
          }
 
          return value;
@@ -218,54 +472,207 @@ public final class Introspected
       if (fcInfo == null) {
          throw new RuntimeException("FieldColumnInfo must not be null. Type is " + target.getClass().getCanonicalName());
       }
+      if (fcInfo.constructorIndex >= 0) {
+         throw new RuntimeException("Field " + fcInfo.field.getName() + " of constructor-mapped " + clazz.getName() + " cannot be set");
+      }
 
       try {
-         final Class<?> fieldType = fcInfo.fieldType;
-         Class<?> columnType = value.getClass();
-         Object columnValue = value;
-
-         if (fcInfo.getConverter() != null) {
-            columnValue = fcInfo.getConverter().convertToEntityAttribute(columnValue);
-         } else if (fieldType != columnType) {
-            // Fix-up column value for enums, integer as boolean, etc.
-            if (fieldType == boolean.class && columnType == Integer.class) {
-               columnValue = (((Integer) columnValue) != 0);
-            }
-            else if (columnType == BigDecimal.class) {
-               if (fieldType == BigInteger.class) {
-                  columnValue = ((BigDecimal) columnValue).toBigInteger();
-               }
-               else if (fieldType == Integer.class) {
-                  columnValue = (int) ((BigDecimal) columnValue).longValue();
-               }
-               else if (fieldType == Long.class) {
-                  columnValue = ((BigDecimal) columnValue).longValue();
-               }
-               else if (fieldType == Double.class) {
-                  columnValue = ((BigDecimal) columnValue).doubleValue();
-               }
-            }
-            else if (columnType == java.util.UUID.class && fieldType == String.class) {
-               columnValue = columnValue.toString();
-            }
-            else if (fcInfo.enumConstants != null) {
-               columnValue = fcInfo.enumConstants.get(columnValue);
-            }
-            else if (columnValue instanceof Clob) {
-               columnValue = readClob((Clob) columnValue);
-            }
-            else if ("PGobject".equals(columnType.getSimpleName()) && "citext".equalsIgnoreCase(((PGobject) columnValue).getType())) {
-               columnValue = ((PGobject) columnValue).getValue();
-            }
-         }
+         fcInfo.setFieldValue(target, fcInfo.convertColumnValue(value));
+      }
+      catch (Exception e) {
+         throw new RuntimeException(e);
+      }
+   }
 
-         fcInfo.field.set(target, columnValue);
+   /**
+    * Set a constructor argument of a constructor-mapped entity.
+    *
+    * @param arguments the arguments, as returned by {@link #newConstructorArguments()}
+    * @param fcInfo the {@link FieldColumnInfo} of a constructor parameter
+    * @param value the column value, possibly after applying a {@link AttributeConverter}
+    */
+   void setArgument(final Object[] arguments, final FieldColumnInfo fcInfo, final Object value)
+   {
+      try {
+         arguments[fcInfo.constructorIndex] = fcInfo.convertColumnValue(value);
       }
       catch (Exception e) {
          throw new RuntimeException(e);
       }
    }
 
+   /**
+    * @return true if the entity is instantiated with its constructor arguments
+    */
+   boolean isConstructorMapped()
+   {
+      return constructorHandle != null;
+   }
+
+   /**
+    * @return a new argument array for {@link #construct(Object[])}, holding the default values of the parameters
+    */
+   Object[] newConstructorArguments()
+   {
+      return constructorDefaults.clone();
+   }
+
+   /**
+    * @return the persistent fields of a constructor-mapped entity that are set after construction
+    */
+   FieldColumnInfo[] getNonConstructorFcInfos()
+   {
+      return nonConstructorFcInfos;
+   }
+
+   /**
+    * Instantiate a constructor-mapped entity.
+    *
+    * @param arguments the constructor arguments
+    * @return the new instance
+    */
+   Object construct(final Object[] arguments)
+   {
+      try {
+         return (Object) constructorHandle.invokeExact(arguments);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Instantiate an entity with its no-arg constructor.
+    *
+    * @return the new instance
+    */
+   Object newInstance()
+   {
+      try {
+         Constructor<?> constructor = noArgConstructor;
+         if (constructor == null) {
+            constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            noArgConstructor = constructor;
+         }
+         return constructor.newInstance();
+      }
+      catch (ReflectiveOperationException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Instantiate a reference to an entity with a single ID, holding only its ID, e.g. for a lazy
+    * {@code @ManyToOne} field.
+    *
+    * @param id the ID column value
+    * @return the new instance
+    */
+   Object newReference(final Object id)
+   {
+      final FieldColumnInfo idFcInfo = idFieldColumnInfos[0];
+      final Object target;
+      if (isConstructorMapped()) {
+         final Object[] arguments = newConstructorArguments();
+         if (idFcInfo.constructorIndex >= 0) {
+            setArgument(arguments, idFcInfo, id);
+            return construct(arguments);
+         }
+         target = construct(arguments);
+      }
+      else {
+         target = newInstance();
+      }
+      set(target, idFcInfo, id);
+      return target;
+   }
+
+   /**
+    * Copy a constructor-mapped entity, replacing the value of one field, e.g. with a generated ID.
+    *
+    * @param target the entity to copy
+    * @param fcInfo the field to replace
+    * @param value the column value of the field
+    * @return the copy
+    */
+   Object copyWith(final Object target, final FieldColumnInfo fcInfo, final Object value)
+   {
+      final Object[] arguments = new Object[constructorDefaults.length];
+      for (FieldColumnInfo argument : allFcInfos) {
+         if (argument.constructorIndex >= 0) {
+            arguments[argument.constructorIndex] = argument.getFieldValue(target);
+         }
+      }
+      setArgument(arguments, fcInfo, value);
+
+      final Object copy = construct(arguments);
+      try {
+         for (FieldColumnInfo nonConstructor : nonConstructorFcInfos) {
+            nonConstructor.field.set(copy, nonConstructor.field.get(target));
+         }
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+      return copy;
+   }
+
+   /**
+    * Discard the conversions resolved by the fields, after the registered converters changed.
+    */
+   void resetConversions()
+   {
+      for (FieldColumnInfo fcInfo : allFcInfos) {
+         fcInfo.resetConversion();
+      }
+   }
+
+   /**
+    * @return true if this class has {@link ManyToOne} or {@link OneToMany} fields, which are populated by a
+    *         {@link RelationshipLoader} after the entities are mapped
+    */
+   boolean hasRelationships()
+   {
+      return hasManyToOne || !oneToManyRelationships.isEmpty();
+   }
+
+   /**
+    * @return the {@link OneToMany} fields of this class
+    */
+   List<OneToManyRelationship> getOneToManyRelationships()
+   {
+      return oneToManyRelationships;
+   }
+
+   /**
+    * @param fieldName the name of a {@link OneToMany} field
+    * @return the {@link OneToMany} field
+    */
+   OneToManyRelationship getOneToManyRelationship(final String fieldName)
+   {
+      for (OneToManyRelationship relationship : oneToManyRelationships) {
+         if (relationship.field.getName().equals(fieldName)) {
+            return relationship;
+         }
+      }
+      throw new RuntimeException(fieldName + " is not a @OneToMany field of " + clazz.getName());
+   }
+
+   /**
+    * Get the {@link FieldColumnInfo} for the specified property name.
+    *
+    * @param propertyName the name of the field, or the path of the field of an embedded object
+    * @return the {@link FieldColumnInfo}, or {@code null} if the class has no such persistent field
+    */
+   FieldColumnInfo getFieldColumnInfoByProperty(final String propertyName)
+   {
+      return propertyToField.get(propertyName);
+   }
+
    /**
     * Determines whether this class has join columns.
     *
@@ -430,23 +837,32 @@ public final class Introspected
       return false;
    }
 
-   Object[] getActualIds(final Object target)
+   /**
+    * Get the values of the ID fields of the specified target, in declaration order.
+    *
+    * @param target the target instance
+    * @return the ID values, or {@code null} if the introspected class has no ID fields
+    */
+   public Object[] getActualIds(final Object target)
    {
       if (idColumnNames.length == 0) {
          return null;
       }
 
-      try {
-         final FieldColumnInfo[] fcInfos = idFieldColumnInfos;
-         final Object[] ids = new Object[idColumnNames.length];
-         for (int i = 0; i < fcInfos.length; i++) {
-            ids[i] = fcInfos[i].field.get(target);
-         }
-         return ids;
-      }
-      catch (IllegalAccessException e) {
-         throw new RuntimeException(e);
+      final FieldColumnInfo[] fcInfos = idFieldColumnInfos;
+      final Object[] ids = new Object[idColumnNames.length];
+      for (int i = 0; i < fcInfos.length; i++) {
+         ids[i] = fcInfos[i].getFieldValue(target);
       }
+      return ids;
+   }
+
+   /**
+    * @return the introspected class
+    */
+   Class<?> getIntrospectedClass()
+   {
+      return clazz;
    }
 
    /**
@@ -513,22 +929,6 @@ public final class Introspected
       precalculateUpdatableColumns();
    }
 
-   private static String readClob(final Clob clob) throws IOException, SQLException
-   {
-      try (final Reader reader = clob.getCharacterStream()) {
-         final StringBuilder sb = new StringBuilder();
-         final char[] cbuf = new char[1024];
-         while (true) {
-            int rc = reader.read(cbuf);
-            if (rc == -1) {
-               break;
-            }
-            sb.append(cbuf, 0, rc);
-         }
-         return sb.toString();
-      }
-   }
-
    String[] getCaseSensitiveColumnNames() {
       return caseSensitiveColumnNames;
    }
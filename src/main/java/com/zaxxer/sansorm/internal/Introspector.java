@@ -16,8 +16,15 @@
 
 package com.zaxxer.sansorm.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.persistence.MappedSuperclass;
 
 /**
  * Introspector
@@ -41,4 +48,88 @@ public final class Introspector
    {
       return descriptorMap.computeIfAbsent(clazz, cls -> new Introspected(cls));
    }
+
+   /**
+    * Introspect the specified classes in parallel on the common fork-join pool, and pre-build the SQL of
+    * the single entity operations (select by id, insert and update) of every entity class among them.
+    *
+    * @param classes the entity and mapped superclasses
+    * @throws RuntimeException if any class cannot be introspected, with the individual failures
+    *         attached as suppressed exceptions
+    * @see #preload(Collection, ForkJoinPool)
+    */
+   public static void preload(final Collection<Class<?>> classes)
+   {
+      preload(classes, ForkJoinPool.commonPool());
+   }
+
+   /**
+    * Introspect the specified classes in parallel on the specified pool, and pre-build the SQL of the
+    * single entity operations (select by id, insert and update) of every entity class among them, so that
+    * the first use of a class does not pay for it.  The SQL caches are bounded (see
+    * {@link BoundedCache}), and should be sized to cover the number of entity classes for the SQL to stay
+    * cached.
+    *
+    * @param classes the entity and mapped superclasses
+    * @param pool the pool to introspect on
+    * @throws RuntimeException if any class cannot be introspected, with the individual failures
+    *         attached as suppressed exceptions
+    */
+   public static void preload(final Collection<Class<?>> classes, final ForkJoinPool pool)
+   {
+      final List<ForkJoinTask<?>> tasks = new ArrayList<>(classes.size());
+      for (Class<?> clazz : classes) {
+         tasks.add(pool.submit(() -> preloadClass(clazz)));
+      }
+
+      RuntimeException failure = null;
+      for (ForkJoinTask<?> task : tasks) {
+         try {
+            task.join();
+         }
+         catch (RuntimeException e) {
+            if (failure == null) {
+               failure = new RuntimeException("Failed to preload one or more classes");
+            }
+            failure.addSuppressed(e);
+         }
+      }
+
+      if (failure != null) {
+         throw failure;
+      }
+   }
+
+   /**
+    * Find the classes annotated with {@code @Table}, {@code @Entity} or {@code @MappedSuperclass} in
+    * the specified packages and their sub-packages, in directories or jar files of the class path.  The
+    * classes are loaded but not initialized.
+    *
+    * @param classLoader the class loader to search
+    * @param packageNames the names of the packages to search
+    * @return the classes found, ordered by name
+    */
+   public static List<Class<?>> findEntityClasses(final ClassLoader classLoader, final String... packageNames)
+   {
+      return ClassPathScanner.findEntityClasses(classLoader, packageNames);
+   }
+
+   /**
+    * Discard the column value conversions resolved by the fields of all introspected classes.
+    */
+   static void resetConversions()
+   {
+      for (Introspected introspected : descriptorMap.values()) {
+         introspected.resetConversions();
+      }
+   }
+
+   private static void preloadClass(final Class<?> clazz)
+   {
+      final Introspected introspected = getIntrospected(clazz);
+      if (clazz.getAnnotation(MappedSuperclass.class) == null) {
+         OrmReader.prebuildStatements(clazz, introspected);
+         OrmWriter.prebuildStatements(introspected);
+      }
+   }
 }
@@ -0,0 +1,287 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Field;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.sql.Wrapper;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.Temporal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps {@code java.time} fields natively through JDBC 4.2, {@code ResultSet.getObject(column, LocalDateTime.class)}
+ * and {@code PreparedStatement.setObject()} of the {@code java.time} value, without intermediate
+ * {@link Timestamp}, {@link Date} or {@link Time} instances and their time zone conversions.
+ * <p>
+ * Drivers that predate JDBC 4.2 are detected, for reading by the failure of the first
+ * {@code getObject(column, Class)} of a driver, and for writing by the JDBC version of the database
+ * metadata, and are served through the {@code java.sql} types instead.  The support is cached per driver
+ * class, reached through {@code unwrap()}, as the proxy classes of a connection pool are shared by all the
+ * drivers it pools.
+ * <p>
+ * {@link Instant} and {@link ZonedDateTime}, which JDBC 4.2 does not cover, are written as {@link OffsetDateTime}
+ * to {@code TIMESTAMP WITH TIME ZONE} parameters, and otherwise, like {@link OffsetDateTime} on drivers without
+ * JDBC 4.2, as {@link Timestamp} in the default time zone of the JVM.  They are read with {@code getTimestamp()},
+ * which applies the same time zone to {@code TIMESTAMP} columns.  {@link OffsetTime} values of drivers without
+ * JDBC 4.2 are stored as their UTC time.
+ */
+final class JavaTimeSupport
+{
+   private static final Map<Class<?>, Boolean> nativeResultSets = new ConcurrentHashMap<>();
+   private static final Map<Class<?>, Boolean> nativeStatements = new ConcurrentHashMap<>();
+
+   private JavaTimeSupport()
+   {
+      // private constructor
+   }
+
+   /**
+    * @return true if the type is one of the supported {@code java.time} types
+    */
+   static boolean isJavaTimeType(final Class<?> type)
+   {
+      return type == LocalDateTime.class || type == LocalDate.class || type == LocalTime.class || type == Instant.class
+         || type == OffsetDateTime.class || type == OffsetTime.class || type == ZonedDateTime.class;
+   }
+
+   /**
+    * Get the reader of a field type.
+    *
+    * @param type the declared type of the field
+    * @return the reader, or {@code null} if the type is not a supported {@code java.time} type
+    */
+   static ColumnReader reader(final Class<?> type)
+   {
+      return isJavaTimeType(type) ? new TemporalColumnReader(type) : null;
+   }
+
+   /**
+    * Convert a {@code java.time} value to a statement parameter: the value itself, or its
+    * {@link OffsetDateTime} for {@link Instant} and {@link ZonedDateTime}, if the driver supports
+    * JDBC 4.2, else the corresponding {@code java.sql} type.
+    *
+    * @param stmt the statement the parameter is set on
+    * @param value the value
+    * @param sqlType the {@link Types} of the parameter
+    * @return the parameter
+    */
+   // COMPLEXITY:OFF
+   static Object toParameter(final PreparedStatement stmt, final Temporal value, final int sqlType)
+   {
+      if (value instanceof Instant) {
+         return sqlType == Types.TIMESTAMP_WITH_TIMEZONE && isNative(stmt) ? OffsetDateTime.ofInstant((Instant) value, ZoneOffset.UTC) : Timestamp.from((Instant) value);
+      }
+      else if (value instanceof ZonedDateTime) {
+         return sqlType == Types.TIMESTAMP_WITH_TIMEZONE && isNative(stmt)
+            ? ((ZonedDateTime) value).toOffsetDateTime() : Timestamp.from(((ZonedDateTime) value).toInstant());
+      }
+      else if (isNative(stmt)) {
+         return value;
+      }
+      else if (value instanceof LocalDateTime) {
+         return Timestamp.valueOf((LocalDateTime) value);
+      }
+      else if (value instanceof LocalDate) {
+         return Date.valueOf((LocalDate) value);
+      }
+      else if (value instanceof LocalTime) {
+         return Time.valueOf((LocalTime) value);
+      }
+      else if (value instanceof OffsetDateTime) {
+         return Timestamp.from(((OffsetDateTime) value).toInstant());
+      }
+      else if (value instanceof OffsetTime) {
+         // a time without date has no DST-independent offset in the default time zone, so UTC is stored
+         return Time.valueOf(((OffsetTime) value).withOffsetSameInstant(ZoneOffset.UTC).toLocalTime());
+      }
+      return value;
+   }
+
+   /**
+    * Convert a value returned by {@code ResultSet.getObject(column)} to a {@code java.time} type.
+    * {@link Timestamp} and {@link Time} values are interpreted in the default time zone of the JVM, as
+    * the driver created them in it, except {@link Time} values of {@link OffsetTime} fields, which are UTC.
+    *
+    * @param value the value, not {@code null}
+    * @param type the {@code java.time} type of the field
+    * @return the converted value, or the value itself if it cannot be converted
+    */
+   static Object fromJdbc(final Object value, final Class<?> type)
+   {
+      if (type.isInstance(value)) {
+         return value;
+      }
+      else if (value instanceof Timestamp) {
+         final Timestamp timestamp = (Timestamp) value;
+         if (type == LocalDateTime.class) {
+            return timestamp.toLocalDateTime();
+         }
+         else if (type == Instant.class) {
+            return timestamp.toInstant();
+         }
+         else if (type == LocalDate.class) {
+            return timestamp.toLocalDateTime().toLocalDate();
+         }
+         return fromOffsetDateTime(timestamp.toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime(), type);
+      }
+      else if (value instanceof Date && type == LocalDate.class) {
+         return ((Date) value).toLocalDate();
+      }
+      else if (value instanceof Time && type == LocalTime.class) {
+         return ((Time) value).toLocalTime();
+      }
+      else if (value instanceof Time && type == OffsetTime.class) {
+         return ((Time) value).toLocalTime().atOffset(ZoneOffset.UTC);
+      }
+      else if (value instanceof OffsetDateTime) {
+         return fromOffsetDateTime((OffsetDateTime) value, type);
+      }
+      return value;
+   }
+   // COMPLEXITY:ON
+
+   private static Object fromOffsetDateTime(final OffsetDateTime value, final Class<?> type)
+   {
+      if (type == Instant.class) {
+         return value.toInstant();
+      }
+      else if (type == ZonedDateTime.class) {
+         return value.toZonedDateTime();
+      }
+      else if (type == LocalDateTime.class) {
+         return value.toLocalDateTime();
+      }
+      else if (type == OffsetTime.class) {
+         return value.toOffsetTime();
+      }
+      return value;
+   }
+
+   private static boolean isNative(final PreparedStatement stmt)
+   {
+      final Class<?> driverClass = driverClass(stmt, PreparedStatement.class);
+      final Boolean supported = nativeStatements.get(driverClass);
+      if (supported != null) {
+         return supported;
+      }
+
+      boolean jdbc42 = false;
+      try {
+         final DatabaseMetaData metaData = stmt.getConnection().getMetaData();
+         jdbc42 = metaData.getJDBCMajorVersion() > 4 || (metaData.getJDBCMajorVersion() == 4 && metaData.getJDBCMinorVersion() >= 2);
+      }
+      catch (SQLException | RuntimeException | AbstractMethodError e) {
+         // a driver that cannot tell is treated as predating JDBC 4.2
+      }
+      nativeStatements.put(driverClass, jdbc42);
+      return jdbc42;
+   }
+
+   /**
+    * @return the class of the driver object behind a possibly proxied statement or result set
+    */
+   private static <T extends Wrapper> Class<?> driverClass(final T wrapper, final Class<T> iface)
+   {
+      try {
+         final T unwrapped = wrapper.unwrap(iface);
+         return (unwrapped != null ? unwrapped : wrapper).getClass();
+      }
+      catch (SQLException | RuntimeException | AbstractMethodError e) {
+         return wrapper.getClass();
+      }
+   }
+
+   /**
+    * Reads a {@code java.time} column with {@code getObject(column, Class)}, falling back to
+    * {@code getObject(column)} for result sets of drivers that do not support it.  {@link Instant} and
+    * {@link ZonedDateTime} columns are read with {@code getTimestamp()}.
+    */
+   private static final class TemporalColumnReader implements ColumnReader
+   {
+      private final Class<?> type;
+      /** The type is not a JDBC 4.2 type, and is read through {@link Timestamp} */
+      private final boolean isTimestamp;
+
+      TemporalColumnReader(final Class<?> type)
+      {
+         this.type = type;
+         this.isTimestamp = (type == Instant.class || type == ZonedDateTime.class);
+      }
+
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         Object value = null;
+         if (isTimestamp) {
+            // getObject(column, OffsetDateTime.class) reads a TIMESTAMP as UTC on some drivers, and as the
+            // default time zone on others, getTimestamp() applies the default time zone, as the writes do
+            final Timestamp timestamp = resultSet.getTimestamp(column);
+            value = (timestamp != null ? fromJdbc(timestamp, type) : null);
+         }
+         else {
+            final Class<?> driverClass = driverClass(resultSet, ResultSet.class);
+            final Boolean supported = nativeResultSets.get(driverClass);
+            if (supported == null || supported) {
+               try {
+                  value = resultSet.getObject(column, type);
+                  if (supported == null) {
+                     nativeResultSets.put(driverClass, Boolean.TRUE);
+                  }
+               }
+               catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                  if (supported != null) {
+                     throw e;
+                  }
+                  nativeResultSets.put(driverClass, Boolean.FALSE);
+                  value = readJdbc(resultSet, column);
+               }
+            }
+            else {
+               value = readJdbc(resultSet, column);
+            }
+         }
+
+         if (value != null) {
+            field.set(target, value);
+         }
+      }
+
+      private Object readJdbc(final ResultSet resultSet, final int column) throws SQLException
+      {
+         final Object value = resultSet.getObject(column);
+         return value != null ? fromJdbc(value, type) : null;
+      }
+   }
+}
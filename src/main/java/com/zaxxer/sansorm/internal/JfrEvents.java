@@ -0,0 +1,102 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.QueryEvent.Operation;
+
+/**
+ * Emits JDK Flight Recorder events, see {@link JfrRecorder} for the event types.  This class does not
+ * reference {@code jdk.jfr} itself, so it can be used on JVMs without Flight Recorder, where every method
+ * is a no-op.  While no recording is running, each {@code begin} method costs a volatile read and
+ * returns {@code null}; passing {@code null} to the matching {@code commit} method does nothing.
+ * <p>
+ * Set the system property {@code com.zaxxer.sansorm.jfr} to {@code false} to disable the events.
+ */
+public final class JfrEvents
+{
+   static volatile boolean recording;
+
+   static {
+      if (Boolean.parseBoolean(System.getProperty("com.zaxxer.sansorm.jfr", "true"))) {
+         try {
+            Class.forName("jdk.jfr.FlightRecorderListener");
+            JfrRecorder.install();
+         }
+         catch (ClassNotFoundException | LinkageError e) {
+            // Flight Recorder is not available in this JVM
+         }
+      }
+   }
+
+   private JfrEvents()
+   {
+      // private constructor
+   }
+
+   public static boolean isRecording()
+   {
+      return recording;
+   }
+
+   static Object beginStatement()
+   {
+      return recording ? JfrRecorder.beginStatement() : null;
+   }
+
+   static void commitStatement(final Object event, final Operation operation, final Class<?> entityClass, final String sql, final int rowCount, final boolean failed)
+   {
+      if (event != null) {
+         JfrRecorder.commitStatement(event, operation, entityClass, sql, rowCount, failed);
+      }
+   }
+
+   static Object beginRowMapping()
+   {
+      return recording ? JfrRecorder.beginRowMapping() : null;
+   }
+
+   static void commitRowMapping(final Object event, final Class<?> entityClass, final int rowCount, final int columnCount)
+   {
+      if (event != null) {
+         JfrRecorder.commitRowMapping(event, entityClass, rowCount, columnCount);
+      }
+   }
+
+   public static Object beginConnectionAcquisition()
+   {
+      return recording ? JfrRecorder.beginConnectionAcquisition() : null;
+   }
+
+   public static void commitConnectionAcquisition(final Object event, final Object dataSource, final boolean replica)
+   {
+      if (event != null) {
+         JfrRecorder.commitConnectionAcquisition(event, dataSource, replica);
+      }
+   }
+
+   public static Object beginTransactionEnd()
+   {
+      return recording ? JfrRecorder.beginTransactionEnd() : null;
+   }
+
+   public static void commitTransactionEnd(final Object event, final boolean committed, final boolean failed)
+   {
+      if (event != null) {
+         JfrRecorder.commitTransactionEnd(event, committed, failed);
+      }
+   }
+}
@@ -0,0 +1,224 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import com.zaxxer.sansorm.QueryEvent.Operation;
+
+/**
+ * The Flight Recorder event types of SansOrm.  Only loaded through {@link JfrEvents} when the JVM has
+ * Flight Recorder.  All events have a default threshold of 1 ms, which can be lowered in the recording
+ * settings, e.g. {@code jfr configure +com.zaxxer.sansorm.Statement#threshold=0ms}.
+ */
+final class JfrRecorder
+{
+   private JfrRecorder()
+   {
+      // private constructor
+   }
+
+   static void install()
+   {
+      FlightRecorder.addListener(new FlightRecorderListener() {
+         @Override
+         public void recorderInitialized(final FlightRecorder recorder)
+         {
+            updateRecording();
+         }
+
+         @Override
+         public void recordingStateChanged(final Recording recording)
+         {
+            updateRecording();
+         }
+      });
+   }
+
+   private static void updateRecording()
+   {
+      boolean running = false;
+      if (FlightRecorder.isInitialized()) {
+         for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            running |= recording.getState() == RecordingState.RUNNING;
+         }
+      }
+      JfrEvents.recording = running;
+   }
+
+   static Object beginStatement()
+   {
+      return begin(new StatementEvent());
+   }
+
+   static void commitStatement(final Object jfrEvent, final Operation operation, final Class<?> entityClass, final String sql, final int rowCount, final boolean failed)
+   {
+      final StatementEvent event = (StatementEvent) jfrEvent;
+      event.end();
+      if (event.shouldCommit()) {
+         event.operation = operation.name();
+         event.entityClass = entityClass;
+         event.fingerprint = SqlFingerprint.of(sql);
+         event.rowCount = rowCount;
+         event.failed = failed;
+         event.commit();
+      }
+   }
+
+   static Object beginRowMapping()
+   {
+      return begin(new RowMappingEvent());
+   }
+
+   static void commitRowMapping(final Object jfrEvent, final Class<?> entityClass, final int rowCount, final int columnCount)
+   {
+      final RowMappingEvent event = (RowMappingEvent) jfrEvent;
+      event.end();
+      if (event.shouldCommit()) {
+         event.entityClass = entityClass;
+         event.rowCount = rowCount;
+         event.columnCount = columnCount;
+         event.commit();
+      }
+   }
+
+   static Object beginConnectionAcquisition()
+   {
+      return begin(new ConnectionAcquisitionEvent());
+   }
+
+   static void commitConnectionAcquisition(final Object jfrEvent, final Object dataSource, final boolean replica)
+   {
+      final ConnectionAcquisitionEvent event = (ConnectionAcquisitionEvent) jfrEvent;
+      event.end();
+      if (event.shouldCommit()) {
+         event.dataSource = dataSource.getClass().getName();
+         event.replica = replica;
+         event.commit();
+      }
+   }
+
+   static Object beginTransactionEnd()
+   {
+      return begin(new TransactionEndEvent());
+   }
+
+   static void commitTransactionEnd(final Object jfrEvent, final boolean committed, final boolean failed)
+   {
+      final TransactionEndEvent event = (TransactionEndEvent) jfrEvent;
+      event.end();
+      if (event.shouldCommit()) {
+         event.committed = committed;
+         event.failed = failed;
+         event.commit();
+      }
+   }
+
+   private static Event begin(final Event event)
+   {
+      if (!event.isEnabled()) {
+         return null;
+      }
+      event.begin();
+      return event;
+   }
+
+   @Name("com.zaxxer.sansorm.Statement")
+   @Label("Statement")
+   @Category("SansOrm")
+   @Description("Execution of a statement, including the mapping of its results")
+   @Threshold("1 ms")
+   @StackTrace
+   static final class StatementEvent extends Event
+   {
+      @Label("Operation")
+      String operation;
+
+      @Label("Entity Class")
+      Class<?> entityClass;
+
+      @Label("SQL Fingerprint")
+      @Description("The SQL with literal values replaced by ?")
+      String fingerprint;
+
+      @Label("Rows")
+      @Description("Rows mapped by a query or affected by an update, -1 if unknown")
+      int rowCount;
+
+      @Label("Failed")
+      boolean failed;
+   }
+
+   @Name("com.zaxxer.sansorm.RowMapping")
+   @Label("Row Mapping")
+   @Category("SansOrm")
+   @Description("Mapping of a result set to a list of entities")
+   @Threshold("1 ms")
+   @StackTrace(false)
+   static final class RowMappingEvent extends Event
+   {
+      @Label("Entity Class")
+      Class<?> entityClass;
+
+      @Label("Rows")
+      int rowCount;
+
+      @Label("Columns")
+      int columnCount;
+   }
+
+   @Name("com.zaxxer.sansorm.ConnectionAcquisition")
+   @Label("Connection Acquisition")
+   @Category("SansOrm")
+   @Description("Obtaining a connection from the DataSource of a SqlClosure")
+   @Threshold("1 ms")
+   @StackTrace
+   static final class ConnectionAcquisitionEvent extends Event
+   {
+      @Label("DataSource Class")
+      String dataSource;
+
+      @Label("Replica")
+      boolean replica;
+   }
+
+   @Name("com.zaxxer.sansorm.TransactionEnd")
+   @Label("Transaction End")
+   @Category("SansOrm")
+   @Description("Commit or rollback of a transaction of the SansOrm TransactionManager")
+   @Threshold("1 ms")
+   @StackTrace(false)
+   static final class TransactionEndEvent extends Event
+   {
+      @Label("Committed")
+      @Description("true for a commit, false for a rollback")
+      boolean committed;
+
+      @Label("Failed")
+      boolean failed;
+   }
+}
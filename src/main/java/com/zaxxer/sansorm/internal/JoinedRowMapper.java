@@ -0,0 +1,254 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the rows of a {@code JOIN} of several entity tables into a graph of entities in a single pass,
+ * instead of one query for the parents and one per parent for its children.
+ * <p>
+ * Each column is attributed to the entity class whose table the driver reports for it, or, if the driver
+ * does not report tables, to the first class from the current one, in the order of the classes, that has
+ * an unmapped field for it, so that columns selected class by class with
+ * {@link OrmBase#getColumnsCsv(Class, String...)} are attributed correctly.  The entities of a row are
+ * identified by their {@code @Id} columns: an entity is instantiated the first time its id appears, and
+ * rows repeating it, as the rows of the children of a parent do, only contribute the other entities.
+ * Absent entities of an outer join, whose id columns are {@code NULL}, are skipped.
+ * <p>
+ * After the pass, the {@code @ManyToOne} references between the entities are wired, and each
+ * {@code @OneToMany} collection whose element class is joined is populated with the joined elements.
+ * Other relationships are loaded by a {@link RelationshipLoader}.
+ */
+final class JoinedRowMapper
+{
+   private JoinedRowMapper()
+   {
+      // private constructor
+   }
+
+   @SuppressWarnings("unchecked")
+   static <T> List<T> map(final ResultSet resultSet, final Class<T> rootClass, final Class<?>... joinedClasses) throws SQLException
+   {
+      final Introspected[] introspecteds = new Introspected[joinedClasses.length + 1];
+      final Set<Class<?>> classes = new HashSet<>();
+      for (int k = 0; k < introspecteds.length; k++) {
+         final Class<?> clazz = (k == 0 ? rootClass : joinedClasses[k - 1]);
+         if (!classes.add(clazz)) {
+            throw new RuntimeException("Class " + clazz.getName() + " cannot be joined twice");
+         }
+         introspecteds[k] = Introspector.getIntrospected(clazz);
+      }
+
+      final List<List<Object>> lists = new ArrayList<>(introspecteds.length);
+      RelationshipLoader loader = null;
+      try (final ResultSet closeRS = resultSet) {
+         final FieldColumnInfo[][] fcInfos = getFieldColumnInfos(resultSet.getMetaData(), introspecteds);
+         final int[][] idColumns = new int[introspecteds.length][];
+         final List<Map<Object, Object>> identities = new ArrayList<>(introspecteds.length);
+         for (int k = 0; k < introspecteds.length; k++) {
+            idColumns[k] = getIdColumns(introspecteds[k], fcInfos[k]);
+            identities.add(new HashMap<>());
+            lists.add(new ArrayList<>());
+            if (introspecteds[k].hasRelationships() && loader == null) {
+               loader = RelationshipLoader.forResultSet(resultSet);
+            }
+         }
+
+         while (resultSet.next()) {
+            for (int k = 0; k < introspecteds.length; k++) {
+               final Object key = readKey(resultSet, idColumns[k]);
+               if (key != null && !identities.get(k).containsKey(key)) {
+                  final Object entity = mapEntity(resultSet, introspecteds[k], fcInfos[k], loader);
+                  identities.get(k).put(key, entity);
+                  lists.get(k).add(entity);
+               }
+            }
+         }
+      }
+      catch (SQLException | RuntimeException e) {
+         throw e;
+      }
+      catch (Exception e) {
+         throw new RuntimeException(e);
+      }
+
+      if (loader != null) {
+         resolveRelationships(loader, introspecteds, lists);
+      }
+      return (List<T>) lists.get(0);
+   }
+
+   private static void resolveRelationships(final RelationshipLoader loader, final Introspected[] introspecteds, final List<List<Object>> lists) throws SQLException
+   {
+      for (int k = 0; k < introspecteds.length; k++) {
+         loader.remember(introspecteds[k], lists.get(k));
+      }
+
+      final List<Map<OneToManyRelationship, List<Object>>> joinedCollections = new ArrayList<>(introspecteds.length);
+      for (int k = 0; k < introspecteds.length; k++) {
+         final Map<OneToManyRelationship, List<Object>> joined = new HashMap<>();
+         for (OneToManyRelationship relationship : introspecteds[k].getOneToManyRelationships()) {
+            for (int j = 0; j < introspecteds.length; j++) {
+               if (relationship.elementType == introspecteds[j].getIntrospectedClass()) {
+                  joined.put(relationship, lists.get(j));
+               }
+            }
+         }
+         joinedCollections.add(joined);
+         loader.resolve(introspecteds[k], lists.get(k), joined.keySet());
+      }
+
+      for (int k = 0; k < introspecteds.length; k++) {
+         for (Map.Entry<OneToManyRelationship, List<Object>> entry : joinedCollections.get(k).entrySet()) {
+            RelationshipLoader.attach(entry.getKey(), lists.get(k), entry.getValue());
+         }
+      }
+   }
+
+   private static Object mapEntity(final ResultSet resultSet, final Introspected introspected, final FieldColumnInfo[] fcInfos, final RelationshipLoader loader) throws Exception
+   {
+      if (introspected.isConstructorMapped()) {
+         return OrmReader.constructObject(resultSet, introspected, fcInfos);
+      }
+
+      final Object target = introspected.newInstance();
+      for (int column = fcInfos.length; column > 0; column--) {
+         final FieldColumnInfo fcInfo = fcInfos[column - 1];
+         if (fcInfo == null || fcInfo.isSelfJoinField()) {
+            continue;
+         }
+         if (fcInfo.columnReader != null) {
+            fcInfo.columnReader.read(resultSet, column, target, fcInfo.field);
+            continue;
+         }
+
+         final Object columnValue = resultSet.getObject(column);
+         if (columnValue == null) {
+            continue;
+         }
+         if (fcInfo.isManyToOne) {
+            loader.defer(target, fcInfo, columnValue);
+         }
+         else {
+            introspected.set(target, fcInfo, columnValue);
+         }
+      }
+      return target;
+   }
+
+   /**
+    * @return the normalized id of the entity in the current row, or {@code null} if an id column is {@code NULL}
+    */
+   private static Object readKey(final ResultSet resultSet, final int[] idColumns) throws SQLException
+   {
+      if (idColumns.length == 1) {
+         final Object id = resultSet.getObject(idColumns[0]);
+         return id != null ? RelationshipLoader.key(id) : null;
+      }
+
+      final Object[] ids = new Object[idColumns.length];
+      for (int i = 0; i < idColumns.length; i++) {
+         final Object id = resultSet.getObject(idColumns[i]);
+         if (id == null) {
+            return null;
+         }
+         ids[i] = RelationshipLoader.key(id);
+      }
+      return Arrays.asList(ids);
+   }
+
+   /**
+    * Attribute the columns of the result set to the classes.
+    *
+    * @return the fields of each class by column index, {@code null} for the columns of other classes
+    */
+   private static FieldColumnInfo[][] getFieldColumnInfos(final ResultSetMetaData metaData, final Introspected[] introspecteds) throws SQLException
+   {
+      final int columnCount = metaData.getColumnCount();
+      final FieldColumnInfo[][] fcInfos = new FieldColumnInfo[introspecteds.length][columnCount];
+      final List<Set<FieldColumnInfo>> mapped = new ArrayList<>(introspecteds.length);
+      for (int k = 0; k < introspecteds.length; k++) {
+         mapped.add(new HashSet<>());
+      }
+
+      int current = 0;
+      for (int column = 1; column <= columnCount; column++) {
+         final String columnName = metaData.getColumnName(column).toLowerCase();
+         final String tableName = metaData.getTableName(column);
+         if (tableName != null && !tableName.isEmpty()) {
+            for (int k = 0; k < introspecteds.length; k++) {
+               final FieldColumnInfo fcInfo = introspecteds[k].getFieldColumnInfo(columnName);
+               if (fcInfo != null && isTable(introspecteds[k], tableName) && mapped.get(k).add(fcInfo)) {
+                  fcInfos[k][column - 1] = fcInfo;
+               }
+            }
+            continue;
+         }
+
+         for (int k = current; k < introspecteds.length; k++) {
+            final FieldColumnInfo fcInfo = introspecteds[k].getFieldColumnInfo(columnName);
+            if (fcInfo != null && mapped.get(k).add(fcInfo)) {
+               fcInfos[k][column - 1] = fcInfo;
+               current = k;
+               break;
+            }
+         }
+      }
+      return fcInfos;
+   }
+
+   private static boolean isTable(final Introspected introspected, final String tableName)
+   {
+      final String name = introspected.getTableName();
+      return name != null && unquote(name).equalsIgnoreCase(unquote(tableName));
+   }
+
+   private static String unquote(final String name)
+   {
+      return name.length() > 1 && name.startsWith("\"") && name.endsWith("\"") ? name.substring(1, name.length() - 1) : name;
+   }
+
+   private static int[] getIdColumns(final Introspected introspected, final FieldColumnInfo[] fcInfos)
+   {
+      final int[] idColumns = new int[introspected.idFcInfos.size()];
+      if (idColumns.length == 0) {
+         throw new RuntimeException("Joined class " + introspected.getIntrospectedClass().getName() + " has no @Id field");
+      }
+      for (int i = 0; i < idColumns.length; i++) {
+         final FieldColumnInfo idFcInfo = introspected.idFcInfos.get(i);
+         for (int column = fcInfos.length; column > 0 && idColumns[i] == 0; column--) {
+            if (fcInfos[column - 1] == idFcInfo) {
+               idColumns[i] = column;
+            }
+         }
+         if (idColumns[i] == 0) {
+            throw new RuntimeException("The result set has no column for @Id field " + idFcInfo.field.getName() + " of " + introspected.getIntrospectedClass().getName());
+         }
+      }
+      return idColumns;
+   }
+}
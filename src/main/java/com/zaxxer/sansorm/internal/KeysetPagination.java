@@ -0,0 +1,362 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.Column;
+
+import com.zaxxer.sansorm.Dialect;
+import com.zaxxer.sansorm.Page;
+
+/**
+ * Keyset ("seek") pagination: each page is selected with a predicate on the sort key of the last row of
+ * the previous page, {@code WHERE (k1, k2) > (?, ?) ORDER BY k1, k2 LIMIT ?}, instead of an {@code OFFSET}
+ * that the database has to skip row by row, so that every page costs the same whatever its depth.
+ * <p>
+ * The id columns are appended to the sort key if it does not contain them, so that the key is unique.
+ * Row values are compared where the {@link Dialect} supports it and the key has a single direction, and
+ * expanded into {@code (k1 > ?) OR (k1 = ? AND k2 > ?)} otherwise.  One more row than the page size is
+ * selected to tell whether there is a next page.
+ * <p>
+ * Columns that can hold {@code NULL}, i.e. that are neither an id, nor of a primitive type, nor annotated with
+ * {@code @Column(nullable = false)}, are always compared in the expanded form with {@code IS NULL} terms, which
+ * place nulls where the database sorts them by default, see {@link Dialect#sortsNullsHigh()}.
+ * <p>
+ * The continuation token holds the typed column values of the key of the last row and a fingerprint of
+ * the class and key, encoded in URL-safe Base64.  Decoding a token only parses these values, so tokens
+ * can be handed to untrusted clients.
+ */
+final class KeysetPagination
+{
+   /** The column value types a token can hold, identified by their index */
+   private static final List<Class<?>> TOKEN_TYPES = Arrays.asList(
+      String.class, Integer.class, Long.class, Short.class, Byte.class, BigDecimal.class, BigInteger.class, Double.class,
+      Float.class, Boolean.class, UUID.class, Timestamp.class, java.sql.Date.class, Time.class, LocalDateTime.class,
+      LocalDate.class, LocalTime.class, Instant.class, OffsetDateTime.class);
+   /** The type index of a {@code NULL} column value in a token */
+   private static final int NULL_TYPE = 0xff;
+
+   private final Introspected introspected;
+   private final FieldColumnInfo[] keyFcInfos;
+   private final boolean[] descending;
+   private final boolean[] nullable;
+   private final int fingerprint;
+
+   private KeysetPagination(final Class<?> clazz, final String orderBy)
+   {
+      this.introspected = Introspector.getIntrospected(clazz);
+
+      final List<FieldColumnInfo> fcInfos = new ArrayList<>();
+      final List<Boolean> directions = new ArrayList<>();
+      if (orderBy != null && !orderBy.trim().isEmpty()) {
+         for (String term : orderBy.split(",")) {
+            final String[] words = term.trim().split("\\s+");
+            String column = words[0].substring(words[0].lastIndexOf('.') + 1);
+            if (column.startsWith("\"") && column.endsWith("\"") && column.length() > 1) {
+               column = column.substring(1, column.length() - 1);
+            }
+
+            final FieldColumnInfo fcInfo = introspected.getFieldColumnInfo(column);
+            if (fcInfo == null || words.length > 2 || (words.length == 2 && !words[1].matches("(?i)ASC|DESC"))) {
+               throw new IllegalArgumentException("Keyset sort term '" + term.trim() + "' is not a mapped column of " + clazz.getName()
+                                                     + " with an optional ASC or DESC");
+            }
+            fcInfos.add(fcInfo);
+            directions.add(words.length == 2 && "DESC".equalsIgnoreCase(words[1]));
+         }
+      }
+
+      final boolean lastDirection = !directions.isEmpty() && directions.get(directions.size() - 1);
+      for (FieldColumnInfo idFcInfo : introspected.idFcInfos) {
+         if (!fcInfos.contains(idFcInfo)) {
+            fcInfos.add(idFcInfo);
+            directions.add(lastDirection);
+         }
+      }
+      if (fcInfos.isEmpty()) {
+         throw new IllegalArgumentException("Keyset pagination of " + clazz.getName() + " requires a sort key or an @Id field");
+      }
+
+      this.keyFcInfos = fcInfos.toArray(new FieldColumnInfo[0]);
+      this.descending = new boolean[keyFcInfos.length];
+      this.nullable = new boolean[keyFcInfos.length];
+      final StringBuilder signature = new StringBuilder(clazz.getName());
+      for (int i = 0; i < keyFcInfos.length; i++) {
+         final Column column = keyFcInfos[i].field.getAnnotation(Column.class);
+         descending[i] = directions.get(i);
+         nullable[i] = !keyFcInfos[i].isIdField && !keyFcInfos[i].field.getType().isPrimitive() && (column == null || column.nullable());
+         signature.append(',').append(keyFcInfos[i].getColumnName()).append(descending[i] ? " DESC" : "");
+      }
+      this.fingerprint = signature.toString().hashCode();
+   }
+
+   /**
+    * Select a page of entities.
+    *
+    * @param connection a SQL connection
+    * @param clazz the entity class
+    * @param clause a condition on the entities, without {@code WHERE}, or {@code null}
+    * @param orderBy the sort key, mapped columns with an optional {@code ASC} or {@code DESC}, or {@code null} to sort by id
+    * @param continuationToken the token of the previous page, or {@code null} for the first page
+    * @param pageSize the maximum number of entities of the page
+    * @param args the arguments of the clause
+    * @return the page
+    */
+   static <T> Page<T> page(final Connection connection, final Class<T> clazz, final String clause, final String orderBy,
+                           final String continuationToken, final int pageSize, final Object... args) throws SQLException
+   {
+      if (pageSize < 1) {
+         throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+      }
+
+      final KeysetPagination keyset = new KeysetPagination(clazz, orderBy);
+      final Object[] after = (continuationToken != null ? keyset.decode(continuationToken) : null);
+      final Dialect dialect = Dialect.of(connection);
+
+      final List<Object> arguments = new ArrayList<>(Arrays.asList(args));
+      final StringBuilder sql = new StringBuilder();
+      if (clause != null && !clause.trim().isEmpty()) {
+         sql.append("WHERE (").append(clause).append(')');
+      }
+      if (after != null) {
+         sql.append(sql.length() == 0 ? "WHERE " : " AND ");
+         keyset.appendPredicate(sql, dialect, after, arguments);
+      }
+      sql.append(sql.length() == 0 ? "ORDER BY " : " ORDER BY ");
+      for (int i = 0; i < keyset.keyFcInfos.length; i++) {
+         sql.append(i == 0 ? "" : ", ").append(keyset.column(i)).append(keyset.descending[i] ? " DESC" : "");
+      }
+      arguments.add(pageSize + 1);
+
+      final List<T> rows = OrmReader.listFromClause(connection, clazz, dialect.limit(sql.toString()), null, arguments.toArray());
+      if (rows.size() <= pageSize) {
+         return new Page<>(rows, null);
+      }
+
+      final List<T> items = rows.subList(0, pageSize);
+      return new Page<>(items, keyset.encode(items.get(pageSize - 1)));
+   }
+
+   private String column(final int index)
+   {
+      return keyFcInfos[index].getFullyQualifiedDelimitedFieldName(introspected.getTableName());
+   }
+
+   private void appendPredicate(final StringBuilder sql, final Dialect dialect, final Object[] after, final List<Object> arguments)
+   {
+      boolean uniform = true;
+      boolean anyNullable = false;
+      for (int i = 0; i < keyFcInfos.length; i++) {
+         uniform &= (descending[i] == descending[0]);
+         anyNullable |= nullable[i];
+      }
+
+      if (!anyNullable && (keyFcInfos.length == 1 || (uniform && dialect.supportsRowValueComparison()))) {
+         final StringBuilder parameters = new StringBuilder();
+         sql.append('(');
+         for (int i = 0; i < keyFcInfos.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(column(i));
+            parameters.append(i == 0 ? "?" : ", ?");
+            arguments.add(after[i]);
+         }
+         sql.append(descending[0] ? ") < (" : ") > (").append(parameters).append(')');
+         return;
+      }
+
+      // (k1 > ?) OR (k1 = ? AND k2 > ?) OR ..., where a nullable column compares as (k > ? OR k IS NULL),
+      // k IS NOT NULL or k IS NULL depending on the value and where the database sorts nulls
+      final boolean nullsHigh = dialect.sortsNullsHigh();
+      boolean first = true;
+      sql.append('(');
+      for (int i = 0; i < keyFcInfos.length; i++) {
+         final boolean nullsAfter = (nullsHigh != descending[i]);
+         if (after[i] == null && nullsAfter) {
+            // no row sorts after a null in this column
+            continue;
+         }
+
+         sql.append(first ? "(" : " OR (");
+         first = false;
+         for (int j = 0; j < i; j++) {
+            if (after[j] == null) {
+               sql.append(column(j)).append(" IS NULL AND ");
+            }
+            else {
+               sql.append(column(j)).append(" = ? AND ");
+               arguments.add(after[j]);
+            }
+         }
+
+         if (after[i] == null) {
+            sql.append(column(i)).append(" IS NOT NULL)");
+         }
+         else if (nullable[i] && nullsAfter) {
+            sql.append('(').append(column(i)).append(descending[i] ? " < ? OR " : " > ? OR ").append(column(i)).append(" IS NULL))");
+            arguments.add(after[i]);
+         }
+         else {
+            sql.append(column(i)).append(descending[i] ? " < ?)" : " > ?)");
+            arguments.add(after[i]);
+         }
+      }
+      sql.append(first ? "1 = 0)" : ")");
+   }
+
+   /**
+    * Encode the key of the last entity of a page.
+    */
+   private String encode(final Object last)
+   {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+         out.writeInt(fingerprint);
+         for (FieldColumnInfo fcInfo : keyFcInfos) {
+            Object value = introspected.get(last, fcInfo);
+            if (value == null) {
+               out.writeByte(NULL_TYPE);
+               continue;
+            }
+            if (value instanceof Date && !(value instanceof Timestamp || value instanceof java.sql.Date || value instanceof Time)) {
+               value = new Timestamp(((Date) value).getTime());
+            }
+
+            final int type = TOKEN_TYPES.indexOf(value.getClass());
+            if (type < 0) {
+               throw new IllegalStateException("Keyset column " + fcInfo.getColumnName() + " of type " + value.getClass().getName() + " cannot be encoded");
+            }
+            out.writeByte(type);
+            out.writeUTF(value instanceof Timestamp ? ((Timestamp) value).toInstant().toString() : value.toString());
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+   }
+
+   /**
+    * Decode the key of a continuation token.
+    *
+    * @throws IllegalArgumentException if the token is malformed or was not issued for this class and sort key
+    */
+   private Object[] decode(final String token)
+   {
+      final Object[] values = new Object[keyFcInfos.length];
+      final int tokenFingerprint;
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+         tokenFingerprint = in.readInt();
+         for (int i = 0; i < values.length; i++) {
+            final int type = in.readUnsignedByte();
+            values[i] = (type == NULL_TYPE ? null : parse(TOKEN_TYPES.get(type), in.readUTF()));
+         }
+         if (in.read() >= 0) {
+            throw new IOException("Trailing bytes");
+         }
+      }
+      catch (IOException | RuntimeException e) {
+         throw new IllegalArgumentException("Invalid continuation token", e);
+      }
+
+      if (tokenFingerprint != fingerprint) {
+         throw new IllegalArgumentException("Continuation token was not issued for this class and sort key");
+      }
+      return values;
+   }
+
+   // COMPLEXITY:OFF
+   private static Object parse(final Class<?> type, final String text)
+   {
+      if (type == String.class) {
+         return text;
+      }
+      else if (type == Integer.class) {
+         return Integer.valueOf(text);
+      }
+      else if (type == Long.class) {
+         return Long.valueOf(text);
+      }
+      else if (type == Short.class) {
+         return Short.valueOf(text);
+      }
+      else if (type == Byte.class) {
+         return Byte.valueOf(text);
+      }
+      else if (type == BigDecimal.class) {
+         return new BigDecimal(text);
+      }
+      else if (type == BigInteger.class) {
+         return new BigInteger(text);
+      }
+      else if (type == Double.class) {
+         return Double.valueOf(text);
+      }
+      else if (type == Float.class) {
+         return Float.valueOf(text);
+      }
+      else if (type == Boolean.class) {
+         return Boolean.valueOf(text);
+      }
+      else if (type == UUID.class) {
+         return UUID.fromString(text);
+      }
+      else if (type == Timestamp.class) {
+         return Timestamp.from(Instant.parse(text));
+      }
+      else if (type == java.sql.Date.class) {
+         return java.sql.Date.valueOf(text);
+      }
+      else if (type == Time.class) {
+         return Time.valueOf(text);
+      }
+      else if (type == LocalDateTime.class) {
+         return LocalDateTime.parse(text);
+      }
+      else if (type == LocalDate.class) {
+         return LocalDate.parse(text);
+      }
+      else if (type == LocalTime.class) {
+         return LocalTime.parse(text);
+      }
+      else if (type == Instant.class) {
+         return Instant.parse(text);
+      }
+      return OffsetDateTime.parse(text);
+   }
+   // COMPLEXITY:ON
+}
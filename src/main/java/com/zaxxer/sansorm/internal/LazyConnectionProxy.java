@@ -0,0 +1,200 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A connection that obtains the physical connection only when it is first needed, i.e. when a
+ * statement is created or any other method requiring the database is invoked.  {@code commit()},
+ * {@code rollback()} and {@code close()} on a connection that was never acquired are no-ops, and
+ * {@code setAutoCommit()} is recorded and applied on acquisition, only if the physical connection is
+ * not already in the requested mode.
+ * <p>
+ * The physical connection can be handed back early with {@link #release(Connection)}, after which the
+ * next use acquires a new one.
+ */
+public final class LazyConnectionProxy implements InvocationHandler
+{
+   /**
+    * Obtains the physical connection.
+    */
+   @FunctionalInterface
+   public interface ConnectionSupplier
+   {
+      Connection get() throws SQLException;
+   }
+
+   private final ConnectionSupplier supplier;
+   private final boolean releasable;
+   private Connection delegate;
+   private Boolean autoCommit;
+   private boolean closed;
+   private int holds;
+
+   private LazyConnectionProxy(final ConnectionSupplier supplier, final boolean releasable)
+   {
+      this.supplier = supplier;
+      this.releasable = releasable;
+   }
+
+   /**
+    * Create a lazy connection.
+    *
+    * @param supplier obtains the physical connection
+    * @param releasable {@code true} if the creator owns the (unmanaged) transaction, so that
+    *        {@link #release(Connection)} may commit and close the physical connection
+    * @return the lazy connection
+    */
+   public static Connection wrapConnection(final ConnectionSupplier supplier, final boolean releasable)
+   {
+      final LazyConnectionProxy handler = new LazyConnectionProxy(supplier, releasable);
+      return (Connection) Proxy.newProxyInstance(LazyConnectionProxy.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+   }
+
+   /**
+    * Commit the work done so far and return the physical connection, if the connection is a lazy
+    * connection owned by a transaction owner and not currently held by a nested closure.  Otherwise
+    * this is a no-op.
+    *
+    * @param connection the connection
+    * @throws SQLException if the commit fails
+    */
+   public static void release(final Connection connection) throws SQLException
+   {
+      final LazyConnectionProxy handler = handlerOf(connection);
+      if (handler != null && handler.releasable && handler.holds == 0 && handler.delegate != null) {
+         final Connection physical = handler.delegate;
+         handler.delegate = null;
+         try {
+            if (!Boolean.TRUE.equals(handler.autoCommit)) {
+               physical.commit();
+            }
+         }
+         finally {
+            physical.close();
+         }
+      }
+   }
+
+   /**
+    * Prevent {@link #release(Connection)} from releasing the connection while it is used by a nested
+    * closure that joined it.
+    *
+    * @param connection the connection
+    * @param hold {@code true} when a nested closure joins, {@code false} when it completes
+    */
+   public static void hold(final Connection connection, final boolean hold)
+   {
+      final LazyConnectionProxy handler = handlerOf(connection);
+      if (handler != null) {
+         handler.holds += (hold ? 1 : -1);
+      }
+   }
+
+   @Override
+   public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+   {
+      switch (method.getName()) {
+         case "equals":
+            return proxy == args[0];
+         case "hashCode":
+            return System.identityHashCode(proxy);
+         case "toString":
+            return "LazyConnection[" + (delegate != null ? delegate : "not acquired") + "]";
+         case "isClosed":
+            return closed;
+         case "close":
+            closed = true;
+            if (delegate != null) {
+               final Connection physical = delegate;
+               delegate = null;
+               physical.close();
+            }
+            return null;
+         case "commit":
+         case "rollback":
+            if (delegate == null && (args == null || args.length == 0)) {
+               return null;
+            }
+            break;
+         case "getAutoCommit":
+            if (delegate == null && autoCommit != null) {
+               return autoCommit;
+            }
+            break;
+         case "setAutoCommit":
+            final boolean requested = (Boolean) args[0];
+            if (delegate == null || (autoCommit != null && autoCommit == requested)) {
+               autoCommit = requested;
+               return null;
+            }
+            autoCommit = requested;
+            break;
+         default:
+            break;
+      }
+
+      try {
+         return method.invoke(acquire(), args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+
+   private Connection acquire() throws SQLException
+   {
+      if (closed) {
+         throw new SQLException("Connection is closed");
+      }
+
+      if (delegate == null) {
+         final Connection physical = supplier.get();
+         try {
+            if (autoCommit == null) {
+               autoCommit = physical.getAutoCommit();
+            }
+            else if (physical.getAutoCommit() != autoCommit) {
+               physical.setAutoCommit(autoCommit);
+            }
+         }
+         catch (SQLException | RuntimeException e) {
+            physical.close();
+            throw e;
+         }
+         delegate = physical;
+      }
+      return delegate;
+   }
+
+   private static LazyConnectionProxy handlerOf(final Connection connection)
+   {
+      if (connection != null && Proxy.isProxyClass(connection.getClass())) {
+         final InvocationHandler handler = Proxy.getInvocationHandler(connection);
+         if (handler instanceof LazyConnectionProxy) {
+            return (LazyConnectionProxy) handler;
+         }
+      }
+      return null;
+   }
+}
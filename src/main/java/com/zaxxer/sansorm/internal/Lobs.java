@@ -0,0 +1,236 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.zaxxer.sansorm.LazyLob;
+
+/**
+ * Reading and binding of large objects.  A {@link Clob} or {@link Blob} column is mapped to a {@link Reader},
+ * {@link InputStream} or {@link LazyLob} field without reading its content, the stream opening the LOB on
+ * its first read, and such field values, as well as {@code @Lob} {@code String} and {@code byte[]} values,
+ * are bound with {@code setCharacterStream()} and {@code setBinaryStream()} rather than {@code setObject()}.
+ */
+final class Lobs
+{
+   private Lobs()
+   {
+      // private constructor
+   }
+
+   /**
+    * Get the conversion of a {@link Clob} or {@link Blob} column value to a field type.
+    *
+    * @param fieldType the type of the field
+    * @param columnType the class of the column value, implementing {@link Clob} or {@link Blob}
+    * @return the conversion, or {@code null} if the value is not converted
+    */
+   static ColumnConverters.Conversion.Step conversion(final Class<?> fieldType, final Class<?> columnType)
+   {
+      if (fieldType.isAssignableFrom(columnType)) {
+         return null;
+      }
+      else if (Clob.class.isAssignableFrom(columnType)) {
+         if (fieldType == Reader.class) {
+            return value -> new LazyReader((Clob) value);
+         }
+         else if (fieldType == LazyLob.class) {
+            return value -> LazyLob.of((Clob) value);
+         }
+         return value -> readClob((Clob) value);
+      }
+      else if (fieldType == InputStream.class) {
+         return value -> new LazyInputStream((Blob) value);
+      }
+      else if (fieldType == LazyLob.class) {
+         return value -> LazyLob.of((Blob) value);
+      }
+      else if (fieldType == byte[].class) {
+         return value -> ((Blob) value).getBytes(1, (int) ((Blob) value).length());
+      }
+      return null;
+   }
+
+   /**
+    * Set a statement parameter, streaming {@link Reader}, {@link InputStream} and {@link LazyLob} values,
+    * and {@code String} and {@code byte[]} values of {@code @Lob} fields.
+    *
+    * @param stmt the statement
+    * @param index the index of the parameter
+    * @param object the value, not {@code null}
+    * @param parameterType the {@link java.sql.Types} of the parameter
+    * @param isLob true if the value is of a {@code @Lob} field
+    */
+   static void setParameter(final PreparedStatement stmt, final int index, final Object object, final int parameterType, final boolean isLob) throws SQLException
+   {
+      if (object instanceof Reader) {
+         stmt.setCharacterStream(index, (Reader) object);
+      }
+      else if (object instanceof InputStream) {
+         stmt.setBinaryStream(index, (InputStream) object);
+      }
+      else if (object instanceof LazyLob) {
+         final LazyLob lob = (LazyLob) object;
+         if (lob.isBinary()) {
+            stmt.setBinaryStream(index, lob.getBinaryStream(), lob.length());
+         }
+         else {
+            stmt.setCharacterStream(index, lob.getCharacterStream(), lob.length());
+         }
+      }
+      else if (isLob && object instanceof String) {
+         stmt.setCharacterStream(index, new StringReader((String) object), ((String) object).length());
+      }
+      else if (isLob && object instanceof byte[]) {
+         stmt.setBinaryStream(index, new ByteArrayInputStream((byte[]) object), ((byte[]) object).length);
+      }
+      else {
+         stmt.setObject(index, object, parameterType);
+      }
+   }
+
+   static String readClob(final Clob clob) throws IOException, SQLException
+   {
+      try (final Reader reader = clob.getCharacterStream()) {
+         final StringBuilder sb = new StringBuilder();
+         final char[] cbuf = new char[1024];
+         while (true) {
+            int rc = reader.read(cbuf);
+            if (rc == -1) {
+               break;
+            }
+            sb.append(cbuf, 0, rc);
+         }
+         return sb.toString();
+      }
+   }
+
+   /**
+    * A reader of a {@link Clob} that opens the character stream of the {@link Clob} on its first read.
+    */
+   static final class LazyReader extends Reader
+   {
+      private final Clob clob;
+      private Reader reader;
+
+      LazyReader(final Clob clob)
+      {
+         this.clob = clob;
+      }
+
+      @Override
+      public int read(final char[] cbuf, final int off, final int len) throws IOException
+      {
+         return open().read(cbuf, off, len);
+      }
+
+      @Override
+      public long skip(final long n) throws IOException
+      {
+         return open().skip(n);
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         if (reader != null) {
+            reader.close();
+         }
+      }
+
+      private Reader open() throws IOException
+      {
+         if (reader == null) {
+            try {
+               reader = clob.getCharacterStream();
+            }
+            catch (SQLException e) {
+               throw new IOException(e);
+            }
+         }
+         return reader;
+      }
+   }
+
+   /**
+    * An input stream of a {@link Blob} that opens the binary stream of the {@link Blob} on its first read.
+    */
+   static final class LazyInputStream extends InputStream
+   {
+      private final Blob blob;
+      private InputStream stream;
+
+      LazyInputStream(final Blob blob)
+      {
+         this.blob = blob;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         return open().read();
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         return open().read(b, off, len);
+      }
+
+      @Override
+      public long skip(final long n) throws IOException
+      {
+         return open().skip(n);
+      }
+
+      @Override
+      public int available() throws IOException
+      {
+         return stream != null ? stream.available() : 0;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         if (stream != null) {
+            stream.close();
+         }
+      }
+
+      private InputStream open() throws IOException
+      {
+         if (stream == null) {
+            try {
+               stream = blob.getBinaryStream();
+            }
+            catch (SQLException e) {
+               throw new IOException(e);
+            }
+         }
+         return stream;
+      }
+   }
+}
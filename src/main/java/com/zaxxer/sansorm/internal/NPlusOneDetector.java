@@ -0,0 +1,275 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.sansorm.QueryEvent;
+import com.zaxxer.sansorm.QueryEvent.Operation;
+import com.zaxxer.sansorm.QueryListener;
+
+/**
+ * Detects the "N+1 queries" pattern: the same statement executed over and over with different arguments
+ * within one unit of work, typically {@code getObjectById()} called in a loop.  A unit of work is the
+ * outermost {@link com.zaxxer.sansorm.SqlClosure} or {@link com.zaxxer.sansorm.transaction.TxTransaction}
+ * running on a thread, which opens a {@link Scope} with {@link #open()}.
+ * <p>
+ * Statements are grouped by SQL fingerprint.  An execution counts when its arguments or its SQL differ from
+ * the previous execution of the fingerprint, or when it inserts or updates an entity, and when the count of
+ * a fingerprint reaches the threshold a warning with the call site and a batched alternative is logged.
+ * Warnings are aggregated by fingerprint and call site: a call site is logged the 1st, 10th, 100th... time
+ * it is detected.  Up to 1000 call sites are counted, further call sites are logged every time.
+ * <p>
+ * While disabled, opening a scope costs a volatile read.  While enabled, each statement costs a thread
+ * local lookup, a cached fingerprint lookup and a hash of its arguments; the stack is only walked when
+ * the threshold is reached.
+ */
+public final class NPlusOneDetector implements QueryListener
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(NPlusOneDetector.class);
+   private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+   private static final int MAX_FINGERPRINTS_PER_SCOPE = 1000;
+   private static final int MAX_CALL_SITE_FRAMES = 8;
+   private static final int MAX_CALL_SITES = 1000;
+   private static final String[] PLATFORM_PREFIXES = { "java.", "javax.", "jdk.", "sun.", "com.sun." };
+   private static final URL LIBRARY_LOCATION = locationOf(NPlusOneDetector.class);
+
+   private static volatile NPlusOneDetector detector;
+
+   private final int threshold;
+   private final Consumer<String> sink;
+   /** Bounded by {@link #MAX_CALL_SITES} but never evicted, so that the counts are not reset */
+   private final ConcurrentHashMap<String, LongAdder> callSites;
+
+   private NPlusOneDetector(final int threshold, final Consumer<String> sink)
+   {
+      this.threshold = threshold;
+      this.sink = sink;
+      this.callSites = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Enable or disable the detection.
+    *
+    * @param threshold the number of executions of a statement with different arguments within one unit
+    *        of work from which a warning is logged, {@code 0} to disable the detection
+    */
+   public static void setThreshold(final int threshold)
+   {
+      setThreshold(threshold, LOGGER::warn);
+   }
+
+   static synchronized void setThreshold(final int threshold, final Consumer<String> sink)
+   {
+      if (threshold < 0) {
+         throw new IllegalArgumentException("Threshold must not be negative");
+      }
+      if (detector != null) {
+         QueryListeners.remove(detector);
+         detector = null;
+      }
+      if (threshold > 0) {
+         detector = new NPlusOneDetector(threshold, sink);
+         QueryListeners.add(detector);
+      }
+   }
+
+   /**
+    * Open a unit of work on the current thread, or join the unit of work already open.
+    *
+    * @return the scope to pass to {@link #close(Scope)}, {@code null} if the detection is disabled
+    */
+   public static Scope open()
+   {
+      if (detector == null) {
+         return null;
+      }
+
+      Scope scope = SCOPE.get();
+      if (scope == null) {
+         scope = new Scope();
+         SCOPE.set(scope);
+      }
+      scope.depth++;
+      return scope;
+   }
+
+   /**
+    * Close a scope returned by {@link #open()}, ending the unit of work if it is the outermost one.
+    *
+    * @param scope the scope, may be {@code null}
+    */
+   public static void close(final Scope scope)
+   {
+      if (scope != null && --scope.depth == 0 && SCOPE.get() == scope) {
+         SCOPE.remove();
+      }
+   }
+
+   @Override
+   public void afterQuery(final QueryEvent event)
+   {
+      final Scope scope = SCOPE.get();
+      final String sql = event.getSql();
+      final Object[] args = event.getArguments();
+      if (scope == null || sql == null || event.getParameterCount() == 0 || event.getOperation() == Operation.BATCH_INSERT || event.getException() != null) {
+         return;
+      }
+
+      final String fingerprint = SqlCaches.FINGERPRINT.computeIfAbsent(sql, SqlFingerprint::of);
+      Counter counter = scope.counters.get(fingerprint);
+      if (counter == null) {
+         if (scope.counters.size() >= MAX_FINGERPRINTS_PER_SCOPE) {
+            return;
+         }
+         counter = new Counter();
+         scope.counters.put(fingerprint, counter);
+      }
+
+      // literals inlined into the SQL are different arguments as well, and the arguments of an entity
+      // insert or update are not known, but every execution writes another entity
+      final int hash = 31 * sql.hashCode() + Arrays.hashCode(args);
+      if (args == null || counter.count == 0 || hash != counter.lastHash) {
+         counter.lastHash = hash;
+         if (++counter.count == threshold) {
+            report(event, fingerprint);
+         }
+      }
+   }
+
+   private void report(final QueryEvent event, final String fingerprint)
+   {
+      final StringBuilder stack = new StringBuilder();
+      String firstFrame = null;
+      int frames = 0;
+      for (StackTraceElement element : new Throwable().getStackTrace()) {
+         if (!isInternal(element.getClassName())) {
+            stack.append("\n\tat ").append(element);
+            if (firstFrame == null) {
+               firstFrame = element.toString();
+            }
+            if (++frames == MAX_CALL_SITE_FRAMES) {
+               break;
+            }
+         }
+      }
+
+      final String callSite = fingerprint + '@' + firstFrame;
+      LongAdder counter = callSites.get(callSite);
+      if (counter == null && callSites.size() < MAX_CALL_SITES) {
+         counter = callSites.computeIfAbsent(callSite, key -> new LongAdder());
+      }
+      final long occurrences;
+      if (counter != null) {
+         counter.increment();
+         occurrences = counter.sum();
+         if (!isPowerOfTen(occurrences)) {
+            return;
+         }
+      }
+      else {
+         occurrences = 1;
+      }
+
+      final Class<?> entityClass = event.getEntityClass();
+      sink.accept(String.format("Possible N+1 queries: %s%s executed %d times with different arguments in one unit of work "
+                                + "(call site seen %d times): %s%n%s%s", event.getOperation(), entityClass != null ? " of " + entityClass.getSimpleName() : "",
+                                threshold, occurrences, fingerprint, suggest(event), stack));
+   }
+
+   private static String suggest(final QueryEvent event)
+   {
+      switch (event.getOperation()) {
+      case SELECT:
+         return "Load the rows with one query instead, e.g. OrmElf.listFromClause() with an IN (?, ...) clause.";
+      case INSERT:
+         return "Insert the rows in one batch instead, with OrmElf.insertListBatched().";
+      case COUNT:
+      case QUERY:
+         return "Query all values at once instead, with an IN (?, ...) clause and GROUP BY, or a JOIN.";
+      default:
+         return "Modify the rows with one statement instead, with an IN (?, ...) clause, or a JDBC batch.";
+      }
+   }
+
+   /**
+    * Determine whether a frame belongs to SansOrm or the platform, rather than to the application.  The
+    * classes of SansOrm are recognized by their code source, as application classes may share its packages.
+    */
+   private static boolean isInternal(final String className)
+   {
+      for (String prefix : PLATFORM_PREFIXES) {
+         if (className.startsWith(prefix)) {
+            return true;
+         }
+      }
+
+      if (LIBRARY_LOCATION == null) {
+         return className.startsWith("com.zaxxer.sansorm.");
+      }
+      try {
+         return LIBRARY_LOCATION.equals(locationOf(Class.forName(className, false, NPlusOneDetector.class.getClassLoader())));
+      }
+      catch (ClassNotFoundException | LinkageError e) {
+         // loaded by another class loader, so not a SansOrm class
+         return false;
+      }
+   }
+
+   private static URL locationOf(final Class<?> clazz)
+   {
+      try {
+         final CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+         return codeSource != null ? codeSource.getLocation() : null;
+      }
+      catch (SecurityException e) {
+         return null;
+      }
+   }
+
+   private static boolean isPowerOfTen(long value)
+   {
+      while (value % 10 == 0) {
+         value /= 10;
+      }
+      return value == 1;
+   }
+
+   /**
+    * A unit of work on one thread.
+    */
+   public static final class Scope
+   {
+      private final HashMap<String, Counter> counters = new HashMap<>();
+      private int depth;
+   }
+
+   private static final class Counter
+   {
+      int count;
+      int lastHash;
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.FetchType;
+import javax.persistence.OneToMany;
+
+/**
+ * A {@link OneToMany} collection field of an entity, populated by the {@link RelationshipLoader} with the
+ * entities whose {@code mappedBy} {@code @ManyToOne} field references the owner.  The collection is not
+ * a column of the owner.  As in JPA, a collection is {@link FetchType#LAZY} unless declared otherwise: it
+ * is only populated on request or by a join fetch.
+ */
+final class OneToManyRelationship
+{
+   final Field field;
+   /** The class of the entities in the collection */
+   final Class<?> elementType;
+   private final Class<?> owner;
+   private final String mappedBy;
+   private final boolean isSet;
+   /** The collection is populated on request only */
+   final boolean isLazy;
+   /** The {@code @ManyToOne} field of the element class referencing the owner, resolved on first use */
+   private FieldColumnInfo mappedByFcInfo;
+
+   OneToManyRelationship(final Field field, final Class<?> owner)
+   {
+      final OneToMany annotation = field.getAnnotation(OneToMany.class);
+      this.field = field;
+      this.owner = owner;
+      this.mappedBy = annotation.mappedBy();
+      if (mappedBy.isEmpty()) {
+         throw new RuntimeException("@OneToMany field " + field.getName() + " of " + owner.getName() + " requires mappedBy");
+      }
+
+      final Class<?> type = field.getType();
+      if (type != List.class && type != Collection.class && type != Set.class) {
+         throw new RuntimeException("@OneToMany field " + field.getName() + " of " + owner.getName() + " must be a List, Set or Collection");
+      }
+      this.isSet = (type == Set.class);
+      this.isLazy = (annotation.fetch() == FetchType.LAZY);
+      this.elementType = (annotation.targetEntity() != void.class ? annotation.targetEntity() : getElementType(field));
+      field.setAccessible(true);
+   }
+
+   private static Class<?> getElementType(final Field field)
+   {
+      final Type type = field.getGenericType();
+      if (type instanceof ParameterizedType) {
+         final Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+         if (argument instanceof Class) {
+            return (Class<?>) argument;
+         }
+      }
+      throw new RuntimeException("@OneToMany field " + field.getName() + " of " + field.getDeclaringClass().getName() + " must declare its element type");
+   }
+
+   /**
+    * @return the {@code @ManyToOne} field of the element class referencing the owner
+    */
+   FieldColumnInfo getMappedByFcInfo()
+   {
+      if (mappedByFcInfo == null) {
+         final FieldColumnInfo fcInfo = Introspector.getIntrospected(elementType).getFieldColumnInfoByProperty(mappedBy);
+         if (fcInfo == null || !fcInfo.isManyToOne || !fcInfo.field.getType().isAssignableFrom(owner)) {
+            throw new RuntimeException("mappedBy " + mappedBy + " of @OneToMany field " + field.getName() + " of " + owner.getName()
+                                          + " is not a @ManyToOne field of " + elementType.getName() + " referencing it");
+         }
+         mappedByFcInfo = fcInfo;
+      }
+      return mappedByFcInfo;
+   }
+
+   /**
+    * @return a new, empty collection of the type of the field
+    */
+   Collection<Object> newCollection()
+   {
+      return isSet ? new LinkedHashSet<>() : new ArrayList<>();
+   }
+}
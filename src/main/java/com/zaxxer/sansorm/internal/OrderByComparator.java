@@ -0,0 +1,231 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.Dialect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Derives an in-memory {@link Comparator} from the ORDER BY part of a clause, and merges lists that
+ * are each sorted by that comparator.  Used to combine the results of a query executed on several
+ * shards without re-sorting them.
+ */
+public final class OrderByComparator<T> implements Comparator<T>
+{
+   private final Introspected introspected;
+   private final FieldColumnInfo[] fcInfos;
+   private final boolean[] descending;
+   private final boolean[] nullsFirst;
+
+   private OrderByComparator(final Introspected introspected, final List<FieldColumnInfo> fcInfos, final List<Boolean> descending, final List<Boolean> nullsFirst)
+   {
+      this.introspected = introspected;
+      this.fcInfos = fcInfos.toArray(new FieldColumnInfo[0]);
+      this.descending = new boolean[fcInfos.size()];
+      this.nullsFirst = new boolean[fcInfos.size()];
+      for (int i = 0; i < this.fcInfos.length; i++) {
+         this.descending[i] = descending.get(i);
+         this.nullsFirst[i] = nullsFirst.get(i);
+      }
+   }
+
+   /**
+    * Create a comparator for the ORDER BY part of the specified clause.  Only plain (optionally table
+    * qualified) column references are supported.  Unless specified with {@code NULLS FIRST/LAST}, nulls
+    * are placed where the database places them, see {@link Dialect#sortsNullsHigh()}.  Values are compared in their database
+    * representation (i.e. after applying {@code AttributeConverter}s and enum mapping) using their
+    * natural order, which can differ from the collation of the database for strings.
+    *
+    * @param clazz the entity class the clause selects
+    * @param clause the clause
+    * @param dialect the dialect of the database that sorted the rows
+    * @param <T> the entity type
+    * @return a comparator, or {@code null} if the clause has no ORDER BY
+    * @throws IllegalArgumentException if the ORDER BY references something other than a mapped column
+    */
+   public static <T> Comparator<T> fromClause(final Class<T> clazz, final String clause, final Dialect dialect)
+   {
+      if (clause == null) {
+         return null;
+      }
+
+      final String upper = clause.toUpperCase(Locale.ENGLISH);
+      final int orderBy = upper.lastIndexOf("ORDER BY");
+      if (orderBy < 0) {
+         return null;
+      }
+
+      String terms = clause.substring(orderBy + "ORDER BY".length());
+      final String upperTerms = upper.substring(orderBy + "ORDER BY".length());
+      for (String terminator : new String[] { " LIMIT ", " OFFSET ", " FETCH ", " FOR " }) {
+         final int end = (upperTerms + ' ').indexOf(terminator);
+         if (end >= 0 && end < terms.length()) {
+            terms = terms.substring(0, end);
+         }
+      }
+
+      final Introspected introspected = Introspector.getIntrospected(clazz);
+      final List<FieldColumnInfo> fcInfos = new ArrayList<>();
+      final List<Boolean> descending = new ArrayList<>();
+      final List<Boolean> nullsFirst = new ArrayList<>();
+      for (String term : terms.split(",")) {
+         final String[] words = term.trim().split("\\s+");
+         String column = words[0];
+         column = column.substring(column.lastIndexOf('.') + 1);
+         if (column.startsWith("\"") && column.endsWith("\"") && column.length() > 1) {
+            column = column.substring(1, column.length() - 1);
+         }
+
+         final FieldColumnInfo fcInfo = introspected.getFieldColumnInfo(column);
+         if (fcInfo == null) {
+            throw new IllegalArgumentException("Cannot merge by ORDER BY term '" + term.trim() + "', it is not a mapped column of "
+               + clazz.getName() + ". Provide an explicit Comparator.");
+         }
+
+         boolean desc = false;
+         Boolean nulls = null;
+         for (int i = 1; i < words.length; i++) {
+            final String word = words[i].toUpperCase(Locale.ENGLISH);
+            if ("DESC".equals(word)) {
+               desc = true;
+            }
+            else if ("NULLS".equals(word) && i + 1 < words.length) {
+               nulls = "FIRST".equalsIgnoreCase(words[++i]);
+            }
+         }
+
+         fcInfos.add(fcInfo);
+         descending.add(desc);
+         nullsFirst.add(nulls != null ? nulls : desc == dialect.sortsNullsHigh());
+      }
+
+      return new OrderByComparator<>(introspected, fcInfos, descending, nullsFirst);
+   }
+
+   @Override
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public int compare(final T o1, final T o2)
+   {
+      for (int i = 0; i < fcInfos.length; i++) {
+         final Object v1 = introspected.get(o1, fcInfos[i]);
+         final Object v2 = introspected.get(o2, fcInfos[i]);
+         final int result;
+         if (v1 == null || v2 == null) {
+            if (v1 == v2) {
+               continue;
+            }
+            // nulls placement is independent of the sort direction
+            return (v1 == null) == nullsFirst[i] ? -1 : 1;
+         }
+         else {
+            result = ((Comparable) v1).compareTo(v2);
+         }
+
+         if (result != 0) {
+            return descending[i] ? -result : result;
+         }
+      }
+      return 0;
+   }
+
+   /**
+    * Merge the specified lists, each of which must already be sorted by the comparator, in a single
+    * k-way pass.  The lists are fully materialized; only the merge itself is lazy, so that it needs no
+    * copy of the lists and no re-sort.
+    *
+    * @param sortedLists the sorted lists
+    * @param comparator the comparator the lists are sorted by
+    * @param <T> the element type
+    * @return an iterator over the merged elements
+    */
+   public static <T> Iterator<T> merge(final List<List<T>> sortedLists, final Comparator<? super T> comparator)
+   {
+      return new MergingIterator<>(sortedLists, comparator);
+   }
+
+   private static final class MergingIterator<T> implements Iterator<T>
+   {
+      private final PriorityQueue<Head<T>> heads;
+
+      MergingIterator(final List<List<T>> sortedLists, final Comparator<? super T> comparator)
+      {
+         // ties are broken by list index, so that the merge is stable with respect to the list order
+         heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), (h1, h2) -> {
+            final int result = comparator.compare(h1.value, h2.value);
+            return result != 0 ? result : Integer.compare(h1.index, h2.index);
+         });
+
+         for (int i = 0; i < sortedLists.size(); i++) {
+            final Iterator<T> iterator = sortedLists.get(i).iterator();
+            if (iterator.hasNext()) {
+               heads.add(new Head<>(i, iterator));
+            }
+         }
+      }
+
+      @Override
+      public boolean hasNext()
+      {
+         return !heads.isEmpty();
+      }
+
+      @Override
+      public T next()
+      {
+         final Head<T> head = heads.poll();
+         if (head == null) {
+            throw new NoSuchElementException();
+         }
+
+         final T value = head.value;
+         if (head.advance()) {
+            heads.add(head);
+         }
+         return value;
+      }
+   }
+
+   private static final class Head<T>
+   {
+      final int index;
+      final Iterator<T> iterator;
+      T value;
+
+      Head(final int index, final Iterator<T> iterator)
+      {
+         this.index = index;
+         this.iterator = iterator;
+         this.value = iterator.next();
+      }
+
+      boolean advance()
+      {
+         if (iterator.hasNext()) {
+            value = iterator.next();
+            return true;
+         }
+         return false;
+      }
+   }
+}
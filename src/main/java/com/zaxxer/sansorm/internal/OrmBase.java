@@ -23,22 +23,17 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.temporal.Temporal;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * OrmBase
  */
 class OrmBase
 {
-   private static final Map<String, String> csvCache;
-
-   static {
-      csvCache = new ConcurrentHashMap<>();
-   }
+   private static final BoundedCache<String, String> csvCache = SqlCaches.COLUMNS;
 
    protected OrmBase() {
       // protected constructor
@@ -54,8 +49,8 @@ class OrmBase
 
       for (int column = paramCount; column > 0; column--) {
          final int parameterType = parameterMetaData.getParameterType(column);
-         final Object object = mapSqlType(args[column - 1], parameterType);
-         stmt.setObject(column, object, parameterType);
+         final Object object = mapSqlType(stmt, args[column - 1], parameterType);
+         Lobs.setParameter(stmt, column, object, parameterType, false);
       }
    }
 
@@ -99,6 +94,22 @@ class OrmBase
       return sb.deleteCharAt(sb.length() - 1).toString();
    }
 
+   /**
+    * Map a parameter value to the type expected by the driver for the specified SQL type.
+    *
+    * @param stmt the statement the parameter is set on
+    * @param object the value
+    * @param sqlType the {@link Types} of the parameter
+    * @return the mapped value
+    */
+   protected static Object mapSqlType(final PreparedStatement stmt, final Object object, final int sqlType)
+   {
+      if (object instanceof Temporal) {
+         return JavaTimeSupport.toParameter(stmt, (Temporal) object, sqlType);
+      }
+      return mapSqlType(object, sqlType);
+   }
+
    protected static Object mapSqlType(final Object object, final int sqlType)
    {
       switch (sqlType) {
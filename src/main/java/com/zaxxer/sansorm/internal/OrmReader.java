@@ -20,43 +20,49 @@ import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
 
+import com.zaxxer.sansorm.Page;
+import com.zaxxer.sansorm.QueryEvent.Operation;
+import com.zaxxer.sansorm.internal.QueryListeners.QueryExecution;
+
 /**
  * OrmReader
  */
 // MULTIPLESTRINGS:OFF
 public class OrmReader extends OrmBase
 {
-   private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
+   private static final BoundedCache<String, String> fromClauseStmtCache = SqlCaches.SELECT;
 
-   private static final Map<String, String> fromClauseStmtCache;
+   public static <T> List<T> statementToList(final PreparedStatement stmt, final Class<T> clazz, final Object... args) throws SQLException
+   {
+      return queryList(stmt, null, clazz, null, args);
+   }
 
-   static {
-      fromClauseStmtCache = Collections.synchronizedMap(new LinkedHashMap<String, String>(CACHE_SIZE) {
-         private static final long serialVersionUID = 6259942586093454872L;
+   public static ResultSet statementToResultSet(final PreparedStatement stmt, final Object... args) throws SQLException
+   {
+      return query(stmt, null, args);
+   }
 
-         @Override
-         protected boolean removeEldestEntry(java.util.Map.Entry<String, String> eldest)
-         {
-            return this.size() > CACHE_SIZE;
-         }
-      });
+   public static ResultSet executeQuery(final Connection connection, final String sql, final Object... args) throws SQLException
+   {
+      return query(connection.prepareStatement(sql), sql, args);
    }
 
-   public static <T> List<T> statementToList(final PreparedStatement stmt, final Class<T> clazz, final Object... args) throws SQLException
+   public static <T> List<T> resultSetToList(final ResultSet resultSet, final Class<T> targetClass) throws SQLException
    {
-      try (final PreparedStatement closeStmt = stmt) {
-         return resultSetToList(statementToResultSet(stmt, args), clazz);
-      }
+      return resultSetToList(resultSet, targetClass, null);
    }
 
-   public static ResultSet statementToResultSet(final PreparedStatement stmt, final Object... args) throws SQLException
+   public static <T> List<T> resultSetToJoinedList(final ResultSet resultSet, final Class<T> rootClass, final Class<?>... joinedClasses) throws SQLException
    {
-      populateStatementParameters(stmt, args);
-      return stmt.executeQuery();
+      return JoinedRowMapper.map(resultSet, rootClass, joinedClasses);
    }
 
+   /**
+    * Map a result set to a list, resolving the relationships of the entities with the specified loader,
+    * or with a new loader if {@code null}.
+    */
    // COMPLEXITY:OFF
-   public static <T> List<T> resultSetToList(final ResultSet resultSet, final Class<T> targetClass) throws SQLException
+   private static <T> List<T> resultSetToList(final ResultSet resultSet, final Class<T> targetClass, final RelationshipLoader loader) throws SQLException
    {
       final List<T> list = new ArrayList<>();
       if (!resultSet.next()) {
@@ -64,43 +70,58 @@ public class OrmReader extends OrmBase
          return list;
       }
 
+      final Object jfrEvent = JfrEvents.beginRowMapping();
       final Introspected introspected = Introspector.getIntrospected(targetClass);
       final boolean hasJoinColumns = introspected.hasSelfJoinColumn();
       final Map<T, Object> deferredSelfJoinFkMap = (hasJoinColumns ? new HashMap<>() : null);
       final Map<Object, T> idToTargetMap = (hasJoinColumns ? new HashMap<>() : null);
+      final RelationshipLoader relationships = !introspected.hasRelationships() ? null
+         : (loader != null ? loader : RelationshipLoader.forResultSet(resultSet));
 
       final ResultSetMetaData metaData = resultSet.getMetaData();
       final int columnCount = metaData.getColumnCount();
-      final String[] columnNames = new String[columnCount];
-      for (int column = columnCount; column > 0; column--) {
-         columnNames[column - 1] = metaData.getColumnName(column).toLowerCase();
-      }
+      final FieldColumnInfo[] fcInfos = getFieldColumnInfos(metaData, introspected);
 
       try (final ResultSet closeRS = resultSet) {
-         do {
-            final T target = targetClass.newInstance();
-            list.add(target);
-            for (int column = columnCount; column > 0; column--) {
-               final Object columnValue = resultSet.getObject(column);
-               if (columnValue == null) {
-                  continue;
+         if (introspected.isConstructorMapped()) {
+            do {
+               list.add(targetClass.cast(constructObject(resultSet, introspected, fcInfos)));
+            }
+            while (resultSet.next());
+         }
+         else {
+            do {
+               final T target = targetClass.cast(introspected.newInstance());
+               list.add(target);
+               for (int column = columnCount; column > 0; column--) {
+                  final FieldColumnInfo fcInfo = fcInfos[column - 1];
+                  if (fcInfo != null && fcInfo.columnReader != null) {
+                     fcInfo.columnReader.read(resultSet, column, target, fcInfo.field);
+                     continue;
+                  }
+
+                  final Object columnValue = resultSet.getObject(column);
+                  if (columnValue == null) {
+                     continue;
+                  }
+
+                  if (fcInfo.isSelfJoinField()) {
+                     deferredSelfJoinFkMap.put(target, columnValue);
+                  }
+                  else if (fcInfo.isManyToOne) {
+                     relationships.defer(target, fcInfo, columnValue);
+                  }
+                  else {
+                     introspected.set(target, fcInfo, columnValue);
+                  }
                }
 
-               final String columnName = columnNames[column - 1];
-               final FieldColumnInfo fcInfo = introspected.getFieldColumnInfo(columnName);
-               if (fcInfo.isSelfJoinField()) {
-                  deferredSelfJoinFkMap.put(target, columnValue);
-               }
-               else {
-                  introspected.set(target, fcInfo, columnValue);
+               if (hasJoinColumns) {
+                  idToTargetMap.put(introspected.getActualIds(target)[0], target);
                }
             }
-
-            if (hasJoinColumns) {
-               idToTargetMap.put(introspected.getActualIds(target)[0], target);
-            }
+            while (resultSet.next());
          }
-         while (resultSet.next());
       }
       catch (Exception e) {
          throw new RuntimeException(e);
@@ -122,37 +143,17 @@ public class OrmReader extends OrmBase
          throw new RuntimeException(e);
       }
 
+      if (relationships != null) {
+         relationships.resolve(introspected, list);
+      }
+
+      JfrEvents.commitRowMapping(jfrEvent, targetClass, list.size(), columnCount);
       return list;
    }
    // COMPLEXITY:ON
 
-   private static <T> T statementToObject(final PreparedStatement stmt, final T target, final Object... args) throws SQLException
-   {
-      populateStatementParameters(stmt, args);
-
-      try (final ResultSet resultSet = stmt.executeQuery()) {
-         if (resultSet.next()) {
-            return resultSetToObject(resultSet, target);
-         }
-         return null;
-      }
-      catch (Exception e) {
-         throw new RuntimeException(e);
-      }
-      finally {
-         stmt.close();
-      }
-   }
-
    public static <T> T statementToObject(final PreparedStatement stmt, final Class<T> clazz, final Object... args) throws SQLException {
-      T target;
-      try {
-         target = clazz.newInstance();
-      }
-      catch (Exception e) {
-         throw new RuntimeException(e);
-      }
-      return statementToObject(stmt, target, args);
+      return queryObject(stmt, null, clazz, args);
    }
 
    public static <T> T resultSetToObject(final ResultSet resultSet, final T target) throws SQLException
@@ -166,6 +167,7 @@ public class OrmReader extends OrmBase
       final ResultSetMetaData metaData = resultSet.getMetaData();
 
       final Introspected introspected = Introspector.getIntrospected(target.getClass());
+      final RelationshipLoader relationships = introspected.hasRelationships() ? RelationshipLoader.forResultSet(resultSet) : null;
       for (int column = metaData.getColumnCount(); column > 0; column--) {
          final String columnName = metaData.getColumnName(column);
          // To make names in ignoredColumns independend from database case sensitivity. Otherwise you have to write database dependent code.
@@ -173,11 +175,25 @@ public class OrmReader extends OrmBase
             continue;
          }
 
+         final FieldColumnInfo fcInfo = introspected.getFieldColumnInfo(columnName);
+         if (fcInfo != null && fcInfo.columnReader != null && fcInfo.constructorIndex < 0) {
+            readPrimitive(resultSet, column, target, fcInfo);
+            continue;
+         }
+
          final Object columnValue = resultSet.getObject(column);
          if (columnValue == null) {
             continue;
          }
-         introspected.set(target, introspected.getFieldColumnInfo(columnName), columnValue);
+         if (fcInfo != null && fcInfo.isManyToOne) {
+            relationships.defer(target, fcInfo, columnValue);
+            continue;
+         }
+         introspected.set(target, fcInfo, columnValue);
+      }
+
+      if (relationships != null) {
+         relationships.resolve(introspected, Collections.singletonList(target));
       }
       return target;
    }
@@ -188,12 +204,26 @@ public class OrmReader extends OrmBase
       return objectFromClause(connection, clazz, where, args);
    }
 
+   /**
+    * Reload the target from the database.  A constructor-mapped target cannot be modified, so a new
+    * instance is returned instead.
+    */
    public static <T> T refresh(final Connection connection, final T target) throws SQLException {
-      final Introspected introspected = Introspector.getIntrospected(target.getClass());
+      @SuppressWarnings("unchecked")
+      final Class<T> clazz = (Class<T>) target.getClass();
+      final Introspected introspected = Introspector.getIntrospected(clazz);
       final String where = getWhereIdClause(introspected);
-      final String sql = generateSelectFromClause(target.getClass(), where);
+      final String sql = generateSelectFromClause(clazz, where);
       final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, target, introspected.getActualIds(target));
+      return queryObject(stmt, sql, clazz, introspected.isConstructorMapped() ? null : target, introspected.getActualIds(target));
+   }
+
+   /**
+    * Build and cache the SQL of {@link #objectById(Connection, Class, Object...)} ahead of its first use.
+    */
+   static void prebuildStatements(final Class<?> clazz, final Introspected introspected)
+   {
+      generateSelectFromClause(clazz, getWhereIdClause(introspected));
    }
 
    private static String getWhereIdClause(Introspected introspected) {
@@ -215,14 +245,39 @@ public class OrmReader extends OrmBase
       final String sql = generateSelectFromClause(clazz, clause);
       final PreparedStatement stmt = connection.prepareStatement(sql);
 
-      return statementToList(stmt, clazz, args);
+      return queryList(stmt, sql, clazz, null, args);
+   }
+
+   public static <T> Page<T> listPage(final Connection connection, final Class<T> clazz, final String clause, final String orderBy,
+                                      final String continuationToken, final int pageSize, final Object... args) throws SQLException
+   {
+      return KeysetPagination.page(connection, clazz, clause, orderBy, continuationToken, pageSize, args);
+   }
+
+   public static <T> void fetchCollection(final Connection connection, final List<T> owners, final String fieldName) throws SQLException
+   {
+      if (owners.isEmpty()) {
+         return;
+      }
+
+      final Introspected introspected = Introspector.getIntrospected(owners.get(0).getClass());
+      new RelationshipLoader(connection).fetch(introspected, introspected.getOneToManyRelationship(fieldName), owners);
+   }
+
+   /**
+    * Select the entities of a clause, resolving their relationships with the specified loader.
+    */
+   static <T> List<T> listFromClause(final Connection connection, final Class<T> clazz, final String clause, final RelationshipLoader loader, final Object... args) throws SQLException
+   {
+      final String sql = generateSelectFromClause(clazz, clause);
+      return queryList(connection.prepareStatement(sql), sql, clazz, loader, args);
    }
 
    public static <T> T objectFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
    {
       final String sql = generateSelectFromClause(clazz, clause);
       final PreparedStatement stmt = connection.prepareStatement(sql);
-      return statementToObject(stmt, clazz, args);
+      return queryObject(stmt, sql, clazz, args);
    }
 
    public static <T> int countObjectsFromClause(final Connection connection, final Class<T> clazz, final String clause, final Object... args) throws SQLException
@@ -246,20 +301,157 @@ public class OrmReader extends OrmBase
          sql.append(' ').append(clause);
       }
 
-      return numberFromSql(connection, sql.toString(), args).intValue();
+      return numberFromSql(connection, Operation.COUNT, clazz, sql.toString(), args).intValue();
    }
 
    public static Number numberFromSql(final Connection connection, final String sql, final Object... args) throws SQLException
    {
+      return numberFromSql(connection, Operation.QUERY, null, sql, args);
+   }
+
+   // -----------------------------------------------------------------------
+   //                      P R I V A T E   M E T H O D S
+   // -----------------------------------------------------------------------
+
+   private static Number numberFromSql(final Connection connection, final Operation operation, final Class<?> clazz, final String sql, final Object... args) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(operation, clazz, sql, args);
       try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
          populateStatementParameters(stmt, args);
          try (final ResultSet resultSet = stmt.executeQuery()) {
-            if (resultSet.next()) {
-               return (Number) resultSet.getObject(1);
+            final Number number = resultSet.next() ? (Number) resultSet.getObject(1) : null;
+            QueryListeners.after(execution, number != null ? 1 : 0);
+            return number;
+         }
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+   }
+
+   private static ResultSet query(final PreparedStatement stmt, final String sql, final Object... args) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(Operation.QUERY, null, sql, args);
+      try {
+         populateStatementParameters(stmt, args);
+         final ResultSet resultSet = stmt.executeQuery();
+         QueryListeners.after(execution, -1);
+         return resultSet;
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+   }
+
+   private static <T> List<T> queryList(final PreparedStatement stmt, final String sql, final Class<T> clazz, final RelationshipLoader loader, final Object... args) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(Operation.SELECT, clazz, sql, args);
+      try (final PreparedStatement closeStmt = stmt) {
+         populateStatementParameters(stmt, args);
+         final List<T> list = resultSetToList(stmt.executeQuery(), clazz, loader);
+         QueryListeners.after(execution, list.size());
+         return list;
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+   }
+
+   private static <T> T queryObject(final PreparedStatement stmt, final String sql, final Class<T> clazz, final Object... args) throws SQLException
+   {
+      final Introspected introspected = Introspector.getIntrospected(clazz);
+      return queryObject(stmt, sql, clazz, introspected.isConstructorMapped() ? null : clazz.cast(introspected.newInstance()), args);
+   }
+
+   /**
+    * Query one object, populating the specified target, or constructing a new instance if the target is {@code null}.
+    */
+   private static <T> T queryObject(final PreparedStatement stmt, final String sql, final Class<T> clazz, final T target, final Object... args) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(Operation.SELECT, clazz, sql, args);
+      try {
+         populateStatementParameters(stmt, args);
+
+         try (final ResultSet resultSet = stmt.executeQuery()) {
+            final T result = !resultSet.next() ? null
+               : (target != null ? resultSetToObject(resultSet, target) : clazz.cast(constructObject(resultSet, Introspector.getIntrospected(clazz))));
+            QueryListeners.after(execution, result != null ? 1 : 0);
+            return result;
+         }
+         catch (Exception e) {
+            throw new RuntimeException(e);
+         }
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+      finally {
+         stmt.close();
+      }
+   }
+
+   private static Object constructObject(final ResultSet resultSet, final Introspected introspected) throws SQLException
+   {
+      return constructObject(resultSet, introspected, getFieldColumnInfos(resultSet.getMetaData(), introspected));
+   }
+
+   /**
+    * Instantiate a constructor-mapped entity from the current row: collect the constructor arguments,
+    * invoke the constructor, then set the remaining fields.  Columns without a field are ignored.
+    */
+   static Object constructObject(final ResultSet resultSet, final Introspected introspected, final FieldColumnInfo[] fcInfos) throws SQLException
+   {
+      final Object[] arguments = introspected.newConstructorArguments();
+      boolean hasFieldColumns = false;
+      for (int column = fcInfos.length; column > 0; column--) {
+         final FieldColumnInfo fcInfo = fcInfos[column - 1];
+         if (fcInfo != null && fcInfo.constructorIndex >= 0) {
+            final Object columnValue = resultSet.getObject(column);
+            if (columnValue != null) {
+               introspected.setArgument(arguments, fcInfo, columnValue);
             }
-            return null;
          }
+         else {
+            hasFieldColumns |= (fcInfo != null);
+         }
+      }
+
+      final Object target = introspected.construct(arguments);
+      if (hasFieldColumns) {
+         for (int column = fcInfos.length; column > 0; column--) {
+            final FieldColumnInfo fcInfo = fcInfos[column - 1];
+            if (fcInfo != null && fcInfo.constructorIndex < 0) {
+               final Object columnValue = resultSet.getObject(column);
+               if (columnValue != null) {
+                  introspected.set(target, fcInfo, columnValue);
+               }
+            }
+         }
+      }
+      return target;
+   }
+
+   private static void readPrimitive(final ResultSet resultSet, final int column, final Object target, final FieldColumnInfo fcInfo) throws SQLException
+   {
+      try {
+         fcInfo.columnReader.read(resultSet, column, target, fcInfo.field);
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static FieldColumnInfo[] getFieldColumnInfos(final ResultSetMetaData metaData, final Introspected introspected) throws SQLException
+   {
+      final FieldColumnInfo[] fcInfos = new FieldColumnInfo[metaData.getColumnCount()];
+      for (int column = fcInfos.length; column > 0; column--) {
+         fcInfos[column - 1] = introspected.getFieldColumnInfo(metaData.getColumnName(column).toLowerCase());
       }
+      return fcInfos;
    }
 
    private static <T> String generateSelectFromClause(final Class<T> clazz, final String clause)
@@ -276,7 +468,7 @@ public class OrmReader extends OrmBase
 
         if (clause != null && !clause.isEmpty()) {
            final String upper = clause.toUpperCase();
-           if (!upper.contains("WHERE") && !upper.contains("JOIN")) {
+           if (!upper.contains("WHERE") && !upper.contains("JOIN") && !upper.startsWith("ORDER BY")) {
               sqlSB.append(" WHERE ");
            }
            sqlSB.append(' ').append(clause);
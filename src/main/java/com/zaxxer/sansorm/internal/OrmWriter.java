@@ -23,36 +23,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
+import com.zaxxer.sansorm.QueryEvent.Operation;
+import com.zaxxer.sansorm.internal.QueryListeners.QueryExecution;
+
 /**
  * OrmWriter
  */
 public class OrmWriter extends OrmBase
 {
-   private static final int CACHE_SIZE = Integer.getInteger("com.zaxxer.sansorm.statementCacheSize", 500);
-   private static final Map<Introspected, String> createStatementCache;
-   private static final Map<Introspected, String> updateStatementCache;
-
-   static {
-      createStatementCache = Collections.synchronizedMap(new LinkedHashMap<Introspected, String>(CACHE_SIZE) {
-         private static final long serialVersionUID = 4559270460685275064L;
-
-         @Override
-         protected boolean removeEldestEntry(final Map.Entry<Introspected, String> eldest)
-         {
-            return this.size() > CACHE_SIZE;
-         }
-      });
-
-      updateStatementCache = Collections.synchronizedMap(new LinkedHashMap<Introspected, String>(CACHE_SIZE) {
-         private static final long serialVersionUID = -5324251353646078607L;
-
-         @Override
-         protected boolean removeEldestEntry(final Map.Entry<Introspected, String> eldest)
-         {
-            return this.size() > CACHE_SIZE;
-         }
-      });
-   }
+   private static final BoundedCache<Introspected, String> createStatementCache = SqlCaches.INSERT;
+   private static final BoundedCache<Introspected, String> updateStatementCache = SqlCaches.UPDATE;
 
    public static <T> void insertListBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
    {
@@ -69,21 +49,34 @@ public class OrmWriter extends OrmBase
       }
 
       final FieldColumnInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
+      final String sql = getInsertSql(introspected, insertableFcInfos);
+      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, sql)) {
          final int[] parameterTypes = getParameterTypes(stmt);
-         for (final T item : iterable) {
-            setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null);
-            stmt.addBatch();
+         final QueryExecution execution = QueryListeners.before(Operation.BATCH_INSERT, clazz, sql, parameterTypes.length);
+         try {
+            for (final T item : iterable) {
+               setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null);
+               stmt.addBatch();
+            }
+            QueryListeners.after(execution, sumUpdateCounts(stmt.executeBatch()));
+         }
+         catch (SQLException | RuntimeException e) {
+            QueryListeners.failed(execution, e);
+            throw e;
          }
-         stmt.executeBatch();
       }
    }
 
    public static <T> void insertListNotBatched(final Connection connection, final Iterable<T> iterable) throws SQLException
+   {
+      insertListNotBatchedReturning(connection, iterable);
+   }
+
+   public static <T> List<T> insertListNotBatchedReturning(final Connection connection, final Iterable<T> iterable) throws SQLException
    {
       final Iterator<T> iterableIterator = iterable.iterator();
       if (!iterableIterator.hasNext()) {
-         return;
+         return new ArrayList<>();
       }
 
       final Class<?> clazz = iterableIterator.next().getClass();
@@ -91,13 +84,16 @@ public class OrmWriter extends OrmBase
       final boolean hasSelfJoinColumn = introspected.hasSelfJoinColumn();
       final String[] idColumnNames = introspected.getIdColumnNames();
       final FieldColumnInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
+      final String insertSql = getInsertSql(introspected, insertableFcInfos);
+      final List<T> inserted = new ArrayList<>();
       // Insert
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
+      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertSql)) {
          final int[] parameterTypes = getParameterTypes(stmt);
          for (final T item : iterable) {
             setStatementParameters(item, introspected, insertableFcInfos, stmt, parameterTypes, null);
-            stmt.executeUpdate();
-            fillGeneratedId(item, introspected, stmt, /*checkExistingId=*/false);
+            executeUpdate(stmt, Operation.INSERT, clazz, insertSql, parameterTypes.length);
+            // a constructor-mapped item is replaced by its copy with the generated id
+            inserted.add(fillGeneratedId(item, introspected, stmt, /*checkExistingId=*/false));
             stmt.clearParameters();
          }
       }
@@ -110,18 +106,26 @@ public class OrmWriter extends OrmBase
             .append(" SET ").append(selfJoinfcInfo.getDelimitedColumnName())
             .append("=? WHERE ").append(idColumn).append("=?");
          try (final PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
-            for (final T item : iterable) {
-               final Object referencedItem = introspected.get(item, selfJoinfcInfo);
-               if (referencedItem != null) {
-                  stmt.setObject(1, introspected.getActualIds(referencedItem)[0]);
-                  stmt.setObject(2, introspected.getActualIds(item)[0]);
-                  stmt.addBatch();
-                  stmt.clearParameters();
+            final QueryExecution execution = QueryListeners.before(Operation.UPDATE, clazz, sql.toString(), 2);
+            try {
+               for (final T item : inserted) {
+                  final Object referencedItem = introspected.get(item, selfJoinfcInfo);
+                  if (referencedItem != null) {
+                     stmt.setObject(1, introspected.getActualIds(referencedItem)[0]);
+                     stmt.setObject(2, introspected.getActualIds(item)[0]);
+                     stmt.addBatch();
+                     stmt.clearParameters();
+                  }
                }
+               QueryListeners.after(execution, sumUpdateCounts(stmt.executeBatch()));
+            }
+            catch (SQLException | RuntimeException e) {
+               QueryListeners.failed(execution, e);
+               throw e;
             }
-            stmt.executeBatch();
          }
       }
+      return inserted;
    }
 
    public static <T> T insertObject(final Connection connection, final T target) throws SQLException
@@ -129,10 +133,10 @@ public class OrmWriter extends OrmBase
       final Class<?> clazz = target.getClass();
       final Introspected introspected = Introspector.getIntrospected(clazz);
       final FieldColumnInfo[] insertableFcInfos = introspected.getInsertableFcInfos();
-      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, insertableFcInfos)) {
-         setParamsExecute(target, introspected, insertableFcInfos, stmt, /*checkExistingId=*/false, null);
+      final String sql = getInsertSql(introspected, insertableFcInfos);
+      try (final PreparedStatement stmt = createStatementForInsert(connection, introspected, sql)) {
+         return setParamsExecute(target, introspected, insertableFcInfos, stmt, Operation.INSERT, sql, /*checkExistingId=*/false, null);
       }
-      return target;
    }
 
    public static <T> T updateObject(final Connection connection, final T target) throws SQLException
@@ -145,17 +149,13 @@ public class OrmWriter extends OrmBase
       final Class<?> clazz = target.getClass();
       final Introspected introspected = Introspector.getIntrospected(clazz);
       final FieldColumnInfo[] updatableFcInfos = introspected.getUpdatableFcInfos();
-      if (excludedColumns == null) {
-         try (final PreparedStatement stmt = createStatementForUpdate(connection, introspected, updatableFcInfos)) {
-            setParamsExecute(target, introspected, updatableFcInfos, stmt, /*checkExistingId=*/true, null);
-         }
-      }
-      else {
-         try (final PreparedStatement stmt = createStatementForUpdate(connection, introspected, updatableFcInfos, excludedColumns)){
-            setParamsExecute(target, introspected, updatableFcInfos, stmt, /*checkExistingId=*/true, excludedColumns);
-         }
+      // the SQL excluding columns varies by call, so it is not cached
+      final String sql = (excludedColumns == null)
+         ? getUpdateSql(introspected, updatableFcInfos)
+         : createSqlForUpdate(introspected, updatableFcInfos, excludedColumns);
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         return setParamsExecute(target, introspected, updatableFcInfos, stmt, Operation.UPDATE, sql, /*checkExistingId=*/true, excludedColumns);
       }
-      return target;
    }
 
    public static <T> int deleteObject(final Connection connection, final T target) throws SQLException
@@ -184,15 +184,21 @@ public class OrmWriter extends OrmBase
       }
       sql.setLength(sql.length() - 5);
 
-      return executeUpdate(connection, sql.toString(), args);
+      return executeUpdate(connection, Operation.DELETE, clazz, sql.toString(), args);
    }
 
    public static int executeUpdate(final Connection connection, final String sql, final Object... args) throws SQLException
    {
-      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
-         populateStatementParameters(stmt, args);
-         return stmt.executeUpdate();
-      }
+      return executeUpdate(connection, Operation.EXECUTE, null, sql, args);
+   }
+
+   /**
+    * Build and cache the INSERT and UPDATE SQL of the entity ahead of their first use.
+    */
+   static void prebuildStatements(final Introspected introspected)
+   {
+      getInsertSql(introspected, introspected.getInsertableFcInfos());
+      getUpdateSql(introspected, introspected.getUpdatableFcInfos());
    }
 
    // -----------------------------------------------------------------------
@@ -201,9 +207,19 @@ public class OrmWriter extends OrmBase
 
    private static PreparedStatement createStatementForInsert(final Connection connection,
                                                              final Introspected introspected,
-                                                             final FieldColumnInfo[] fcInfos) throws SQLException
+                                                             final String sql) throws SQLException
+   {
+      if (introspected.hasGeneratedId()) {
+         return connection.prepareStatement(sql, introspected.getIdColumnNames());
+      }
+      else {
+         return connection.prepareStatement(sql);
+      }
+   }
+
+   private static String getInsertSql(final Introspected introspected, final FieldColumnInfo[] fcInfos)
    {
-      final String sql = createStatementCache.computeIfAbsent(introspected, key -> {
+      return createStatementCache.computeIfAbsent(introspected, key -> {
          final String tableName = introspected.getTableName();
          final StringBuilder sqlSB = new StringBuilder("INSERT INTO ").append(tableName).append('(');
          final StringBuilder sqlValues = new StringBuilder(") VALUES (");
@@ -218,38 +234,11 @@ public class OrmWriter extends OrmBase
 
          return sqlSB.toString();
       });
-
-      if (introspected.hasGeneratedId()) {
-         return connection.prepareStatement(sql, introspected.getIdColumnNames());
-      }
-      else {
-         return connection.prepareStatement(sql);
-      }
-   }
-
-   /**
-    *
-    * @return newly created or already cached statement.
-    */
-   private static PreparedStatement createStatementForUpdate(final Connection connection,
-                                                             final Introspected introspected,
-                                                             final FieldColumnInfo[] fieldColumnInfos) throws SQLException
-   {
-      final String sql = updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, fieldColumnInfos, null));
-
-      return connection.prepareStatement(sql);
    }
 
-   /**
-    * To exclude columns situative. Does not cache the statement.
-    */
-   private static PreparedStatement createStatementForUpdate(final Connection connection,
-                                                             final Introspected introspected,
-                                                             final FieldColumnInfo[] fieldColumnInfos,
-                                                             final Set<String> excludedColumns) throws SQLException
+   private static String getUpdateSql(final Introspected introspected, final FieldColumnInfo[] fieldColumnInfos)
    {
-      final String sql = createSqlForUpdate(introspected, fieldColumnInfos, excludedColumns);
-      return connection.prepareStatement(sql);
+      return updateStatementCache.computeIfAbsent(introspected, key -> createSqlForUpdate(introspected, fieldColumnInfos, null));
    }
 
    /**
@@ -277,11 +266,59 @@ public class OrmWriter extends OrmBase
       return sqlSB.toString();
    }
 
-   /** You should close stmt by yourself */
-   private static <T> void setParamsExecute(final T target,
+   private static int executeUpdate(final Connection connection, final Operation operation, final Class<?> clazz, final String sql, final Object... args) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(operation, clazz, sql, args);
+      try (final PreparedStatement stmt = connection.prepareStatement(sql)) {
+         populateStatementParameters(stmt, args);
+         final int rowCount = stmt.executeUpdate();
+         QueryListeners.after(execution, rowCount);
+         return rowCount;
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+   }
+
+   private static int executeUpdate(final PreparedStatement stmt, final Operation operation, final Class<?> clazz, final String sql, final int parameterCount) throws SQLException
+   {
+      final QueryExecution execution = QueryListeners.before(operation, clazz, sql, parameterCount);
+      try {
+         final int rowCount = stmt.executeUpdate();
+         QueryListeners.after(execution, rowCount);
+         return rowCount;
+      }
+      catch (SQLException | RuntimeException e) {
+         QueryListeners.failed(execution, e);
+         throw e;
+      }
+   }
+
+   private static int sumUpdateCounts(final int[] updateCounts)
+   {
+      int rowCount = 0;
+      for (final int updateCount : updateCounts) {
+         if (updateCount < 0) {
+            // Statement.SUCCESS_NO_INFO
+            return -1;
+         }
+         rowCount += updateCount;
+      }
+      return rowCount;
+   }
+
+   /**
+    * You should close stmt by yourself
+    *
+    * @return the target, or a copy of a constructor-mapped target with its generated ID
+    */
+   private static <T> T setParamsExecute(final T target,
                                             final Introspected introspected,
                                             final FieldColumnInfo[] fcInfos,
                                             final PreparedStatement stmt,
+                                            final Operation operation,
+                                            final String sql,
                                             final boolean checkExistingId,
                                             final Set<String> excludedColumns) throws SQLException
    {
@@ -296,8 +333,8 @@ public class OrmWriter extends OrmBase
          }
       }
 
-      stmt.executeUpdate();
-      fillGeneratedId(target, introspected, stmt, checkExistingId);
+      executeUpdate(stmt, operation, target.getClass(), sql, parameterTypes.length);
+      return fillGeneratedId(target, introspected, stmt, checkExistingId);
    }
 
    /** Small helper to set statement parameters from given object */
@@ -312,9 +349,9 @@ public class OrmWriter extends OrmBase
       for (final FieldColumnInfo fcInfo : fcInfos) {
          if (excludedColumns == null || !isIgnoredColumn(excludedColumns, fcInfo.getColumnName())) {
             final int parameterType = parameterTypes[parameterIndex - 1];
-            final Object object = mapSqlType(introspected.get(item, fcInfo), parameterType);
+            final Object object = mapSqlType(stmt, introspected.get(item, fcInfo), parameterType);
             if (object != null && !fcInfo.isSelfJoinField()) {
-               stmt.setObject(parameterIndex, object, parameterType);
+               Lobs.setParameter(stmt, parameterIndex, object, parameterType, fcInfo.isLob);
             }
             else {
                stmt.setNull(parameterIndex, parameterType);
@@ -325,13 +362,17 @@ public class OrmWriter extends OrmBase
       return parameterIndex;
    }
 
-   /** Sets auto-generated ID if not set yet */
-   private static <T> void fillGeneratedId(final T target,
-                                           final Introspected introspected,
-                                           final PreparedStatement stmt,
-                                           final boolean checkExistingId) throws SQLException {
+   /**
+    * Sets auto-generated ID if not set yet.  A constructor-mapped target cannot be modified, so a copy
+    * with the generated ID is returned instead.
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> T fillGeneratedId(final T target,
+                                        final Introspected introspected,
+                                        final PreparedStatement stmt,
+                                        final boolean checkExistingId) throws SQLException {
       if (!introspected.hasGeneratedId()) {
-         return;
+         return target;
       }
 
       final FieldColumnInfo fcInfo = introspected.getGeneratedIdFcInfo();
@@ -339,14 +380,18 @@ public class OrmWriter extends OrmBase
          final Object idExisting = introspected.get(target, fcInfo);
          if (idExisting != null && (!(idExisting instanceof Integer) || (Integer) idExisting > 0)) {
             // a bit tied to implementation but let's assume that integer id <= 0 means that it was not generated yet
-            return;
+            return target;
          }
       }
       try (final ResultSet generatedKeys = stmt.getGeneratedKeys()) {
          if (generatedKeys.next()) {
+            if (introspected.isConstructorMapped()) {
+               return (T) introspected.copyWith(target, fcInfo, generatedKeys.getObject(1));
+            }
             introspected.set(target, fcInfo, generatedKeys.getObject(1));
          }
       }
+      return target;
    }
 
    private static int[] getParameterTypes(final PreparedStatement stmt) throws SQLException
@@ -0,0 +1,133 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads a column into a primitive field with the typed {@code ResultSet} getter and the primitive
+ * {@link Field} setter, so that mapping a numeric column allocates no boxed value.  As with
+ * {@code getObject()}, a SQL {@code NULL} leaves the field untouched.  The driver performs the
+ * conversion from the column type, e.g. an {@code INTEGER} column into a {@code boolean} field.
+ */
+enum PrimitiveColumnReader implements ColumnReader
+{
+   BOOLEAN {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final boolean value = resultSet.getBoolean(column);
+         if (!resultSet.wasNull()) {
+            field.setBoolean(target, value);
+         }
+      }
+   },
+   BYTE {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final byte value = resultSet.getByte(column);
+         if (!resultSet.wasNull()) {
+            field.setByte(target, value);
+         }
+      }
+   },
+   SHORT {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final short value = resultSet.getShort(column);
+         if (!resultSet.wasNull()) {
+            field.setShort(target, value);
+         }
+      }
+   },
+   INT {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final int value = resultSet.getInt(column);
+         if (!resultSet.wasNull()) {
+            field.setInt(target, value);
+         }
+      }
+   },
+   LONG {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final long value = resultSet.getLong(column);
+         if (!resultSet.wasNull()) {
+            field.setLong(target, value);
+         }
+      }
+   },
+   FLOAT {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final float value = resultSet.getFloat(column);
+         if (!resultSet.wasNull()) {
+            field.setFloat(target, value);
+         }
+      }
+   },
+   DOUBLE {
+      @Override
+      public void read(final ResultSet resultSet, final int column, final Object target, final Field field) throws SQLException, IllegalAccessException
+      {
+         final double value = resultSet.getDouble(column);
+         if (!resultSet.wasNull()) {
+            field.setDouble(target, value);
+         }
+      }
+   };
+
+   /**
+    * Get the reader of a field type.
+    *
+    * @param type the declared type of the field
+    * @return the reader, or {@code null} if the type is not a primitive type
+    */
+   static PrimitiveColumnReader of(final Class<?> type)
+   {
+      if (type == int.class) {
+         return INT;
+      }
+      else if (type == long.class) {
+         return LONG;
+      }
+      else if (type == double.class) {
+         return DOUBLE;
+      }
+      else if (type == boolean.class) {
+         return BOOLEAN;
+      }
+      else if (type == float.class) {
+         return FLOAT;
+      }
+      else if (type == short.class) {
+         return SHORT;
+      }
+      else if (type == byte.class) {
+         return BYTE;
+      }
+      return null;
+   }
+}
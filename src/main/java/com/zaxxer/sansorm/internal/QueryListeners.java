@@ -0,0 +1,240 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.util.Arrays;
+
+import com.zaxxer.sansorm.QueryEvent;
+import com.zaxxer.sansorm.QueryEvent.Operation;
+import com.zaxxer.sansorm.QueryListener;
+
+/**
+ * Dispatches statement executions to the registered {@link QueryListener}s, and records them as Flight
+ * Recorder events while a recording is running.  The listeners are kept in a copy-on-write array, so that
+ * without listeners and recording {@link #before} costs two volatile reads and allocates nothing.  Usage
+ * around an execution:
+ * <pre>
+ * final QueryExecution execution = QueryListeners.before(Operation.SELECT, clazz, sql, args);
+ * try {
+ *    ...
+ *    QueryListeners.after(execution, rows);
+ * }
+ * catch (SQLException | RuntimeException e) {
+ *    QueryListeners.failed(execution, e);
+ *    throw e;
+ * }
+ * </pre>
+ */
+public final class QueryListeners
+{
+   private static final QueryListener[] NONE = new QueryListener[0];
+
+   private static volatile QueryListener[] listeners = NONE;
+
+   private QueryListeners()
+   {
+      // private constructor
+   }
+
+   public static synchronized void add(final QueryListener listener)
+   {
+      final QueryListener[] current = listeners;
+      final QueryListener[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = listener;
+      listeners = updated;
+   }
+
+   public static synchronized void remove(final QueryListener listener)
+   {
+      final QueryListener[] current = listeners;
+      for (int i = 0; i < current.length; i++) {
+         if (current[i] == listener) {
+            final QueryListener[] updated = new QueryListener[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+            listeners = updated;
+            return;
+         }
+      }
+   }
+
+   public static synchronized void clear()
+   {
+      listeners = NONE;
+   }
+
+   /**
+    * Notify the listeners that a statement is about to be executed.
+    *
+    * @return the execution to pass to {@link #after} or {@link #failed}, {@code null} if there are no listeners
+    */
+   static QueryExecution before(final Operation operation, final Class<?> entityClass, final String sql, final Object[] args)
+   {
+      return (listeners.length == 0 && !JfrEvents.recording) ? null : start(operation, entityClass, sql, args, args == null ? 0 : args.length);
+   }
+
+   /**
+    * Notify the listeners that a statement is about to be executed.
+    *
+    * @return the execution to pass to {@link #after} or {@link #failed}, {@code null} if there are no listeners
+    */
+   static QueryExecution before(final Operation operation, final Class<?> entityClass, final String sql, final int parameterCount)
+   {
+      return start(operation, entityClass, sql, null, parameterCount);
+   }
+
+   private static QueryExecution start(final Operation operation, final Class<?> entityClass, final String sql, final Object[] args, final int parameterCount)
+   {
+      final QueryListener[] current = listeners;
+      final Object jfrEvent = JfrEvents.beginStatement();
+      if (current.length == 0 && jfrEvent == null) {
+         return null;
+      }
+
+      final QueryExecution execution = new QueryExecution(current, jfrEvent, operation, entityClass, sql, args, parameterCount);
+      for (QueryListener listener : current) {
+         listener.beforeQuery(execution);
+      }
+      execution.startNanos = System.nanoTime();
+      return execution;
+   }
+
+   static void after(final QueryExecution execution, final int rowCount)
+   {
+      if (execution != null) {
+         execution.complete(rowCount, null);
+      }
+   }
+
+   static void failed(final QueryExecution execution, final Throwable exception)
+   {
+      if (execution != null) {
+         execution.complete(-1, exception);
+      }
+   }
+
+   static final class QueryExecution implements QueryEvent
+   {
+      private final QueryListener[] listeners;
+      private final Object jfrEvent;
+      private final Operation operation;
+      private final Class<?> entityClass;
+      private final String sql;
+      private final Object[] args;
+      private final int parameterCount;
+      private long startNanos;
+      private long elapsedNanos;
+      private int rowCount = -1;
+      private Throwable exception;
+      private Object attachment;
+      private boolean completed;
+
+      QueryExecution(final QueryListener[] listeners, final Object jfrEvent, final Operation operation, final Class<?> entityClass, final String sql, final Object[] args,
+                     final int parameterCount)
+      {
+         this.listeners = listeners;
+         this.jfrEvent = jfrEvent;
+         this.operation = operation;
+         this.entityClass = entityClass;
+         this.sql = sql;
+         this.args = args;
+         this.parameterCount = parameterCount;
+      }
+
+      void complete(final int rowCount, final Throwable exception)
+      {
+         // a failure closing the statement must not report a completed execution a second time
+         if (completed) {
+            return;
+         }
+         completed = true;
+         this.elapsedNanos = System.nanoTime() - startNanos;
+         this.rowCount = rowCount;
+         this.exception = exception;
+         JfrEvents.commitStatement(jfrEvent, operation, entityClass, sql, rowCount, exception != null);
+         for (QueryListener listener : listeners) {
+            listener.afterQuery(this);
+         }
+      }
+
+      @Override
+      public Operation getOperation()
+      {
+         return operation;
+      }
+
+      @Override
+      public String getSql()
+      {
+         return sql;
+      }
+
+      @Override
+      public Class<?> getEntityClass()
+      {
+         return entityClass;
+      }
+
+      @Override
+      public int getParameterCount()
+      {
+         return parameterCount;
+      }
+
+      @Override
+      public Object[] getArguments()
+      {
+         return args;
+      }
+
+      @Override
+      public long getElapsedNanos()
+      {
+         return elapsedNanos;
+      }
+
+      @Override
+      public int getRowCount()
+      {
+         return rowCount;
+      }
+
+      @Override
+      public Throwable getException()
+      {
+         return exception;
+      }
+
+      @Override
+      public Object getAttachment()
+      {
+         return attachment;
+      }
+
+      @Override
+      public void setAttachment(final Object attachment)
+      {
+         this.attachment = attachment;
+      }
+
+      @Override
+      public String toString()
+      {
+         return operation + " " + (entityClass != null ? entityClass.getSimpleName() + " " : "") + sql;
+      }
+   }
+}
@@ -0,0 +1,419 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+
+/**
+ * Populates the {@link ManyToOne} and {@link OneToMany} fields of mapped entities in batches, rather than
+ * with one query per entity.  While a list is mapped, the foreign key of each {@code @ManyToOne} column is
+ * {@linkplain #defer deferred}; the list is then {@linkplain #resolve resolved}: the referenced entities
+ * that are not loaded yet are selected with {@code IN} queries of up to {@value #MAX_BATCH_SIZE} ids, the
+ * {@link FetchType#EAGER} {@code @OneToMany} collections are selected by the foreign keys of their elements
+ * in the same way, and the entities are wired in memory.  The entities loaded this way are resolved in turn,
+ * one level at a time.  Collections are loaded after the {@code @ManyToOne} references of all the entities
+ * loaded so far are wired, so that their elements can be grouped by owner.
+ * <p>
+ * A {@link FetchType#LAZY} {@code @ManyToOne} field is set to the loaded entity, or to a reference holding
+ * only the id of the entity, without a query.  A lazy collection, the default of {@code @OneToMany}, is left
+ * untouched unless it is {@linkplain #fetch fetched} explicitly.  A loader without connection, for a result
+ * set without statement, treats every relationship as lazy.
+ * <p>
+ * A loader is an identity map for one top-level query: an entity is loaded and resolved once however many
+ * entities reference it, the {@code mappedBy} reference of an element of a collection is its owner, and
+ * cycles in the relationships terminate.  The number of {@code IN} parameters is padded to a power of two
+ * with repeated ids, to bound the number of distinct statements.
+ */
+final class RelationshipLoader
+{
+   static final int MAX_BATCH_SIZE = 512;
+
+   private final Connection connection;
+   /** The loaded entities by class and normalized id */
+   private final Map<Class<?>, Map<Object, Object>> entities;
+   /** The references of lazy {@code @ManyToOne} fields to entities that are not loaded, by class and normalized id */
+   private final Map<Class<?>, Map<Object, Object>> lazyReferences;
+   /** The deferred foreign keys of the list being mapped */
+   private List<Reference> references;
+   /** The collections to load once the references are wired */
+   private final ArrayDeque<PendingCollection> collections;
+   private int depth;
+
+   /**
+    * @param connection the connection to load the relationships with, or {@code null} to load none
+    */
+   RelationshipLoader(final Connection connection)
+   {
+      this.connection = connection;
+      this.entities = new HashMap<>();
+      this.lazyReferences = new HashMap<>();
+      this.references = new ArrayList<>();
+      this.collections = new ArrayDeque<>();
+   }
+
+   /**
+    * Create a loader for the entities mapped from a result set, which loads the relationships with the
+    * connection of the statement of the result set, or none if the result set has no statement, e.g. a
+    * result set of {@code DatabaseMetaData}.
+    *
+    * @param resultSet the result set
+    * @return the loader
+    */
+   static RelationshipLoader forResultSet(final ResultSet resultSet) throws SQLException
+   {
+      final Statement statement = resultSet.getStatement();
+      return new RelationshipLoader(statement != null ? statement.getConnection() : null);
+   }
+
+   /**
+    * Defer the value of a {@code @ManyToOne} column of an entity being mapped.
+    *
+    * @param target the entity
+    * @param fcInfo the {@code @ManyToOne} field
+    * @param foreignKey the column value, not {@code null}
+    */
+   void defer(final Object target, final FieldColumnInfo fcInfo, final Object foreignKey)
+   {
+      references.add(new Reference(target, fcInfo, foreignKey));
+   }
+
+   /**
+    * Resolve the relationships of a mapped list.  Entities of the list that were loaded before by this
+    * loader are replaced by the loaded instances.
+    *
+    * @param introspected the introspected class of the entities
+    * @param list the entities, with the foreign keys of their {@code @ManyToOne} columns deferred
+    */
+   void resolve(final Introspected introspected, final List<?> list) throws SQLException
+   {
+      resolve(introspected, list, Collections.emptySet());
+   }
+
+   /**
+    * Resolve the relationships of a mapped list, except the specified collections, which the caller
+    * populates.  Entities of the list that were loaded before by this loader are replaced by the loaded
+    * instances.
+    *
+    * @param introspected the introspected class of the entities
+    * @param list the entities, with the foreign keys of their {@code @ManyToOne} columns deferred
+    * @param fetched the {@code @OneToMany} relationships of the class not to load
+    */
+   @SuppressWarnings("unchecked")
+   void resolve(final Introspected introspected, final List<?> list, final Set<OneToManyRelationship> fetched) throws SQLException
+   {
+      final List<Reference> deferred = references;
+      references = new ArrayList<>();
+
+      final List<Object> fresh = new ArrayList<>(list.size());
+      final Set<Object> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (int i = 0; i < list.size(); i++) {
+         final Object entity = list.get(i);
+         final Object loaded = remember(introspected, entity);
+         if (loaded != entity) {
+            ((List<Object>) list).set(i, loaded);
+            duplicates.add(entity);
+         }
+         else {
+            fresh.add(entity);
+         }
+      }
+
+      depth++;
+      try {
+         resolveManyToOne(deferred, duplicates);
+         for (OneToManyRelationship relationship : introspected.getOneToManyRelationships()) {
+            if (relationship.isLazy || connection == null || fetched.contains(relationship)) {
+               continue;
+            }
+            collections.add(new PendingCollection(introspected, relationship, fresh));
+         }
+         if (depth == 1) {
+            drainCollections();
+         }
+      }
+      finally {
+         depth--;
+      }
+   }
+
+   /**
+    * Populate a collection of entities, whether lazy or not.  The collections of the owners are replaced.
+    *
+    * @param introspected the introspected class of the owners
+    * @param relationship the {@code @OneToMany} relationship
+    * @param owners the owners
+    */
+   void fetch(final Introspected introspected, final OneToManyRelationship relationship, final List<?> owners) throws SQLException
+   {
+      final List<Object> fresh = new ArrayList<>(owners.size());
+      for (Object owner : owners) {
+         if (remember(introspected, owner) == owner) {
+            fresh.add(owner);
+         }
+      }
+
+      depth++;
+      try {
+         collections.add(new PendingCollection(introspected, relationship, fresh));
+         drainCollections();
+      }
+      finally {
+         depth--;
+      }
+   }
+
+   private void drainCollections() throws SQLException
+   {
+      for (PendingCollection owners = collections.poll(); owners != null; owners = collections.poll()) {
+         resolveOneToMany(owners.introspected, owners.relationship, owners.entities);
+      }
+   }
+
+   private void resolveManyToOne(final List<Reference> deferred, final Set<Object> duplicates) throws SQLException
+   {
+      final Map<Class<?>, Set<Object>> missing = new LinkedHashMap<>();
+      for (Reference reference : deferred) {
+         final Class<?> type = reference.fcInfo.field.getType();
+         if (!duplicates.contains(reference.target) && !isLazy(reference.fcInfo) && !getEntities(type).containsKey(key(reference.foreignKey))) {
+            missing.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(reference.foreignKey);
+         }
+      }
+
+      for (Map.Entry<Class<?>, Set<Object>> entry : missing.entrySet()) {
+         final Introspected introspected = Introspector.getIntrospected(entry.getKey());
+         load(entry.getKey(), getSingleIdColumnName(introspected), entry.getValue());
+      }
+
+      try {
+         for (Reference reference : deferred) {
+            if (duplicates.contains(reference.target)) {
+               continue;
+            }
+            final Class<?> type = reference.fcInfo.field.getType();
+            Object entity = getEntities(type).get(key(reference.foreignKey));
+            if (entity == null && isLazy(reference.fcInfo)) {
+               entity = getLazyReference(type, reference.foreignKey);
+            }
+            if (entity != null) {
+               reference.fcInfo.setFieldValue(reference.target, entity);
+            }
+         }
+      }
+      catch (ReflectiveOperationException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private boolean isLazy(final FieldColumnInfo fcInfo)
+   {
+      return fcInfo.isLazy || connection == null;
+   }
+
+   private Object getLazyReference(final Class<?> type, final Object id)
+   {
+      return lazyReferences.computeIfAbsent(type, t -> new HashMap<>()).computeIfAbsent(key(id), k -> {
+         final Introspected introspected = Introspector.getIntrospected(type);
+         getSingleIdColumnName(introspected);
+         return introspected.newReference(id);
+      });
+   }
+
+   private void resolveOneToMany(final Introspected introspected, final OneToManyRelationship relationship, final List<Object> owners) throws SQLException
+   {
+      final Set<Object> ids = new LinkedHashSet<>();
+      for (Object owner : owners) {
+         final Object[] ownerIds = introspected.getActualIds(owner);
+         if (ownerIds != null && ownerIds.length == 1 && ownerIds[0] != null) {
+            ids.add(ownerIds[0]);
+         }
+      }
+
+      attach(relationship, owners, load(relationship.elementType, relationship.getMappedByFcInfo().getDelimitedColumnName(), ids));
+   }
+
+   /**
+    * Set the collection of each owner to the elements whose {@code mappedBy} field references it.
+    *
+    * @param relationship the {@code @OneToMany} relationship
+    * @param owners the owners, whose collections are replaced
+    * @param elements the candidate elements, with their {@code mappedBy} field resolved
+    */
+   static void attach(final OneToManyRelationship relationship, final List<?> owners, final List<?> elements)
+   {
+      final Map<Object, Collection<Object>> byOwner = new IdentityHashMap<>();
+      try {
+         for (Object owner : owners) {
+            final Collection<Object> collection = relationship.newCollection();
+            relationship.field.set(owner, collection);
+            byOwner.put(owner, collection);
+         }
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+
+      final FieldColumnInfo mappedBy = relationship.getMappedByFcInfo();
+      for (Object element : elements) {
+         final Collection<Object> collection = byOwner.get(mappedBy.getFieldValue(element));
+         if (collection != null) {
+            collection.add(element);
+         }
+      }
+   }
+
+   /**
+    * Load and resolve the entities whose column has one of the specified values.
+    */
+   private List<?> load(final Class<?> clazz, final String column, final Collection<Object> values) throws SQLException
+   {
+      final List<Object> loaded = new ArrayList<>();
+      final Object[] all = values.toArray();
+      for (int start = 0; start < all.length; start += MAX_BATCH_SIZE) {
+         final int count = Math.min(MAX_BATCH_SIZE, all.length - start);
+         final int padded = Math.min(MAX_BATCH_SIZE, count == 1 ? 1 : Integer.highestOneBit(count - 1) << 1);
+         final Object[] args = new Object[padded];
+         System.arraycopy(all, start, args, 0, count);
+         for (int i = count; i < padded; i++) {
+            args[i] = all[start + count - 1];
+         }
+
+         final StringBuilder clause = new StringBuilder(column.length() + 12 + 2 * padded).append("WHERE ").append(column).append(" IN (");
+         for (int i = 0; i < padded; i++) {
+            clause.append(i == 0 ? "?" : ",?");
+         }
+         loaded.addAll(OrmReader.listFromClause(connection, clazz, clause.append(')').toString(), this, args));
+      }
+      return loaded;
+   }
+
+   /**
+    * Remember mapped entities by their id, before their relationships are resolved, so that references
+    * between the entities of several lists do not load them again.
+    *
+    * @param introspected the introspected class of the entities
+    * @param list the entities
+    */
+   void remember(final Introspected introspected, final List<?> list)
+   {
+      for (Object entity : list) {
+         remember(introspected, entity);
+      }
+   }
+
+   /**
+    * Remember an entity by its id.
+    *
+    * @return the entity, or the instance loaded before with the same id
+    */
+   private Object remember(final Introspected introspected, final Object entity)
+   {
+      final Object[] ids = introspected.getActualIds(entity);
+      if (ids == null || ids.length != 1 || ids[0] == null) {
+         return entity;
+      }
+      final Object loaded = getEntities(entity.getClass()).putIfAbsent(key(ids[0]), entity);
+      return loaded != null ? loaded : entity;
+   }
+
+   private Map<Object, Object> getEntities(final Class<?> clazz)
+   {
+      return entities.computeIfAbsent(clazz, c -> new HashMap<>());
+   }
+
+   private static String getSingleIdColumnName(final Introspected introspected)
+   {
+      final String[] idColumnNames = introspected.getIdColumnNames();
+      if (idColumnNames.length != 1) {
+         throw new RuntimeException("@ManyToOne references to " + introspected.getTableName() + " require a single @Id column");
+      }
+      return idColumnNames[0];
+   }
+
+   /**
+    * Normalize an id, so that a foreign key read as an {@code Integer} or a {@code BigDecimal} matches a
+    * {@code long} id.
+    */
+   static Object key(final Object id)
+   {
+      if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+         return ((Number) id).longValue();
+      }
+      else if (id instanceof BigDecimal || id instanceof BigInteger) {
+         try {
+            return (id instanceof BigDecimal ? (BigDecimal) id : new BigDecimal((BigInteger) id)).longValueExact();
+         }
+         catch (ArithmeticException e) {
+            return id;
+         }
+      }
+      return id;
+   }
+
+   /**
+    * The owners of a {@code @OneToMany} collection to load.
+    */
+   private static final class PendingCollection
+   {
+      final Introspected introspected;
+      final OneToManyRelationship relationship;
+      final List<Object> entities;
+
+      PendingCollection(final Introspected introspected, final OneToManyRelationship relationship, final List<Object> entities)
+      {
+         this.introspected = introspected;
+         this.relationship = relationship;
+         this.entities = entities;
+      }
+   }
+
+   /**
+    * The deferred foreign key of a {@code @ManyToOne} field.
+    */
+   private static final class Reference
+   {
+      final Object target;
+      final FieldColumnInfo fcInfo;
+      final Object foreignKey;
+
+      Reference(final Object target, final FieldColumnInfo fcInfo, final Object foreignKey)
+      {
+         this.target = target;
+         this.fcInfo = fcInfo;
+         this.foreignKey = foreignKey;
+      }
+   }
+}
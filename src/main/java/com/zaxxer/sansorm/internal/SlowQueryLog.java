@@ -0,0 +1,205 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.sansorm.Dialect;
+import com.zaxxer.sansorm.QueryEvent;
+import com.zaxxer.sansorm.QueryListener;
+
+/**
+ * Logs the statements that take longer than a threshold, with a summary of their bind arguments.  When
+ * an EXPLAIN {@link DataSource} is configured, the execution plan of a slow statement is obtained on a
+ * separate connection by a background thread, and logged with the statement.  At most one statement is
+ * explained per {@code com.zaxxer.sansorm.explainInterval} milliseconds (default 10000); slow statements
+ * in between are logged without their plan.
+ */
+public final class SlowQueryLog implements QueryListener
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+   private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("com.zaxxer.sansorm.explainInterval", 10_000L));
+   private static final int MAX_ARGUMENTS = 10;
+   private static final int MAX_ARGUMENT_LENGTH = 32;
+   private static final int MAX_PLAN_LINES = 100;
+
+   private final long thresholdNanos;
+   private final DataSource explainDataSource;
+   private final Consumer<String> sink;
+   private final AtomicLong nextExplainNanos;
+   private final ThreadPoolExecutor explainExecutor;
+
+   /**
+    * Create a slow query log.
+    *
+    * @param thresholdNanos the elapsed time from which a statement is logged
+    * @param explainDataSource the {@link DataSource} to explain slow statements with, or {@code null}
+    */
+   public SlowQueryLog(final long thresholdNanos, final DataSource explainDataSource)
+   {
+      this(thresholdNanos, explainDataSource, LOGGER::warn);
+   }
+
+   SlowQueryLog(final long thresholdNanos, final DataSource explainDataSource, final Consumer<String> sink)
+   {
+      this.thresholdNanos = thresholdNanos;
+      this.explainDataSource = explainDataSource;
+      this.sink = sink;
+      this.nextExplainNanos = new AtomicLong(System.nanoTime());
+      if (explainDataSource != null) {
+         explainExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(4), runnable -> {
+            final Thread thread = new Thread(runnable, "SansOrm EXPLAIN");
+            thread.setDaemon(true);
+            return thread;
+         });
+         explainExecutor.allowCoreThreadTimeOut(true);
+      }
+      else {
+         explainExecutor = null;
+      }
+   }
+
+   @Override
+   public void afterQuery(final QueryEvent event)
+   {
+      if (event.getElapsedNanos() < thresholdNanos) {
+         return;
+      }
+
+      final String message = String.format("Slow %s%s took %,d ms (%s rows%s): %s; arguments %s", event.getOperation(),
+         event.getEntityClass() != null ? " of " + event.getEntityClass().getSimpleName() : "", TimeUnit.NANOSECONDS.toMillis(event.getElapsedNanos()),
+         event.getRowCount() >= 0 ? event.getRowCount() : "?", event.getException() != null ? ", failed" : "", event.getSql(),
+         summarize(event.getArguments(), event.getParameterCount()));
+
+      final String sql = event.getSql();
+      final Object[] args = event.getArguments();
+      final boolean explainable = sql != null && (args != null || event.getParameterCount() == 0);
+      if (explainExecutor == null || !explainable || !tryAcquireExplain()) {
+         sink.accept(message);
+         return;
+      }
+
+      // the arguments belong to the caller, which may reuse them once the query returns
+      final Object[] copy = (args != null ? args.clone() : new Object[0]);
+      try {
+         explainExecutor.execute(() -> sink.accept(message + "\n" + explain(sql, copy)));
+      }
+      catch (RejectedExecutionException e) {
+         sink.accept(message);
+      }
+   }
+
+   /**
+    * Stop the EXPLAIN thread.  Statements already queued are not explained.
+    */
+   public void shutdown()
+   {
+      if (explainExecutor != null) {
+         explainExecutor.shutdownNow();
+      }
+   }
+
+   private boolean tryAcquireExplain()
+   {
+      final long now = System.nanoTime();
+      final long next = nextExplainNanos.get();
+      return now - next >= 0 && nextExplainNanos.compareAndSet(next, now + EXPLAIN_INTERVAL_NANOS);
+   }
+
+   private String explain(final String sql, final Object[] args)
+   {
+      try (final Connection connection = explainDataSource.getConnection()) {
+         final String explainSql = Dialect.of(connection).explain(sql);
+         if (explainSql == null) {
+            return "No EXPLAIN available for " + connection.getMetaData().getDatabaseProductName();
+         }
+
+         try (final PreparedStatement stmt = connection.prepareStatement(explainSql)) {
+            OrmBase.populateStatementParameters(stmt, args);
+            try (final ResultSet resultSet = stmt.executeQuery()) {
+               final int columnCount = resultSet.getMetaData().getColumnCount();
+               final StringBuilder plan = new StringBuilder("Plan:");
+               for (int line = 0; resultSet.next(); line++) {
+                  if (line == MAX_PLAN_LINES) {
+                     plan.append("\n...");
+                     break;
+                  }
+                  plan.append('\n');
+                  for (int column = 1; column <= columnCount; column++) {
+                     plan.append(column > 1 ? "\t" : "").append(resultSet.getString(column));
+                  }
+               }
+               return plan.toString();
+            }
+         }
+      }
+      catch (SQLException | RuntimeException e) {
+         return "EXPLAIN failed: " + e;
+      }
+   }
+
+   static String summarize(final Object[] args, final int parameterCount)
+   {
+      if (args == null) {
+         return "(" + parameterCount + " per row)";
+      }
+
+      final StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < args.length && i < MAX_ARGUMENTS; i++) {
+         sb.append(i > 0 ? ", " : "").append(summarize(args[i]));
+      }
+      if (args.length > MAX_ARGUMENTS) {
+         sb.append(", ... ").append(args.length - MAX_ARGUMENTS).append(" more");
+      }
+      return sb.append(']').toString();
+   }
+
+   private static String summarize(final Object arg)
+   {
+      if (arg == null) {
+         return "null";
+      }
+      else if (arg instanceof byte[]) {
+         return "byte[" + ((byte[]) arg).length + "]";
+      }
+      else if (arg instanceof InputStream || arg instanceof Reader || arg instanceof Blob || arg instanceof Clob) {
+         return arg.getClass().getSimpleName();
+      }
+
+      final String value = String.valueOf(arg);
+      final String truncated = (value.length() > MAX_ARGUMENT_LENGTH ? value.substring(0, MAX_ARGUMENT_LENGTH) + "...(" + value.length() + ")" : value);
+      return arg instanceof CharSequence ? "'" + truncated + "'" : truncated;
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SQL caches shared by {@link OrmReader} and {@link OrmWriter}.
+ */
+public final class SqlCaches
+{
+   /** SELECT statements by entity class name and clause. */
+   static final BoundedCache<String, String> SELECT = new BoundedCache<>("select");
+
+   /** INSERT statements by entity. */
+   static final BoundedCache<Introspected, String> INSERT = new BoundedCache<>("insert");
+
+   /** UPDATE statements by entity. */
+   static final BoundedCache<Introspected, String> UPDATE = new BoundedCache<>("update");
+
+   /** Selected column lists by entity class name and table alias. */
+   static final BoundedCache<String, String> COLUMNS = new BoundedCache<>("columns");
+
+   /** SQL fingerprints by SQL. */
+   static final BoundedCache<String, String> FINGERPRINT = new BoundedCache<>("fingerprint");
+
+   private static final List<BoundedCache<?, ?>> CACHES = Collections.unmodifiableList(Arrays.asList(SELECT, INSERT, UPDATE, COLUMNS, FINGERPRINT));
+
+   private SqlCaches()
+   {
+      // private constructor
+   }
+
+   public static List<BoundedCache<?, ?>> getCaches()
+   {
+      return CACHES;
+   }
+}
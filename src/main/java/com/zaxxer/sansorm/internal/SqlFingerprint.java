@@ -0,0 +1,133 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.internal;
+
+/**
+ * Normalizes SQL into a fingerprint that identifies the statement independently of its literal values:
+ * string and numeric literals are replaced by {@code ?}, lists of parameters such as {@code IN (?, ?, ?)}
+ * are collapsed to {@code (?)}, and whitespace is collapsed to single spaces.  Identifiers and keywords
+ * are left untouched.
+ */
+public final class SqlFingerprint
+{
+   private SqlFingerprint()
+   {
+      // private constructor
+   }
+
+   /**
+    * Get the fingerprint of the specified SQL.
+    *
+    * @param sql the SQL, may be {@code null}
+    * @return the fingerprint, or {@code null} if the SQL is {@code null}
+    */
+   public static String of(final String sql)
+   {
+      if (sql == null) {
+         return null;
+      }
+
+      final int length = sql.length();
+      final StringBuilder sb = new StringBuilder(length);
+      int i = 0;
+      while (i < length) {
+         final char c = sql.charAt(i);
+         if (Character.isWhitespace(c)) {
+            while (i < length && Character.isWhitespace(sql.charAt(i))) {
+               i++;
+            }
+            if (sb.length() > 0 && i < length) {
+               sb.append(' ');
+            }
+         }
+         else if (c == '\'') {
+            // string literal, '' is an escaped quote
+            i++;
+            while (i < length) {
+               if (sql.charAt(i++) == '\'') {
+                  if (i < length && sql.charAt(i) == '\'') {
+                     i++;
+                  }
+                  else {
+                     break;
+                  }
+               }
+            }
+            appendParameter(sb);
+         }
+         else if (c == '"') {
+            // quoted identifier, kept as is
+            final int end = sql.indexOf('"', i + 1);
+            final int next = end < 0 ? length : end + 1;
+            sb.append(sql, i, next);
+            i = next;
+         }
+         else if (isNumberStart(sql, i) && !isIdentifierPart(sb)) {
+            i++;
+            while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+               i++;
+            }
+            appendParameter(sb);
+         }
+         else if (c == '?') {
+            i++;
+            appendParameter(sb);
+         }
+         else {
+            sb.append(c);
+            i++;
+         }
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Append a parameter, collapsing a parenthesized, comma separated list of parameters into one.
+    */
+   private static void appendParameter(final StringBuilder sb)
+   {
+      final int end = sb.length();
+      if (end >= 3 && sb.charAt(end - 1) == ' ' && sb.charAt(end - 2) == ',' && sb.charAt(end - 3) == '?') {
+         sb.setLength(end - 2);
+      }
+      else if (end >= 2 && sb.charAt(end - 1) == ',' && sb.charAt(end - 2) == '?') {
+         sb.setLength(end - 1);
+      }
+      else {
+         sb.append('?');
+      }
+   }
+
+   private static boolean isNumberStart(final String sql, final int index)
+   {
+      final char c = sql.charAt(index);
+      if (Character.isDigit(c)) {
+         return true;
+      }
+      return (c == '-' || c == '.') && index + 1 < sql.length() && Character.isDigit(sql.charAt(index + 1))
+         && (c == '.' || index == 0 || "(,=<> ".indexOf(sql.charAt(index - 1)) >= 0);
+   }
+
+   private static boolean isIdentifierPart(final StringBuilder sb)
+   {
+      if (sb.length() == 0) {
+         return false;
+      }
+      final char previous = sb.charAt(sb.length() - 1);
+      return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+   }
+}
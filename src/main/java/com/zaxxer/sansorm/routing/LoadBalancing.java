@@ -0,0 +1,29 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.routing;
+
+/**
+ * The strategies a {@link ReplicaRoutingDataSource} can use to choose a replica.
+ */
+public enum LoadBalancing
+{
+   /** Hand out replicas in turn. */
+   ROUND_ROBIN,
+
+   /** Hand out the replica with the fewest connections currently borrowed through the routing layer. */
+   LEAST_OUTSTANDING
+}
@@ -0,0 +1,288 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.routing;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A {@link DataSource} that routes read-only work to a set of replicas.
+ * <p>
+ * {@link #getConnection()} always returns a connection to the primary, so every existing use of the
+ * DataSource keeps writing to the primary.  Only {@link com.zaxxer.sansorm.SqlClosure}s in
+ * {@link com.zaxxer.sansorm.SqlClosure#readOnly() read-only} mode that are not part of an active
+ * transaction obtain their connection through {@link #getReadOnlyConnection()}.
+ */
+public class ReplicaRoutingDataSource implements DataSource
+{
+   private final DataSource primary;
+   private final DataSource[] replicas;
+   private final LoadBalancing balancing;
+   private final AtomicInteger[] outstanding;
+   private final AtomicInteger sequence;
+
+   /**
+    * Construct a routing DataSource using {@link LoadBalancing#ROUND_ROBIN} balancing.
+    *
+    * @param primary the primary (read-write) DataSource
+    * @param replicas the replica (read-only) DataSources, possibly none
+    */
+   public ReplicaRoutingDataSource(final DataSource primary, final DataSource... replicas)
+   {
+      this(primary, LoadBalancing.ROUND_ROBIN, replicas);
+   }
+
+   /**
+    * Construct a routing DataSource.
+    *
+    * @param primary the primary (read-write) DataSource
+    * @param balancing the strategy used to choose a replica
+    * @param replicas the replica (read-only) DataSources, possibly none
+    */
+   public ReplicaRoutingDataSource(final DataSource primary, final LoadBalancing balancing, final DataSource... replicas)
+   {
+      if (primary == null) {
+         throw new IllegalArgumentException("A primary DataSource is required");
+      }
+
+      this.primary = primary;
+      this.replicas = replicas.clone();
+      this.balancing = balancing;
+      this.sequence = new AtomicInteger();
+      this.outstanding = new AtomicInteger[replicas.length];
+      for (int i = 0; i < outstanding.length; i++) {
+         outstanding[i] = new AtomicInteger();
+      }
+   }
+
+   public DataSource getPrimary()
+   {
+      return primary;
+   }
+
+   public boolean hasReplicas()
+   {
+      return replicas.length > 0;
+   }
+
+   /**
+    * Get a read-only connection to one of the replicas, chosen according to the configured
+    * {@link LoadBalancing}.  If the chosen replica cannot provide a connection the remaining replicas
+    * are tried in turn.  If there are no replicas, a connection to the primary is returned, and its
+    * read-only flag is left untouched.
+    *
+    * @return a connection
+    * @throws SQLException if no replica could provide a connection
+    */
+   public Connection getReadOnlyConnection() throws SQLException
+   {
+      if (replicas.length == 0) {
+         return primary.getConnection();
+      }
+
+      final int first = chooseReplica();
+      SQLException failure = null;
+      for (int i = 0; i < replicas.length; i++) {
+         final int index = (first + i) % replicas.length;
+         Connection connection = null;
+         try {
+            connection = acquire(index);
+            connection.setReadOnly(true);
+            return connection;
+         }
+         catch (SQLException e) {
+            if (connection != null) {
+               // closing also releases the LEAST_OUTSTANDING count of the replica
+               closeQuietly(connection, e);
+            }
+            if (failure == null) {
+               failure = e;
+            }
+            else {
+               failure.addSuppressed(e);
+            }
+         }
+      }
+      throw failure;
+   }
+
+   /**
+    * Get the number of connections currently borrowed from the specified replica.  Only tracked for
+    * {@link LoadBalancing#LEAST_OUTSTANDING}.
+    *
+    * @param replica the index of the replica
+    * @return the number of outstanding connections
+    */
+   public int getOutstanding(final int replica)
+   {
+      return outstanding[replica].get();
+   }
+
+   private static void closeQuietly(final Connection connection, final SQLException failure)
+   {
+      try {
+         connection.close();
+      }
+      catch (SQLException e) {
+         failure.addSuppressed(e);
+      }
+   }
+
+   private int chooseReplica()
+   {
+      // mask the sign bit so the sequence can wrap around safely
+      final int start = (sequence.getAndIncrement() & Integer.MAX_VALUE) % replicas.length;
+      if (balancing != LoadBalancing.LEAST_OUTSTANDING) {
+         return start;
+      }
+
+      // start the scan at a rotating position so ties are broken round-robin
+      int chosen = start;
+      int least = Integer.MAX_VALUE;
+      for (int i = 0; i < replicas.length; i++) {
+         final int index = (start + i) % replicas.length;
+         final int count = outstanding[index].get();
+         if (count < least) {
+            least = count;
+            chosen = index;
+         }
+      }
+      return chosen;
+   }
+
+   private Connection acquire(final int index) throws SQLException
+   {
+      if (balancing != LoadBalancing.LEAST_OUTSTANDING) {
+         return replicas[index].getConnection();
+      }
+
+      final AtomicInteger counter = outstanding[index];
+      counter.incrementAndGet();
+      try {
+         return OutstandingConnectionProxy.wrapConnection(replicas[index].getConnection(), counter);
+      }
+      catch (SQLException | RuntimeException e) {
+         counter.decrementAndGet();
+         throw e;
+      }
+   }
+
+   // ------------------------------------------------------------------------
+   //                      DataSource Interface Methods
+   // ------------------------------------------------------------------------
+
+   @Override
+   public Connection getConnection() throws SQLException
+   {
+      return primary.getConnection();
+   }
+
+   @Override
+   public Connection getConnection(final String username, final String password) throws SQLException
+   {
+      return primary.getConnection(username, password);
+   }
+
+   @Override
+   public PrintWriter getLogWriter() throws SQLException
+   {
+      return primary.getLogWriter();
+   }
+
+   @Override
+   public void setLogWriter(final PrintWriter out) throws SQLException
+   {
+      primary.setLogWriter(out);
+   }
+
+   @Override
+   public void setLoginTimeout(final int seconds) throws SQLException
+   {
+      primary.setLoginTimeout(seconds);
+   }
+
+   @Override
+   public int getLoginTimeout() throws SQLException
+   {
+      return primary.getLoginTimeout();
+   }
+
+   @Override
+   public Logger getParentLogger() throws SQLFeatureNotSupportedException
+   {
+      return primary.getParentLogger();
+   }
+
+   @Override
+   public <T> T unwrap(final Class<T> iface) throws SQLException
+   {
+      return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+   }
+
+   @Override
+   public boolean isWrapperFor(final Class<?> iface) throws SQLException
+   {
+      return iface.isInstance(this) || primary.isWrapperFor(iface);
+   }
+
+   /**
+    * Decrements the outstanding counter of a replica exactly once, when the connection is closed.
+    */
+   private static final class OutstandingConnectionProxy implements InvocationHandler
+   {
+      private final Connection delegate;
+      private AtomicInteger counter;
+
+      private OutstandingConnectionProxy(final Connection delegate, final AtomicInteger counter)
+      {
+         this.delegate = delegate;
+         this.counter = counter;
+      }
+
+      static Connection wrapConnection(final Connection delegate, final AtomicInteger counter)
+      {
+         final OutstandingConnectionProxy handler = new OutstandingConnectionProxy(delegate, counter);
+         return (Connection) Proxy.newProxyInstance(OutstandingConnectionProxy.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+      }
+
+      @Override
+      public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+      {
+         if ("close".equals(method.getName()) && counter != null) {
+            counter.decrementAndGet();
+            counter = null;
+         }
+
+         try {
+            return method.invoke(delegate, args);
+         }
+         catch (InvocationTargetException e) {
+            throw e.getCause();
+         }
+      }
+   }
+}
@@ -0,0 +1,110 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.routing;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * An explicit shard key, used instead of the id tuple of an entity, e.g. when inserting an entity
+ * whose id is generated by the database, or when rows are co-located by a parent key.
+ */
+public final class ShardKey
+{
+   private final Object[] values;
+
+   private ShardKey(final Object[] values)
+   {
+      this.values = values;
+   }
+
+   /**
+    * Create a shard key.  Integral values are normalized as for an id tuple, see {@link #normalize(Object[])}.
+    *
+    * @param values the key values, none of which may be {@code null}
+    * @return a shard key
+    */
+   public static ShardKey of(final Object... values)
+   {
+      if (values.length == 0) {
+         throw new IllegalArgumentException("A shard key requires at least one value");
+      }
+      for (Object value : values) {
+         if (value == null) {
+            throw new IllegalArgumentException("Shard key values must not be null");
+         }
+      }
+      return new ShardKey(normalize(values));
+   }
+
+   Object[] getValues()
+   {
+      return values;
+   }
+
+   /**
+    * Normalize key values, so that an id read as an {@code Integer} or a {@code BigDecimal} resolves to
+    * the same shard as a {@code long} id: integral numbers and exact {@code BigDecimal} and
+    * {@code BigInteger} values in the {@code long} range become {@code Long}.
+    *
+    * @param values the key values
+    * @return a normalized copy of the values
+    */
+   static Object[] normalize(final Object[] values)
+   {
+      final Object[] normalized = new Object[values.length];
+      for (int i = 0; i < values.length; i++) {
+         normalized[i] = normalize(values[i]);
+      }
+      return normalized;
+   }
+
+   private static Object normalize(final Object value)
+   {
+      if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+         return ((Number) value).longValue();
+      }
+      else if (value instanceof BigDecimal || value instanceof BigInteger) {
+         try {
+            return (value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal((BigInteger) value)).longValueExact();
+         }
+         catch (ArithmeticException e) {
+            return value;
+         }
+      }
+      return value;
+   }
+
+   @Override
+   public boolean equals(final Object o)
+   {
+      return o instanceof ShardKey && Arrays.equals(values, ((ShardKey) o).values);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return Arrays.hashCode(values);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ShardKey" + Arrays.toString(values);
+   }
+}
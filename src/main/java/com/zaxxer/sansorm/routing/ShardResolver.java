@@ -0,0 +1,44 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.routing;
+
+import java.util.Arrays;
+
+/**
+ * A {@code ShardResolver} maps the key of an entity to the shard holding it.  The key is either the
+ * id tuple of the entity (the values of its {@code @Id} fields, in declaration order) or an explicit
+ * {@link ShardKey}.  Implementations must be deterministic and thread-safe.
+ */
+@FunctionalInterface
+public interface ShardResolver
+{
+   /**
+    * Resolves the shard by the hash of the key values, i.e. {@code floorMod(Arrays.hashCode(key), shardCount)}.
+    */
+   ShardResolver HASH = (entityClass, key, shardCount) -> Math.floorMod(Arrays.hashCode(key), shardCount);
+
+   /**
+    * Resolve the shard for the specified key.
+    *
+    * @param entityClass the class of the entity being read or written
+    * @param key the id tuple or the values of an explicit {@link ShardKey}, never containing {@code null}, with
+    *        integral numbers normalized to {@code Long} so that an {@code int} and a {@code long} id agree
+    * @param shardCount the number of shards
+    * @return the index of the shard, between 0 (inclusive) and {@code shardCount} (exclusive)
+    */
+   int resolveShard(Class<?> entityClass, Object[] key, int shardCount);
+}
@@ -0,0 +1,207 @@
+/*
+ Copyright 2018, Brett Wooldridge
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package com.zaxxer.sansorm.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.sansorm.Dialect;
+
+/**
+ * A set of identical databases ("shards") that together hold the rows of the sharded tables.  Single
+ * entity operations are routed to one shard by a {@link ShardResolver}; queries can be scattered over
+ * all shards in parallel and their results gathered.
+ * <p>
+ * Register an instance through {@link com.zaxxer.sansorm.SansOrm#initializeShards(ShardedDataSources)}
+ * to have {@link com.zaxxer.sansorm.SqlClosureElf} route by entity key.
+ */
+public class ShardedDataSources
+{
+   private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+   private final DataSource[] shards;
+   private final ShardResolver resolver;
+   private final ExecutorService executor;
+   private volatile Dialect dialect;
+
+   /**
+    * Construct a shard set that scatters queries using a cached pool of daemon threads.
+    *
+    * @param resolver the resolver mapping entity keys to shards
+    * @param shards the shard DataSources, the order is significant to the resolver
+    */
+   public ShardedDataSources(final ShardResolver resolver, final DataSource... shards)
+   {
+      this(resolver, newDaemonExecutor(), shards);
+   }
+
+   /**
+    * Construct a shard set.
+    *
+    * @param resolver the resolver mapping entity keys to shards
+    * @param executor the executor used to run scattered queries in parallel
+    * @param shards the shard DataSources, the order is significant to the resolver
+    */
+   public ShardedDataSources(final ShardResolver resolver, final ExecutorService executor, final DataSource... shards)
+   {
+      if (shards.length == 0) {
+         throw new IllegalArgumentException("At least one shard is required");
+      }
+
+      this.resolver = resolver;
+      this.executor = executor;
+      this.shards = shards.clone();
+   }
+
+   public int getShardCount()
+   {
+      return shards.length;
+   }
+
+   public DataSource getShard(final int index)
+   {
+      return shards[index];
+   }
+
+   /**
+    * Get the dialect of the shards, determined from a connection to the first shard on the first call.
+    *
+    * @return the dialect of the shards
+    */
+   public Dialect getDialect()
+   {
+      Dialect result = dialect;
+      if (result == null) {
+         try (Connection connection = shards[0].getConnection()) {
+            result = Dialect.of(connection);
+         }
+         catch (SQLException e) {
+            throw new RuntimeException(e);
+         }
+         dialect = result;
+      }
+      return result;
+   }
+
+   /**
+    * Get the shard holding the entity with the specified explicit key.
+    *
+    * @param entityClass the class of the entity
+    * @param key the explicit shard key
+    * @return the shard DataSource
+    */
+   public DataSource resolve(final Class<?> entityClass, final ShardKey key)
+   {
+      return shards[checkIndex(resolver.resolveShard(entityClass, key.getValues(), shards.length))];
+   }
+
+   /**
+    * Get the shard holding the entity with the specified id tuple.
+    *
+    * @param entityClass the class of the entity
+    * @param ids the id tuple of the entity
+    * @return the shard DataSource
+    * @throws IllegalStateException if the id tuple is missing or incomplete, e.g. because the id is
+    *         generated by the database and the entity has not been inserted yet
+    */
+   public DataSource resolve(final Class<?> entityClass, final Object[] ids)
+   {
+      if (ids == null || ids.length == 0) {
+         throw new IllegalStateException("Cannot resolve the shard of " + entityClass.getName() + " without an id, use an explicit ShardKey");
+      }
+      for (Object id : ids) {
+         if (id == null) {
+            throw new IllegalStateException("Cannot resolve the shard of " + entityClass.getName() + " from an incomplete id, use an explicit ShardKey");
+         }
+      }
+      return shards[checkIndex(resolver.resolveShard(entityClass, ShardKey.normalize(ids), shards.length))];
+   }
+
+   /**
+    * Execute the specified task against every shard in parallel, and return the results in shard order.
+    * Every task runs on the executor, so that all shards are queried under the same conditions (e.g. thread
+    * bound state) while the calling thread waits.  If any task fails, the remaining tasks are cancelled and
+    * the failure is rethrown.
+    *
+    * @param task the task, receiving the shard DataSource
+    * @param <V> the result type of the task
+    * @return the results, indexed by shard
+    */
+   public <V> List<V> scatter(final Function<DataSource, V> task)
+   {
+      final List<Future<V>> futures = new ArrayList<>(shards.length);
+      try {
+         for (DataSource shard : shards) {
+            futures.add(executor.submit(() -> task.apply(shard)));
+         }
+
+         final List<V> results = new ArrayList<>(shards.length);
+         for (Future<V> future : futures) {
+            results.add(future.get());
+         }
+         return results;
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("Interrupted while waiting for shard results", e);
+      }
+      catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new RuntimeException(cause);
+      }
+      finally {
+         for (Future<V> future : futures) {
+            future.cancel(true);
+         }
+      }
+   }
+
+   private int checkIndex(final int index)
+   {
+      if (index < 0 || index >= shards.length) {
+         throw new IllegalStateException("ShardResolver returned shard " + index + ", but there are only " + shards.length + " shards");
+      }
+      return index;
+   }
+
+   private static ExecutorService newDaemonExecutor()
+   {
+      final int pool = POOL_SEQUENCE.incrementAndGet();
+      final AtomicInteger threadSequence = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+         final Thread thread = new Thread(runnable, "SansOrm shard-" + pool + "-" + threadSequence.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+}
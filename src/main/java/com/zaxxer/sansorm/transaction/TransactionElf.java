@@ -60,6 +60,22 @@ public final class TransactionElf
       return transactionManager != null;
    }
 
+   /**
+    * Returns true if a JTA transaction manager is registered and the current thread
+    * is associated with a transaction, false otherwise.
+    *
+    * @return true if a transaction is in progress on the current thread
+    */
+   public static boolean hasActiveTransaction()
+   {
+      try {
+         return transactionManager != null && userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION;
+      }
+      catch (SystemException e) {
+         throw new RuntimeException("Unable to determine transaction status.", e);
+      }
+   }
+
    /**
     * Start or join a transaction.
     *
@@ -29,11 +29,15 @@ import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.xa.XAResource;
 
+import com.zaxxer.sansorm.internal.JfrEvents;
+import com.zaxxer.sansorm.internal.NPlusOneDetector;
+
 public class TxTransaction implements Transaction
 {
    private final ArrayList<Synchronization> synchronizations;
    private volatile Connection connection;
    private volatile int status;
+   private NPlusOneDetector.Scope detectorScope;
 
    TxTransaction() {
       status = Status.STATUS_NO_TRANSACTION;
@@ -61,9 +65,12 @@ public class TxTransaction implements Transaction
       }
 
       if (connection != null && status == Status.STATUS_ACTIVE) {
+         final Object jfrEvent = JfrEvents.beginTransactionEnd();
+         boolean failed = true;
          try {
                synchronizations.forEach(Synchronization::beforeCompletion);
                connection.commit();
+               failed = false;
                synchronizations.forEach(s -> s.afterCompletion(Status.STATUS_COMMITTED));
          }
          catch (SQLException e) {
@@ -72,6 +79,7 @@ public class TxTransaction implements Transaction
             throw systemException;
          }
          finally {
+            JfrEvents.commitTransactionEnd(jfrEvent, true, failed);
             cleanup();
          }
       }
@@ -81,8 +89,11 @@ public class TxTransaction implements Transaction
    public void rollback() throws IllegalStateException, SystemException
    {
       if (connection != null && status == Status.STATUS_ACTIVE) {
+         final Object jfrEvent = JfrEvents.beginTransactionEnd();
+         boolean failed = true;
          try {
             connection.rollback();
+            failed = false;
          }
          catch (SQLException e) {
             final SystemException systemException = new SystemException("Exception committing connection " + connection.toString());
@@ -90,6 +101,7 @@ public class TxTransaction implements Transaction
             throw systemException;
          }
          finally {
+            JfrEvents.commitTransactionEnd(jfrEvent, false, failed);
             cleanup();
          }
       }
@@ -142,6 +154,16 @@ public class TxTransaction implements Transaction
       this.connection = connection;
    }
 
+   NPlusOneDetector.Scope getDetectorScope()
+   {
+      return detectorScope;
+   }
+
+   void setDetectorScope(final NPlusOneDetector.Scope detectorScope)
+   {
+      this.detectorScope = detectorScope;
+   }
+
    private void cleanup()
    {
       try {
@@ -28,6 +28,8 @@ import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.UserTransaction;
 
+import com.zaxxer.sansorm.internal.NPlusOneDetector;
+
 public class TxTransactionManager implements TransactionManager, UserTransaction
 {
    private final DataSource dataSource;
@@ -47,6 +49,7 @@ public class TxTransactionManager implements TransactionManager, UserTransaction
 
       final TxTransaction newTransaction = new TxTransaction();
       newTransaction.setActive();
+      newTransaction.setDetectorScope(NPlusOneDetector.open());
       context.setTransaction(newTransaction);
    }
 
@@ -58,7 +61,12 @@ public class TxTransactionManager implements TransactionManager, UserTransaction
       final TxTransaction currentTx = threadContext.getTransaction();
       if (currentTx != null) {
          threadContext.clearTransaction();
-         currentTx.commit();
+         try {
+            currentTx.commit();
+         }
+         finally {
+            NPlusOneDetector.close(currentTx.getDetectorScope());
+         }
       }
       else {
          throw new IllegalStateException("TransactionManager.commit() called from a thread that never joined a transaction");
@@ -86,7 +94,12 @@ public class TxTransactionManager implements TransactionManager, UserTransaction
       final TxTransaction currentTx = threadContext.getTransaction();
       if (currentTx != null) {
          threadContext.clearTransaction();
-         currentTx.rollback();
+         try {
+            currentTx.rollback();
+         }
+         finally {
+            NPlusOneDetector.close(currentTx.getDetectorScope());
+         }
       }
       else {
          throw new IllegalStateException("TransactionManager.rollback() called from a thread that never joined a transaction");
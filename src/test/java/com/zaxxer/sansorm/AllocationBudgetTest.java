@@ -0,0 +1,282 @@
+package com.zaxxer.sansorm;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.testutils.DummyConnection;
+import org.sansorm.testutils.DummyParameterMetaData;
+import org.sansorm.testutils.DummyResultSet;
+import org.sansorm.testutils.DummyResultSetMetaData;
+import org.sansorm.testutils.DummyStatement;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when the bytes allocated by the core read/write paths exceed the budgets checked in to
+ * {@code allocation-budgets.properties}.  The paths run against in-memory JDBC stubs, so only the
+ * allocations of SansOrm itself are measured.  When a change legitimately lowers or raises the
+ * allocation profile, update the budgets from the measured values in the failure message.  A budget
+ * suffixed with the major Java version, e.g. {@code .java8}, overrides the default budget on that version,
+ * since the JDK classes SansOrm calls allocate differently from one version to the next.
+ */
+public class AllocationBudgetTest
+{
+   private static final int ROWS = 100;
+   private static final int WARMUP = 20_000;
+   private static final int ITERATIONS = 2_000;
+
+   private static com.sun.management.ThreadMXBean threadMXBean;
+   private static Properties budgets;
+
+   @Table(name = "budget_item")
+   public static class BudgetItem
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "name")
+      String name;
+
+      @Column(name = "quantity")
+      Integer quantity;
+
+      @Column(name = "created")
+      Timestamp created;
+   }
+
+   @BeforeClass
+   public static void setUpClass() throws IOException
+   {
+      final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      Assume.assumeTrue("Thread allocation accounting is not available on this JVM",
+         bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+      threadMXBean = (com.sun.management.ThreadMXBean) bean;
+      threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+      budgets = new Properties();
+      try (InputStream is = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+         budgets.load(is);
+      }
+   }
+
+   @Test
+   public void resultSetToListPerRow() throws SQLException
+   {
+      final RowsResultSet resultSet = new RowsResultSet(ROWS);
+      final double bytes = measure(() -> {
+         final List<BudgetItem> items = OrmElf.resultSetToList(resultSet.rewind(), BudgetItem.class);
+         return items.size();
+      }) / ROWS;
+      assertWithinBudget("resultSetToList.bytesPerRow", bytes);
+   }
+
+   @Test
+   public void listFromClausePerCall() throws SQLException
+   {
+      final StubConnection connection = new StubConnection(new RowsResultSet(0));
+      final double bytes = measure(() -> OrmElf.listFromClause(connection, BudgetItem.class, "name = ?", "x").size());
+      assertWithinBudget("listFromClause.bytesPerCall", bytes);
+   }
+
+   @Test
+   public void insertObjectPerInsert() throws SQLException
+   {
+      final StubConnection connection = new StubConnection(null);
+      final BudgetItem item = newItem(1);
+      final double bytes = measure(() -> OrmElf.insertObject(connection, item).id);
+      assertWithinBudget("insertObject.bytesPerInsert", bytes);
+   }
+
+   @Test
+   public void updateObjectExcludingPerUpdate() throws SQLException
+   {
+      final StubConnection connection = new StubConnection(null);
+      final BudgetItem item = newItem(1);
+      final double bytes = measure(() -> OrmElf.updateObject(connection, item, "created").id);
+      assertWithinBudget("updateObjectExcluding.bytesPerUpdate", bytes);
+   }
+
+   private static double measure(final SqlOperation operation) throws SQLException
+   {
+      final long threadId = Thread.currentThread().getId();
+      long sink = 0;
+      for (int i = 0; i < WARMUP; i++) {
+         sink += operation.run();
+      }
+
+      final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < ITERATIONS; i++) {
+         sink += operation.run();
+      }
+      final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+      assertThat(sink).isNotNegative();
+      return allocated / (double) ITERATIONS;
+   }
+
+   private static void assertWithinBudget(final String key, final double measured)
+   {
+      final String budget = budgets.getProperty(key + ".java" + javaVersion(), budgets.getProperty(key));
+      assertThat(budget).as("No allocation budget for " + key).isNotNull();
+      assertThat(measured)
+         .as("%s allocated %.0f bytes, exceeding its budget of %s bytes", key, measured, budget)
+         .isLessThanOrEqualTo(Double.parseDouble(budget));
+   }
+
+   private static int javaVersion()
+   {
+      final String version = System.getProperty("java.specification.version");
+      return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+   }
+
+   private static BudgetItem newItem(final int id)
+   {
+      final BudgetItem item = new BudgetItem();
+      item.id = id;
+      item.name = "item" + id;
+      item.quantity = id * 10;
+      item.created = new Timestamp(1_500_000_000_000L + id);
+      return item;
+   }
+
+   @FunctionalInterface
+   private interface SqlOperation
+   {
+      int run() throws SQLException;
+   }
+
+   private static final class RowsResultSet extends DummyResultSet
+   {
+      private static final String[] COLUMNS = { "id", "name", "quantity", "created" };
+
+      private final Object[][] rows;
+      private int cursor = -1;
+      private boolean wasNull;
+
+      RowsResultSet(final int count)
+      {
+         rows = new Object[count][];
+         for (int i = 0; i < count; i++) {
+            rows[i] = new Object[] { i, "item" + i, i * 10, new Timestamp(1_500_000_000_000L + i) };
+         }
+      }
+
+      RowsResultSet rewind()
+      {
+         cursor = -1;
+         return this;
+      }
+
+      @Override
+      public boolean next()
+      {
+         return ++cursor < rows.length;
+      }
+
+      @Override
+      public Object getObject(final int columnIndex)
+      {
+         final Object value = rows[cursor][columnIndex - 1];
+         wasNull = (value == null);
+         return value;
+      }
+
+      @Override
+      public int getInt(final int columnIndex)
+      {
+         final Object value = getObject(columnIndex);
+         return value != null ? ((Number) value).intValue() : 0;
+      }
+
+      @Override
+      public boolean wasNull()
+      {
+         return wasNull;
+      }
+
+      @Override
+      public ResultSetMetaData getMetaData()
+      {
+         return new DummyResultSetMetaData() {
+            @Override
+            public int getColumnCount()
+            {
+               return COLUMNS.length;
+            }
+
+            @Override
+            public String getColumnName(final int column)
+            {
+               return COLUMNS[column - 1];
+            }
+         };
+      }
+   }
+
+   private static final class StubConnection extends DummyConnection
+   {
+      private final RowsResultSet resultSet;
+
+      StubConnection(final RowsResultSet resultSet)
+      {
+         this.resultSet = resultSet;
+      }
+
+      @Override
+      public PreparedStatement prepareStatement(final String sql)
+      {
+         int parameters = 0;
+         for (int i = 0; i < sql.length(); i++) {
+            parameters += (sql.charAt(i) == '?' ? 1 : 0);
+         }
+         final int parameterCount = parameters;
+         return new DummyStatement() {
+            @Override
+            public ParameterMetaData getParameterMetaData()
+            {
+               return new DummyParameterMetaData() {
+                  @Override
+                  public int getParameterCount()
+                  {
+                     return parameterCount;
+                  }
+
+                  @Override
+                  public int getParameterType(final int param)
+                  {
+                     return Types.VARCHAR;
+                  }
+               };
+            }
+
+            @Override
+            public ResultSet executeQuery()
+            {
+               return resultSet.rewind();
+            }
+
+            @Override
+            public int executeUpdate()
+            {
+               return 1;
+            }
+         };
+      }
+   }
+}
@@ -0,0 +1,76 @@
+package com.zaxxer.sansorm;
+
+import com.zaxxer.sansorm.internal.ColumnConverters;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnConverterTest
+{
+   @Table(name = "converter_test")
+   public static class Tagged
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "tags")
+      List<String> tags;
+
+      @Column(name = "score")
+      int score;
+   }
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE converter_test (id INTEGER PRIMARY KEY, tags VARCHAR(64), score VARCHAR(8))");
+      SqlClosureElf.executeUpdate("INSERT INTO converter_test VALUES (1, 'a,b', 'x42')");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE converter_test");
+      SansOrm.deinitialize();
+   }
+
+   @After
+   public void clearConverters()
+   {
+      ColumnConverters.clear();
+   }
+
+   @Test
+   public void shouldApplyRegisteredConverters()
+   {
+      SansOrm.registerColumnConverter(String.class, List.class, value -> Arrays.asList(value.split(",")));
+      SansOrm.registerColumnConverter(CharSequence.class, int.class, value -> Integer.parseInt(value.toString().substring(1)));
+
+      final Tagged tagged = SqlClosureElf.getObjectById(Tagged.class, 1);
+      assertThat(tagged.tags).containsExactly("a", "b");
+      assertThat(tagged.score).as("Converter registered for a superinterface of the column type").isEqualTo(42);
+   }
+
+   @Test
+   public void shouldDiscardConversionsWhenConvertersChange()
+   {
+      SansOrm.registerColumnConverter(String.class, List.class, value -> Arrays.asList(value.split(",")));
+      SansOrm.registerColumnConverter(String.class, int.class, value -> 1);
+      assertThat(SqlClosureElf.getObjectById(Tagged.class, 1).tags).containsExactly("a", "b");
+
+      SansOrm.registerColumnConverter(String.class, List.class, value -> Arrays.asList(value.toUpperCase().split(",")));
+      assertThat(SqlClosureElf.getObjectById(Tagged.class, 1).tags).containsExactly("A", "B");
+   }
+}
@@ -0,0 +1,121 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmbeddedTest
+{
+   @Embeddable
+   public static class ZipCode
+   {
+      @Column(name = "zip")
+      String code;
+
+      int extension;
+   }
+
+   @Embeddable
+   public static class Address
+   {
+      @Column(name = "street")
+      String street;
+
+      @Column(name = "city")
+      String city;
+
+      ZipCode zip;
+   }
+
+   @Table(name = "embedded_test")
+   public static class Customer
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "name")
+      String name;
+
+      @Embedded
+      @AttributeOverride(name = "zip.code", column = @Column(name = "home_zip"))
+      Address home;
+
+      @Embedded
+      @AttributeOverrides({
+         @AttributeOverride(name = "street", column = @Column(name = "work_street")),
+         @AttributeOverride(name = "city", column = @Column(name = "work_city")),
+         @AttributeOverride(name = "zip.code", column = @Column(name = "work_zip")),
+         @AttributeOverride(name = "zip.extension", column = @Column(name = "work_extension"))
+      })
+      Address work;
+   }
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE embedded_test (id INTEGER PRIMARY KEY, name VARCHAR(32), "
+                                    + "street VARCHAR(32), city VARCHAR(32), home_zip VARCHAR(8), extension INTEGER, "
+                                    + "work_street VARCHAR(32), work_city VARCHAR(32), work_zip VARCHAR(8), work_extension INTEGER)");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE embedded_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldFlattenEmbeddedObjects()
+   {
+      final Customer customer = new Customer();
+      customer.id = 1;
+      customer.name = "Ada";
+      customer.home = new Address();
+      customer.home.street = "12 Analytical Way";
+      customer.home.city = "London";
+      customer.home.zip = new ZipCode();
+      customer.home.zip.code = "W1";
+      customer.home.zip.extension = 7;
+      SqlClosureElf.insertObject(customer);
+
+      final Customer loaded = SqlClosureElf.getObjectById(Customer.class, 1);
+      assertThat(loaded.name).isEqualTo("Ada");
+      assertThat(loaded.home.street).isEqualTo("12 Analytical Way");
+      assertThat(loaded.home.city).isEqualTo("London");
+      assertThat(loaded.home.zip.code).isEqualTo("W1");
+      assertThat(loaded.home.zip.extension).isEqualTo(7);
+      assertThat(loaded.work).as("Embedded object with NULL columns").isNull();
+
+      loaded.work = new Address();
+      loaded.work.city = "Cambridge";
+      SqlClosureElf.updateObject(loaded);
+
+      final List<Customer> found = SqlClosureElf.listFromClause(Customer.class, "work_city = ?", "Cambridge");
+      assertThat(found).hasSize(1);
+      assertThat(found.get(0).work.city).isEqualTo("Cambridge");
+      assertThat(found.get(0).work.zip).isNull();
+      assertThat(found.get(0).home.zip.code).isEqualTo("W1");
+   }
+
+   @Test
+   public void shouldMapEmbeddedPropertyPaths()
+   {
+      assertThat(OrmElf.getColumnFromProperty(Customer.class, "work.zip.code")).isEqualTo("work_zip");
+      assertThat(OrmElf.getColumnFromProperty(Customer.class, "home.zip.extension")).isEqualTo("extension");
+   }
+}
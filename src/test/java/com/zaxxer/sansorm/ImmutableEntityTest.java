@@ -0,0 +1,212 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.beans.ConstructorProperties;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImmutableEntityTest
+{
+   @Table(name = "immutable_test")
+   public static class Customer
+   {
+      @Id
+      @GeneratedValue(strategy = GenerationType.IDENTITY)
+      @Column(name = "id")
+      private final Integer id;
+
+      @Column(name = "name")
+      private final String name;
+
+      @Column(name = "visits")
+      private final long visits;
+
+      @Column(name = "note")
+      private String note;
+
+      @ConstructorProperties({ "id", "name", "visits" })
+      public Customer(Integer id, String name, long visits)
+      {
+         this.id = id;
+         this.name = name;
+         this.visits = visits;
+      }
+   }
+
+   @Table(name = "immutable_test")
+   public static class CustomerView
+   {
+      @Id
+      @Column(name = "id")
+      private final int id;
+
+      @Column(name = "name")
+      private final String name;
+
+      @Column(name = "visits")
+      private final int visits;
+
+      CustomerView(int id, String name, int visits)
+      {
+         this.id = id;
+         this.name = name;
+         this.visits = visits;
+      }
+   }
+
+   @Table(name = "immutable_test")
+   public static class Bean
+   {
+      @Id
+      @GeneratedValue(strategy = GenerationType.IDENTITY)
+      @Column(name = "id")
+      Integer id;
+
+      @Column(name = "name")
+      String name;
+
+      public Bean()
+      {
+      }
+
+      @ConstructorProperties({ "name" })
+      public Bean(String name)
+      {
+         this.name = name;
+      }
+   }
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE immutable_test (id INTEGER NOT NULL IDENTITY PRIMARY KEY, name VARCHAR(32), visits BIGINT, note VARCHAR(32))");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE immutable_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldMapConstructorProperties()
+   {
+      final Customer unsaved = new Customer(null, "alice", 3);
+      unsaved.note = "vip";
+      final Customer saved = SqlClosureElf.insertObject(unsaved);
+      assertThat(saved).isNotSameAs(unsaved);
+      assertThat(saved.id).isNotNull();
+      assertThat(saved.note).isEqualTo("vip");
+      assertThat(unsaved.id).isNull();
+
+      final Customer loaded = SqlClosureElf.getObjectById(Customer.class, saved.id);
+      assertThat(loaded.name).isEqualTo("alice");
+      assertThat(loaded.visits).isEqualTo(3);
+      assertThat(loaded.note).isEqualTo("vip");
+
+      SqlClosureElf.updateObject(new Customer(saved.id, "bob", 4));
+      final List<Customer> customers = SqlClosureElf.listFromClause(Customer.class, "id = ?", saved.id);
+      assertThat(customers).extracting(customer -> customer.name).containsExactly("bob");
+
+      final Customer refreshed = SqlClosure.sqlExecute(c -> OrmElf.refresh(c, loaded));
+      assertThat(refreshed).isNotSameAs(loaded);
+      assertThat(refreshed.name).isEqualTo("bob");
+      assertThat(refreshed.note).isNull();
+   }
+
+   @Test
+   public void shouldMapCanonicalConstructor()
+   {
+      SqlClosureElf.executeUpdate("INSERT INTO immutable_test (name) VALUES (?)", "carol");
+
+      final CustomerView view = SqlClosureElf.objectFromClause(CustomerView.class, "name = ?", "carol");
+      assertThat(view.id).isPositive();
+      assertThat(view.name).isEqualTo("carol");
+      assertThat(view.visits).as("NULL is the default of a primitive").isZero();
+   }
+
+   @Test
+   public void shouldReturnCopiesWithGeneratedIdsFromInsertList()
+   {
+      final List<Customer> unsaved = Arrays.asList(new Customer(null, "erin", 1), new Customer(null, "frank", 2));
+      final List<Customer> saved = SqlClosure.sqlExecute(c -> OrmElf.insertListNotBatchedReturning(c, unsaved));
+
+      assertThat(saved).hasSize(2).extracting(customer -> customer.name).containsExactly("erin", "frank");
+      assertThat(saved).extracting(customer -> customer.id).doesNotContainNull().doesNotHaveDuplicates();
+      assertThat(SqlClosureElf.getObjectById(Customer.class, saved.get(1).id).name).isEqualTo("frank");
+   }
+
+   @Test
+   public void shouldPreferNoArgConstructor()
+   {
+      final Bean unsaved = new Bean("grace");
+      final Bean saved = SqlClosureElf.insertObject(unsaved);
+      assertThat(saved).as("Populated through its fields").isSameAs(unsaved);
+      assertThat(saved.id).isNotNull();
+      assertThat(SqlClosureElf.getObjectById(Bean.class, saved.id).name).isEqualTo("grace");
+   }
+
+   @Test
+   public void shouldMapRecords() throws Exception
+   {
+      final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      Assume.assumeTrue("Records require Java 16", compiler != null && hasRecords());
+
+      final File source = new File(folder.newFolder("gen"), "Visit.java");
+      Files.write(source.toPath(), ("package gen;\n"
+         + "import javax.persistence.*;\n"
+         + "@Table(name = \"immutable_test\")\n"
+         + "public record Visit(@Id @GeneratedValue(strategy = GenerationType.IDENTITY) @Column(name = \"id\") Integer id,\n"
+         + "                    @Column(name = \"name\") String name, @Column(name = \"visits\") long visits) {}\n").getBytes(StandardCharsets.UTF_8));
+      final String classPath = new File(Table.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+      assertThat(compiler.run(null, null, null, "-classpath", classPath, "-d", folder.getRoot().getPath(), source.getPath())).isZero();
+
+      try (URLClassLoader loader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() }, getClass().getClassLoader())) {
+         final Class<?> visitClass = loader.loadClass("gen.Visit");
+         final Object saved = SqlClosureElf.insertObject(visitClass.getConstructor(Integer.class, String.class, long.class).newInstance(null, "dave", 7L));
+         final Object id = visitClass.getMethod("id").invoke(saved);
+         assertThat(id).isNotNull();
+
+         final Object loaded = SqlClosureElf.getObjectById(visitClass, id);
+         assertThat(loaded).isEqualTo(saved);
+         assertThat(visitClass.getMethod("visits").invoke(loaded)).isEqualTo(7L);
+      }
+   }
+
+   private static boolean hasRecords()
+   {
+      try {
+         Class.forName("java.lang.Record");
+         return true;
+      }
+      catch (ClassNotFoundException e) {
+         return false;
+      }
+   }
+}
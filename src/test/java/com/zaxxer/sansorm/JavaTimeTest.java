@@ -0,0 +1,270 @@
+package com.zaxxer.sansorm;
+
+import org.h2.util.DateTimeUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+import org.sansorm.testutils.DummyConnection;
+import org.sansorm.testutils.DummyParameterMetaData;
+import org.sansorm.testutils.DummyResultSet;
+import org.sansorm.testutils.DummyResultSetMetaData;
+import org.sansorm.testutils.DummyStatement;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JavaTimeTest
+{
+   @Table(name = "java_time_test")
+   public static class Appointment
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "starts")
+      LocalDateTime starts;
+
+      @Column(name = "day")
+      LocalDate day;
+
+      @Column(name = "reminder")
+      LocalTime reminder;
+
+      @Column(name = "created")
+      Instant created;
+
+      @Column(name = "updated")
+      ZonedDateTime updated;
+
+      @Column(name = "alarm")
+      OffsetTime alarm;
+   }
+
+   private static TimeZone defaultTimeZone;
+
+   @BeforeClass
+   public static void setUp()
+   {
+      // a zone with DST and an offset from UTC, where mixing up zones shifts the values
+      defaultTimeZone = TimeZone.getDefault();
+      TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+      // H2 caches the default time zone on first use
+      DateTimeUtils.resetCalendar();
+
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE java_time_test (id INTEGER PRIMARY KEY, starts TIMESTAMP, day DATE, reminder TIME, created TIMESTAMP, "
+                                    + "updated TIMESTAMP, alarm TIME)");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE java_time_test");
+      SansOrm.deinitialize();
+      TimeZone.setDefault(defaultTimeZone);
+      DateTimeUtils.resetCalendar();
+   }
+
+   @Test
+   public void shouldRoundTripThroughPreJdbc42Driver()
+   {
+      final Appointment appointment = newAppointment();
+      SqlClosureElf.insertObject(appointment);
+
+      final Appointment loaded = SqlClosureElf.getObjectById(Appointment.class, 1);
+      assertThat(loaded.starts).isEqualTo(appointment.starts);
+      assertThat(loaded.day).isEqualTo(appointment.day);
+      assertThat(loaded.reminder).isEqualTo(appointment.reminder);
+      assertThat(loaded.created).isEqualTo(appointment.created);
+      assertThat(loaded.updated.toInstant()).isEqualTo(appointment.updated.toInstant());
+      assertThat(loaded.alarm.isEqual(appointment.alarm)).as("%s is %s", loaded.alarm, appointment.alarm).isTrue();
+
+      final List<Appointment> found = SqlClosureElf.listFromClause(Appointment.class, "starts > ?", appointment.starts.minusDays(1));
+      assertThat(found).extracting(a -> a.day).containsExactly(appointment.day);
+   }
+
+   @Test
+   public void shouldRoundTripThroughJdbc42Driver() throws SQLException
+   {
+      final Jdbc42Database database = new Jdbc42Database();
+      final Appointment appointment = newAppointment();
+      OrmElf.insertObject(database, appointment);
+
+      assertThat(database.row.get("starts")).as("Written natively").isEqualTo(appointment.starts);
+      assertThat(database.row.get("day")).as("Written natively").isEqualTo(appointment.day);
+      assertThat(database.row.get("updated")).as("TIMESTAMP WITH TIME ZONE").isEqualTo(appointment.updated.toOffsetDateTime());
+
+      final List<Appointment> appointments = OrmElf.resultSetToList(new Jdbc42ResultSet(database.row), Appointment.class);
+      assertThat(appointments).hasSize(1);
+      final Appointment loaded = appointments.get(0);
+      assertThat(loaded.starts).isEqualTo(appointment.starts);
+      assertThat(loaded.day).isEqualTo(appointment.day);
+      assertThat(loaded.created).isEqualTo(appointment.created);
+      assertThat(loaded.updated.toInstant()).isEqualTo(appointment.updated.toInstant());
+   }
+
+   private static Appointment newAppointment()
+   {
+      final Appointment appointment = new Appointment();
+      appointment.id = 1;
+      appointment.starts = LocalDateTime.of(2018, 3, 14, 15, 9, 26, 535_000_000);
+      appointment.day = LocalDate.of(2018, 3, 14);
+      appointment.reminder = LocalTime.of(14, 45);
+      appointment.created = Instant.parse("2018-03-01T08:00:00Z");
+      appointment.updated = ZonedDateTime.of(2018, 7, 1, 12, 0, 0, 0, ZoneId.of("Europe/Paris"));
+      appointment.alarm = OffsetTime.of(7, 30, 0, 0, ZoneOffset.ofHours(2));
+      return appointment;
+   }
+
+   /**
+    * A JDBC 4.2 connection storing the parameters of one INSERT, as a driver that renders a {@link Timestamp}
+    * in the default time zone of the JVM.  The {@code updated} column is a {@code TIMESTAMP WITH TIME ZONE}.
+    */
+   private static final class Jdbc42Database extends DummyConnection
+   {
+      final Map<String, Object> row = new HashMap<>();
+
+      @Override
+      public DatabaseMetaData getMetaData()
+      {
+         return (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DatabaseMetaData.class },
+            (proxy, method, args) -> "getJDBCMajorVersion".equals(method.getName()) ? 4 : 2);
+      }
+
+      @Override
+      public PreparedStatement prepareStatement(final String sql)
+      {
+         final String[] columns = sql.substring(sql.indexOf('(') + 1, sql.indexOf(')')).split(",");
+         return new DummyStatement() {
+            @Override
+            public Connection getConnection()
+            {
+               return Jdbc42Database.this;
+            }
+
+            @Override
+            public ParameterMetaData getParameterMetaData()
+            {
+               return new DummyParameterMetaData() {
+                  @Override
+                  public int getParameterCount()
+                  {
+                     return columns.length;
+                  }
+
+                  @Override
+                  public int getParameterType(final int param)
+                  {
+                     return "updated".equals(columns[param - 1].trim()) ? Types.TIMESTAMP_WITH_TIMEZONE : Types.OTHER;
+                  }
+               };
+            }
+
+            @Override
+            public void setObject(final int parameterIndex, final Object x, final int targetSqlType)
+            {
+               row.put(columns[parameterIndex - 1].trim(), x instanceof Timestamp ? ((Timestamp) x).toLocalDateTime() : x);
+            }
+
+            @Override
+            public int executeUpdate()
+            {
+               return 1;
+            }
+         };
+      }
+   }
+
+   /**
+    * A result set of one row of a JDBC 4.2 driver that, like PostgreSQL's, returns a {@code TIMESTAMP} requested
+    * as {@link OffsetDateTime} in UTC, and a {@link Timestamp} in the default time zone of the JVM.
+    */
+   private static final class Jdbc42ResultSet extends DummyResultSet
+   {
+      private static final String[] COLUMNS = { "id", "starts", "day", "created", "updated" };
+
+      private final Map<String, Object> row;
+      private boolean consumed;
+
+      Jdbc42ResultSet(final Map<String, Object> row)
+      {
+         this.row = row;
+      }
+
+      @Override
+      public boolean next()
+      {
+         final boolean hasNext = !consumed;
+         consumed = true;
+         return hasNext;
+      }
+
+      @Override
+      public int getInt(final int columnIndex)
+      {
+         return (Integer) row.get(COLUMNS[columnIndex - 1]);
+      }
+
+      @Override
+      public Timestamp getTimestamp(final int columnIndex)
+      {
+         final Object value = row.get(COLUMNS[columnIndex - 1]);
+         return value instanceof OffsetDateTime ? Timestamp.from(((OffsetDateTime) value).toInstant()) : Timestamp.valueOf((LocalDateTime) value);
+      }
+
+      @Override
+      public <T> T getObject(final int columnIndex, final Class<T> type)
+      {
+         final Object value = row.get(COLUMNS[columnIndex - 1]);
+         if (type == OffsetDateTime.class && value instanceof LocalDateTime) {
+            return type.cast(((LocalDateTime) value).atOffset(ZoneOffset.UTC));
+         }
+         return type.cast(value);
+      }
+
+      @Override
+      public ResultSetMetaData getMetaData()
+      {
+         return new DummyResultSetMetaData() {
+            @Override
+            public int getColumnCount()
+            {
+               return COLUMNS.length;
+            }
+
+            @Override
+            public String getColumnName(final int column)
+            {
+               return COLUMNS[column - 1];
+            }
+         };
+      }
+   }
+}
@@ -0,0 +1,111 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JoinFetchTest
+{
+   @Table(name = "join_order")
+   public static class Order
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "customer")
+      String customer;
+
+      @OneToMany(mappedBy = "order")
+      List<OrderLine> lines;
+   }
+
+   @Table(name = "join_line")
+   public static class OrderLine
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @ManyToOne
+      @JoinColumn(name = "order_id")
+      Order order;
+
+      @Column(name = "product")
+      String product;
+   }
+
+   private static final List<QueryEvent> selects = new ArrayList<>();
+   private static final QueryListener listener = event -> {
+      if (event.getOperation() == QueryEvent.Operation.SELECT) {
+         selects.add(event);
+      }
+   };
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE join_order (id INTEGER PRIMARY KEY, customer VARCHAR(32))");
+      SqlClosureElf.executeUpdate("CREATE TABLE join_line (id INTEGER PRIMARY KEY, order_id INTEGER, product VARCHAR(32))");
+      SqlClosureElf.executeUpdate("INSERT INTO join_order VALUES (1, 'ada'), (2, 'grace'), (3, 'edsger')");
+      SqlClosureElf.executeUpdate("INSERT INTO join_line VALUES (10, 1, 'abacus'), (11, 1, 'slide rule'), (20, 2, 'compiler')");
+      SansOrm.addQueryListener(listener);
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SansOrm.removeQueryListener(listener);
+      SqlClosureElf.executeUpdate("DROP TABLE join_line");
+      SqlClosureElf.executeUpdate("DROP TABLE join_order");
+      SansOrm.deinitialize();
+   }
+
+   @Before
+   public void clearQueries()
+   {
+      selects.clear();
+   }
+
+   @Test
+   public void shouldMapJoinedRowsIntoGraph()
+   {
+      final String sql = "SELECT " + OrmElf.getColumnsCsv(Order.class, "o") + ", " + OrmElf.getColumnsCsv(OrderLine.class, "l")
+         + " FROM join_order o LEFT JOIN join_line l ON l.order_id = o.id ORDER BY o.id, l.id";
+      final List<Order> orders = SqlClosure.sqlExecute(c -> OrmElf.resultSetToJoinedList(SqlClosureElf.executeQuery(c, sql), Order.class, OrderLine.class));
+
+      assertThat(selects).as("No query beyond the join").isEmpty();
+      assertThat(orders).extracting(o -> o.customer).containsExactly("ada", "grace", "edsger");
+      assertThat(orders.get(0).lines).extracting(l -> l.product).containsExactly("abacus", "slide rule");
+      assertThat(orders.get(0).lines).allSatisfy(line -> assertThat(line.order).isSameAs(orders.get(0)));
+      assertThat(orders.get(1).lines).extracting(l -> l.id).containsExactly(20);
+      assertThat(orders.get(2).lines).as("Order without lines of the outer join").isEmpty();
+   }
+
+   @Test
+   public void shouldLoadRelationshipsOutsideJoin()
+   {
+      final String sql = "SELECT " + OrmElf.getColumnsCsv(OrderLine.class, "l") + " FROM join_line l ORDER BY l.id";
+      final List<OrderLine> lines = SqlClosure.sqlExecute(c -> OrmElf.resultSetToJoinedList(SqlClosureElf.executeQuery(c, sql), OrderLine.class));
+
+      assertThat(lines).hasSize(3);
+      assertThat(lines.get(0).order).isSameAs(lines.get(1).order);
+      assertThat(lines.get(2).order.customer).isEqualTo("grace");
+      assertThat(lines.get(2).order.lines).as("Lazy collection outside the join").isNull();
+      assertThat(selects).as("The orders of the lines").hasSize(1);
+   }
+}
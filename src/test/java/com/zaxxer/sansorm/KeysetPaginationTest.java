@@ -0,0 +1,130 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeysetPaginationTest
+{
+   @Table(name = "keyset_test")
+   public static class Score
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "player")
+      String player;
+
+      @Column(name = "points")
+      int points;
+
+      @Column(name = "bonus")
+      Integer bonus;
+   }
+
+   private static final List<String> queries = new ArrayList<>();
+   private static final QueryListener listener = event -> queries.add(event.getSql());
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE keyset_test (id INTEGER PRIMARY KEY, player VARCHAR(16), points INTEGER NOT NULL, bonus INTEGER)");
+      for (int id = 1; id <= 25; id++) {
+         SqlClosureElf.executeUpdate("INSERT INTO keyset_test VALUES (?, ?, ?, ?)", id, "p" + (id % 4), id % 7, id % 3 == 0 ? null : id % 5);
+      }
+      SansOrm.addQueryListener(listener);
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SansOrm.removeQueryListener(listener);
+      SqlClosureElf.executeUpdate("DROP TABLE keyset_test");
+      SansOrm.deinitialize();
+   }
+
+   @Before
+   public void clearQueries()
+   {
+      queries.clear();
+   }
+
+   @Test
+   public void shouldPageBySortKeyAndId()
+   {
+      final List<Score> all = readAll(null, "points DESC", 10);
+
+      assertThat(all).hasSize(25);
+      assertThat(all).isSortedAccordingTo(Comparator.<Score>comparingInt(s -> -s.points).thenComparingInt(s -> -s.id));
+      assertThat(queries).hasSize(3);
+      assertThat(queries.get(1)).contains("(keyset_test.points, keyset_test.id) < (?, ?)").doesNotContain("OFFSET");
+   }
+
+   @Test
+   public void shouldPageWithMixedDirectionsAndClause()
+   {
+      final List<Score> all = readAll("player <> ?", "points DESC, id", 4, "p0");
+
+      assertThat(all).hasSize(19).extracting(s -> s.player).doesNotContain("p0");
+      assertThat(all).isSortedAccordingTo(Comparator.<Score>comparingInt(s -> -s.points).thenComparingInt(s -> s.id));
+      assertThat(queries.get(1)).contains("(keyset_test.points < ?) OR (keyset_test.points = ? AND keyset_test.id > ?)");
+   }
+
+   @Test
+   public void shouldPageOverNullSortValues()
+   {
+      // H2 sorts nulls low: first in ascending, last in descending order
+      final Comparator<Score> byBonus = Comparator.comparing((Score s) -> s.bonus, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+
+      List<Score> all = readAll(null, "bonus", 3);
+      assertThat(all).hasSize(25).extracting(s -> s.id).doesNotHaveDuplicates();
+      assertThat(all).isSortedAccordingTo(byBonus.thenComparingInt(s -> s.id));
+      assertThat(String.join("\n", queries)).contains("keyset_test.bonus IS NOT NULL");
+
+      queries.clear();
+      all = readAll(null, "bonus DESC", 3);
+      assertThat(all).hasSize(25).extracting(s -> s.id).doesNotHaveDuplicates();
+      assertThat(all).isSortedAccordingTo(byBonus.thenComparingInt(s -> s.id).reversed());
+      assertThat(String.join("\n", queries)).contains("(keyset_test.bonus < ? OR keyset_test.bonus IS NULL)")
+                                             .contains("keyset_test.bonus IS NULL AND keyset_test.id < ?");
+   }
+
+   @Test
+   public void shouldRejectForeignTokens()
+   {
+      final String token = SqlClosureElf.listPage(Score.class, null, "points", null, 5).getNextToken();
+
+      assertThatThrownBy(() -> SqlClosureElf.listPage(Score.class, null, "player", token, 5))
+         .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("not issued");
+      assertThatThrownBy(() -> SqlClosureElf.listPage(Score.class, null, "points", "AAAA" + token, 5))
+         .isInstanceOf(IllegalArgumentException.class);
+   }
+
+   private List<Score> readAll(final String clause, final String orderBy, final int pageSize, final Object... args)
+   {
+      final List<Score> all = new ArrayList<>();
+      String token = null;
+      do {
+         final Page<Score> page = SqlClosureElf.listPage(Score.class, clause, orderBy, token, pageSize, args);
+         assertThat(page.getItems().size()).isLessThanOrEqualTo(pageSize);
+         all.addAll(page.getItems());
+         token = page.getNextToken();
+      }
+      while (token != null);
+      return all;
+   }
+}
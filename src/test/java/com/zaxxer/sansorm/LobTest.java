@@ -0,0 +1,165 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LobTest
+{
+   @Table(name = "lob_test")
+   public static class StreamedDocument
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Lob
+      @Column(name = "body")
+      Reader body;
+
+      @Lob
+      @Column(name = "data")
+      InputStream data;
+   }
+
+   @Table(name = "lob_test")
+   public static class LoadedDocument
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Lob
+      @Column(name = "body")
+      String body;
+
+      @Lob
+      @Column(name = "data")
+      byte[] data;
+   }
+
+   @Table(name = "lob_test")
+   public static class LazyDocument
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Lob
+      @Column(name = "body")
+      LazyLob body;
+
+      @Lob
+      @Column(name = "data")
+      LazyLob data;
+   }
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE lob_test (id INTEGER PRIMARY KEY, body CLOB, data BLOB)");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE lob_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldStreamLobs()
+   {
+      final StreamedDocument document = new StreamedDocument();
+      document.id = 1;
+      document.body = new StringReader("streamed text");
+      document.data = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+      SqlClosureElf.insertObject(document);
+
+      SqlClosure.sqlExecute(c -> {
+         final StreamedDocument loaded = OrmElf.objectById(c, StreamedDocument.class, 1);
+         assertThat(read(loaded.body)).isEqualTo("streamed text");
+         assertThat(read(loaded.data)).containsExactly(1, 2, 3);
+         return null;
+      });
+   }
+
+   @Test
+   public void shouldBindLobStringsAndBytesAsStreams()
+   {
+      final LoadedDocument document = new LoadedDocument();
+      document.id = 2;
+      document.body = "loaded text";
+      document.data = new byte[] { 4, 5 };
+      SqlClosureElf.insertObject(document);
+
+      final LoadedDocument loaded = SqlClosureElf.getObjectById(LoadedDocument.class, 2);
+      assertThat(loaded.body).isEqualTo("loaded text");
+      assertThat(loaded.data).containsExactly(4, 5);
+   }
+
+   @Test
+   public void shouldCopyLazyLobs()
+   {
+      final LoadedDocument document = new LoadedDocument();
+      document.id = 3;
+      document.body = "copied text";
+      document.data = new byte[] { 6 };
+      SqlClosureElf.insertObject(document);
+
+      SqlClosure.sqlExecute(c -> {
+         final LazyDocument lazy = OrmElf.objectById(c, LazyDocument.class, 3);
+         assertThat(lazy.body.isBinary()).isFalse();
+         assertThat(lazy.body.length()).isEqualTo(11);
+         lazy.id = 4;
+         return OrmElf.insertObject(c, lazy);
+      });
+
+      final LoadedDocument copy = SqlClosureElf.getObjectById(LoadedDocument.class, 4);
+      assertThat(copy.body).isEqualTo("copied text");
+      assertThat(copy.data).containsExactly(6);
+   }
+
+   private static String read(final Reader reader)
+   {
+      try (Reader closeable = reader) {
+         final StringBuilder sb = new StringBuilder();
+         for (int c = closeable.read(); c >= 0; c = closeable.read()) {
+            sb.append((char) c);
+         }
+         return sb.toString();
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static byte[] read(final InputStream stream)
+   {
+      try (InputStream closeable = stream) {
+         final byte[] buffer = new byte[16];
+         final int length = Math.max(0, closeable.read(buffer));
+         final byte[] bytes = new byte[length];
+         System.arraycopy(buffer, 0, bytes, 0, length);
+         return bytes;
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
@@ -0,0 +1,90 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrimitiveColumnTest
+{
+   @Table(name = "primitive_test")
+   public static class Measurement
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "count")
+      long count = -1;
+
+      @Column(name = "ratio")
+      double ratio = -1;
+
+      @Column(name = "weight")
+      float weight;
+
+      @Column(name = "level")
+      short level;
+
+      @Column(name = "active")
+      boolean active;
+   }
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE primitive_test (id INTEGER PRIMARY KEY, count BIGINT, ratio DOUBLE, weight REAL, level SMALLINT, active INTEGER)");
+      SqlClosureElf.executeUpdate("INSERT INTO primitive_test VALUES (1, 9000000000, 0.5, 1.25, 7, 1)");
+      SqlClosureElf.executeUpdate("INSERT INTO primitive_test (id) VALUES (2)");
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE primitive_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldReadPrimitiveColumns()
+   {
+      final List<Measurement> measurements = SqlClosureElf.listFromClause(Measurement.class, "id > 0 ORDER BY id");
+      assertThat(measurements).hasSize(2);
+
+      final Measurement full = measurements.get(0);
+      assertThat(full.id).isEqualTo(1);
+      assertThat(full.count).isEqualTo(9_000_000_000L);
+      assertThat(full.ratio).isEqualTo(0.5);
+      assertThat(full.weight).isEqualTo(1.25f);
+      assertThat(full.level).isEqualTo((short) 7);
+      assertThat(full.active).as("INTEGER column into a boolean field").isTrue();
+
+      final Measurement empty = measurements.get(1);
+      assertThat(empty.count).as("NULL leaves the field untouched").isEqualTo(-1);
+      assertThat(empty.ratio).isEqualTo(-1);
+      assertThat(empty.active).isFalse();
+   }
+
+   @Test
+   public void shouldReadPrimitiveColumnsIntoTarget()
+   {
+      final Measurement measurement = SqlClosure.sqlExecute(c -> {
+         try (Statement stmt = c.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM primitive_test WHERE id = 1")) {
+            rs.next();
+            return OrmElf.resultSetToObject(rs, new Measurement());
+         }
+      });
+      assertThat(measurement.count).isEqualTo(9_000_000_000L);
+      assertThat(measurement.active).isTrue();
+   }
+}
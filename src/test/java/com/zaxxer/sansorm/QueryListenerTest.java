@@ -0,0 +1,128 @@
+package com.zaxxer.sansorm;
+
+import com.zaxxer.sansorm.QueryEvent.Operation;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryListenerTest
+{
+   @Table(name = "listener_test")
+   public static class Item
+   {
+      @Id
+      @GeneratedValue(strategy = GenerationType.IDENTITY)
+      @Column(name = "id")
+      Integer id;
+
+      @Column(name = "name")
+      String name;
+   }
+
+   private final List<QueryEvent> events = new ArrayList<>();
+   private final QueryListener recorder = new QueryListener() {
+      @Override
+      public void beforeQuery(QueryEvent event)
+      {
+         event.setAttachment("started");
+      }
+
+      @Override
+      public void afterQuery(QueryEvent event)
+      {
+         events.add(event);
+      }
+   };
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      final JdbcDataSource dataSource = TestUtils.makeH2DataSource();
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE listener_test (id INTEGER NOT NULL IDENTITY PRIMARY KEY, name VARCHAR(32))");
+      }
+      SansOrm.initializeTxNone(dataSource);
+      SansOrm.addQueryListener(recorder);
+   }
+
+   @After
+   public void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE listener_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldReportEntityOperations()
+   {
+      final Item item = new Item();
+      item.name = "first";
+      SqlClosureElf.insertObject(item);
+      SqlClosureElf.getObjectById(Item.class, item.id);
+      SqlClosureElf.getObjectById(Item.class, -1);
+      item.name = "changed";
+      SqlClosureElf.updateObject(item);
+      SqlClosureElf.countObjectsFromClause(Item.class, "name = ?", "changed");
+      SqlClosureElf.deleteObject(item);
+
+      assertThat(events).extracting(QueryEvent::getOperation)
+         .containsExactly(Operation.INSERT, Operation.SELECT, Operation.SELECT, Operation.UPDATE, Operation.COUNT, Operation.DELETE);
+      assertThat(events).extracting(QueryEvent::getEntityClass).containsOnly(Item.class);
+      assertThat(events).extracting(QueryEvent::getRowCount).containsExactly(1, 1, 0, 1, 1, 1);
+      assertThat(events).extracting(QueryEvent::getParameterCount).containsExactly(1, 1, 1, 2, 1, 1);
+      assertThat(events).extracting(QueryEvent::getAttachment).containsOnly("started");
+      assertThat(events).allSatisfy(event -> {
+         assertThat(event.getSql()).containsIgnoringCase("listener_test");
+         assertThat(event.getElapsedNanos()).isPositive();
+         assertThat(event.getException()).isNull();
+      });
+   }
+
+   @Test
+   public void shouldReportBatchesAndFailures()
+   {
+      final Item first = new Item();
+      first.name = "a";
+      final Item second = new Item();
+      second.name = "b";
+      SqlClosure.sqlExecute(c -> {
+         OrmElf.insertListBatched(c, Arrays.asList(first, second));
+         return null;
+      });
+
+      assertThatThrownBy(() -> SqlClosureElf.numberFromSql("SELECT COUNT(*) FROM no_such_table")).isInstanceOf(RuntimeException.class);
+
+      assertThat(events).hasSize(2);
+      assertThat(events.get(0).getOperation()).isEqualTo(Operation.BATCH_INSERT);
+      assertThat(events.get(0).getRowCount()).isEqualTo(2);
+      assertThat(events.get(1).getOperation()).isEqualTo(Operation.QUERY);
+      assertThat(events.get(1).getEntityClass()).isNull();
+      assertThat(events.get(1).getRowCount()).isEqualTo(-1);
+      assertThat(events.get(1).getException()).isNotNull();
+   }
+
+   @Test
+   public void shouldStopReportingWhenRemoved()
+   {
+      SansOrm.removeQueryListener(recorder);
+      SqlClosureElf.countObjectsFromClause(Item.class, null);
+      assertThat(events).isEmpty();
+   }
+}
@@ -0,0 +1,129 @@
+package com.zaxxer.sansorm;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryStatisticsTest
+{
+   @Table(name = "stats_test")
+   public static class Item
+   {
+      @Id
+      @GeneratedValue(strategy = GenerationType.IDENTITY)
+      @Column(name = "id")
+      Integer id;
+
+      @Column(name = "name")
+      String name;
+   }
+
+   private QueryStatistics statistics;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      final JdbcDataSource dataSource = TestUtils.makeH2DataSource();
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE stats_test (id INTEGER NOT NULL IDENTITY PRIMARY KEY, name VARCHAR(32))");
+      }
+      SansOrm.initializeTxNone(dataSource);
+      statistics = SansOrm.enableQueryStatistics();
+   }
+
+   @After
+   public void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE stats_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldAccumulateByFingerprint()
+   {
+      for (int i = 0; i < 3; i++) {
+         final Item item = new Item();
+         item.name = "item" + i;
+         SqlClosureElf.insertObject(item);
+      }
+      SqlClosureElf.listFromClause(Item.class, "name = 'item1'");
+      SqlClosureElf.listFromClause(Item.class, "name = 'item2'");
+      SqlClosureElf.listFromClause(Item.class, "name IN ('item0', 'item1', 'item2')");
+
+      final List<QueryStats> queries = statistics.getQueries();
+      assertThat(queries).hasSize(3);
+      assertThat(statistics.getStatementCount()).isEqualTo(6);
+
+      final QueryStats insert = find(queries, "INSERT");
+      assertThat(insert.getCount()).isEqualTo(3);
+      assertThat(insert.getRowCount()).isEqualTo(3);
+      assertThat(insert.getEntityClass()).isEqualTo(Item.class.getName());
+
+      final QueryStats equal = find(queries, "name = ?");
+      assertThat(equal.getCount()).isEqualTo(2);
+      assertThat(equal.getRowCount()).isEqualTo(2);
+      assertThat(equal.getMaxNanos()).isPositive().isLessThanOrEqualTo(equal.getTotalNanos());
+
+      assertThat(find(queries, "name IN (?)").getRowCount()).isEqualTo(3);
+      assertThat(statistics.getTopQueries(1)).hasSize(1);
+      assertThat(queries).isSortedAccordingTo((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+   }
+
+   @Test
+   public void shouldAccumulateOverflowUnderOther()
+   {
+      final QueryStatistics bounded = new QueryStatistics(1);
+      SansOrm.addQueryListener(bounded);
+      SqlClosureElf.countObjectsFromClause(Item.class, "id > 1");
+      SqlClosureElf.countObjectsFromClause(Item.class, "id > 2");
+      SqlClosureElf.listFromClause(Item.class, "id > 3");
+
+      final List<QueryStats> queries = bounded.getQueries();
+      assertThat(queries).extracting(QueryStats::getCount).containsOnly(2L, 1L);
+      assertThat(queries).extracting(QueryStats::getFingerprint).contains(QueryStatistics.OTHER);
+      assertThat(bounded.getFingerprintCount()).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldExposeMBean() throws Exception
+   {
+      SqlClosureElf.countObjectsFromClause(Item.class, null);
+
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(QueryStatistics.OBJECT_NAME);
+      assertThat(server.getAttribute(name, "StatementCount")).isEqualTo(1L);
+      final CompositeData[] top = (CompositeData[]) server.invoke(name, "getTopQueries", new Object[] { 5 }, new String[] { int.class.getName() });
+      assertThat(top).hasSize(1);
+      assertThat((String) top[0].get("fingerprint")).contains("COUNT");
+
+      server.invoke(name, "reset", null, null);
+      assertThat(statistics.getStatementCount()).isZero();
+
+      SansOrm.disableQueryStatistics();
+      assertThat(server.isRegistered(name)).isFalse();
+   }
+
+   private static QueryStats find(List<QueryStats> queries, String fragment)
+   {
+      return queries.stream().filter(stats -> stats.getFingerprint().contains(fragment)).findFirst()
+                    .orElseThrow(() -> new AssertionError("No fingerprint containing " + fragment + " in " + queries));
+   }
+}
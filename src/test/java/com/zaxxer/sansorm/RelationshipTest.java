@@ -0,0 +1,220 @@
+package com.zaxxer.sansorm;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RelationshipTest
+{
+   @Table(name = "rel_customer")
+   public static class Customer
+   {
+      @Id
+      @Column(name = "id")
+      long id;
+
+      @Column(name = "name")
+      String name;
+
+      @OneToMany(mappedBy = "customer")
+      List<Order> orders;
+   }
+
+   @Table(name = "rel_order")
+   public static class Order
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @ManyToOne
+      @JoinColumn(name = "customer_id")
+      Customer customer;
+
+      @Column(name = "total")
+      int total;
+   }
+
+   @Table(name = "rel_order")
+   public static class LazyOrder
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @ManyToOne(fetch = FetchType.LAZY)
+      @JoinColumn(name = "customer_id")
+      Customer customer;
+
+      @Column(name = "total")
+      int total;
+   }
+
+   @Table(name = "rel_customer")
+   public static class EagerCustomer
+   {
+      @Id
+      @Column(name = "id")
+      long id;
+
+      @OneToMany(mappedBy = "customer", fetch = FetchType.EAGER)
+      Set<EagerOrder> orders;
+   }
+
+   @Table(name = "rel_order")
+   public static class EagerOrder
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @ManyToOne
+      @JoinColumn(name = "customer_id")
+      EagerCustomer customer;
+   }
+
+   private static final List<QueryEvent> selects = new ArrayList<>();
+   private static final QueryListener listener = event -> {
+      if (event.getOperation() == QueryEvent.Operation.SELECT) {
+         selects.add(event);
+      }
+   };
+
+   @BeforeClass
+   public static void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE rel_customer (id BIGINT PRIMARY KEY, name VARCHAR(32))");
+      SqlClosureElf.executeUpdate("CREATE TABLE rel_order (id INTEGER PRIMARY KEY, customer_id INTEGER, total INTEGER)");
+
+      for (int c = 1; c <= 3; c++) {
+         final Customer customer = new Customer();
+         customer.id = c;
+         customer.name = "customer" + c;
+         SqlClosureElf.insertObject(customer);
+         for (int o = 0; o < c; o++) {
+            final Order order = new Order();
+            order.id = c * 10 + o;
+            order.customer = customer;
+            order.total = o;
+            SqlClosureElf.insertObject(order);
+         }
+      }
+      final Order orphan = new Order();
+      orphan.id = 99;
+      SqlClosureElf.insertObject(orphan);
+      SansOrm.addQueryListener(listener);
+   }
+
+   @AfterClass
+   public static void tearDown()
+   {
+      SansOrm.removeQueryListener(listener);
+      SqlClosureElf.executeUpdate("DROP TABLE rel_order");
+      SqlClosureElf.executeUpdate("DROP TABLE rel_customer");
+      SansOrm.deinitialize();
+   }
+
+   @Before
+   public void clearQueries()
+   {
+      selects.clear();
+   }
+
+   @Test
+   public void shouldBatchFetchManyToOne()
+   {
+      final List<Order> orders = SqlClosureElf.listFromClause(Order.class, "id > 0 ORDER BY id");
+
+      assertThat(orders).hasSize(7);
+      assertThat(selects).as("The orders and their customers").hasSize(2);
+      assertThat(selects.get(0).getSql()).as("Three ids padded to four parameters").contains("id IN (?,?,?,?)");
+      assertThat(orders.get(0).customer.name).isEqualTo("customer1");
+      assertThat(orders.get(1).customer).isSameAs(orders.get(2).customer);
+      assertThat(orders.get(6).customer).isNull();
+      assertThat(orders.get(1).customer.orders).as("@OneToMany is lazy by default").isNull();
+   }
+
+   @Test
+   public void shouldFetchLazyOneToManyOnRequest()
+   {
+      final List<Customer> customers = SqlClosure.sqlExecute(c -> {
+         final List<Customer> list = OrmElf.listFromClause(c, Customer.class, "id > 0 ORDER BY id");
+         assertThat(list).allSatisfy(customer -> assertThat(customer.orders).isNull());
+         OrmElf.fetchCollection(c, list, "orders");
+         return list;
+      });
+
+      assertThat(selects).as("One query for the customers, one for their orders").hasSize(2);
+      assertThat(customers).extracting(c -> c.orders.size()).containsExactly(1, 2, 3);
+      for (Customer customer : customers) {
+         assertThat(customer.orders).allSatisfy(order -> assertThat(order.customer).isSameAs(customer));
+      }
+   }
+
+   @Test
+   public void shouldBatchFetchEagerOneToMany()
+   {
+      final List<EagerCustomer> customers = SqlClosureElf.listFromClause(EagerCustomer.class, "id > 0 ORDER BY id");
+
+      assertThat(selects).as("One query for the customers, one for their orders").hasSize(2);
+      assertThat(customers).extracting(c -> c.orders.size()).containsExactly(1, 2, 3);
+      assertThat(customers.get(2).orders).allSatisfy(order -> assertThat(order.customer).isSameAs(customers.get(2)));
+   }
+
+   @Test
+   public void shouldReferenceLazyManyToOne()
+   {
+      final LazyOrder order = SqlClosureElf.getObjectById(LazyOrder.class, 31);
+
+      assertThat(selects).as("No query for the customer").hasSize(1);
+      assertThat(order.customer.id).isEqualTo(3);
+      assertThat(order.customer.name).isNull();
+
+      order.total = 42;
+      SqlClosureElf.updateObject(order);
+      assertThat(SqlClosureElf.getObjectById(Order.class, 31).customer.name).isEqualTo("customer3");
+   }
+
+   @Test
+   public void shouldSkipLoadingWithoutStatement() throws SQLException
+   {
+      final List<Order> orders = SqlClosure.sqlExecute(c -> {
+         final ResultSet resultSet = SqlClosureElf.executeQuery(c, "SELECT * FROM rel_order WHERE id = ?", 31);
+         final ResultSet withoutStatement = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> "getStatement".equals(method.getName()) ? null : method.invoke(resultSet, args));
+         return OrmElf.resultSetToList(withoutStatement, Order.class);
+      });
+
+      assertThat(orders).hasSize(1);
+      assertThat(orders.get(0).customer.id).as("Reference holding the foreign key").isEqualTo(3);
+      assertThat(orders.get(0).customer.name).isNull();
+   }
+
+   @Test
+   public void shouldResolveSingleObject()
+   {
+      final Order order = SqlClosureElf.getObjectById(Order.class, 31);
+
+      assertThat(order.customer.id).isEqualTo(3);
+      assertThat(order.customer.name).isEqualTo("customer3");
+   }
+}
@@ -0,0 +1,90 @@
+package com.zaxxer.sansorm;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlClosureAffinityTest
+{
+   private HikariDataSource dataSource;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      final JdbcDataSource h2 = TestUtils.makeH2DataSource();
+      try (Connection connection = h2.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE affinity_test (id INTEGER PRIMARY KEY)");
+      }
+
+      // a single connection pool deadlocks (times out) as soon as two connections are borrowed at once
+      final HikariConfig config = new HikariConfig();
+      config.setDataSource(h2);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      dataSource = new HikariDataSource(config);
+      SansOrm.initializeTxNone(dataSource);
+   }
+
+   @After
+   public void tearDown() throws SQLException
+   {
+      SansOrm.deinitialize();
+      dataSource.close();
+      try (Connection connection = TestUtils.makeH2DataSource().getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("DROP TABLE affinity_test");
+      }
+   }
+
+   @Test
+   public void shouldBorrowConnectionPerClosureByDefault()
+   {
+      assertThatThrownBy(() -> SqlClosure.sqlExecute(outer -> SqlClosure.sqlExecute(inner -> inner)))
+         .isInstanceOf(RuntimeException.class)
+         .hasMessageContaining("timed out");
+   }
+
+   @Test
+   public void shouldJoinOuterConnection()
+   {
+      SansOrm.setConnectionAffinity(true);
+
+      final boolean shared = SqlClosure.sqlExecute(outer ->
+         SqlClosure.sqlExecute(inner -> SqlClosure.sqlExecuteReadOnly(innermost -> innermost == outer && inner == outer)));
+      assertThat(shared).isTrue();
+      assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isEqualTo(0);
+   }
+
+   @Test
+   public void shouldRollbackNestedWorkWithOuterClosure()
+   {
+      SansOrm.setConnectionAffinity(true);
+
+      assertThatThrownBy(() -> SqlClosure.sqlExecute(outer -> {
+         SqlClosure.sqlExecute(inner -> SqlClosureElf.executeUpdate(inner, "INSERT INTO affinity_test VALUES (1)"));
+         throw new SQLException("outer failure");
+      })).isInstanceOf(RuntimeException.class);
+
+      final int count = SqlClosure.sqlExecute(SqlClosureAffinityTest::countRows);
+      assertThat(count).isEqualTo(0);
+
+      SqlClosure.sqlExecute(outer -> SqlClosure.sqlExecute(inner -> SqlClosureElf.executeUpdate(inner, "INSERT INTO affinity_test VALUES (2)")));
+      final int committed = SqlClosure.sqlExecute(SqlClosureAffinityTest::countRows);
+      assertThat(committed).isEqualTo(1);
+   }
+
+   private static int countRows(final Connection connection) throws SQLException
+   {
+      return SqlClosureElf.numberFromSql(connection, "SELECT COUNT(*) FROM affinity_test").intValue();
+   }
+}
@@ -0,0 +1,103 @@
+package com.zaxxer.sansorm;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlClosureLazyTest
+{
+   private HikariDataSource dataSource;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      final JdbcDataSource h2 = TestUtils.makeH2DataSource();
+      try (Connection connection = h2.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE lazy_test (id INTEGER PRIMARY KEY)");
+      }
+
+      final HikariConfig config = new HikariConfig();
+      config.setDataSource(h2);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      dataSource = new HikariDataSource(config);
+      SansOrm.initializeTxNone(dataSource);
+   }
+
+   @After
+   public void tearDown() throws SQLException
+   {
+      SansOrm.deinitialize();
+      dataSource.close();
+      try (Connection connection = TestUtils.makeH2DataSource().getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("DROP TABLE lazy_test");
+      }
+   }
+
+   @Test
+   public void shouldAcquireOnFirstStatement()
+   {
+      final int[] active = new int[2];
+      new SqlClosure<Void>() {
+         @Override
+         protected Void execute(Connection connection) throws SQLException
+         {
+            active[0] = dataSource.getHikariPoolMXBean().getActiveConnections();
+            SqlClosureElf.executeUpdate(connection, "INSERT INTO lazy_test VALUES (1)");
+            active[1] = dataSource.getHikariPoolMXBean().getActiveConnections();
+            return null;
+         }
+      }.lazy().execute();
+
+      assertThat(active).containsExactly(0, 1);
+      assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isEqualTo(0);
+      assertThat(SqlClosure.sqlExecute(SqlClosureLazyTest::countRows)).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldReleaseAndCommitEarly()
+   {
+      SansOrm.setLazyConnections(true);
+
+      final int count = SqlClosure.sqlExecute(c -> {
+         SqlClosureElf.executeUpdate(c, "INSERT INTO lazy_test VALUES (2)");
+         SqlClosure.release(c);
+         // the only pooled connection is available again, and the insert has been committed
+         return SqlClosure.sqlExecute(SqlClosureLazyTest::countRows);
+      });
+      assertThat(count).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldIgnoreReleaseOfJoinedConnection()
+   {
+      SansOrm.setLazyConnections(true);
+      SansOrm.setConnectionAffinity(true);
+
+      final int active = SqlClosure.sqlExecute(outer -> {
+         SqlClosureElf.executeUpdate(outer, "INSERT INTO lazy_test VALUES (3)");
+         SqlClosure.sqlExecute(inner -> {
+            SqlClosure.release(inner);
+            return null;
+         });
+         return dataSource.getHikariPoolMXBean().getActiveConnections();
+      });
+      assertThat(active).isEqualTo(1);
+      assertThat(SqlClosure.sqlExecute(SqlClosureLazyTest::countRows)).isEqualTo(1);
+   }
+
+   private static int countRows(final Connection connection) throws SQLException
+   {
+      return SqlClosureElf.numberFromSql(connection, "SELECT COUNT(*) FROM lazy_test").intValue();
+   }
+}
@@ -0,0 +1,173 @@
+package com.zaxxer.sansorm;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlClosureRetryTest
+{
+   private static final RetryPolicy NO_BACKOFF = new RetryPolicy(3, 0, 0, Dialect.GENERIC);
+
+   @Before
+   public void setUp()
+   {
+      SansOrm.initializeTxNone(TestUtils.makeH2DataSource());
+   }
+
+   @After
+   public void tearDown()
+   {
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldRetryTransientFailures()
+   {
+      final AtomicInteger attempts = new AtomicInteger();
+      final String result = new SqlClosure<String>() {
+         @Override
+         protected String execute(Connection connection) throws SQLException
+         {
+            if (attempts.incrementAndGet() < 3) {
+               throw new SQLException("serialization failure", "40001");
+            }
+            return "done";
+         }
+      }.withRetryPolicy(NO_BACKOFF).execute();
+
+      assertThat(result).isEqualTo("done");
+      assertThat(attempts.get()).isEqualTo(3);
+   }
+
+   @Test
+   public void shouldGiveUpAfterMaxAttempts()
+   {
+      final AtomicInteger attempts = new AtomicInteger();
+      SansOrm.setRetryPolicy(NO_BACKOFF);
+      assertThatThrownBy(() -> SqlClosure.sqlExecute(c -> {
+         attempts.incrementAndGet();
+         throw new SQLTransactionRollbackException("deadlock", "40P01");
+      })).isInstanceOf(RuntimeException.class).hasCauseInstanceOf(SQLTransactionRollbackException.class);
+
+      assertThat(attempts.get()).isEqualTo(3);
+   }
+
+   @Test
+   public void shouldNotRetryPermanentFailures()
+   {
+      final AtomicInteger attempts = new AtomicInteger();
+      SansOrm.setRetryPolicy(NO_BACKOFF);
+      assertThatThrownBy(() -> SqlClosure.sqlExecute(c -> {
+         attempts.incrementAndGet();
+         throw new SQLException("unique constraint violation", "23505");
+      })).isInstanceOf(RuntimeException.class);
+
+      assertThat(attempts.get()).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldOnlyRetryInTransactionOwner()
+   {
+      SansOrm.deinitialize();
+      SansOrm.initializeTxSimple(TestUtils.makeH2DataSource());
+      SansOrm.setRetryPolicy(NO_BACKOFF);
+
+      final AtomicInteger outerAttempts = new AtomicInteger();
+      final AtomicInteger innerAttempts = new AtomicInteger();
+      final Integer result = SqlClosure.sqlExecute(c -> {
+         outerAttempts.incrementAndGet();
+         return SqlClosure.sqlExecute(cNested -> {
+            if (innerAttempts.incrementAndGet() == 1) {
+               throw new SQLException("deadlock", "40001");
+            }
+            return 42;
+         });
+      });
+
+      assertThat(result).isEqualTo(42);
+      assertThat(outerAttempts.get()).as("The owner re-executes the whole unit of work").isEqualTo(2);
+      assertThat(innerAttempts.get()).as("The joined closure does not retry by itself").isEqualTo(2);
+   }
+
+   @Test
+   public void shouldRetryFailedCommit()
+   {
+      final JdbcDataSource h2 = TestUtils.makeH2DataSource();
+      final AtomicInteger commits = new AtomicInteger();
+      final DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+         (proxy, method, args) -> {
+            final Object connection = method.invoke(h2, args);
+            if (!"getConnection".equals(method.getName())) {
+               return connection;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, (cProxy, cMethod, cArgs) -> {
+               if ("commit".equals(cMethod.getName()) && commits.incrementAndGet() == 1) {
+                  throw new SQLException("could not serialize access", "40001");
+               }
+               return cMethod.invoke(connection, cArgs);
+            });
+         });
+
+      final AtomicInteger attempts = new AtomicInteger();
+      final Integer result = new SqlClosure<Integer>(dataSource) {
+         @Override
+         protected Integer execute(Connection connection)
+         {
+            return attempts.incrementAndGet();
+         }
+      }.withRetryPolicy(NO_BACKOFF).execute();
+
+      assertThat(result).isEqualTo(2);
+      assertThat(commits.get()).isEqualTo(2);
+   }
+
+   @Test
+   public void shouldClassifyPerDialect()
+   {
+      final SQLException sqliteBusy = new SQLException("[SQLITE_BUSY] The database file is locked", null, 5);
+      final SQLException pgLockNotAvailable = new SQLException("could not obtain lock", "55P03");
+      final SQLException mysqlLockTimeout = new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+
+      assertThat(Dialect.GENERIC.isTransient(sqliteBusy)).isFalse();
+      assertThat(Dialect.SQLITE.isTransient(sqliteBusy)).isTrue();
+      assertThat(Dialect.SQLITE.isTransient(new RuntimeException(sqliteBusy))).isTrue();
+      assertThat(Dialect.GENERIC.isTransient(pgLockNotAvailable)).isFalse();
+      assertThat(Dialect.POSTGRESQL.isTransient(pgLockNotAvailable)).isTrue();
+      assertThat(Dialect.MYSQL.isTransient(mysqlLockTimeout)).isTrue();
+
+      final SQLException batch = new SQLException("batch failed", "HY000");
+      batch.setNextException(new SQLException("deadlock", "40P01"));
+      assertThat(Dialect.GENERIC.isTransient(batch)).isTrue();
+      assertThat(Dialect.GENERIC.isTransient(new SQLTransactionRollbackException("integrity constraint violation", "40002"))).isFalse();
+      assertThat(Dialect.GENERIC.isTransient(new SQLTransactionRollbackException("statement completion unknown", "40003"))).isFalse();
+
+      assertThat(Dialect.fromProductName("PostgreSQL")).isEqualTo(Dialect.POSTGRESQL);
+      assertThat(Dialect.fromProductName("H2")).isEqualTo(Dialect.H2);
+      assertThat(Dialect.fromProductName("SQLite")).isEqualTo(Dialect.SQLITE);
+      assertThat(Dialect.fromProductName("Derby")).isEqualTo(Dialect.GENERIC);
+   }
+
+   @Test
+   public void shouldBackoffExponentiallyWithJitter()
+   {
+      final RetryPolicy policy = new RetryPolicy(10, 10, 100, Dialect.GENERIC);
+      for (int i = 0; i < 100; i++) {
+         assertThat(policy.getBackoffMillis(1)).isBetween(5L, 10L);
+         assertThat(policy.getBackoffMillis(3)).isBetween(20L, 40L);
+         assertThat(policy.getBackoffMillis(8)).isBetween(50L, 100L);
+      }
+      assertThat(RetryPolicy.NONE.getBackoffMillis(1)).isEqualTo(0L);
+   }
+}
@@ -0,0 +1,95 @@
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.CacheStats;
+import com.zaxxer.sansorm.SansOrm;
+import org.junit.Test;
+import org.sansorm.TargetClass1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoundedCacheTest
+{
+   @Test
+   public void shouldEvictLeastRecentlyUsed()
+   {
+      BoundedCache<String, String> cache = new BoundedCache<>("test");
+      cache.setMaximumSize(4);
+      for (String key : new String[] { "a", "b", "c", "d" }) {
+         cache.computeIfAbsent(key, String::toUpperCase);
+      }
+      cache.computeIfAbsent("a", key -> "not computed");
+      cache.computeIfAbsent("e", String::toUpperCase);
+
+      assertThat(cache.size()).isEqualTo(4);
+      assertThat(cache.getHitCount()).isEqualTo(1);
+      assertThat(cache.getMissCount()).isEqualTo(5);
+      assertThat(cache.getEvictionCount()).isEqualTo(1);
+      assertThat(cache.computeIfAbsent("a", key -> "not computed")).isEqualTo("A");
+      assertThat(cache.computeIfAbsent("b", key -> "recomputed")).isEqualTo("recomputed");
+   }
+
+   @Test
+   public void shouldStayBoundedUnderConcurrentMisses() throws Exception
+   {
+      BoundedCache<Integer, Integer> cache = new BoundedCache<>("test");
+      cache.setMaximumSize(100);
+      AtomicInteger next = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < 10_000; i++) {
+                  int key = next.incrementAndGet() % 1_000;
+                  assertThat(cache.computeIfAbsent(key, k -> k * 2)).isEqualTo(key * 2);
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      }
+      finally {
+         executor.shutdown();
+      }
+
+      assertThat(cache.size()).as("Concurrent insertions evict one entry each").isEqualTo(100);
+      assertThat(cache.getHitCount() + cache.getMissCount()).isEqualTo(80_000);
+      assertThat(cache.getEvictionCount()).isGreaterThan(0);
+   }
+
+   @Test
+   public void shouldTrimWhenShrunk()
+   {
+      BoundedCache<Integer, Integer> cache = new BoundedCache<>("test");
+      for (int key = 0; key < 10_000; key++) {
+         cache.computeIfAbsent(key, k -> k);
+      }
+      cache.setMaximumSize(10);
+
+      assertThat(cache.size()).isEqualTo(10);
+      cache.computeIfAbsent(-1, k -> k);
+      assertThat(cache.size()).isEqualTo(10);
+      assertThat(cache.getEvictionCount()).isEqualTo(cache.getMissCount() - 10);
+   }
+
+   @Test
+   public void shouldReportStatsOfSqlCaches()
+   {
+      OrmReader.prebuildStatements(TargetClass1.class, Introspector.getIntrospected(TargetClass1.class));
+      OrmReader.prebuildStatements(TargetClass1.class, Introspector.getIntrospected(TargetClass1.class));
+
+      List<CacheStats> stats = SansOrm.getCacheStats();
+      assertThat(stats).extracting(CacheStats::getName).containsExactly("select", "insert", "update", "columns", "fingerprint");
+      assertThat(stats.get(0).getSize()).isGreaterThan(0);
+      assertThat(stats.get(0).getHitCount()).isGreaterThan(0);
+      assertThat(stats.get(0).getMaximumSize()).isEqualTo(500);
+   }
+}
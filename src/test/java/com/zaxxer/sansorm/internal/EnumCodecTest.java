@@ -0,0 +1,133 @@
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.EnumCode;
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosureElf;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EnumCodecTest
+{
+   public enum Status
+   {
+      @EnumCode("A") ACTIVE,
+      @EnumCode("S") SUSPENDED,
+      CLOSED
+   }
+
+   public enum Duplicated
+   {
+      @EnumCode("X") FIRST,
+      @EnumCode("X") SECOND
+   }
+
+   @Table(name = "enum_test")
+   public static class Event
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Enumerated(EnumType.ORDINAL)
+      @Column(name = "unit")
+      ChronoUnit unit;
+
+      @Enumerated(EnumType.STRING)
+      @Column(name = "unit_name")
+      ChronoUnit unitName;
+
+      @Enumerated(EnumType.STRING)
+      @Column(name = "status")
+      Status status;
+   }
+
+   private JdbcDataSource dataSource;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      dataSource = TestUtils.makeH2DataSource();
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE enum_test (id INTEGER PRIMARY KEY, unit INTEGER, unit_name VARCHAR(16), status CHAR(6))");
+      }
+      SansOrm.initializeTxNone(dataSource);
+   }
+
+   @After
+   public void tearDown()
+   {
+      SqlClosureElf.executeUpdate("DROP TABLE enum_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldRoundTripEnums() throws SQLException
+   {
+      final Event event = new Event();
+      event.id = 1;
+      event.unit = ChronoUnit.HOURS;
+      event.unitName = ChronoUnit.MILLENNIA;
+      event.status = Status.SUSPENDED;
+      SqlClosureElf.insertObject(event);
+      final Event closed = new Event();
+      closed.id = 2;
+      closed.status = Status.CLOSED;
+      SqlClosureElf.insertObject(closed);
+
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement();
+           ResultSet rs = stmt.executeQuery("SELECT unit, unit_name, status FROM enum_test ORDER BY id")) {
+         rs.next();
+         assertThat(rs.getInt(1)).isEqualTo(ChronoUnit.HOURS.ordinal());
+         assertThat(rs.getString(2)).isEqualTo("MILLENNIA");
+         assertThat(rs.getString(3).trim()).isEqualTo("S");
+         rs.next();
+         assertThat(rs.getString(3).trim()).as("Constants without code are stored by name").isEqualTo("CLOSED");
+      }
+
+      final Event loaded = SqlClosureElf.getObjectById(Event.class, 1);
+      assertThat(loaded.unit).isEqualTo(ChronoUnit.HOURS);
+      assertThat(loaded.unitName).isEqualTo(ChronoUnit.MILLENNIA);
+      assertThat(loaded.status).isEqualTo(Status.SUSPENDED);
+      assertThat(SqlClosureElf.getObjectById(Event.class, 2).unit).isNull();
+   }
+
+   @Test
+   public void shouldDecodeEveryConstant()
+   {
+      final EnumCodec byName = new EnumCodec(ChronoUnit.class, EnumType.STRING);
+      final EnumCodec byOrdinal = new EnumCodec(ChronoUnit.class, EnumType.ORDINAL);
+      for (ChronoUnit unit : ChronoUnit.values()) {
+         assertThat(byName.decode(byName.encode(unit))).isSameAs(unit);
+         assertThat(byOrdinal.decode(byOrdinal.encode(unit))).isSameAs(unit);
+      }
+      assertThat(byName.decode("FORTNIGHTS")).isNull();
+      assertThat(byOrdinal.decode(-1)).isNull();
+      assertThat(byOrdinal.decode(ChronoUnit.values().length)).isNull();
+      assertThat(new EnumCodec(Status.class, EnumType.STRING).decode('A')).isEqualTo(Status.ACTIVE);
+      assertThat(new EnumCodec(Status.class, EnumType.STRING).decode("S     ")).as("Padded CHAR(n) value").isEqualTo(Status.SUSPENDED);
+   }
+
+   @Test
+   public void shouldRejectDuplicateCodes()
+   {
+      assertThatThrownBy(() -> new EnumCodec(Duplicated.class, EnumType.STRING))
+         .isInstanceOf(IllegalStateException.class).hasMessageContaining("Duplicate code X");
+   }
+}
@@ -1,12 +1,36 @@
 package com.zaxxer.sansorm.internal;
 
 import org.junit.Test;
+import org.sansorm.BaseClass;
 import org.sansorm.TargetClass1;
+import org.sansorm.TargetClass2;
+import org.sansorm.TargetTimestampClass1;
+import org.sansorm.sqlite.TargetClassSQL;
+
+import javax.persistence.Id;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class IntrospectorTest
 {
+   @MappedSuperclass
+   @Table(name = "invalid")
+   static class InvalidSuperclass
+   {
+      @Id
+      int id;
+   }
+
+   @Table(name = "invalid")
+   static class InvalidEntity extends InvalidSuperclass
+   {
+   }
+
    @Test
    public void shouldCacheClassMeta()
    {
@@ -15,4 +39,22 @@ public class IntrospectorTest
       assertThat(is1).isNotNull();
       assertThat(is1).isSameAs(is2);
    }
+
+   @Test
+   public void shouldFindEntityClassesInPackageAndSubPackages()
+   {
+      List<Class<?>> classes = Introspector.findEntityClasses(getClass().getClassLoader(), "org.sansorm");
+      assertThat(classes).containsExactly(BaseClass.class, TargetClass1.class, TargetClass2.class, TargetTimestampClass1.class, TargetClassSQL.class);
+   }
+
+   @Test
+   public void shouldPreloadAndCollectFailures()
+   {
+      assertThatThrownBy(() -> Introspector.preload(Arrays.asList(TargetClass2.class, InvalidEntity.class, TargetTimestampClass1.class)))
+         .isInstanceOf(RuntimeException.class)
+         .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+
+      Introspector.preload(Arrays.asList(BaseClass.class, TargetClass1.class, TargetClass2.class));
+      assertThat(Introspector.getIntrospected(TargetClass2.class).getTableName()).isEqualTo("TargetClass2");
+   }
 }
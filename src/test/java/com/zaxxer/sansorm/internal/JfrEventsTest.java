@@ -0,0 +1,101 @@
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosureElf;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JfrEventsTest
+{
+   @Table(name = "jfr_test")
+   public static class JfrItem
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "name")
+      String name;
+   }
+
+   @Before
+   public void setUp()
+   {
+      Assume.assumeTrue(FlightRecorder.isAvailable());
+      SansOrm.initializeTxSimple(TestUtils.makeH2DataSource());
+      SqlClosureElf.executeUpdate("CREATE TABLE jfr_test (id INTEGER PRIMARY KEY, name VARCHAR(32))");
+   }
+
+   @After
+   public void tearDown()
+   {
+      if (FlightRecorder.isAvailable()) {
+         SqlClosureElf.executeUpdate("DROP TABLE jfr_test");
+         SansOrm.deinitialize();
+      }
+   }
+
+   @Test
+   public void shouldRecordEventsOnlyWhileRecording() throws Exception
+   {
+      assertThat(JfrEvents.isRecording()).isFalse();
+
+      final Path file = Files.createTempFile("sansorm", ".jfr");
+      try (Recording recording = new Recording()) {
+         for (String name : new String[] { "Statement", "RowMapping", "ConnectionAcquisition", "TransactionEnd" }) {
+            recording.enable("com.zaxxer.sansorm." + name).withThreshold(Duration.ZERO);
+         }
+         recording.start();
+         assertThat(JfrEvents.isRecording()).isTrue();
+
+         final JfrItem item = new JfrItem();
+         item.id = 1;
+         item.name = "one";
+         SqlClosureElf.insertObject(item);
+         SqlClosureElf.listFromClause(JfrItem.class, "name = 'one'");
+
+         recording.stop();
+         recording.dump(file);
+      }
+      assertThat(JfrEvents.isRecording()).isFalse();
+
+      final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      Files.delete(file);
+      assertThat(events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toSet()))
+         .contains("com.zaxxer.sansorm.Statement", "com.zaxxer.sansorm.RowMapping", "com.zaxxer.sansorm.ConnectionAcquisition",
+                   "com.zaxxer.sansorm.TransactionEnd");
+
+      final List<RecordedEvent> statements = events.stream()
+         .filter(event -> event.getEventType().getName().equals("com.zaxxer.sansorm.Statement"))
+         .collect(Collectors.toList());
+      assertThat(statements).extracting(event -> event.getString("operation")).containsExactly("INSERT", "SELECT");
+      assertThat(statements.get(1).getString("fingerprint")).endsWith("FROM jfr_test jfr_test WHERE name = ?");
+      assertThat(statements.get(1).getInt("rowCount")).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldFingerprintSql()
+   {
+      assertThat(SqlFingerprint.of("SELECT  a, t1.b FROM t1\n WHERE x = 'it''s' AND y IN (1, 2, -3) AND z > ?"))
+         .isEqualTo("SELECT a, t1.b FROM t1 WHERE x = ? AND y IN (?) AND z > ?");
+      assertThat(SqlFingerprint.of("UPDATE t SET a=?,b=? WHERE \"id 2\"=?")).isEqualTo("UPDATE t SET a=?,b=? WHERE \"id 2\"=?");
+   }
+}
@@ -0,0 +1,138 @@
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.OrmElf;
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosure;
+import com.zaxxer.sansorm.SqlClosureElf;
+import com.zaxxer.sansorm.transaction.TransactionElf;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NPlusOneDetectorTest
+{
+   @Table(name = "n_plus_one_test")
+   public static class Item
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+   }
+
+   private final List<String> warnings = new ArrayList<>();
+   private JdbcDataSource dataSource;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      dataSource = TestUtils.makeH2DataSource();
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE n_plus_one_test (id INTEGER PRIMARY KEY)");
+      }
+      SansOrm.initializeTxNone(dataSource);
+      NPlusOneDetector.setThreshold(3, warnings::add);
+   }
+
+   @After
+   public void tearDown()
+   {
+      SansOrm.deinitialize();
+      SansOrm.initializeTxNone(dataSource);
+      SqlClosureElf.executeUpdate("DROP TABLE n_plus_one_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldWarnOncePerCallSite()
+   {
+      for (int i = 0; i < 2; i++) {
+         SqlClosure.sqlExecute(connection -> {
+            for (int id = 0; id < 5; id++) {
+               OrmElf.objectById(connection, Item.class, id);
+            }
+            return null;
+         });
+      }
+
+      assertThat(warnings).hasSize(1);
+      assertThat(warnings.get(0)).startsWith("Possible N+1 queries: SELECT of Item executed 3 times")
+                                 .contains("n_plus_one_test", "listFromClause", "\tat " + NPlusOneDetectorTest.class.getName());
+   }
+
+   @Test
+   public void shouldIgnoreSeparateUnitsOfWorkAndSameArguments()
+   {
+      for (int id = 0; id < 5; id++) {
+         SqlClosureElf.getObjectById(Item.class, id);
+      }
+      SqlClosure.sqlExecute(connection -> {
+         for (int i = 0; i < 5; i++) {
+            OrmElf.countObjectsFromClause(connection, Item.class, "id > ?", 1);
+         }
+         return null;
+      });
+
+      assertThat(warnings).isEmpty();
+   }
+
+   @Test
+   public void shouldDetectWithinTransaction()
+   {
+      SansOrm.initializeTxSimple(dataSource);
+      NPlusOneDetector.setThreshold(3, warnings::add);
+
+      TransactionElf.beginOrJoinTransaction();
+      try {
+         for (int id = 0; id < 3; id++) {
+            final Item item = new Item();
+            item.id = id;
+            SqlClosureElf.insertObject(item);
+         }
+      }
+      finally {
+         TransactionElf.commit();
+      }
+
+      assertThat(warnings).hasSize(1);
+      assertThat(warnings.get(0)).startsWith("Possible N+1 queries: INSERT of Item").contains("insertListBatched");
+   }
+
+   @Test
+   public void shouldDetectAlongsideSlowQueryLog()
+   {
+      final ByteArrayOutputStream log = new ByteArrayOutputStream();
+      final PrintStream stderr = System.err;
+      System.setErr(new PrintStream(log, true));
+      try {
+         SansOrm.setSlowQueryLog(0, TimeUnit.NANOSECONDS, null);
+         SqlClosure.sqlExecute(connection -> {
+            for (int id = 0; id < 3; id++) {
+               OrmElf.objectById(connection, Item.class, id);
+            }
+            return null;
+         });
+      }
+      finally {
+         System.setErr(stderr);
+      }
+
+      assertThat(warnings).hasSize(1);
+      assertThat(log.toString()).contains("Slow SELECT of Item took ");
+   }
+}
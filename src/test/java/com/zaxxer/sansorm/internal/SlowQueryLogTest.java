@@ -0,0 +1,95 @@
+package com.zaxxer.sansorm.internal;
+
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosureElf;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sansorm.TestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowQueryLogTest
+{
+   @Table(name = "slow_test")
+   public static class Item
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "name")
+      String name;
+   }
+
+   private final BlockingQueue<String> records = new LinkedBlockingQueue<>();
+   private JdbcDataSource dataSource;
+   private SlowQueryLog slowQueryLog;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      dataSource = TestUtils.makeH2DataSource();
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE slow_test (id INTEGER PRIMARY KEY, name VARCHAR(64))");
+      }
+      SansOrm.initializeTxNone(dataSource);
+   }
+
+   @After
+   public void tearDown()
+   {
+      if (slowQueryLog != null) {
+         slowQueryLog.shutdown();
+      }
+      SqlClosureElf.executeUpdate("DROP TABLE slow_test");
+      SansOrm.deinitialize();
+   }
+
+   @Test
+   public void shouldLogWithRateLimitedPlan() throws InterruptedException
+   {
+      slowQueryLog = new SlowQueryLog(0, dataSource, records::add);
+      SansOrm.addQueryListener(slowQueryLog);
+
+      SqlClosureElf.getObjectById(Item.class, 42);
+      final String explained = records.poll(10, TimeUnit.SECONDS);
+      assertThat(explained).startsWith("Slow SELECT of Item took ").contains("(0 rows)", "slow_test", "arguments [42]", "\nPlan:\n");
+
+      SqlClosureElf.executeUpdate("UPDATE slow_test SET name = ? WHERE id = ?", "x", 42);
+      final String notExplained = records.poll(10, TimeUnit.SECONDS);
+      assertThat(notExplained).startsWith("Slow EXECUTE took ").contains("arguments ['x', 42]").doesNotContain("Plan:");
+   }
+
+   @Test
+   public void shouldIgnoreFastStatements()
+   {
+      slowQueryLog = new SlowQueryLog(TimeUnit.MINUTES.toNanos(1), null, records::add);
+      SansOrm.addQueryListener(slowQueryLog);
+
+      SqlClosureElf.getObjectById(Item.class, 42);
+      assertThat(records).isEmpty();
+   }
+
+   @Test
+   public void shouldSummarizeArguments()
+   {
+      final Object[] args = new Object[12];
+      args[0] = "0123456789012345678901234567890123456789";
+      args[1] = new byte[16];
+      assertThat(SlowQueryLog.summarize(args, args.length))
+         .isEqualTo("['01234567890123456789012345678901...(40)', byte[16], null, null, null, null, null, null, null, null, ... 2 more]");
+      assertThat(SlowQueryLog.summarize(null, 3)).isEqualTo("(3 per row)");
+   }
+}
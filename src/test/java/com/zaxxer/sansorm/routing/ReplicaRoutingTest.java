@@ -0,0 +1,190 @@
+package com.zaxxer.sansorm.routing;
+
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosure;
+import com.zaxxer.sansorm.SqlClosureElf;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingTest
+{
+   @Table(name = "routing_test")
+   public static class RoutingTarget
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "source")
+      String source;
+   }
+
+   private JdbcDataSource primary;
+   private JdbcDataSource replica1;
+   private JdbcDataSource replica2;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      primary = makeDatabase("primary");
+      replica1 = makeDatabase("replica1");
+      replica2 = makeDatabase("replica2");
+   }
+
+   @After
+   public void tearDown() throws SQLException
+   {
+      SansOrm.deinitialize();
+      for (JdbcDataSource ds : new JdbcDataSource[] { primary, replica1, replica2 }) {
+         try (Connection connection = ds.getConnection(); Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE routing_test");
+         }
+      }
+   }
+
+   @Test
+   public void shouldRouteReadsToReplicasRoundRobin()
+   {
+      SansOrm.initializeTxNone(primary, replica1, replica2);
+
+      final List<String> sources = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+         sources.add(SqlClosureElf.listFromClauseReadOnly(RoutingTarget.class, "id = ?", 1).get(0).source);
+      }
+      assertThat(sources).containsExactly("replica1", "replica2", "replica1", "replica2");
+      assertThat(SqlClosureElf.getObjectById(RoutingTarget.class, 1).source).as("Reads are not routed implicitly").isEqualTo("primary");
+   }
+
+   @Test
+   public void shouldRouteWritesToPrimary()
+   {
+      SansOrm.initializeTxNone(primary, replica1, replica2);
+
+      final RoutingTarget target = new RoutingTarget();
+      target.id = 2;
+      target.source = "written";
+      SqlClosureElf.insertObject(target);
+
+      final int primaryCount = SqlClosure.sqlExecute(ReplicaRoutingTest::countRows);
+      assertThat(primaryCount).isEqualTo(2);
+      assertThat(SqlClosureElf.countObjectsFromClause(RoutingTarget.class, null)).isEqualTo(2);
+      assertThat(SqlClosureElf.countObjectsFromClauseReadOnly(RoutingTarget.class, null)).isEqualTo(1);
+      assertThat(SqlClosureElf.numberFromSql("SELECT COUNT(*) FROM routing_test").intValue()).isEqualTo(2);
+   }
+
+   @Test
+   public void shouldUseReadOnlyConnectionsOnReplicas()
+   {
+      // H2 ignores Connection.setReadOnly(), so record the calls instead
+      final List<Object> readOnlyFlags = new ArrayList<>();
+      final DataSource recordingReplica = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { DataSource.class },
+         (proxy, method, args) -> {
+            final Object ret = method.invoke(replica1, args);
+            if (!"getConnection".equals(method.getName())) {
+               return ret;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, (cProxy, cMethod, cArgs) -> {
+               if ("setReadOnly".equals(cMethod.getName())) {
+                  readOnlyFlags.add(cArgs[0]);
+               }
+               return cMethod.invoke(ret, cArgs);
+            });
+         });
+      SansOrm.initializeTxNone(primary, recordingReplica);
+
+      SqlClosure.sqlExecuteReadOnly(c -> SqlClosureElf.numberFromSql(c, "SELECT 1"));
+      SqlClosure.sqlExecute(c -> SqlClosureElf.numberFromSql(c, "SELECT 1"));
+      assertThat(readOnlyFlags).containsExactly(true);
+   }
+
+   @Test
+   public void shouldStickToPrimaryInsideTransaction()
+   {
+      SansOrm.initializeTxSimple(primary, replica1, replica2);
+
+      final String source = SqlClosure.sqlExecute(c -> SqlClosureElf.listFromClauseReadOnly(RoutingTarget.class, "id = ?", 1).get(0).source);
+      assertThat(source).isEqualTo("primary");
+      assertThat(SqlClosureElf.listFromClauseReadOnly(RoutingTarget.class, "id = ?", 1).get(0).source).startsWith("replica");
+   }
+
+   @Test
+   public void shouldBalanceLeastOutstanding() throws SQLException
+   {
+      final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, LoadBalancing.LEAST_OUTSTANDING, replica1, replica2);
+      try (Connection first = routing.getReadOnlyConnection(); Connection second = routing.getReadOnlyConnection()) {
+         assertThat(routing.getOutstanding(0)).isEqualTo(1);
+         assertThat(routing.getOutstanding(1)).isEqualTo(1);
+         first.close();
+         assertThat(routing.getOutstanding(0) + routing.getOutstanding(1)).isEqualTo(1);
+
+         try (Connection third = routing.getReadOnlyConnection()) {
+            assertThat(routing.getOutstanding(0)).isEqualTo(1);
+            assertThat(routing.getOutstanding(1)).isEqualTo(1);
+         }
+      }
+      assertThat(routing.getOutstanding(0) + routing.getOutstanding(1)).isEqualTo(0);
+   }
+
+   @Test
+   public void shouldCloseReplicaConnectionWhenReadOnlyFails() throws SQLException
+   {
+      final List<String> closed = new ArrayList<>();
+      final DataSource failingReplica = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+         (proxy, method, args) -> {
+            final Object ret = method.invoke(replica1, args);
+            if (!"getConnection".equals(method.getName())) {
+               return ret;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, (cProxy, cMethod, cArgs) -> {
+               if ("setReadOnly".equals(cMethod.getName())) {
+                  throw new SQLException("Read-only mode not supported");
+               }
+               if ("close".equals(cMethod.getName())) {
+                  closed.add("replica1");
+               }
+               return cMethod.invoke(ret, cArgs);
+            });
+         });
+
+      final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, LoadBalancing.LEAST_OUTSTANDING, failingReplica, replica2);
+      for (int i = 0; i < 2; i++) {
+         try (Connection connection = routing.getReadOnlyConnection()) {
+            assertThat(connection.getMetaData().getURL()).contains("replica2");
+         }
+      }
+      assertThat(closed).containsExactly("replica1");
+      assertThat(routing.getOutstanding(0)).isEqualTo(0);
+      assertThat(routing.getOutstanding(1)).isEqualTo(0);
+   }
+
+   private static JdbcDataSource makeDatabase(final String name) throws SQLException
+   {
+      final JdbcDataSource dataSource = new JdbcDataSource();
+      dataSource.setUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+      try (Connection connection = dataSource.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE routing_test (id INTEGER PRIMARY KEY, source VARCHAR(32))");
+         stmt.execute("INSERT INTO routing_test VALUES (1, '" + name + "')");
+      }
+      return dataSource;
+   }
+
+   private static int countRows(final Connection connection) throws SQLException
+   {
+      return SqlClosureElf.numberFromSql(connection, "SELECT COUNT(*) FROM routing_test").intValue();
+   }
+}
@@ -0,0 +1,223 @@
+package com.zaxxer.sansorm.routing;
+
+import com.zaxxer.sansorm.Dialect;
+import com.zaxxer.sansorm.SansOrm;
+import com.zaxxer.sansorm.SqlClosureElf;
+import com.zaxxer.sansorm.internal.OrderByComparator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardingTest
+{
+   @Table(name = "shard_item")
+   public static class ShardItem
+   {
+      @Id
+      @Column(name = "id")
+      int id;
+
+      @Column(name = "name")
+      String name;
+
+      public ShardItem()
+      {
+      }
+
+      ShardItem(int id, String name)
+      {
+         this.id = id;
+         this.name = name;
+      }
+   }
+
+   @Table(name = "shard_event")
+   public static class ShardEvent
+   {
+      @Id
+      @GeneratedValue(strategy = GenerationType.IDENTITY)
+      @Column(name = "id")
+      Integer id;
+
+      @Column(name = "item_id")
+      int itemId;
+   }
+
+   @Table(name = "shard_account")
+   public static class ShardAccount
+   {
+      @Id
+      @Column(name = "id")
+      long id;
+
+      @Column(name = "name")
+      String name;
+   }
+
+   private static final ShardResolver BY_MODULO = (entityClass, key, shardCount) -> ((Number) key[0]).intValue() % shardCount;
+
+   private JdbcDataSource[] shards;
+
+   @Before
+   public void setUp() throws SQLException
+   {
+      shards = new JdbcDataSource[3];
+      for (int i = 0; i < shards.length; i++) {
+         shards[i] = new JdbcDataSource();
+         shards[i].setUrl("jdbc:h2:mem:shard" + i + ";DB_CLOSE_DELAY=-1");
+         execute(shards[i], "CREATE TABLE shard_item (id INTEGER PRIMARY KEY, name VARCHAR(32))");
+         execute(shards[i], "CREATE TABLE shard_event (id INTEGER NOT NULL IDENTITY PRIMARY KEY, item_id INTEGER)");
+         execute(shards[i], "CREATE TABLE shard_account (id BIGINT PRIMARY KEY, name VARCHAR(32))");
+      }
+      SansOrm.initializeShards(new ShardedDataSources(BY_MODULO, shards));
+   }
+
+   @After
+   public void tearDown() throws SQLException
+   {
+      SansOrm.deinitialize();
+      for (JdbcDataSource shard : shards) {
+         execute(shard, "DROP TABLE shard_item");
+         execute(shard, "DROP TABLE shard_event");
+         execute(shard, "DROP TABLE shard_account");
+      }
+   }
+
+   @Test
+   public void shouldRouteByIdTuple() throws SQLException
+   {
+      for (int id = 1; id <= 6; id++) {
+         SqlClosureElf.insertObject(new ShardItem(id, "item" + id));
+      }
+
+      assertThat(count(shards[0])).isEqualTo(2);
+      assertThat(count(shards[1])).isEqualTo(2);
+      assertThat(count(shards[2])).isEqualTo(2);
+      assertThat(SqlClosureElf.getObjectById(ShardItem.class, 5).name).isEqualTo("item5");
+
+      final ShardItem item = SqlClosureElf.getObjectById(ShardItem.class, 4);
+      item.name = "changed";
+      SqlClosureElf.updateObject(item);
+      assertThat(SqlClosureElf.getObjectById(ShardItem.class, 4).name).isEqualTo("changed");
+
+      assertThat(SqlClosureElf.deleteObjectById(ShardItem.class, 4)).isEqualTo(1);
+      assertThat(SqlClosureElf.getObjectById(ShardItem.class, 4)).isNull();
+   }
+
+   @Test
+   public void shouldRouteByExplicitShardKey() throws SQLException
+   {
+      final ShardEvent event = new ShardEvent();
+      event.itemId = 5;
+      assertThatThrownBy(() -> SqlClosureElf.insertObject(event)).isInstanceOf(IllegalStateException.class);
+
+      SqlClosureElf.insertObject(ShardKey.of(event.itemId), event);
+      assertThat(event.id).isNotNull();
+      assertThat(SqlClosureElf.getObjectById(ShardKey.of(5), ShardEvent.class, event.id)).isNotNull();
+      assertThat(count(shards[2], "shard_event")).isEqualTo(1);
+   }
+
+   @Test
+   public void shouldHashIntegralIdsOfAnyType()
+   {
+      SansOrm.initializeShards(new ShardedDataSources(ShardResolver.HASH, shards));
+
+      final ShardAccount account = new ShardAccount();
+      account.id = -5L;
+      account.name = "negative";
+      SqlClosureElf.insertObject(account);
+
+      assertThat(SqlClosureElf.getObjectById(ShardAccount.class, -5).name).as("int argument for a long id").isEqualTo("negative");
+      assertThat(SqlClosureElf.getObjectById(ShardAccount.class, new BigDecimal(-5)).name).isEqualTo("negative");
+      assertThat(ShardKey.of(-5)).isEqualTo(ShardKey.of(-5L));
+   }
+
+   @Test
+   public void shouldScatterGatherWithOrderedMerge()
+   {
+      for (int id = 1; id <= 9; id++) {
+         SqlClosureElf.insertObject(new ShardItem(id, "item" + (10 - id)));
+      }
+
+      assertThat(SqlClosureElf.countObjectsFromClauseAllShards(ShardItem.class, "id > ?", 3)).isEqualTo(6);
+
+      List<Integer> ids = SqlClosureElf.listFromClauseAllShards(ShardItem.class, "id > ? ORDER BY id DESC", 3)
+                                       .stream().map(item -> item.id).collect(Collectors.toList());
+      assertThat(ids).containsExactly(9, 8, 7, 6, 5, 4);
+
+      ids = SqlClosureElf.listFromClauseAllShards(ShardItem.class, "id > ? ORDER BY shard_item.name", 0)
+                         .stream().map(item -> item.id).collect(Collectors.toList());
+      assertThat(ids).containsExactly(9, 8, 7, 6, 5, 4, 3, 2, 1);
+
+      ids = SqlClosureElf.listFromClauseAllShards(ShardItem.class, "id < ?", 4)
+                         .stream().map(item -> item.id).collect(Collectors.toList());
+      assertThat(ids).as("Without ORDER BY results are concatenated in shard order").containsExactly(3, 1, 2);
+   }
+
+   @Test
+   public void shouldPlaceNullsLikeTheDialect()
+   {
+      for (int id = 1; id <= 4; id++) {
+         SqlClosureElf.insertObject(new ShardItem(id, id % 2 == 0 ? null : "item" + id));
+      }
+
+      final List<Integer> ids = SqlClosureElf.listFromClauseAllShards(ShardItem.class, "id > ? ORDER BY name, id", 0)
+                                             .stream().map(item -> item.id).collect(Collectors.toList());
+      assertThat(ids).as("H2 sorts nulls low").containsExactly(2, 4, 1, 3);
+
+      final ShardItem unnamed = new ShardItem(1, null);
+      final ShardItem named = new ShardItem(2, "item");
+      final Comparator<ShardItem> postgres = OrderByComparator.fromClause(ShardItem.class, "ORDER BY name", Dialect.POSTGRESQL);
+      assertThat(postgres.compare(unnamed, named)).as("PostgreSQL sorts nulls last ascending").isPositive();
+      assertThat(OrderByComparator.fromClause(ShardItem.class, "ORDER BY name DESC", Dialect.POSTGRESQL).compare(unnamed, named)).isNegative();
+      assertThat(OrderByComparator.fromClause(ShardItem.class, "ORDER BY name NULLS FIRST", Dialect.POSTGRESQL).compare(unnamed, named)).isNegative();
+      assertThat(OrderByComparator.fromClause(ShardItem.class, "ORDER BY name", Dialect.H2).compare(unnamed, named)).isNegative();
+   }
+
+   @Test
+   public void shouldScatterEveryShardOnTheExecutor()
+   {
+      final Thread caller = Thread.currentThread();
+      final List<Thread> threads = new ShardedDataSources(BY_MODULO, shards).scatter(ds -> Thread.currentThread());
+      assertThat(threads).hasSize(shards.length).doesNotContain(caller);
+   }
+
+   private static int count(JdbcDataSource ds) throws SQLException
+   {
+      return count(ds, "shard_item");
+   }
+
+   private static int count(JdbcDataSource ds, String table) throws SQLException
+   {
+      try (Connection connection = ds.getConnection(); Statement stmt = connection.createStatement()) {
+         try (java.sql.ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+         }
+      }
+   }
+
+   private static void execute(JdbcDataSource ds, String sql) throws SQLException
+   {
+      try (Connection connection = ds.getConnection(); Statement stmt = connection.createStatement()) {
+         stmt.execute(sql);
+      }
+   }
+}